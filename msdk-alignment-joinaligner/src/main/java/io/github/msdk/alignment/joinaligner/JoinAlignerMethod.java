@@ -14,9 +14,12 @@
 package io.github.msdk.alignment.joinaligner;
 
 import java.util.ArrayList;
-import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -25,12 +28,17 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+import io.github.msdk.datamodel.ColumnarFeatureTableRow;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeatureTable;
 import io.github.msdk.datamodel.SimpleFeatureTableRow;
-import io.github.msdk.util.FeatureTableUtil;
+import io.github.msdk.util.FeatureTableIndex;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
@@ -46,8 +54,10 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
   private final int mzWeight = 10;
   private final int rtWeight = 10;
   private final @Nonnull List<FeatureTable> featureTables;
-  private final @Nonnull SimpleFeatureTable result;
+  private @Nonnull FeatureTable result;
+  private @Nullable Layout columnarLayout;
   private boolean canceled = false;
+  private int parallelism = 1;
   private int processedFeatures = 0, totalFeatures = 0;
 
   // ID counter for the new feature table
@@ -73,9 +83,43 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
 
   }
 
+  /**
+   * <p>
+   * Sets the number of threads used to calculate the scores of the candidate rows. The aligned
+   * feature table does not depend on this setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
+  /**
+   * <p>
+   * Makes the method produce a {@link io.github.msdk.datamodel.ColumnarFeatureTable} with given
+   * layout instead of a {@link io.github.msdk.datamodel.SimpleFeatureTable}.
+   * </p>
+   *
+   * @param columnarLayout layout of the columnar feature table, or null for a simple feature table
+   */
+  public void setColumnarLayout(@Nullable Layout columnarLayout) {
+    this.columnarLayout = columnarLayout;
+  }
+
   /** {@inheritDoc} */
   @Override
   public FeatureTable execute() throws MSDKException {
+    ForkJoinPool pool = ParallelUtil.createPool(parallelism);
+    try {
+      return align(pool);
+    } finally {
+      if (pool != null)
+        pool.shutdown();
+    }
+  }
+
+  private FeatureTable align(@Nullable ForkJoinPool pool) throws MSDKException {
 
     // Calculate number of feature to process.
     for (FeatureTable featureTable : featureTables) {
@@ -87,77 +131,39 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
     for (FeatureTable featureTable : featureTables) {
       allSamples.addAll(featureTable.getSamples());
     }
-    result.setSamples(allSamples);
+    if (columnarLayout == null)
+      ((SimpleFeatureTable) result).setSamples(allSamples);
+    else
+      result = new ColumnarFeatureTable(allSamples, columnarLayout);
+
+    // Index of the rows of the aligned feature table by m/z and RT
+    FeatureTableIndex resultIndex = new FeatureTableIndex();
 
     // Iterate through all feature tables
     for (FeatureTable featureTable : featureTables) {
 
-      // Create a sorted array of matching scores between two rows
-      List<RowVsRowScore> scoreSet = new ArrayList<RowVsRowScore>();
-
-      // Calculate scores for all possible alignments of this row
-      for (FeatureTableRow row : featureTable.getRows()) {
-
-        final Double mz = row.getMz();
-        if (mz == null)
-          continue;
-
-        // Calculate the m/z range limit for the current row
-        Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
-
-        // Continue if no chromatography info is available
-        Float rt = row.getRT();
-        if (rt == null)
-          continue;
-
-        // Calculate the RT range limit for the current row
-        Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
-
-        // Get all rows of the aligned feature table within the m/z and
-        // RT limits
-        List<FeatureTableRow> candidateRows =
-            FeatureTableUtil.getRowsInsideRange(result, rtRange, mzRange);
-
-        // Calculate scores and store them
-        for (FeatureTableRow candidateRow : candidateRows) {
-
-          // Check charge
-          Integer charge1 = row.getCharge();
-          Integer charge2 = candidateRow.getCharge();
-          if ((charge1 != null) && (charge2 != null) && (!charge1.equals(charge2)))
-            continue;
-
-          // Calculate score
-          double mzLength = mzRange.upperEndpoint() - mzRange.lowerEndpoint();
-          double rtLength = rtRange.upperEndpoint() - rtRange.lowerEndpoint();
-          RowVsRowScore score = new RowVsRowScore(row, (SimpleFeatureTableRow) candidateRow, mzLength / 2.0, mzWeight,
-              rtLength / 2.0, rtWeight);
-
-          // Add the score to the array
-          scoreSet.add(score);
-
-        }
-
-        // processedFeatures++;
+      // Calculate scores for all possible alignments of the rows
+      List<RowVsRowScore> scoreSet = calculateScores(pool, featureTable.getRows(), resultIndex);
+      if (scoreSet == null)
+        return null;
 
-        if (canceled)
-          return null;
-      }
+      // Sort the scores in descending order. The sort is stable, so equal scores keep the order of
+      // the rows.
+      Collections.sort(scoreSet);
 
       // Create a table of mappings for best scores
-      Hashtable<FeatureTableRow, SimpleFeatureTableRow> alignmentMapping = new Hashtable<>();
+      Map<FeatureTableRow, FeatureTableRow> alignmentMapping = new IdentityHashMap<>();
+      Set<FeatureTableRow> mappedRows = Collections.newSetFromMap(new IdentityHashMap<>());
 
       // Iterate scores by descending order
-      Iterator<RowVsRowScore> scoreIterator = scoreSet.iterator();
-      while (scoreIterator.hasNext()) {
-        RowVsRowScore score = scoreIterator.next();
+      for (RowVsRowScore score : scoreSet) {
 
         // Check if the row is already mapped
         if (alignmentMapping.containsKey(score.getFeatureTableRow()))
           continue;
 
         // Check if the aligned row is already filled
-        if (alignmentMapping.containsValue(score.getAlignedRow()))
+        if (!mappedRows.add(score.getAlignedRow()))
           continue;
 
         alignmentMapping.put(score.getFeatureTableRow(), score.getAlignedRow());
@@ -165,22 +171,12 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
 
       // Align all rows using the mapping
       for (FeatureTableRow sourceRow : featureTable.getRows()) {
-        SimpleFeatureTableRow targetRow = alignmentMapping.get(sourceRow);
+        FeatureTableRow targetRow = alignmentMapping.get(sourceRow);
 
         // If we have no mapping for this row, add a new one
         if (targetRow == null) {
-          targetRow = new SimpleFeatureTableRow(result);
-          result.addRow(targetRow);
-
-          Integer sourceCharge = sourceRow.getCharge();
-
-          if (sourceCharge != null)
-            targetRow.setCharge(sourceCharge);
-
-          List<Sample> samples = featureTable.getSamples();
-          for (Sample s : samples) {
-            targetRow.setFeature(s, sourceRow.getFeature(s));
-          }
+          targetRow = addRow(featureTable, sourceRow);
+          resultIndex.addRow(targetRow);
 
           newRowID++;
         }
@@ -197,6 +193,107 @@ public class JoinAlignerMethod implements MSDKMethod<FeatureTable> {
     return result;
   }
 
+  /**
+   * Adds a new row with the charge and the features of given row to the aligned feature table.
+   */
+  private @Nonnull FeatureTableRow addRow(@Nonnull FeatureTable featureTable,
+      @Nonnull FeatureTableRow sourceRow) {
+    List<Sample> samples = featureTable.getSamples();
+    Integer sourceCharge = sourceRow.getCharge();
+
+    if (result instanceof ColumnarFeatureTable) {
+      ColumnarFeatureTableRow targetRow = ((ColumnarFeatureTable) result).addRow();
+      targetRow.setCharge(sourceCharge);
+      for (Sample s : samples) {
+        Feature feature = sourceRow.getFeature(s);
+        if (feature != null)
+          targetRow.setFeature(s, feature);
+      }
+      return targetRow;
+    }
+
+    SimpleFeatureTableRow targetRow = new SimpleFeatureTableRow(result);
+    ((SimpleFeatureTable) result).addRow(targetRow);
+
+    if (sourceCharge != null)
+      targetRow.setCharge(sourceCharge);
+
+    for (Sample s : samples) {
+      targetRow.setFeature(s, sourceRow.getFeature(s));
+    }
+    return targetRow;
+  }
+
+  /**
+   * Calculates the scores of all rows against the candidate rows of the aligned feature table, in
+   * the order of the rows, using the given pool if not null. Returns null if canceled.
+   */
+  private @Nullable List<RowVsRowScore> calculateScores(@Nullable ForkJoinPool pool,
+      @Nonnull List<FeatureTableRow> rows, @Nonnull FeatureTableIndex resultIndex)
+      throws MSDKException {
+
+    final List<List<RowVsRowScore>> rowScores =
+        new ArrayList<>(Collections.nCopies(rows.size(), Collections.emptyList()));
+
+    ParallelUtil.forEachIndex(pool, 0, rows.size(), i -> {
+      if (!canceled)
+        rowScores.set(i, calculateScores(rows.get(i), resultIndex));
+    });
+    if (canceled)
+      return null;
+
+    List<RowVsRowScore> scoreSet = new ArrayList<RowVsRowScore>();
+    for (List<RowVsRowScore> scores : rowScores)
+      scoreSet.addAll(scores);
+    return scoreSet;
+  }
+
+  /**
+   * Calculates the scores of one row against all candidate rows of the aligned feature table.
+   */
+  private @Nonnull List<RowVsRowScore> calculateScores(@Nonnull FeatureTableRow row,
+      @Nonnull FeatureTableIndex resultIndex) {
+
+    final Double mz = row.getMz();
+    if (mz == null)
+      return Collections.emptyList();
+
+    // Calculate the m/z range limit for the current row
+    Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
+
+    // Continue if no chromatography info is available
+    Float rt = row.getRT();
+    if (rt == null)
+      return Collections.emptyList();
+
+    // Calculate the RT range limit for the current row
+    Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
+
+    // Get all rows of the aligned feature table within the m/z and
+    // RT limits
+    List<FeatureTableRow> candidateRows = resultIndex.getRowsInsideRange(rtRange, mzRange);
+
+    // Calculate scores and store them
+    List<RowVsRowScore> scores = new ArrayList<RowVsRowScore>(candidateRows.size());
+    for (FeatureTableRow candidateRow : candidateRows) {
+
+      // Check charge
+      Integer charge1 = row.getCharge();
+      Integer charge2 = candidateRow.getCharge();
+      if ((charge1 != null) && (charge2 != null) && (!charge1.equals(charge2)))
+        continue;
+
+      // Calculate score
+      double mzLength = mzRange.upperEndpoint() - mzRange.lowerEndpoint();
+      double rtLength = rtRange.upperEndpoint() - rtRange.lowerEndpoint();
+      RowVsRowScore score = new RowVsRowScore(row, candidateRow,
+          mzLength / 2.0, mzWeight, rtLength / 2.0, rtWeight);
+
+      scores.add(score);
+    }
+    return scores;
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nullable
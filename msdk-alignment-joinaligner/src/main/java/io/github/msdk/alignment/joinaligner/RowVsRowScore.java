@@ -14,7 +14,6 @@
 package io.github.msdk.alignment.joinaligner;
 
 import io.github.msdk.datamodel.FeatureTableRow;
-import io.github.msdk.datamodel.SimpleFeatureTableRow;
 
 /**
  * This class represents a score between a feature table row and an aligned feature table row
@@ -22,10 +21,10 @@ import io.github.msdk.datamodel.SimpleFeatureTableRow;
 class RowVsRowScore implements Comparable<RowVsRowScore> {
 
   private FeatureTableRow featureTableRow;
-  private SimpleFeatureTableRow alignedRow;
+  private FeatureTableRow alignedRow;
   double score;
 
-  RowVsRowScore(FeatureTableRow featureTableRow, SimpleFeatureTableRow alignedRow, double mzMaxDiff,
+  RowVsRowScore(FeatureTableRow featureTableRow, FeatureTableRow alignedRow, double mzMaxDiff,
       double mzWeight, double rtMaxDiff, double rtWeight) {
 
     this.featureTableRow = featureTableRow;
@@ -61,7 +60,7 @@ class RowVsRowScore implements Comparable<RowVsRowScore> {
   /**
    * This method returns the row of aligned feature table
    */
-  SimpleFeatureTableRow getAlignedRow() {
+  FeatureTableRow getAlignedRow() {
     return alignedRow;
   }
 
@@ -83,11 +82,8 @@ class RowVsRowScore implements Comparable<RowVsRowScore> {
    * @return an int.
    */
   public int compareTo(RowVsRowScore object) {
-    if (score < object.getScore())
-      return 1;
-    else
-      return -1;
-
+    // Higher scores first
+    return Double.compare(object.getScore(), score);
   }
 
 }
@@ -15,7 +15,9 @@ package io.github.msdk.alignment.joinaligner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -23,6 +25,12 @@ import org.junit.Test;
 
 import io.github.msdk.alignment.joinaligner.JoinAlignerMethod;
 import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.io.mztab.MzTabFileImportMethod;
 import io.github.msdk.util.tolerances.MaximumMzTolerance;
 import io.github.msdk.util.tolerances.MzTolerance;
@@ -65,4 +73,59 @@ public class JoinAlignerMethodTest {
 
     featureTable.dispose();
   }
+
+  @Test
+  public void testParallelism() throws Exception {
+
+    // Feature tables of several samples, measuring the same compounds with some deviation. The
+    // values are discrete, so many candidate rows have equal scores.
+    Random random = new Random(5);
+    double compoundMz[] = new double[300];
+    float compoundRt[] = new float[compoundMz.length];
+    for (int i = 0; i < compoundMz.length; i++) {
+      compoundMz[i] = 100.0 + random.nextInt(50) * 0.01;
+      compoundRt[i] = 1f + random.nextInt(10) * 0.5f;
+    }
+    List<FeatureTable> featureTables = new ArrayList<FeatureTable>();
+    for (int t = 0; t < 5; t++) {
+      Sample sample = new SimpleSample("Sample " + t);
+      SimpleFeatureTable featureTable = new SimpleFeatureTable();
+      featureTable.setSamples(Collections.singletonList(sample));
+      for (int i = 0; i < compoundMz.length; i++) {
+        if (random.nextInt(10) == 0)
+          continue;
+        SimpleFeature feature = new SimpleFeature();
+        feature.setMz(compoundMz[i] + (random.nextInt(3) - 1) * 0.001);
+        feature.setRetentionTime(compoundRt[i] + (random.nextInt(3) - 1) * 0.05f);
+        SimpleFeatureTableRow row = new SimpleFeatureTableRow(featureTable);
+        row.setFeature(sample, feature);
+        featureTable.addRow(row);
+      }
+      featureTables.add(featureTable);
+    }
+
+    MzTolerance mzTolerance = new MaximumMzTolerance(0.003, 5.0);
+    RTTolerance rtTolerance = new RTTolerance(0.1f, false);
+
+    // Align in the calling thread and in parallel
+    FeatureTable serialTable =
+        new JoinAlignerMethod(featureTables, mzTolerance, rtTolerance).execute();
+    JoinAlignerMethod method = new JoinAlignerMethod(featureTables, mzTolerance, rtTolerance);
+    method.setParallelism(4);
+    FeatureTable parallelTable = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+
+    // The aligned rows must contain the same features in the same order
+    List<FeatureTableRow> serialRows = serialTable.getRows();
+    List<FeatureTableRow> parallelRows = parallelTable.getRows();
+    Assert.assertTrue(serialRows.size() < compoundMz.length * featureTables.size());
+    Assert.assertEquals(serialRows.size(), parallelRows.size());
+    Assert.assertEquals(serialTable.getSamples(), parallelTable.getSamples());
+    for (int i = 0; i < serialRows.size(); i++) {
+      for (Sample sample : serialTable.getSamples()) {
+        Assert.assertSame(serialRows.get(i).getFeature(sample),
+            parallelRows.get(i).getFeature(sample));
+      }
+    }
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.alignment.ransac;
+
+import java.util.Arrays;
+
+import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
+
+/**
+ * <p>
+ * Least-squares fit of a polynomial of low degree, solved in closed form from the normal equations
+ * instead of by an iterative optimizer. The x values are centered and scaled to [-1, 1] before the
+ * normal equations are built, which keeps them well conditioned for the degrees used by RANSAC.
+ * With degree + 1 points, the fit is the interpolating polynomial.
+ * </p>
+ *
+ * <p>
+ * Instances reuse their work arrays and are not thread-safe.
+ * </p>
+ */
+class PolynomialLeastSquares {
+
+  // Pivots smaller than this, relative to the number of points, make the system singular
+  private static final double SINGULARITY_THRESHOLD = 1E-12;
+
+  private final int degree;
+  private final double system[][];
+  private final double coefficients[];
+  private final double powers[];
+  private double center, scale;
+
+  /**
+   * <p>
+   * Constructor for PolynomialLeastSquares.
+   * </p>
+   *
+   * @param degree degree of the fitted polynomials
+   */
+  PolynomialLeastSquares(int degree) {
+    this.degree = degree;
+    system = new double[degree + 1][degree + 2];
+    coefficients = new double[degree + 1];
+    powers = new double[2 * degree + 1];
+  }
+
+  /**
+   * <p>
+   * Fits the polynomial to the points (x[i], y[i]) for i &lt; count.
+   * </p>
+   *
+   * @return false if the points do not determine the polynomial, e.g. because there are fewer
+   *         distinct x values than coefficients
+   */
+  boolean fit(double x[], double y[], int count) {
+    if (count <= degree)
+      return false;
+
+    double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      min = Math.min(min, x[i]);
+      max = Math.max(max, x[i]);
+    }
+    center = (min + max) / 2.0;
+    scale = max > min ? 2.0 / (max - min) : 1.0;
+
+    // Normal equations: sum(u^(j + l)) * c[l] = sum(y * u^j)
+    for (double row[] : system)
+      Arrays.fill(row, 0.0);
+    for (int i = 0; i < count; i++) {
+      final double u = (x[i] - center) * scale;
+      powers[0] = 1.0;
+      for (int j = 1; j < powers.length; j++)
+        powers[j] = powers[j - 1] * u;
+      for (int j = 0; j <= degree; j++) {
+        for (int l = 0; l <= degree; l++)
+          system[j][l] += powers[j + l];
+        system[j][degree + 1] += y[i] * powers[j];
+      }
+    }
+
+    // Gaussian elimination with partial pivoting
+    for (int col = 0; col <= degree; col++) {
+      int pivot = col;
+      for (int row = col + 1; row <= degree; row++) {
+        if (Math.abs(system[row][col]) > Math.abs(system[pivot][col]))
+          pivot = row;
+      }
+      if (!(Math.abs(system[pivot][col]) > SINGULARITY_THRESHOLD * count))
+        return false;
+      final double swap[] = system[pivot];
+      system[pivot] = system[col];
+      system[col] = swap;
+      for (int row = col + 1; row <= degree; row++) {
+        final double factor = system[row][col] / system[col][col];
+        for (int k = col; k <= degree + 1; k++)
+          system[row][k] -= factor * system[col][k];
+      }
+    }
+    for (int row = degree; row >= 0; row--) {
+      double value = system[row][degree + 1];
+      for (int k = row + 1; k <= degree; k++)
+        value -= system[row][k] * coefficients[k];
+      coefficients[row] = value / system[row][row];
+      if (Double.isNaN(coefficients[row]) || Double.isInfinite(coefficients[row]))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * <p>
+   * Returns the value of the last fitted polynomial at x.
+   * </p>
+   */
+  double value(double x) {
+    final double u = (x - center) * scale;
+    double value = 0.0;
+    for (int j = degree; j >= 0; j--)
+      value = value * u + coefficients[j];
+    return value;
+  }
+
+  /**
+   * <p>
+   * Returns the last fitted polynomial with coefficients in powers of x.
+   * </p>
+   */
+  PolynomialFunction getFunction() {
+    // Expand c[j] * (scale * (x - center))^j with the binomial theorem
+    final double result[] = new double[degree + 1];
+    for (int j = 0; j <= degree; j++) {
+      final double factor = coefficients[j] * Math.pow(scale, j);
+      double binomial = 1.0;
+      for (int m = j; m >= 0; m--) {
+        result[m] += factor * binomial * Math.pow(-center, j - m);
+        binomial = binomial * m / (j - m + 1);
+      }
+    }
+    return new PolynomialFunction(result);
+  }
+
+}
@@ -13,15 +13,14 @@
  */
 package io.github.msdk.alignment.ransac;
 
-import com.google.common.collect.Range;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
-import org.apache.commons.math.optimization.fitting.PolynomialFitter;
-import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * input: data - a set of observed data points n - the minimum number of data
@@ -34,13 +33,22 @@ import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
  */
 public class RANSAC {
 
+    /**
+     * Default seed of the random number generator.
+     */
+    public static final long DEFAULT_SEED = 0L;
+
+    // Number of trials evaluated by one task
+    private static final int CHUNK_SIZE = 256;
+
     private int n;
     private double d = 1;
     private int k = 0;
-    private int AlsoNumber;
     private final double t;
     private final boolean Linear;
     private final double dataPointsRate;
+    private long seed = DEFAULT_SEED;
+    private int parallelism = 1;
 
     /**
      * <p>Constructor for RANSAC.</p>
@@ -63,6 +71,26 @@ public class RANSAC {
 
     }
 
+    /**
+     * <p>Sets the seed of the random number generator.</p>
+     *
+     * @param seed a long.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * <p>Sets the number of threads used to evaluate the trials. The result
+     * does not depend on this setting.</p>
+     *
+     * @param parallelism number of threads, see
+     *        {@link io.github.msdk.util.ParallelUtil}.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = ParallelUtil.checkParallelism(parallelism);
+    }
+
     /**
      * Set all parameters and start ransac.
      *
@@ -110,184 +138,196 @@ public class RANSAC {
     }
 
     /**
-     * RANSAC algorithm
+     * RANSAC algorithm. The trials are evaluated in chunks, in parallel if
+     * the parallelism is above 1. Every trial draws its points from its own
+     * random number generator, split from the generator of the seed in the
+     * order of the trials, and the best model of all chunks is the one the
+     * sequential algorithm would keep. The result therefore only depends on
+     * the seed, not on the parallelism.
      *
      * @param data vector with the points which represent all possible
      * alignments.
      */
     public void ransac(List<AlignStructMol> data) {
-        double besterr = 9.9E99;
-
-        for (int iterations = 0; iterations < k; iterations++) {
-            AlsoNumber = n;
-            // Get the initial points
-            boolean initN = getInitN(data);
-            if (!initN) {
-                continue;
-            }
+        Collections.sort(data, new AlignStructMol());
+        final int size = data.size();
+        final double x[] = new double[size], y[] = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = data.get(i).RT;
+            y[i] = data.get(i).RT2;
+        }
 
-            // Calculate the model
-            fittPolinomialFunction(data, Linear);
+        final SplittableRandom random = new SplittableRandom(seed);
+        final SplittableRandom randoms[] = new SplittableRandom[Math.max(k, 0)];
+        for (int i = 0; i < randoms.length; i++) {
+            randoms[i] = random.split();
+        }
 
-            // If the model has the minimun number of points
-            if (AlsoNumber >= d) {
-                // Get the error of the model based on the number of points
-                double error = 9.9E99;
-                try {
-                    error = newError(data);
-                } catch (Exception ex) {
-                    Logger.getLogger(RANSAC.class.getName()).log(Level.SEVERE,
-                        null, ex);
+        // Best trial of each chunk
+        final int numOfChunks = (randoms.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final Trial bestTrials[] = new Trial[numOfChunks];
+        final IntConsumer runChunk = chunk -> {
+            Trial trial = new Trial(x, y), best = null;
+            final int last = Math.min(randoms.length, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < last; i++) {
+                if (!trial.run(randoms[i])) {
+                    continue;
                 }
-
-                // If the error is less than the error of the last model
-                if (error < besterr) {
-                    besterr = error;
-                    for (int i = 0; i < data.size(); i++) {
-                        AlignStructMol alignStruct = data.get(i);
-                        if (alignStruct.ransacAlsoInLiers
-                            || alignStruct.ransacMaybeInLiers) {
-                            alignStruct.Aligned = true;
-                        } else {
-                            alignStruct.Aligned = false;
-                        }
-
-                        alignStruct.ransacAlsoInLiers = false;
-                        alignStruct.ransacMaybeInLiers = false;
-
-                    }
+                // The error of the model decreases with the number of points
+                if (best == null || trial.numOfPoints > best.numOfPoints) {
+                    final Trial swap = best == null ? new Trial(x, y) : best;
+                    best = trial;
+                    trial = swap;
                 }
             }
-            // remove the model
-            for (int i = 0; i < data.size(); i++) {
-                AlignStructMol alignStruct = data.get(i);
-                alignStruct.ransacAlsoInLiers = false;
-                alignStruct.ransacMaybeInLiers = false;
-            }
+            bestTrials[chunk] = best;
+        };
+
+        try {
+            ParallelUtil.forEachIndex(numOfChunks, parallelism, runChunk);
+        } catch (MSDKException e) {
+            throw new MSDKRuntimeException(e);
+        }
 
+        // Earlier trials win ties, as in the sequential algorithm
+        Trial best = null;
+        for (Trial trial : bestTrials) {
+            if (trial != null
+                && (best == null || trial.numOfPoints > best.numOfPoints)) {
+                best = trial;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            AlignStructMol alignStruct = data.get(i);
+            if (best != null) {
+                alignStruct.Aligned = best.points.get(i);
+            }
+            alignStruct.ransacAlsoInLiers = false;
+            alignStruct.ransacMaybeInLiers = false;
         }
     }
 
     /**
-     * Take the initial points ramdoly. The points are divided by the initial
-     * number of points. If the fractions contain enough number of points took
-     * one point from each part.
-     *
-     * @param data vector with the points which represent all possible
-     * alignments.
-     * @return false if there is any problem.
+     * One trial of the algorithm: selection of the initial points, fit of the
+     * model and search of the points which fit the model. Every thread works
+     * with its own instances.
      */
-    private boolean getInitN(List<AlignStructMol> data) {
-        if (data.size() > n) {
-            Collections.sort(data, new AlignStructMol());
-            double min = data.get(0).RT;
-            double max = data.get(data.size() - 1).RT;
+    private class Trial {
+
+        private final double x[], y[];
+        private final double sampleX[], sampleY[];
+        private final PolynomialLeastSquares fitter;
+
+        // Initial points of the model
+        private final BitSet maybeInLiers = new BitSet();
 
-            Range<Double> rtRange = Range.closed(min, ((max - min) / 2) + min);
+        // Initial points and points which fit the model
+        private final BitSet points = new BitSet();
+        private int numOfPoints;
+
+        private Trial(double x[], double y[]) {
+            this.x = x;
+            this.y = y;
+            sampleX = new double[n];
+            sampleY = new double[n];
+            fitter = new PolynomialLeastSquares(Linear ? 1 : 3);
+        }
+
+        /**
+         * Runs the trial.
+         *
+         * @return true if the model has the minimum number of points.
+         */
+        private boolean run(SplittableRandom random) {
+            maybeInLiers.clear();
+            points.clear();
+            numOfPoints = 0;
+
+            // Get the initial points
+            if (!getInitN(random)) {
+                return false;
+            }
+
+            // Calculate the model and the points which fit it
+            int alsoNumber = n;
+            int numOfSamples = 0;
+            for (int i = maybeInLiers.nextSetBit(0); i >= 0; i = maybeInLiers
+                .nextSetBit(i + 1)) {
+                sampleX[numOfSamples] = x[i];
+                sampleY[numOfSamples++] = y[i];
+            }
+            final boolean fitted = fitter.fit(sampleX, sampleY, numOfSamples);
+            for (int i = 0; i < x.length; i++) {
+                if (fitted && Math.abs(y[i] - fitter.value(x[i])) < t) {
+                    alsoNumber++;
+                    points.set(i);
+                } else if (maybeInLiers.get(i)) {
+                    points.set(i);
+                }
+            }
+            numOfPoints = points.cardinality();
+
+            // If the model has the minimun number of points
+            return alsoNumber >= d;
+        }
+
+        /**
+         * Take the initial points ramdoly. Half of the points are taken from
+         * the first half of the RT range and half of them from the second
+         * half. If a half does not contain enough points, the missing points
+         * are taken from the whole range.
+         *
+         * @return false if there are not enough points.
+         */
+        private boolean getInitN(SplittableRandom random) {
+            final int size = x.length;
+            if (size <= n) {
+                return false;
+            }
+            final double min = x[0];
+            final double max = x[size - 1];
+            final double middle = ((max - min) / 2) + min;
 
             int cont = 0, bucle = 0;
             while (cont < n / 2 && bucle < 1000) {
-                int index = (int) (data.size() * Math.random());
-                if (!data.get(index).ransacMaybeInLiers
-                    && rtRange.contains(data.get(index).RT)) {
-                    data.get(index).ransacMaybeInLiers = true;
+                int index = random.nextInt(size);
+                if (!maybeInLiers.get(index) && x[index] >= min
+                    && x[index] <= middle) {
+                    maybeInLiers.set(index);
                     cont++;
-
                 }
-
                 bucle++;
             }
             if (bucle >= 1000) {
-                getN(data, (n / 2) - cont);
+                getN(random, (n / 2) - cont);
+                cont = n / 2;
             }
 
             bucle = 0;
-            rtRange = Range.closed(((max - min) / 2) + min, max);
-
             while (cont < n && bucle < 1000) {
-
-                int index = (int) (data.size() * Math.random());
-                if (!data.get(index).ransacMaybeInLiers
-                    && rtRange.contains(data.get(index).RT)) {
-                    data.get(index).ransacMaybeInLiers = true;
+                int index = random.nextInt(size);
+                if (!maybeInLiers.get(index) && x[index] >= middle
+                    && x[index] <= max) {
+                    maybeInLiers.set(index);
                     cont++;
                 }
                 bucle++;
             }
             if (bucle >= 1000) {
-                getN(data, n - cont);
+                getN(random, n - cont);
             }
             return true;
-        } else {
-            return false;
-        }
-    }
-
-    private void getN(List<AlignStructMol> data, int newN) {
-        if (newN < 1) {
-            return;
-        }
-        int cont = 0;
-        while (cont < newN) {
-            int index = (int) (data.size() * Math.random());
-            if (!data.get(index).ransacMaybeInLiers) {
-                data.get(index).ransacMaybeInLiers = true;
-                cont++;
-            }
         }
-    }
-
-    private void fittPolinomialFunction(List<AlignStructMol> data,
-        boolean linear) {
-        List<AlignStructMol> points = new ArrayList<AlignStructMol>();
 
-        int degree = 3;
-        if (linear) {
-            degree = 1;
-        }
-
-        PolynomialFitter fitter = new PolynomialFitter(degree,
-            new GaussNewtonOptimizer(true));
-        for (int i = 0; i < data.size(); i++) {
-            AlignStructMol point = data.get(i);
-            if (point.ransacMaybeInLiers) {
-                points.add(point);
-                fitter.addObservedPoint(1, point.RT, point.RT2);
-            }
-        }
-        try {
-            PolynomialFunction function = fitter.fit();
-            for (AlignStructMol point : data) {
-                double y = point.RT2;
-                double bestY = function.value(point.RT);
-                if (Math.abs(y - bestY) < t) {
-                    point.ransacAlsoInLiers = true;
-                    AlsoNumber++;
-                } else {
-                    point.ransacAlsoInLiers = false;
+        private void getN(SplittableRandom random, int newN) {
+            int cont = 0;
+            while (cont < newN) {
+                int index = random.nextInt(x.length);
+                if (!maybeInLiers.get(index)) {
+                    maybeInLiers.set(index);
+                    cont++;
                 }
             }
-        } catch (Exception ex) {
         }
     }
-
-    /**
-     * calculate the error in the model
-     *
-     * @param data vector with the points which represent all possible
-     * alignments.
-     * @param regression regression of the alignment points
-     * @return the error in the model
-     */
-    private double newError(List<AlignStructMol> data) throws Exception {
-
-        double numT = 1;
-        for (int i = 0; i < data.size(); i++) {
-            if (data.get(i).ransacAlsoInLiers || data.get(i).ransacMaybeInLiers) {
-                numT++;
-            }
-        }
-        return 1 / numT;
-
-    }
 }
@@ -23,20 +23,21 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
-import org.apache.commons.math.optimization.fitting.PolynomialFitter;
-import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
 import org.apache.commons.math.stat.regression.SimpleRegression;
 
 import com.google.common.collect.Range;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeatureTable;
 import io.github.msdk.datamodel.SimpleFeatureTableRow;
-import io.github.msdk.util.FeatureTableUtil;
+import io.github.msdk.util.FeatureTableIndex;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
@@ -50,11 +51,13 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
   private final @Nonnull RTTolerance rtToleranceAfterCorrection;
   private final @Nonnull String featureTableName;
   private final @Nonnull List<FeatureTable> featureTables;
-  private final @Nonnull SimpleFeatureTable result;
+  private @Nonnull FeatureTable result;
+  private @Nullable Layout columnarLayout;
   private boolean canceled = false;
   private int processedFeatures = 0, totalFeatures = 0;
   private double t, dataPointsRate;
   private boolean linear;
+  private int parallelism = 1;
 
 
   // ID counter for the new feature table
@@ -92,10 +95,43 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
     result = new SimpleFeatureTable();
   }
 
+  /**
+   * <p>
+   * Sets the number of threads used to evaluate the RANSAC trials. The aligned feature table does
+   * not depend on this setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
+  /**
+   * <p>
+   * Makes the method produce a {@link io.github.msdk.datamodel.ColumnarFeatureTable} with given
+   * layout instead of a {@link io.github.msdk.datamodel.SimpleFeatureTable}.
+   * </p>
+   *
+   * @param columnarLayout layout of the columnar feature table, or null for a simple feature table
+   */
+  public void setColumnarLayout(@Nullable Layout columnarLayout) {
+    this.columnarLayout = columnarLayout;
+  }
+
   /** {@inheritDoc} */
   @Override
   public FeatureTable execute() throws MSDKException {
 
+    // The columnar feature table needs all samples in advance
+    if (columnarLayout != null) {
+      List<Sample> allSamples = new ArrayList<>();
+      for (FeatureTable featureTable : featureTables) {
+        allSamples.addAll(featureTable.getSamples());
+      }
+      result = new ColumnarFeatureTable(allSamples, columnarLayout);
+    }
+
     // Calculate number of feature to process. Each feature will be
     // processed twice: first for score calculation and then for actual
     // alignment.
@@ -145,8 +181,12 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
 
         // If we have no mapping for this row, add a new one
         if (targetRow == null) {
-          targetRow = new SimpleFeatureTableRow(result);
-          result.addRow(targetRow);
+          if (result instanceof ColumnarFeatureTable) {
+            targetRow = ((ColumnarFeatureTable) result).addRow();
+          } else {
+            targetRow = new SimpleFeatureTableRow(result);
+            ((SimpleFeatureTable) result).addRow(targetRow);
+          }
           // FeatureTableColumn<Integer> column = result.getColumn(ColumnName.ID, null);
           // targetRow.setData(column, newRowID);
           newRowID++;
@@ -208,6 +248,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
     PolynomialFunction function = this.getPolynomialFunction(list);
 
     List<FeatureTableRow> allRows = featureTable.getRows();
+    FeatureTableIndex resultIndex = new FeatureTableIndex(result);
 
     for (FeatureTableRow row : allRows) {
       // Calculate limits for a row with which the row can be aligned
@@ -227,8 +268,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
 
       // Get all rows of the aligned feature table within the m/z and
       // RT limits
-      List<FeatureTableRow> candidateRows =
-          FeatureTableUtil.getRowsInsideRange(result, rtRange, mzRange);
+      List<FeatureTableRow> candidateRows = resultIndex.getRowsInsideRange(rtRange, mzRange);
 
       for (FeatureTableRow candidateRow : candidateRows) {
         RowVsRowScore score;
@@ -283,6 +323,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       FeatureTable peakList) {
     List<AlignStructMol> list = this.getVectorAlignment(alignedPeakList, peakList);
     RANSAC ransac = new RANSAC(t, linear, dataPointsRate);
+    ransac.setParallelism(parallelism);
     ransac.alignment(list);
     return list;
   }
@@ -314,16 +355,10 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       yval[i++] = rt.RT2;
     }
 
-    PolynomialFitter fitter = new PolynomialFitter(3, new GaussNewtonOptimizer(true));
-    for (RTs rt : data) {
-      fitter.addObservedPoint(1, rt.RT, rt.RT2);
-    }
-    try {
-      return fitter.fit();
-
-    } catch (Exception ex) {
+    PolynomialLeastSquares fitter = new PolynomialLeastSquares(3);
+    if (!fitter.fit(xval, yval, data.size()))
       return null;
-    }
+    return fitter.getFunction();
   }
 
   private List<RTs> smooth(List<RTs> list) {
@@ -361,6 +396,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
   private List<AlignStructMol> getVectorAlignment(FeatureTable peakListX, FeatureTable peakListY) {
 
     List<AlignStructMol> alignMol = new ArrayList<AlignStructMol>();
+    FeatureTableIndex indexY = new FeatureTableIndex(peakListY);
     for (FeatureTableRow row : peakListX.getRows()) {
 
       // Calculate limits for a row with which the row can be aligned
@@ -368,8 +404,7 @@ public class RansacAlignerMethod implements MSDKMethod<FeatureTable> {
       Range<Float> rtRange = rtTolerance.getToleranceRange(row.getRT());
 
       // Get all rows of the aligned peaklist within parameter limits
-      List<FeatureTableRow> candidateRows =
-          FeatureTableUtil.getRowsInsideRange(peakListY, rtRange, mzRange);
+      List<FeatureTableRow> candidateRows = indexY.getRowsInsideRange(rtRange, mzRange);
 
       for (FeatureTableRow candidateRow : candidateRows) {
         alignMol.add(new AlignStructMol(row, candidateRow));
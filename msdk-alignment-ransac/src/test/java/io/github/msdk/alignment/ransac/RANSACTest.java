@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.alignment.ransac;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RANSACTest {
+
+  @Test
+  public void testLeastSquares() throws Exception {
+    // Four points determine the cubic
+    double x[] = {10.0, 20.0, 35.0, 50.0};
+    double y[] = new double[4];
+    for (int i = 0; i < 4; i++)
+      y[i] = 2.0 - 0.5 * x[i] + 0.01 * x[i] * x[i] + 1E-4 * x[i] * x[i] * x[i];
+    PolynomialLeastSquares cubic = new PolynomialLeastSquares(3);
+    Assert.assertTrue(cubic.fit(x, y, 4));
+    for (int i = 0; i < 4; i++)
+      Assert.assertEquals(y[i], cubic.value(x[i]), 1E-9);
+    PolynomialFunction function = cubic.getFunction();
+    Assert.assertArrayEquals(new double[] {2.0, -0.5, 0.01, 1E-4}, function.getCoefficients(),
+        1E-9);
+    Assert.assertEquals(cubic.value(42.0), function.value(42.0), 1E-9);
+
+    // Least-squares line through symmetric residuals
+    double lineX[] = {1.0, 2.0, 3.0, 4.0};
+    double lineY[] = {3.1, 4.9, 7.1, 8.9};
+    PolynomialLeastSquares line = new PolynomialLeastSquares(1);
+    Assert.assertTrue(line.fit(lineX, lineY, 4));
+    Assert.assertArrayEquals(new double[] {1.1, 1.96}, line.getFunction().getCoefficients(), 1E-9);
+
+    // Duplicate x values do not determine the cubic
+    double duplicateX[] = {10.0, 10.0, 35.0, 50.0};
+    Assert.assertFalse(cubic.fit(duplicateX, y, 4));
+    Assert.assertFalse(cubic.fit(x, y, 3));
+  }
+
+  @Test
+  public void testParallelism() throws Exception {
+    List<AlignStructMol> serial = createData();
+    RANSAC ransac = new RANSAC(0.5, true, 0.5);
+    ransac.alignment(serial);
+
+    // Points on the line are aligned, outliers are not
+    for (AlignStructMol point : serial)
+      Assert.assertEquals(Math.abs(point.RT2 - (1.02 * point.RT + 3.0)) < 0.2, point.Aligned);
+
+    for (int parallelism : new int[] {2, 4}) {
+      List<AlignStructMol> parallel = createData();
+      ransac = new RANSAC(0.5, true, 0.5);
+      ransac.setParallelism(parallelism);
+      ransac.alignment(parallel);
+      for (int i = 0; i < serial.size(); i++) {
+        Assert.assertEquals(serial.get(i).RT, parallel.get(i).RT, 0.0);
+        Assert.assertEquals(serial.get(i).Aligned, parallel.get(i).Aligned);
+      }
+    }
+  }
+
+  private List<AlignStructMol> createData() {
+    Random random = new Random(1);
+    List<AlignStructMol> data = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      AlignStructMol point = new AlignStructMol();
+      point.RT = random.nextDouble() * 60.0;
+      if (i % 5 == 0)
+        point.RT2 = point.RT + 5.0 + random.nextDouble() * 10.0;
+      else
+        point.RT2 = 1.02 * point.RT + 3.0 + (random.nextDouble() - 0.5) * 0.2;
+      data.add(point);
+    }
+    return data;
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Feature of a {@link io.github.msdk.datamodel.ColumnarFeatureTable}, a view of the cell of one row
+ * and one sample. Views of the same cell are equal.
+ */
+class ColumnarFeature implements Feature {
+
+  private final @Nonnull ColumnarFeatureTable featureTable;
+  private final int row, sample;
+
+  ColumnarFeature(@Nonnull ColumnarFeatureTable featureTable, int row, int sample) {
+    this.featureTable = featureTable;
+    this.row = row;
+    this.sample = sample;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Double getMz() {
+    return featureTable.getNullableMz(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getRetentionTime() {
+    return featureTable.getNullableRT(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getArea() {
+    return featureTable.getNullableArea(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getHeight() {
+    return featureTable.getNullableHeight(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getSNRatio() {
+    return featureTable.getNullableSNRatio(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getScore() {
+    return featureTable.getNullableScore(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Chromatogram getChromatogram() {
+    return featureTable.getChromatogram(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<MsScan> getMSMSSpectra() {
+    return featureTable.getMSMSSpectra(row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public IonAnnotation getIonAnnotation() {
+    return featureTable.getIonAnnotation(row);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof ColumnarFeature))
+      return false;
+    ColumnarFeature other = (ColumnarFeature) object;
+    return (featureTable == other.featureTable) && (row == other.row) && (sample == other.sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(featureTable) * 31 + row * 17 + sample;
+  }
+
+}
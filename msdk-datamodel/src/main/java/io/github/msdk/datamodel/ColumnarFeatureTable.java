@@ -0,0 +1,603 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.github.msdk.MSDKRuntimeException;
+
+/**
+ * <p>
+ * Implementation of the FeatureTable interface for large multi-sample tables. Instead of one
+ * {@link io.github.msdk.datamodel.SimpleFeature} per sample and row, the m/z value, RT, area,
+ * height, S/N ratio and score of all features are stored in primitive matrices, either row by row
+ * ({@link Layout#ROW_MAJOR}) or sample by sample ({@link Layout#SAMPLE_MAJOR}). The charge and
+ * the ion annotation are stored per row.
+ * </p>
+ *
+ * <p>
+ * Rows are {@link io.github.msdk.datamodel.ColumnarFeatureTableRow} views of one row index and are
+ * created by addRow(). The features returned by the rows are views of one cell of the matrices,
+ * created on demand. Setting a feature copies its values, so the original feature object can be
+ * discarded. Chromatograms are referenced by a {@link java.util.function.Supplier} and only loaded
+ * when a feature is asked for its chromatogram. Chromatograms, MS/MS spectra and the ion
+ * annotations of the rows are kept in maps which only contain the cells or rows where they are
+ * present.
+ * </p>
+ */
+public class ColumnarFeatureTable implements FeatureTable {
+
+  /**
+   * Memory layout of the feature matrices.
+   */
+  public enum Layout {
+    /** The features of one row are stored next to each other. */
+    ROW_MAJOR,
+    /** The features of one sample are stored next to each other. */
+    SAMPLE_MAJOR
+  }
+
+  // Flags of the cells
+  private static final byte FEATURE = 1, MZ = 2, RT = 4, AREA = 8, HEIGHT = 16, SN_RATIO = 32,
+      SCORE = 64;
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+  private final @Nonnull List<Sample> samples;
+  private final @Nonnull Map<Sample, Integer> sampleIndices = new HashMap<>();
+  private final @Nonnull Layout layout;
+  private final int numOfSamples;
+
+  private final @Nonnull ArrayList<FeatureTableRow> rows = new ArrayList<>();
+  private int capacity = 0;
+
+  // Row columns
+  private double rowMzSums[] = new double[0], rowRtSums[] = new double[0];
+  private int rowNumOfMz[] = new int[0], rowNumOfRt[] = new int[0];
+  private Integer charges[] = new Integer[0];
+  private IonAnnotation ionAnnotations[] = new IonAnnotation[0];
+
+  // Feature matrices, indexed by getCell()
+  private double mzValues[] = new double[0];
+  private float rtValues[] = new float[0], areas[] = new float[0], heights[] = new float[0],
+      snRatios[] = new float[0], scores[] = new float[0];
+  private byte flags[] = new byte[0];
+
+  // Sparse feature columns, indexed by row * numOfSamples + sample
+  private final @Nonnull Map<Integer, Supplier<Chromatogram>> chromatograms = new HashMap<>();
+  private final @Nonnull Map<Integer, List<MsScan>> msmsSpectra = new HashMap<>();
+
+  // Ion annotations assigned to the rows, indexed by row
+  private final @Nonnull Map<Integer, List<IonAnnotation>> rowIonAnnotations = new HashMap<>();
+
+  /**
+   * <p>
+   * Creates an empty table with the row-major layout.
+   * </p>
+   *
+   * @param samples the samples of the table.
+   */
+  public ColumnarFeatureTable(@Nonnull List<Sample> samples) {
+    this(samples, Layout.ROW_MAJOR);
+  }
+
+  /**
+   * <p>
+   * Creates an empty table.
+   * </p>
+   *
+   * @param samples the samples of the table.
+   * @param layout the layout of the feature matrices.
+   */
+  public ColumnarFeatureTable(@Nonnull List<Sample> samples, @Nonnull Layout layout) {
+    Preconditions.checkNotNull(samples);
+    Preconditions.checkNotNull(layout);
+    this.samples = ImmutableList.copyOf(samples);
+    this.layout = layout;
+    this.numOfSamples = samples.size();
+    for (int i = 0; i < numOfSamples; i++)
+      sampleIndices.put(this.samples.get(i), i);
+  }
+
+  /**
+   * <p>
+   * Creates a copy of given table with the same samples and layout. The matrices are copied as a
+   * whole, so no feature objects are created.
+   * </p>
+   *
+   * @param featureTable the table to copy.
+   */
+  public ColumnarFeatureTable(@Nonnull ColumnarFeatureTable featureTable) {
+    this(featureTable.samples, featureTable.layout);
+    capacity = featureTable.capacity;
+    rowMzSums = featureTable.rowMzSums.clone();
+    rowRtSums = featureTable.rowRtSums.clone();
+    rowNumOfMz = featureTable.rowNumOfMz.clone();
+    rowNumOfRt = featureTable.rowNumOfRt.clone();
+    charges = featureTable.charges.clone();
+    ionAnnotations = featureTable.ionAnnotations.clone();
+    mzValues = featureTable.mzValues.clone();
+    rtValues = featureTable.rtValues.clone();
+    areas = featureTable.areas.clone();
+    heights = featureTable.heights.clone();
+    snRatios = featureTable.snRatios.clone();
+    scores = featureTable.scores.clone();
+    flags = featureTable.flags.clone();
+    chromatograms.putAll(featureTable.chromatograms);
+    msmsSpectra.putAll(featureTable.msmsSpectra);
+    rowIonAnnotations.putAll(featureTable.rowIonAnnotations);
+    for (int i = 0; i < featureTable.rows.size(); i++)
+      rows.add(new ColumnarFeatureTableRow(this, i));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<FeatureTableRow> getRows() {
+    return ImmutableList.copyOf(rows);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<Sample> getSamples() {
+    return samples;
+  }
+
+  /**
+   * <p>
+   * Returns the layout of the feature matrices.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.datamodel.ColumnarFeatureTable.Layout} object.
+   */
+  public @Nonnull Layout getLayout() {
+    return layout;
+  }
+
+  /**
+   * <p>
+   * Returns the number of rows.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfRows() {
+    return rows.size();
+  }
+
+  /**
+   * <p>
+   * Returns the row with given index.
+   * </p>
+   *
+   * @param row index of the row.
+   * @return a {@link io.github.msdk.datamodel.ColumnarFeatureTableRow} object.
+   */
+  public @Nonnull ColumnarFeatureTableRow getRow(int row) {
+    return (ColumnarFeatureTableRow) rows.get(row);
+  }
+
+  /**
+   * <p>
+   * Adds a new row without features.
+   * </p>
+   *
+   * @return the new row.
+   */
+  public @Nonnull ColumnarFeatureTableRow addRow() {
+    final int row = rows.size();
+    if (row == capacity)
+      grow();
+    ColumnarFeatureTableRow newRow = new ColumnarFeatureTableRow(this, row);
+    rows.add(newRow);
+    return newRow;
+  }
+
+  /**
+   * <p>
+   * Returns the index of given sample, or -1 if the table does not contain it.
+   * </p>
+   *
+   * @param sample a {@link io.github.msdk.datamodel.Sample} object.
+   * @return a int.
+   */
+  public int getSampleIndex(@Nonnull Sample sample) {
+    Integer index = sampleIndices.get(sample);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * <p>
+   * Returns true if the cell of given row and sample contains a feature.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @return a boolean.
+   */
+  public boolean hasFeature(int row, int sample) {
+    return (flags[getCell(row, sample)] & FEATURE) != 0;
+  }
+
+  /**
+   * <p>
+   * Returns the m/z value of the feature of given row and sample, or NaN if not set.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @return a double.
+   */
+  public double getMz(int row, int sample) {
+    final int cell = getCell(row, sample);
+    return (flags[cell] & MZ) != 0 ? mzValues[cell] : Double.NaN;
+  }
+
+  /**
+   * <p>
+   * Returns the RT of the feature of given row and sample, or NaN if not set.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @return a float.
+   */
+  public float getRT(int row, int sample) {
+    return getValue(rtValues, RT, row, sample);
+  }
+
+  /**
+   * <p>
+   * Returns the area of the feature of given row and sample, or NaN if not set.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @return a float.
+   */
+  public float getArea(int row, int sample) {
+    return getValue(areas, AREA, row, sample);
+  }
+
+  /**
+   * <p>
+   * Returns the height of the feature of given row and sample, or NaN if not set.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @return a float.
+   */
+  public float getHeight(int row, int sample) {
+    return getValue(heights, HEIGHT, row, sample);
+  }
+
+  /**
+   * <p>
+   * Sets the area of the existing feature of given row and sample. Setting the values of
+   * different cells is thread-safe, as long as no rows are added at the same time.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @param area the new area.
+   */
+  public void setArea(int row, int sample, float area) {
+    setValue(areas, AREA, row, sample, area);
+  }
+
+  /**
+   * <p>
+   * Sets the height of the existing feature of given row and sample. Setting the values of
+   * different cells is thread-safe, as long as no rows are added at the same time.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @param height the new height.
+   */
+  public void setHeight(int row, int sample, float height) {
+    setValue(heights, HEIGHT, row, sample, height);
+  }
+
+  /**
+   * <p>
+   * Returns the S/N ratio of the feature of given row and sample, or NaN if not set.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @return a float.
+   */
+  public float getSNRatio(int row, int sample) {
+    return getValue(snRatios, SN_RATIO, row, sample);
+  }
+
+  /**
+   * <p>
+   * Returns the score of the feature of given row and sample, or NaN if not set.
+   * </p>
+   *
+   * @param row index of the row.
+   * @param sample index of the sample.
+   * @return a float.
+   */
+  public float getScore(int row, int sample) {
+    return getValue(scores, SCORE, row, sample);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void dispose() {
+    rows.clear();
+    capacity = 0;
+    rowMzSums = rowRtSums = new double[0];
+    rowNumOfMz = rowNumOfRt = new int[0];
+    charges = new Integer[0];
+    ionAnnotations = new IonAnnotation[0];
+    mzValues = new double[0];
+    rtValues = areas = heights = snRatios = scores = new float[0];
+    flags = new byte[0];
+    chromatograms.clear();
+    msmsSpectra.clear();
+    rowIonAnnotations.clear();
+  }
+
+  @Nullable
+  Double getRowMz(int row) {
+    return rowNumOfMz[row] == 0 ? null : rowMzSums[row] / rowNumOfMz[row];
+  }
+
+  @Nullable
+  Float getRowRT(int row) {
+    return rowNumOfRt[row] == 0 ? null : (float) (rowRtSums[row] / rowNumOfRt[row]);
+  }
+
+  @Nullable
+  Integer getCharge(int row) {
+    return charges[row];
+  }
+
+  void setCharge(int row, @Nullable Integer charge) {
+    charges[row] = charge;
+  }
+
+  @Nullable
+  IonAnnotation getIonAnnotation(int row) {
+    return ionAnnotations[row];
+  }
+
+  void setIonAnnotation(int row, @Nullable IonAnnotation ionAnnotation) {
+    ionAnnotations[row] = ionAnnotation;
+  }
+
+  @Nonnull
+  List<IonAnnotation> getIonAnnotations(int row) {
+    Preconditions.checkElementIndex(row, rows.size());
+    return rowIonAnnotations.getOrDefault(row, Collections.emptyList());
+  }
+
+  void setIonAnnotations(int row, @Nonnull List<IonAnnotation> ionAnnotations) {
+    Preconditions.checkElementIndex(row, rows.size());
+    if (ionAnnotations.isEmpty())
+      rowIonAnnotations.remove(row);
+    else
+      rowIonAnnotations.put(row, ImmutableList.copyOf(ionAnnotations));
+  }
+
+  @Nullable
+  Feature getFeature(int row, int sample) {
+    if (!hasFeature(row, sample))
+      return null;
+    return new ColumnarFeature(this, row, sample);
+  }
+
+  int getCheckedSampleIndex(@Nonnull Sample sample) {
+    final int index = getSampleIndex(sample);
+    if (index < 0) {
+      throw new MSDKRuntimeException(
+          "Cannot add feature, because the feature table does not contain sample "
+              + sample.getName());
+    }
+    return index;
+  }
+
+  void setFeature(int row, int sample, @Nonnull Feature feature) {
+    Preconditions.checkNotNull(feature);
+    removeFeature(row, sample);
+
+    final int cell = getCell(row, sample);
+    byte cellFlags = FEATURE;
+    final Double mz = feature.getMz();
+    if (mz != null) {
+      mzValues[cell] = mz;
+      rowMzSums[row] += mz;
+      rowNumOfMz[row]++;
+      cellFlags |= MZ;
+    }
+    final Float rt = feature.getRetentionTime();
+    if (rt != null) {
+      rtValues[cell] = rt;
+      rowRtSums[row] += rt;
+      rowNumOfRt[row]++;
+      cellFlags |= RT;
+    }
+    cellFlags |= setValue(areas, AREA, cell, feature.getArea());
+    cellFlags |= setValue(heights, HEIGHT, cell, feature.getHeight());
+    cellFlags |= setValue(snRatios, SN_RATIO, cell, feature.getSNRatio());
+    cellFlags |= setValue(scores, SCORE, cell, feature.getScore());
+    flags[cell] = cellFlags;
+
+    final Chromatogram chromatogram = feature.getChromatogram();
+    if (chromatogram != null)
+      chromatograms.put(getKey(row, sample), () -> chromatogram);
+    final List<MsScan> spectra = feature.getMSMSSpectra();
+    if (spectra != null)
+      msmsSpectra.put(getKey(row, sample), spectra);
+    if (ionAnnotations[row] == null)
+      ionAnnotations[row] = feature.getIonAnnotation();
+  }
+
+  void removeFeature(int row, int sample) {
+    final int cell = getCell(row, sample);
+    if ((flags[cell] & MZ) != 0) {
+      rowMzSums[row] -= mzValues[cell];
+      rowNumOfMz[row]--;
+    }
+    if ((flags[cell] & RT) != 0) {
+      rowRtSums[row] -= rtValues[cell];
+      rowNumOfRt[row]--;
+    }
+    flags[cell] = 0;
+    chromatograms.remove(getKey(row, sample));
+    msmsSpectra.remove(getKey(row, sample));
+  }
+
+  @Nullable
+  Chromatogram getChromatogram(int row, int sample) {
+    final Supplier<Chromatogram> supplier = chromatograms.get(getKey(row, sample));
+    return supplier == null ? null : supplier.get();
+  }
+
+  void setChromatogram(int row, int sample, @Nullable Supplier<Chromatogram> chromatogram) {
+    if (chromatogram == null)
+      chromatograms.remove(getKey(row, sample));
+    else
+      chromatograms.put(getKey(row, sample), chromatogram);
+  }
+
+  @Nullable
+  List<MsScan> getMSMSSpectra(int row, int sample) {
+    return msmsSpectra.get(getKey(row, sample));
+  }
+
+  @Nullable
+  Double getNullableMz(int row, int sample) {
+    final int cell = getCell(row, sample);
+    return (flags[cell] & MZ) != 0 ? mzValues[cell] : null;
+  }
+
+  @Nullable
+  Float getNullableRT(int row, int sample) {
+    return getNullableValue(rtValues, RT, row, sample);
+  }
+
+  @Nullable
+  Float getNullableArea(int row, int sample) {
+    return getNullableValue(areas, AREA, row, sample);
+  }
+
+  @Nullable
+  Float getNullableHeight(int row, int sample) {
+    return getNullableValue(heights, HEIGHT, row, sample);
+  }
+
+  @Nullable
+  Float getNullableSNRatio(int row, int sample) {
+    return getNullableValue(snRatios, SN_RATIO, row, sample);
+  }
+
+  @Nullable
+  Float getNullableScore(int row, int sample) {
+    return getNullableValue(scores, SCORE, row, sample);
+  }
+
+  private @Nullable Float getNullableValue(float values[], byte flag, int row, int sample) {
+    final int cell = getCell(row, sample);
+    return (flags[cell] & flag) != 0 ? values[cell] : null;
+  }
+
+  private float getValue(float values[], byte flag, int row, int sample) {
+    final int cell = getCell(row, sample);
+    return (flags[cell] & flag) != 0 ? values[cell] : Float.NaN;
+  }
+
+  private void setValue(float values[], byte flag, int row, int sample, float value) {
+    final int cell = getCell(row, sample);
+    if ((flags[cell] & FEATURE) == 0)
+      throw new MSDKRuntimeException("There is no feature in row " + row + " and sample " + sample);
+    values[cell] = value;
+    flags[cell] |= flag;
+  }
+
+  private static byte setValue(float values[], byte flag, int cell, @Nullable Float value) {
+    if (value == null)
+      return 0;
+    values[cell] = value;
+    return flag;
+  }
+
+  private int getCell(int row, int sample) {
+    Preconditions.checkElementIndex(row, rows.size());
+    Preconditions.checkElementIndex(sample, numOfSamples);
+    if (layout == Layout.ROW_MAJOR)
+      return row * numOfSamples + sample;
+    else
+      return sample * capacity + row;
+  }
+
+  private int getKey(int row, int sample) {
+    return row * numOfSamples + sample;
+  }
+
+  private void grow() {
+    final int maxCapacity = numOfSamples == 0 ? MAX_CELLS : MAX_CELLS / numOfSamples;
+    if (capacity >= maxCapacity)
+      throw new MSDKRuntimeException("Too many rows for a feature table with " + numOfSamples
+          + " samples");
+    final int newCapacity =
+        (int) Math.min(maxCapacity, Math.max(INITIAL_CAPACITY, 2L * capacity));
+
+    rowMzSums = Arrays.copyOf(rowMzSums, newCapacity);
+    rowRtSums = Arrays.copyOf(rowRtSums, newCapacity);
+    rowNumOfMz = Arrays.copyOf(rowNumOfMz, newCapacity);
+    rowNumOfRt = Arrays.copyOf(rowNumOfRt, newCapacity);
+    charges = Arrays.copyOf(charges, newCapacity);
+    ionAnnotations = Arrays.copyOf(ionAnnotations, newCapacity);
+
+    final int newSize = newCapacity * numOfSamples;
+    mzValues = (double[]) resize(mzValues, new double[newSize], newCapacity);
+    rtValues = (float[]) resize(rtValues, new float[newSize], newCapacity);
+    areas = (float[]) resize(areas, new float[newSize], newCapacity);
+    heights = (float[]) resize(heights, new float[newSize], newCapacity);
+    snRatios = (float[]) resize(snRatios, new float[newSize], newCapacity);
+    scores = (float[]) resize(scores, new float[newSize], newCapacity);
+    flags = (byte[]) resize(flags, new byte[newSize], newCapacity);
+    capacity = newCapacity;
+  }
+
+  // Copies the cells of the existing rows to a matrix with more rows
+  private Object resize(Object matrix, Object newMatrix, int newCapacity) {
+    if (layout == Layout.ROW_MAJOR) {
+      System.arraycopy(matrix, 0, newMatrix, 0, rows.size() * numOfSamples);
+    } else {
+      for (int sample = 0; sample < numOfSamples; sample++)
+        System.arraycopy(matrix, sample * capacity, newMatrix, sample * newCapacity, rows.size());
+    }
+    return newMatrix;
+  }
+
+}
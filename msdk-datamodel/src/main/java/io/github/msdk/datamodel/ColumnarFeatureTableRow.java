@@ -0,0 +1,175 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Row of a {@link io.github.msdk.datamodel.ColumnarFeatureTable}. The row only holds its index, all
+ * values are stored in the table. Like {@link io.github.msdk.datamodel.SimpleFeatureTableRow}, the
+ * m/z value and RT of the row are the averages of its features.
+ */
+public class ColumnarFeatureTableRow implements FeatureTableRow {
+
+  private final @Nonnull ColumnarFeatureTable featureTable;
+  private final int index;
+
+  ColumnarFeatureTableRow(@Nonnull ColumnarFeatureTable featureTable, int index) {
+    this.featureTable = featureTable;
+    this.index = index;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull ColumnarFeatureTable getFeatureTable() {
+    return featureTable;
+  }
+
+  /**
+   * <p>
+   * Returns the index of this row in the feature table.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Double getMz() {
+    return featureTable.getRowMz(index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getRT() {
+    return featureTable.getRowRT(index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Integer getCharge() {
+    return featureTable.getCharge(index);
+  }
+
+  /**
+   * <p>Setter for the field <code>charge</code>.</p>
+   *
+   * @param charge a {@link java.lang.Integer} object.
+   */
+  public void setCharge(@Nullable Integer charge) {
+    featureTable.setCharge(index, charge);
+  }
+
+  /**
+   * <p>
+   * Returns the ion annotation of this row, which is also returned by all its features. The ion
+   * annotations assigned by getIonAnnotations() are independent of it.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.datamodel.IonAnnotation} object.
+   */
+  public @Nullable IonAnnotation getIonAnnotation() {
+    return featureTable.getIonAnnotation(index);
+  }
+
+  /**
+   * <p>
+   * Sets the ion annotation of this row. If it is not set, setFeature() sets it to the ion
+   * annotation of the first feature.
+   * </p>
+   *
+   * @param ionAnnotation a {@link io.github.msdk.datamodel.IonAnnotation} object.
+   */
+  public void setIonAnnotation(@Nullable IonAnnotation ionAnnotation) {
+    featureTable.setIonAnnotation(index, ionAnnotation);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<IonAnnotation> getIonAnnotations() {
+    return featureTable.getIonAnnotations(index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setIonAnnotations(@Nonnull List<IonAnnotation> ionAnnotations) {
+    Preconditions.checkNotNull(ionAnnotations);
+    featureTable.setIonAnnotations(index, ionAnnotations);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Feature getFeature(Sample sample) {
+    final int sampleIndex = featureTable.getSampleIndex(sample);
+    if (sampleIndex < 0)
+      return null;
+    return featureTable.getFeature(index, sampleIndex);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Feature getFeature(Integer index) {
+    return featureTable.getFeature(this.index, index);
+  }
+
+  /**
+   * <p>
+   * Copies the values of given feature into the table.
+   * </p>
+   *
+   * @param sample a {@link io.github.msdk.datamodel.Sample} object.
+   * @param feature a {@link io.github.msdk.datamodel.Feature} object.
+   */
+  public void setFeature(@Nonnull Sample sample, @Nonnull Feature feature) {
+    Preconditions.checkNotNull(sample);
+    featureTable.setFeature(index, featureTable.getCheckedSampleIndex(sample), feature);
+  }
+
+  /**
+   * <p>
+   * Removes the feature of given sample.
+   * </p>
+   *
+   * @param sample a {@link io.github.msdk.datamodel.Sample} object.
+   */
+  public void removeFeature(@Nonnull Sample sample) {
+    Preconditions.checkNotNull(sample);
+    featureTable.removeFeature(index, featureTable.getCheckedSampleIndex(sample));
+  }
+
+  /**
+   * <p>
+   * Sets the supplier of the chromatogram of the feature of given sample. The supplier is called
+   * whenever the feature is asked for its chromatogram, so it can load the chromatogram on demand.
+   * </p>
+   *
+   * @param sample a {@link io.github.msdk.datamodel.Sample} object.
+   * @param chromatogram supplier of the chromatogram, or null to remove it.
+   */
+  public void setChromatogram(@Nonnull Sample sample,
+      @Nullable Supplier<Chromatogram> chromatogram) {
+    Preconditions.checkNotNull(sample);
+    featureTable.setChromatogram(index, featureTable.getCheckedSampleIndex(sample), chromatogram);
+  }
+
+}
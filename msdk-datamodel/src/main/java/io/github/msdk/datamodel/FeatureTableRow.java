@@ -12,6 +12,8 @@
  */
 package io.github.msdk.datamodel;
 
+import java.util.List;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -73,4 +75,19 @@ public interface FeatureTableRow {
   @Nullable
   Feature getFeature(@Nonnull Integer index);
 
+  /**
+   * Return the ion annotations assigned to this row, for example by a database search
+   *
+   * @return a list of {@link io.github.msdk.datamodel.IonAnnotation}s, empty if there are none.
+   */
+  @Nonnull
+  List<IonAnnotation> getIonAnnotations();
+
+  /**
+   * Set the ion annotations assigned to this row
+   *
+   * @param ionAnnotations a list of {@link io.github.msdk.datamodel.IonAnnotation}s.
+   */
+  void setIonAnnotations(@Nonnull List<IonAnnotation> ionAnnotations);
+
 }
@@ -69,6 +69,9 @@ public interface MsSpectrum {
    * Note: this method may need to read data from disk, therefore it may be quite slow.
    * </p>
    *
+   * @param array an array to copy the m/z values into, reused if it is large enough.
+   *        Implementations must not keep a reference to it, because callers reuse it for other
+   *        spectra.
    * @return an array of double.
    */
   @Nonnull
@@ -95,6 +98,9 @@ public interface MsSpectrum {
    * Note: this method may need to read data from disk, therefore it may be quite slow.
    * </p>
    *
+   * @param array an array to copy the intensity values into, reused if it is large enough.
+   *        Implementations must not keep a reference to it, because callers reuse it for other
+   *        spectra.
    * @return an array of float.
    */
   @Nonnull
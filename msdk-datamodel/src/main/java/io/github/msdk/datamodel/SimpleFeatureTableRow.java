@@ -14,6 +14,7 @@
 package io.github.msdk.datamodel;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +23,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 import io.github.msdk.MSDKRuntimeException;
 
@@ -33,6 +35,7 @@ public class SimpleFeatureTableRow implements FeatureTableRow {
   private final @Nonnull FeatureTable featureTable;
   private final @Nonnull Map<Sample, Feature> features = new HashMap<>();
   private @Nullable Integer charge;
+  private @Nonnull List<IonAnnotation> ionAnnotations = Collections.emptyList();
 
   /**
    * <p>Constructor for SimpleFeatureTableRow.</p>
@@ -84,6 +87,19 @@ public class SimpleFeatureTableRow implements FeatureTableRow {
     this.charge = charge;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<IonAnnotation> getIonAnnotations() {
+    return ionAnnotations;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void setIonAnnotations(@Nonnull List<IonAnnotation> ionAnnotations) {
+    Preconditions.checkNotNull(ionAnnotations);
+    this.ionAnnotations = ImmutableList.copyOf(ionAnnotations);
+  }
+
   /** {@inheritDoc} */
   @Override
   public Feature getFeature(Sample sample) {
@@ -0,0 +1,66 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Implementation of the GroupedFeature interface. The values of the grouped feature itself (m/z
+ * value, RT, area etc.) are set like those of a {@link io.github.msdk.datamodel.SimpleFeature},
+ * typically to the values of its most representative individual feature.
+ */
+public class SimpleGroupedFeature extends SimpleFeature implements GroupedFeature {
+
+  private @Nonnull List<Feature> individualFeatures = Collections.emptyList();
+  private @Nullable Integer charge;
+
+  /** {@inheritDoc} */
+  @Override
+  public @Nonnull List<Feature> getIndividualFeatures() {
+    return individualFeatures;
+  }
+
+  /**
+   * <p>Setter for the field <code>individualFeatures</code>.</p>
+   *
+   * @param individualFeatures a {@link java.util.List} object.
+   */
+  public void setIndividualFeatures(@Nonnull List<Feature> individualFeatures) {
+    Preconditions.checkNotNull(individualFeatures);
+    this.individualFeatures = ImmutableList.copyOf(individualFeatures);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Integer getCharge() {
+    return charge;
+  }
+
+  /**
+   * <p>Setter for the field <code>charge</code>.</p>
+   *
+   * @param charge a {@link java.lang.Integer} object.
+   */
+  public void setCharge(@Nullable Integer charge) {
+    this.charge = charge;
+  }
+
+}
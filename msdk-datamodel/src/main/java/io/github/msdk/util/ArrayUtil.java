@@ -13,6 +13,8 @@
 
 package io.github.msdk.util;
 
+import java.util.Arrays;
+
 import javax.annotation.Nonnull;
 
 /**
@@ -66,4 +68,59 @@ public class ArrayUtil {
 
   }
 
+  /**
+   * <p>
+   * Moves the count highest of the given distinct keys to the beginning of the array, in no
+   * particular order. Quickselect with median-of-three pivots, which falls back to sorting if the
+   * partitions shrink too slowly.
+   * </p>
+   *
+   * @param keys an array of distinct long keys.
+   * @param size the number of keys.
+   * @param count the number of keys to select.
+   */
+  public static void selectHighest(long keys[], int size, int count) {
+    int left = 0, right = size - 1;
+    int remainingPartitions = 2 * (32 - Integer.numberOfLeadingZeros(size));
+    while ((right > left) && (count > left) && (count <= right)) {
+
+      if (remainingPartitions-- == 0) {
+        Arrays.sort(keys, left, right + 1);
+        for (int i = left, j = right; i < j; i++, j--) {
+          final long swap = keys[i];
+          keys[i] = keys[j];
+          keys[j] = swap;
+        }
+        return;
+      }
+
+      final long a = keys[left], b = keys[(left + right) >>> 1], c = keys[right];
+      final long pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+
+      // Partition into keys higher than the pivot, the pivot and lower keys
+      int i = left, j = right;
+      while (i <= j) {
+        while (keys[i] > pivot)
+          i++;
+        while (keys[j] < pivot)
+          j--;
+        if (i <= j) {
+          final long swap = keys[i];
+          keys[i] = keys[j];
+          keys[j] = swap;
+          i++;
+          j--;
+        }
+      }
+
+      // The first count keys are complete if a partition boundary lies at count
+      if (count <= j)
+        right = j;
+      else if (count >= i)
+        left = i;
+      else
+        return;
+    }
+  }
+
 }
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.datamodel.MsSpectrum;
+
+/**
+ * <p>
+ * Reusable scratch arrays of m/z and intensity values. Spectrum processing algorithms load the
+ * data points of a spectrum into a buffer, modify them in place and copy the result into a new
+ * spectrum, so the arrays are only allocated when a spectrum is larger than all previous ones.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread-safe. Algorithms which may be called from several threads keep one
+ * buffer per thread, e.g. in a {@link java.lang.ThreadLocal}.
+ * </p>
+ */
+public class DataPointBuffer {
+
+  private static final int INITIAL_CAPACITY = 10000;
+
+  private @Nonnull double mzValues[] = new double[INITIAL_CAPACITY];
+  private @Nonnull float intensityValues[] = new float[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /**
+   * <p>
+   * Replaces the content of this buffer with the data points of given spectrum.
+   * </p>
+   *
+   * @param spectrum a {@link io.github.msdk.datamodel.MsSpectrum} object.
+   */
+  public void load(@Nonnull MsSpectrum spectrum) {
+    mzValues = spectrum.getMzValues(mzValues);
+    intensityValues = spectrum.getIntensityValues(intensityValues);
+    size = spectrum.getNumberOfDataPoints();
+  }
+
+  /**
+   * <p>
+   * Returns the m/z values. Only the first getSize() values are valid.
+   * </p>
+   *
+   * @return an array of double.
+   */
+  public @Nonnull double[] getMzValues() {
+    return mzValues;
+  }
+
+  /**
+   * <p>
+   * Returns the intensity values. Only the first getSize() values are valid.
+   * </p>
+   *
+   * @return an array of float.
+   */
+  public @Nonnull float[] getIntensityValues() {
+    return intensityValues;
+  }
+
+  /**
+   * <p>
+   * Returns the number of data points.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * <p>
+   * Sets the number of data points, e.g. after the values were modified in place.
+   * </p>
+   *
+   * @param size the number of data points, at most the capacity of the buffer.
+   */
+  public void setSize(int size) {
+    Preconditions.checkArgument(
+        (size >= 0) && (size <= mzValues.length) && (size <= intensityValues.length),
+        "Size must be between 0 and the capacity of the buffer");
+    this.size = size;
+  }
+
+  /**
+   * <p>
+   * Makes sure the buffer can hold at least given number of data points, keeping the current
+   * values.
+   * </p>
+   *
+   * @param capacity the number of data points.
+   */
+  public void ensureCapacity(int capacity) {
+    if ((capacity <= mzValues.length) && (capacity <= intensityValues.length))
+      return;
+    final int newCapacity =
+        Math.max(capacity, 2 * Math.min(mzValues.length, intensityValues.length));
+    mzValues = Arrays.copyOf(mzValues, newCapacity);
+    intensityValues = Arrays.copyOf(intensityValues, newCapacity);
+  }
+
+  /**
+   * <p>
+   * Removes all data points.
+   * </p>
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * <p>
+   * Appends a data point.
+   * </p>
+   *
+   * @param mz a double.
+   * @param intensity a float.
+   */
+  public void add(double mz, float intensity) {
+    ensureCapacity(size + 1);
+    mzValues[size] = mz;
+    intensityValues[size] = intensity;
+    size++;
+  }
+
+}
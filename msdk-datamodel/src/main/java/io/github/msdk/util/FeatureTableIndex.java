@@ -0,0 +1,231 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+
+/**
+ * <p>
+ * Index of feature table rows by m/z and RT. The rows are kept in primitive arrays sorted by m/z,
+ * so the rows inside an m/z range are found by binary search and only those are filtered by RT.
+ * getRowsInsideRange() returns the same rows as
+ * {@link FeatureTableUtil#getRowsInsideRange(FeatureTable, Range, Range)}, in the order in which
+ * they were added to the index.
+ * </p>
+ *
+ * <p>
+ * Rows can be added at any time, for example right after they were added to a
+ * {@link io.github.msdk.datamodel.SimpleFeatureTable} and received their features. Added rows are
+ * collected and merged into the sorted arrays by the next query, so a series of additions costs a
+ * single merge. The m/z value and RT of a row are read during the merge and not updated afterwards.
+ * Rows without m/z value or RT are never returned.
+ * </p>
+ *
+ * <p>
+ * Queries may run concurrently, but not concurrently with addRow().
+ * </p>
+ */
+public class FeatureTableIndex {
+
+  // Rows sorted by m/z value and then by the order in which they were added
+  private FeatureTableRow rows[] = new FeatureTableRow[0];
+  private double mzValues[] = new double[0];
+  private float rtValues[] = new float[0];
+  private int rowOrder[] = new int[0];
+
+  // Rows which are not merged into the sorted arrays yet
+  private final List<FeatureTableRow> pendingRows = new ArrayList<>();
+  private volatile boolean merged = true;
+  private int numOfAddedRows = 0;
+
+  /**
+   * <p>
+   * Creates an empty index.
+   * </p>
+   */
+  public FeatureTableIndex() {}
+
+  /**
+   * <p>
+   * Creates an index of all rows of the given feature table.
+   * </p>
+   *
+   * @param table a {@link io.github.msdk.datamodel.FeatureTable} object.
+   */
+  public FeatureTableIndex(@Nonnull FeatureTable table) {
+    Preconditions.checkNotNull(table);
+    for (FeatureTableRow row : table.getRows())
+      addRow(row);
+  }
+
+  /**
+   * <p>
+   * Adds a row to the index.
+   * </p>
+   *
+   * @param row a {@link io.github.msdk.datamodel.FeatureTableRow} object.
+   */
+  public synchronized void addRow(@Nonnull FeatureTableRow row) {
+    Preconditions.checkNotNull(row);
+    pendingRows.add(row);
+    merged = false;
+  }
+
+  /**
+   * <p>
+   * Returns the rows whose m/z value and RT are inside the given ranges, in the order in which
+   * they were added to the index.
+   * </p>
+   *
+   * @param rtRange a {@link com.google.common.collect.Range} object.
+   * @param mzRange a {@link com.google.common.collect.Range} object.
+   * @return a {@link java.util.List} object.
+   */
+  public @Nonnull List<FeatureTableRow> getRowsInsideRange(@Nonnull Range<Float> rtRange,
+      @Nonnull Range<Double> mzRange) {
+
+    if (!merged)
+      mergePendingRows();
+
+    int first = 0, last = mzValues.length;
+    if (mzRange.hasLowerBound())
+      first = lowerBound(mzValues, mzRange.lowerEndpoint());
+    if (mzRange.hasUpperBound())
+      last = upperBound(mzValues, mzRange.upperEndpoint());
+
+    // Sort the matching rows by the order in which they were added
+    long matches[] = new long[Math.max(0, last - first)];
+    int numOfMatches = 0;
+    for (int i = first; i < last; i++) {
+      if (mzRange.contains(mzValues[i]) && rtRange.contains(rtValues[i]))
+        matches[numOfMatches++] = ((long) rowOrder[i] << 32) | i;
+    }
+    Arrays.sort(matches, 0, numOfMatches);
+
+    List<FeatureTableRow> result = new ArrayList<>(numOfMatches);
+    for (int i = 0; i < numOfMatches; i++)
+      result.add(rows[(int) matches[i]]);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the number of rows in the index, including the rows without m/z value or RT.
+   * </p>
+   *
+   * @return a int.
+   */
+  public synchronized int getNumberOfRows() {
+    return numOfAddedRows + pendingRows.size();
+  }
+
+  private synchronized void mergePendingRows() {
+    if (merged)
+      return;
+
+    // Read the m/z values and RTs of the new rows
+    final int numOfPending = pendingRows.size();
+    final FeatureTableRow newRows[] = new FeatureTableRow[numOfPending];
+    final double newMz[] = new double[numOfPending];
+    final float newRt[] = new float[numOfPending];
+    final int newOrder[] = new int[numOfPending];
+    int numOfNew = 0;
+    for (FeatureTableRow row : pendingRows) {
+      final Float rt = row.getRT();
+      final Double mz = row.getMz();
+      if ((rt != null) && (mz != null) && !mz.isNaN()) {
+        newRows[numOfNew] = row;
+        newMz[numOfNew] = mz;
+        newRt[numOfNew] = rt;
+        newOrder[numOfNew] = numOfAddedRows;
+        numOfNew++;
+      }
+      numOfAddedRows++;
+    }
+    pendingRows.clear();
+
+    // Sort the new rows by m/z value, keeping the order of addition for equal values
+    Integer sorted[] = new Integer[numOfNew];
+    for (int i = 0; i < numOfNew; i++)
+      sorted[i] = i;
+    Arrays.sort(sorted, (a, b) -> Double.compare(newMz[a], newMz[b]));
+
+    // Merge them with the existing rows, which were all added earlier
+    final int size = rows.length + numOfNew;
+    final FeatureTableRow mergedRows[] = new FeatureTableRow[size];
+    final double mergedMz[] = new double[size];
+    final float mergedRt[] = new float[size];
+    final int mergedOrder[] = new int[size];
+    int i = 0, j = 0;
+    for (int k = 0; k < size; k++) {
+      if ((j == numOfNew) || ((i < rows.length) && (mzValues[i] <= newMz[sorted[j]]))) {
+        mergedRows[k] = rows[i];
+        mergedMz[k] = mzValues[i];
+        mergedRt[k] = rtValues[i];
+        mergedOrder[k] = rowOrder[i];
+        i++;
+      } else {
+        final int n = sorted[j];
+        mergedRows[k] = newRows[n];
+        mergedMz[k] = newMz[n];
+        mergedRt[k] = newRt[n];
+        mergedOrder[k] = newOrder[n];
+        j++;
+      }
+    }
+    rows = mergedRows;
+    mzValues = mergedMz;
+    rtValues = mergedRt;
+    rowOrder = mergedOrder;
+
+    merged = true;
+  }
+
+  // First index with value >= given value
+  private static int lowerBound(double array[], double value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  // First index with value > given value
+  private static int upperBound(double array[], double value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] <= value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+}
@@ -32,6 +32,9 @@ public class FeatureTableUtil {
   /**
    * <p>getRowsInsideRange.</p>
    *
+   * <p>This method scans all rows of the table. For repeated queries on the same table, use a
+   * {@link io.github.msdk.util.FeatureTableIndex}.</p>
+   *
    * @param table a {@link io.github.msdk.datamodel.FeatureTable} object.
    * @param rtRange a {@link com.google.common.collect.Range} object.
    * @param mzRange a {@link com.google.common.collect.Range} object.
@@ -14,11 +14,8 @@
 package io.github.msdk.util;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.TreeMap;
-import java.util.Map.Entry;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -29,8 +26,6 @@ import com.google.common.collect.Range;
 import io.github.msdk.datamodel.MsSpectrum;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.SimpleMsSpectrum;
-import io.github.msdk.util.DataPointSorter.SortingDirection;
-import io.github.msdk.util.DataPointSorter.SortingProperty;
 
 /**
  * <p>
@@ -173,9 +168,11 @@ public class MsSpectrumUtil {
     Preconditions.checkNotNull(size);
     Preconditions.checkPositionIndex(size, intensityValues.length);
 
-    Integer topIndex = null;
-    for (int i = 0; i < size; i++) {
-      if ((topIndex == null) || ((intensityValues[i] > intensityValues[topIndex])))
+    if (size == 0)
+      return null;
+    int topIndex = 0;
+    for (int i = 1; i < size; i++) {
+      if (intensityValues[i] > intensityValues[topIndex])
         topIndex = i;
     }
     return topIndex;
@@ -286,41 +283,40 @@ public class MsSpectrumUtil {
   }
 
   /**
-   * Filters with only N most intense elements.
-   * 
-   * @param spectrum - ms spectrum
+   * Filters with only N most intense elements. Of data points with equal intensities, those with
+   * lower m/z values are kept. The data points of the new spectrum are sorted by m/z value.
+   *
+   * @param ms - ms spectrum
    * @param pairsLimit - maximum amount of items in a new Spectrum
-   * @return
+   * @return a {@link io.github.msdk.datamodel.MsSpectrum} object.
    */
   public static @Nonnull MsSpectrum filterMsSpectrum(@Nonnull MsSpectrum ms,
       @Nonnull Integer pairsLimit) {
 
-    TreeMap<Float, Double> intesityMzSorted = new TreeMap<>(Comparator.reverseOrder());
+    final int size = ms.getNumberOfDataPoints();
+    if (size <= pairsLimit)
+      return ms;
     double mz[] = ms.getMzValues();
     float intensity[] = ms.getIntensityValues();
-    if (mz.length <= pairsLimit)
-      return ms;
 
-    double[] newMz = new double[pairsLimit];
-    float[] newIntensity = new float[pairsLimit];
+    /* Select the most intense data points */
+    long keys[] = new long[size];
+    for (int i = 0; i < size; i++)
+      keys[i] = intensityKey(intensity[i], i);
+    ArrayUtil.selectHighest(keys, size, pairsLimit);
 
-    /* Sort intensity pairs */
-    for (int i = 0; i < mz.length; i++) {
-      intesityMzSorted.put(intensity[i], mz[i]);
-    }
+    /* Sort ascending by mz, which is the order of the data points */
+    int indices[] = new int[pairsLimit];
+    for (int i = 0; i < pairsLimit; i++)
+      indices[i] = keyIndex(keys[i]);
+    Arrays.sort(indices);
 
-    /* Create new arrays with filtered intensity pairs */
+    double[] newMz = new double[pairsLimit];
+    float[] newIntensity = new float[pairsLimit];
     for (int i = 0; i < pairsLimit; i++) {
-      Entry<Float, Double> pair = intesityMzSorted.firstEntry();
-      intesityMzSorted.remove(pair.getKey());
-      newMz[i] = pair.getValue();
-      newIntensity[i] = pair.getKey();
+      newMz[i] = mz[indices[i]];
+      newIntensity[i] = intensity[indices[i]];
     }
-    intesityMzSorted.clear();
-
-    /* Sort ascending by mz */
-    DataPointSorter.sortDataPoints(newMz, newIntensity, pairsLimit, SortingProperty.MZ,
-        SortingDirection.ASCENDING);
 
     /* Create new Spectrum object */
     MsSpectrumType type = ms.getSpectrumType();
@@ -331,7 +327,8 @@ public class MsSpectrumUtil {
   /**
    * Method preprocesses list of spectra, limits its amount
    * Filtering of Spectrum objects is done by retrieving top N Spectrum objects with largest
-   * intensity values
+   * intensity values. The spectra are returned in the order of decreasing largest intensity
+   * value; of spectra with equal largest intensity values, those earlier in the list come first.
    *
    * @param spectra - list of spectrum to be preprocessed
    * @param listLimit - maximum amount of items to be in a new list
@@ -346,29 +343,44 @@ public class MsSpectrumUtil {
       return spectra;
     }
 
-    TreeMap<Float, MsSpectrum> orderedSpectra = new TreeMap<>(Comparator.reverseOrder());
-
     /* Order by largest intensity value */
-    for (MsSpectrum ms : spectra) {
+    final int size = spectra.size();
+    long keys[] = new long[size];
+    float intensity[] = new float[0];
+    for (int i = 0; i < size; i++) {
+      final MsSpectrum ms = spectra.get(i);
+      intensity = ms.getIntensityValues(intensity);
+      final int numOfDataPoints = ms.getNumberOfDataPoints();
       float biggest = 0;
-      for (float temp : ms.getIntensityValues()) {
-        if (temp > biggest)
-          biggest = temp;
-      }
-
-      orderedSpectra.put(biggest, ms);
+      for (int j = 0; j < numOfDataPoints; j++)
+        biggest = Math.max(biggest, intensity[j]);
+      keys[i] = intensityKey(biggest, i);
     }
 
     /* Retrieve only top N items */
-    List<MsSpectrum> ordered = new LinkedList<>();
-    for (int i = 0; i < listLimit; i++) {
-      Entry<Float, MsSpectrum> pair = orderedSpectra.firstEntry();
-      if (pair == null) break;
-      orderedSpectra.remove(pair.getKey());
-      MsSpectrum ms = pair.getValue();
-      ordered.add(ms);
-    }
+    final int limit = Math.max(0, Math.min(listLimit, size));
+    ArrayUtil.selectHighest(keys, size, limit);
+    Arrays.sort(keys, 0, limit);
+    List<MsSpectrum> ordered = new ArrayList<>(limit);
+    for (int i = limit - 1; i >= 0; i--)
+      ordered.add(spectra.get(keyIndex(keys[i])));
 
     return ordered;
   }
+
+  /**
+   * Returns a key which orders data points by intensity and then by decreasing index, so all keys
+   * are distinct.
+   */
+  private static long intensityKey(float intensity, int index) {
+    int bits = Float.floatToIntBits(intensity);
+    // Flip the bits of negative values, so the signed integers have the order of the floats
+    bits ^= (bits >> 31) & 0x7fffffff;
+    return ((long) bits << 32) | (Integer.MAX_VALUE - index);
+  }
+
+  private static int keyIndex(long key) {
+    return Integer.MAX_VALUE - (int) key;
+  }
+
 }
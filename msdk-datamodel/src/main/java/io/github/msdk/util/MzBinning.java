@@ -0,0 +1,262 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.datamodel.MsSpectrum;
+
+/**
+ * <p>
+ * Bins the data points of spectra onto an {@link io.github.msdk.util.MzGrid}, aggregating the
+ * intensities of the data points in each bin. The data points are processed in one pass over
+ * primitive arrays, so they must be sorted by m/z value, as in every
+ * {@link io.github.msdk.datamodel.MsSpectrum}. Data points outside of the grid are ignored.
+ * </p>
+ *
+ * <p>
+ * Besides single spectra, lists of spectra can be binned into one dense or sparse matrix, e.g. to
+ * feed the spectra to machine learning. Instances are immutable and can be used by several
+ * threads concurrently.
+ * </p>
+ */
+public class MzBinning {
+
+  /**
+   * How the intensities of the data points in a bin are aggregated.
+   */
+  public enum Aggregation {
+    SUM, MAX, MEAN
+  }
+
+  // Data structures, reused by the spectra binned in the same thread
+  private static final ThreadLocal<DataPointBuffer> inputBuffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<int[]> binBuffers = ThreadLocal.withInitial(() -> new int[0]);
+
+  private final @Nonnull MzGrid grid;
+  private final @Nonnull Aggregation aggregation;
+
+  /**
+   * <p>
+   * Constructor for MzBinning.
+   * </p>
+   *
+   * @param grid a {@link io.github.msdk.util.MzGrid} object.
+   * @param aggregation a {@link io.github.msdk.util.MzBinning.Aggregation} object.
+   */
+  public MzBinning(@Nonnull MzGrid grid, @Nonnull Aggregation aggregation) {
+    Preconditions.checkNotNull(grid);
+    Preconditions.checkNotNull(aggregation);
+    this.grid = grid;
+    this.aggregation = aggregation;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>grid</code>.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.MzGrid} object.
+   */
+  public @Nonnull MzGrid getGrid() {
+    return grid;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>aggregation</code>.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.util.MzBinning.Aggregation} object.
+   */
+  public @Nonnull Aggregation getAggregation() {
+    return aggregation;
+  }
+
+  /**
+   * <p>
+   * Bins the given data points and stores the non-empty bins, sorted by bin index. The output
+   * arrays need space for min(size, number of bins) elements.
+   * </p>
+   *
+   * @param mzValues an array of double, sorted.
+   * @param intensityValues an array of float.
+   * @param size the number of data points.
+   * @param bins an array of int, receiving the indices of the non-empty bins.
+   * @param binIntensities an array of float, receiving the aggregated intensities of the bins.
+   * @return the number of non-empty bins.
+   */
+  public int binSparse(@Nonnull double mzValues[], @Nonnull float intensityValues[], int size,
+      @Nonnull int bins[], @Nonnull float binIntensities[]) {
+    int numOfBins = 0;
+    int currentBin = -1;
+    double currentBinEnd = Double.NEGATIVE_INFINITY;
+    double value = 0.0;
+    int numOfDataPoints = 0;
+
+    for (int i = 0; i < size; i++) {
+      final double mz = mzValues[i];
+      if ((i > 0) && (mz < mzValues[i - 1]))
+        throw new MSDKRuntimeException("m/z values must be sorted in ascending order");
+
+      if (!(mz < currentBinEnd)) {
+        final int bin = grid.getBinIndex(mz);
+        if (bin < 0)
+          continue;
+        if (numOfDataPoints > 0) {
+          bins[numOfBins] = currentBin;
+          binIntensities[numOfBins] = aggregate(value, numOfDataPoints);
+          numOfBins++;
+        }
+        currentBin = bin;
+        currentBinEnd = grid.getBinStart(bin + 1);
+        value = 0.0;
+        numOfDataPoints = 0;
+      }
+
+      final float intensity = intensityValues[i];
+      if (aggregation == Aggregation.MAX)
+        value = numOfDataPoints == 0 ? intensity : Math.max(value, intensity);
+      else
+        value += intensity;
+      numOfDataPoints++;
+    }
+
+    if (numOfDataPoints > 0) {
+      bins[numOfBins] = currentBin;
+      binIntensities[numOfBins] = aggregate(value, numOfDataPoints);
+      numOfBins++;
+    }
+    return numOfBins;
+  }
+
+  private float aggregate(double value, int numOfDataPoints) {
+    return (float) (aggregation == Aggregation.MEAN ? value / numOfDataPoints : value);
+  }
+
+  /**
+   * <p>
+   * Bins the given data points into a dense array with one intensity per bin, 0 for empty bins.
+   * </p>
+   *
+   * @param mzValues an array of double, sorted.
+   * @param intensityValues an array of float.
+   * @param size the number of data points.
+   * @param binIntensities an array of float with at least one element per bin.
+   */
+  public void binDense(@Nonnull double mzValues[], @Nonnull float intensityValues[], int size,
+      @Nonnull float binIntensities[]) {
+    Preconditions.checkArgument(binIntensities.length >= grid.getNumberOfBins(),
+        "Output array is smaller than the number of bins");
+    final DataPointBuffer output = buffers.get();
+    output.ensureCapacity(size);
+    int bins[] = binBuffers.get();
+    if (bins.length < size) {
+      bins = new int[output.getIntensityValues().length];
+      binBuffers.set(bins);
+    }
+    final float values[] = output.getIntensityValues();
+    final int numOfBins = binSparse(mzValues, intensityValues, size, bins, values);
+
+    Arrays.fill(binIntensities, 0, grid.getNumberOfBins(), 0f);
+    for (int i = 0; i < numOfBins; i++)
+      binIntensities[bins[i]] = values[i];
+  }
+
+  /**
+   * <p>
+   * Bins the given spectra into a dense matrix, with one row per spectrum and one column per bin.
+   * </p>
+   *
+   * @param spectra a {@link java.util.List} of {@link io.github.msdk.datamodel.MsSpectrum}
+   *        objects.
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   * @return the matrix, as an array of rows.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  public @Nonnull float[][] binDense(@Nonnull List<? extends MsSpectrum> spectra,
+      int parallelism) throws MSDKException {
+    Preconditions.checkNotNull(spectra);
+    final float matrix[][] = new float[spectra.size()][];
+    forEachSpectrum(spectra, parallelism, (buffer, i) -> {
+      matrix[i] = new float[grid.getNumberOfBins()];
+      binDense(buffer.getMzValues(), buffer.getIntensityValues(), buffer.getSize(), matrix[i]);
+    });
+    return matrix;
+  }
+
+  /**
+   * <p>
+   * Bins the given spectra into a sparse matrix, with one row per spectrum and one column per bin.
+   * </p>
+   *
+   * @param spectra a {@link java.util.List} of {@link io.github.msdk.datamodel.MsSpectrum}
+   *        objects.
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   * @return a {@link io.github.msdk.util.SparseBinMatrix} object.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  public @Nonnull SparseBinMatrix binSparse(@Nonnull List<? extends MsSpectrum> spectra,
+      int parallelism) throws MSDKException {
+    Preconditions.checkNotNull(spectra);
+
+    // Bin each spectrum, then concatenate the rows
+    final int rowBins[][] = new int[spectra.size()][];
+    final float rowIntensities[][] = new float[spectra.size()][];
+    forEachSpectrum(spectra, parallelism, (buffer, i) -> {
+      final int maxNumOfBins = Math.min(buffer.getSize(), grid.getNumberOfBins());
+      int bins[] = new int[maxNumOfBins];
+      float intensities[] = new float[maxNumOfBins];
+      final int numOfBins = binSparse(buffer.getMzValues(), buffer.getIntensityValues(),
+          buffer.getSize(), bins, intensities);
+      rowBins[i] = Arrays.copyOf(bins, numOfBins);
+      rowIntensities[i] = Arrays.copyOf(intensities, numOfBins);
+    });
+
+    final int rowStarts[] = new int[spectra.size() + 1];
+    for (int i = 0; i < spectra.size(); i++)
+      rowStarts[i + 1] = rowStarts[i] + rowBins[i].length;
+    final int columns[] = new int[rowStarts[spectra.size()]];
+    final float values[] = new float[columns.length];
+    for (int i = 0; i < spectra.size(); i++) {
+      System.arraycopy(rowBins[i], 0, columns, rowStarts[i], rowBins[i].length);
+      System.arraycopy(rowIntensities[i], 0, values, rowStarts[i], rowIntensities[i].length);
+    }
+    return new SparseBinMatrix(grid.getNumberOfBins(), rowStarts, columns, values);
+  }
+
+  private static void forEachSpectrum(List<? extends MsSpectrum> spectra, int parallelism,
+      ObjIntConsumer<DataPointBuffer> task) throws MSDKException {
+    ParallelUtil.forEachIndex(spectra.size(), parallelism,
+        i -> processSpectrum(spectra, i, task));
+  }
+
+  private static void processSpectrum(List<? extends MsSpectrum> spectra, int index,
+      ObjIntConsumer<DataPointBuffer> task) {
+    final DataPointBuffer buffer = inputBuffers.get();
+    buffer.load(spectra.get(index));
+    task.accept(buffer, index);
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.util;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+/**
+ * <p>
+ * Grid of consecutive m/z bins, used by {@link io.github.msdk.util.MzBinning}. The bins either have
+ * a fixed width, or a width proportional to their m/z value (ppm). Each bin includes its start and
+ * excludes its end, which is the start of the next bin.
+ * </p>
+ *
+ * <p>
+ * Bin boundaries are always computed from the bin index, never accumulated, so a data point falls
+ * into the same bin regardless of the other data points.
+ * </p>
+ */
+public class MzGrid {
+
+  private final double start;
+  private final double binWidth;
+  private final double logFactor;
+  private final boolean ppm;
+  private final int numOfBins;
+
+  private MzGrid(double start, double binWidth, boolean ppm, double end) {
+    this.start = start;
+    this.binWidth = binWidth;
+    this.ppm = ppm;
+    this.logFactor = ppm ? Math.log1p(binWidth * 1E-6) : 0.0;
+    final long lastBin = unboundedBinIndex(end);
+    Preconditions.checkArgument(lastBin < Integer.MAX_VALUE, "Too many bins");
+    this.numOfBins = (int) lastBin + 1;
+  }
+
+  /**
+   * <p>
+   * Creates a grid of bins of a fixed width, starting at the lower endpoint of the m/z range and
+   * covering its upper endpoint.
+   * </p>
+   *
+   * @param mzRange a {@link com.google.common.collect.Range} object with both endpoints.
+   * @param binWidth width of the bins, in m/z.
+   * @return a {@link io.github.msdk.util.MzGrid} object.
+   */
+  public static @Nonnull MzGrid fixedWidth(@Nonnull Range<Double> mzRange, double binWidth) {
+    Preconditions.checkArgument(binWidth > 0.0, "Bin width must be positive");
+    return new MzGrid(mzRange.lowerEndpoint(), binWidth, false, mzRange.upperEndpoint());
+  }
+
+  /**
+   * <p>
+   * Creates a grid of bins whose width is given in ppm of their start m/z value, starting at the
+   * lower endpoint of the m/z range and covering its upper endpoint.
+   * </p>
+   *
+   * @param mzRange a {@link com.google.common.collect.Range} object with both endpoints, the lower
+   *        one positive.
+   * @param ppm width of the bins, in ppm.
+   * @return a {@link io.github.msdk.util.MzGrid} object.
+   */
+  public static @Nonnull MzGrid ppmWidth(@Nonnull Range<Double> mzRange, double ppm) {
+    Preconditions.checkArgument(ppm > 0.0, "Bin width must be positive");
+    Preconditions.checkArgument(mzRange.lowerEndpoint() > 0.0, "Grid must start at positive m/z");
+    return new MzGrid(mzRange.lowerEndpoint(), ppm, true, mzRange.upperEndpoint());
+  }
+
+  /**
+   * <p>
+   * Returns the number of bins.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfBins() {
+    return numOfBins;
+  }
+
+  /**
+   * <p>
+   * Returns the start m/z value of a bin. The start of bin getNumberOfBins() is the end of the
+   * grid.
+   * </p>
+   *
+   * @param bin index of the bin.
+   * @return a double.
+   */
+  public double getBinStart(int bin) {
+    return ppm ? start * Math.exp(bin * logFactor) : start + bin * binWidth;
+  }
+
+  /**
+   * <p>
+   * Returns the m/z value in the middle of a bin.
+   * </p>
+   *
+   * @param bin index of the bin.
+   * @return a double.
+   */
+  public double getBinCenter(int bin) {
+    return 0.5 * (getBinStart(bin) + getBinStart(bin + 1));
+  }
+
+  /**
+   * <p>
+   * Returns the index of the bin containing given m/z value.
+   * </p>
+   *
+   * @param mz a double.
+   * @return index of the bin, or -1 if the m/z value is outside of the grid.
+   */
+  public int getBinIndex(double mz) {
+    if (!(mz >= start))
+      return -1;
+    final long bin = unboundedBinIndex(mz);
+    return bin < numOfBins ? (int) bin : -1;
+  }
+
+  private long unboundedBinIndex(double mz) {
+    final double position = ppm ? Math.log(mz / start) / logFactor : (mz - start) / binWidth;
+    long bin = (long) Math.floor(Math.max(0.0, Math.min(position, Integer.MAX_VALUE)));
+    // Correct rounding errors, so the index agrees with getBinStart()
+    while ((bin > 0) && (getBinStart((int) bin) > mz))
+      bin--;
+    while ((bin < Integer.MAX_VALUE) && (getBinStart((int) bin + 1) <= mz))
+      bin++;
+    return bin;
+  }
+
+}
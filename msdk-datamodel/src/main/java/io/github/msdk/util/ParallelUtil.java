@@ -0,0 +1,186 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
+
+/**
+ * <p>
+ * Runs independent tasks of the methods and algorithms which support several threads. The number
+ * of threads, called parallelism, is at least 1. The value 1 runs the tasks one after another in
+ * the calling thread, any other value runs them in a {@link java.util.concurrent.ForkJoinPool}
+ * of that size.
+ * </p>
+ *
+ * <p>
+ * Unchecked exceptions thrown by a task are rethrown in the calling thread, as if the tasks had
+ * run there.
+ * </p>
+ */
+public class ParallelUtil {
+
+  /**
+   * <p>
+   * Checks a parallelism given by the user.
+   * </p>
+   *
+   * @param parallelism number of threads, at least 1
+   * @return the given parallelism
+   * @throws java.lang.IllegalArgumentException if the parallelism is less than 1
+   */
+  public static int checkParallelism(int parallelism) {
+    Preconditions.checkArgument(parallelism > 0, "Parallelism must be at least 1");
+    return parallelism;
+  }
+
+  /**
+   * <p>
+   * Creates a pool for several calls of
+   * {@link #forEachIndex(ForkJoinPool, int, int, IntConsumer)}. The pool must be shut down by the
+   * caller.
+   * </p>
+   *
+   * @param parallelism number of threads, at least 1
+   * @return a new pool, or null if the parallelism is 1
+   */
+  public static @Nullable ForkJoinPool createPool(int parallelism) {
+    checkParallelism(parallelism);
+    return parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+  }
+
+  /**
+   * <p>
+   * Runs the given action for each index from 0 to size - 1. Each index must be independent of the
+   * others, typically the action writes its result into an array at that index.
+   * </p>
+   *
+   * @param size number of indices
+   * @param parallelism number of threads, at least 1
+   * @param action the action to run for each index
+   * @throws io.github.msdk.MSDKException if the calling thread was interrupted
+   */
+  public static void forEachIndex(int size, int parallelism, @Nonnull IntConsumer action)
+      throws MSDKException {
+    checkParallelism(parallelism);
+    if ((parallelism == 1) || (size < 2)) {
+      forEachIndex(null, 0, size, action);
+      return;
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      forEachIndex(pool, 0, size, action);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * <p>
+   * Runs the given action for each index from fromIndex to toIndex - 1 in the given pool. Each
+   * index must be independent of the others.
+   * </p>
+   *
+   * @param pool a pool created by {@link #createPool(int)}, or null to run in the calling thread
+   * @param fromIndex first index, inclusive
+   * @param toIndex last index, exclusive
+   * @param action the action to run for each index
+   * @throws io.github.msdk.MSDKException if the calling thread was interrupted
+   */
+  public static void forEachIndex(@Nullable ForkJoinPool pool, int fromIndex, int toIndex,
+      @Nonnull IntConsumer action) throws MSDKException {
+    if ((pool == null) || (toIndex - fromIndex < 2)) {
+      for (int i = fromIndex; i < toIndex; i++)
+        action.accept(i);
+      return;
+    }
+    try {
+      pool.submit(() -> IntStream.range(fromIndex, toIndex).parallel().forEach(action)).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MSDKException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new MSDKException(cause);
+    }
+  }
+
+  /**
+   * <p>
+   * Maps the given items and passes the results to the consumer in the order of the items, e.g.
+   * to add processed scans to a raw data file. The items are mapped block by block, each thread
+   * maps blockSize items of a block, so only the results of one block are kept in memory. The
+   * consumer runs in the calling thread. The canceled flag is checked before each block, and with
+   * parallelism 1 a block is a single item.
+   * </p>
+   *
+   * @param items the items to map
+   * @param parallelism number of threads, at least 1
+   * @param blockSize number of items mapped by each thread in a block, at least 1
+   * @param mapper maps an item to its result, which may be null
+   * @param consumer receives each result and the index of its item
+   * @param canceled returns true if the remaining items should not be mapped
+   * @param <T> type of the items
+   * @param <R> type of the results
+   * @return false if the mapping was canceled before all items were mapped
+   * @throws io.github.msdk.MSDKException if the calling thread was interrupted
+   */
+  public static <T, R> boolean mapOrdered(@Nonnull List<? extends T> items, int parallelism,
+      int blockSize, @Nonnull Function<? super T, ? extends R> mapper,
+      @Nonnull ObjIntConsumer<? super R> consumer, @Nonnull BooleanSupplier canceled)
+      throws MSDKException {
+    Preconditions.checkNotNull(items);
+    Preconditions.checkArgument(blockSize > 0, "Block size must be at least 1");
+    final int itemsPerBlock = parallelism > 1 ? blockSize * parallelism : 1;
+    final List<R> results =
+        new ArrayList<>(Collections.nCopies(Math.min(itemsPerBlock, items.size()), null));
+    final ForkJoinPool pool = createPool(parallelism);
+    try {
+      for (int first = 0; first < items.size(); first += itemsPerBlock) {
+        if (canceled.getAsBoolean())
+          return false;
+        final int blockStart = first, blockEnd = Math.min(first + itemsPerBlock, items.size());
+        forEachIndex(pool, blockStart, blockEnd,
+            i -> results.set(i - blockStart, mapper.apply(items.get(i))));
+        for (int i = blockStart; i < blockEnd; i++) {
+          consumer.accept(results.get(i - blockStart), i);
+          results.set(i - blockStart, null);
+        }
+      }
+    } finally {
+      if (pool != null)
+        pool.shutdown();
+    }
+    return true;
+  }
+
+}
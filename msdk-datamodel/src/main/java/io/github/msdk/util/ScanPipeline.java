@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.util;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.github.msdk.datamodel.MsScan;
+
+/**
+ * <p>
+ * Chain of scan processing stages, e.g. smoothing, centroiding and cropping. Each scan is passed
+ * through all stages before the next scan is processed, so only the output of the last stage has
+ * to be kept, instead of a complete raw data file per stage. A scan removed by one stage is not
+ * passed to the following stages.
+ * </p>
+ *
+ * <p>
+ * The pipeline is immutable and is itself a stage, so pipelines can be nested. It can be run on a
+ * whole raw data file or applied scan by scan, e.g. by the chromatogram builder.
+ * </p>
+ */
+public class ScanPipeline implements ScanPipelineStage {
+
+  private final @Nonnull List<ScanPipelineStage> stages;
+
+  /**
+   * <p>
+   * Creates a pipeline of the given stages, in the order of processing.
+   * </p>
+   *
+   * @param stages an array of {@link io.github.msdk.util.ScanPipelineStage} objects.
+   */
+  public ScanPipeline(@Nonnull ScanPipelineStage... stages) {
+    this(ImmutableList.copyOf(stages));
+  }
+
+  /**
+   * <p>
+   * Creates a pipeline of the given stages, in the order of processing.
+   * </p>
+   *
+   * @param stages a {@link java.util.List} of {@link io.github.msdk.util.ScanPipelineStage}
+   *        objects.
+   */
+  public ScanPipeline(@Nonnull List<? extends ScanPipelineStage> stages) {
+    Preconditions.checkNotNull(stages);
+    this.stages = ImmutableList.copyOf(stages);
+  }
+
+  /**
+   * <p>
+   * Returns the stages of this pipeline.
+   * </p>
+   *
+   * @return a {@link java.util.List} object.
+   */
+  public @Nonnull List<ScanPipelineStage> getStages() {
+    return stages;
+  }
+
+  /**
+   * <p>
+   * Returns a new pipeline which runs the given stage after the stages of this pipeline.
+   * </p>
+   *
+   * @param stage a {@link io.github.msdk.util.ScanPipelineStage} object.
+   * @return a {@link io.github.msdk.util.ScanPipeline} object.
+   */
+  public @Nonnull ScanPipeline then(@Nonnull ScanPipelineStage stage) {
+    Preconditions.checkNotNull(stage);
+    return new ScanPipeline(
+        ImmutableList.<ScanPipelineStage>builder().addAll(stages).add(stage).build());
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Returns the output of the last stage. If there are no stages, the input scan is returned.
+   * </p>
+   */
+  @Override
+  @Nullable
+  public MsScan processScan(@Nonnull MsScan scan) {
+    Preconditions.checkNotNull(scan);
+    MsScan result = scan;
+    for (ScanPipelineStage stage : stages) {
+      result = stage.processScan(result);
+      if (result == null)
+        return null;
+    }
+    return result;
+  }
+
+}
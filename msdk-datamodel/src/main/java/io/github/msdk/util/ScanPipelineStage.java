@@ -0,0 +1,46 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.github.msdk.datamodel.MsScan;
+
+/**
+ * <p>
+ * A stage of a {@link io.github.msdk.util.ScanPipeline}, which processes one scan at a time. The
+ * filtering and centroiding algorithms are pipeline stages.
+ * </p>
+ *
+ * <p>
+ * Implementations must not keep the state of a scan in instance fields, because a pipeline may
+ * process several scans concurrently with the same stages.
+ * </p>
+ */
+@FunctionalInterface
+public interface ScanPipelineStage {
+
+  /**
+   * <p>
+   * Returns a new scan with the processed data points, or null if the scan is removed. The input
+   * scan is not modified. This method may be called from several threads at once.
+   * </p>
+   *
+   * @param scan a {@link io.github.msdk.datamodel.MsScan} object.
+   * @return a {@link io.github.msdk.datamodel.MsScan} object.
+   */
+  @Nullable
+  MsScan processScan(@Nonnull MsScan scan);
+
+}
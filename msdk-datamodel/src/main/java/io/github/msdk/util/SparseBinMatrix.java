@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.util;
+
+import javax.annotation.Nonnull;
+
+/**
+ * <p>
+ * Sparse matrix of binned spectra, created by {@link io.github.msdk.util.MzBinning}. Each row is a
+ * spectrum and each column a bin of the m/z grid. The non-empty bins are stored in compressed
+ * sparse row format: the bins of row r are at the indices getRowStarts()[r] to
+ * getRowStarts()[r + 1] - 1 of getColumns() and getValues(), sorted by column.
+ * </p>
+ */
+public class SparseBinMatrix {
+
+  private final int numOfColumns;
+  private final @Nonnull int rowStarts[];
+  private final @Nonnull int columns[];
+  private final @Nonnull float values[];
+
+  /**
+   * <p>
+   * Constructor for SparseBinMatrix.
+   * </p>
+   *
+   * @param numOfColumns the number of columns.
+   * @param rowStarts an array of int, with one more element than there are rows.
+   * @param columns an array of int.
+   * @param values an array of float.
+   */
+  public SparseBinMatrix(int numOfColumns, @Nonnull int rowStarts[], @Nonnull int columns[],
+      @Nonnull float values[]) {
+    this.numOfColumns = numOfColumns;
+    this.rowStarts = rowStarts;
+    this.columns = columns;
+    this.values = values;
+  }
+
+  /**
+   * <p>
+   * Returns the number of rows, i.e. spectra.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfRows() {
+    return rowStarts.length - 1;
+  }
+
+  /**
+   * <p>
+   * Returns the number of columns, i.e. bins of the grid.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfColumns() {
+    return numOfColumns;
+  }
+
+  /**
+   * <p>
+   * Returns the index of the first entry of each row, followed by the number of entries.
+   * </p>
+   *
+   * @return an array of int.
+   */
+  public @Nonnull int[] getRowStarts() {
+    return rowStarts;
+  }
+
+  /**
+   * <p>
+   * Returns the column of each entry.
+   * </p>
+   *
+   * @return an array of int.
+   */
+  public @Nonnull int[] getColumns() {
+    return columns;
+  }
+
+  /**
+   * <p>
+   * Returns the value of each entry.
+   * </p>
+   *
+   * @return an array of float.
+   */
+  public @Nonnull float[] getValues() {
+    return values;
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+
+/**
+ * Measures the heap used by a SimpleFeatureTable and a ColumnarFeatureTable with the same features.
+ * Arguments (all optional): number of samples (default 100), number of rows (default 20,000). The
+ * SimpleFeatureTable with the default size needs a heap of about 400 MB.
+ */
+public class ColumnarFeatureTableBenchmark {
+
+  public static void main(String[] args) {
+
+    int numberOfSamples = 100;
+    int numberOfRows = 20000;
+    Logger logger = LoggerFactory.getLogger(ColumnarFeatureTableBenchmark.class);
+
+    if (args.length > 0)
+      numberOfSamples = Integer.valueOf(args[0]);
+    if (args.length > 1)
+      numberOfRows = Integer.valueOf(args[1]);
+
+    List<Sample> samples = new ArrayList<>();
+    for (int i = 0; i < numberOfSamples; i++)
+      samples.add(new SimpleSample("sample " + i));
+
+    long baseline = getUsedMemory();
+    long startTime = System.currentTimeMillis();
+    SimpleFeatureTable simpleTable = new SimpleFeatureTable();
+    simpleTable.setSamples(samples);
+    Random random = new Random(1);
+    for (int i = 0; i < numberOfRows; i++) {
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(simpleTable);
+      for (Sample sample : samples)
+        row.setFeature(sample, createFeature(random));
+      simpleTable.addRow(row);
+    }
+    long endTime = System.currentTimeMillis();
+    logger.info("SimpleFeatureTable (" + numberOfSamples + " samples, " + numberOfRows
+        + " rows): " + (getUsedMemory() - baseline) / (1024 * 1024) + " MB, "
+        + (endTime - startTime) + " ms");
+    simpleTable = null;
+
+    for (Layout layout : Layout.values()) {
+      baseline = getUsedMemory();
+      startTime = System.currentTimeMillis();
+      ColumnarFeatureTable columnarTable = new ColumnarFeatureTable(samples, layout);
+      random = new Random(1);
+      for (int i = 0; i < numberOfRows; i++) {
+        ColumnarFeatureTableRow row = columnarTable.addRow();
+        for (Sample sample : samples)
+          row.setFeature(sample, createFeature(random));
+      }
+      endTime = System.currentTimeMillis();
+      logger.info("ColumnarFeatureTable " + layout + " (" + numberOfSamples + " samples, "
+          + numberOfRows + " rows): " + (getUsedMemory() - baseline) / (1024 * 1024) + " MB, "
+          + (endTime - startTime) + " ms");
+      columnarTable.dispose();
+    }
+
+  }
+
+  private static SimpleFeature createFeature(Random random) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(100.0 + random.nextDouble() * 900.0);
+    feature.setRetentionTime(random.nextFloat() * 60f);
+    feature.setArea(random.nextFloat() * 1E6f);
+    feature.setHeight(random.nextFloat() * 1E5f);
+    feature.setSNRatio(random.nextFloat() * 100f);
+    return feature;
+  }
+
+  private static long getUsedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++)
+      System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+
+/**
+ * Tests for ColumnarFeatureTable
+ */
+public class ColumnarFeatureTableTest {
+
+  private static List<Sample> createSamples(int numOfSamples) {
+    List<Sample> samples = new ArrayList<>();
+    for (int i = 0; i < numOfSamples; i++)
+      samples.add(new SimpleSample("sample " + i));
+    return samples;
+  }
+
+  private static SimpleFeature createFeature(Random random) {
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(100.0 + random.nextDouble() * 900.0);
+    feature.setRetentionTime(random.nextFloat() * 60f);
+    feature.setArea(random.nextBoolean() ? random.nextFloat() * 1E6f : null);
+    feature.setHeight(random.nextFloat() * 1E5f);
+    feature.setSNRatio(random.nextBoolean() ? Float.NaN : null);
+    feature.setScore(random.nextFloat());
+    return feature;
+  }
+
+  private static void assertFeatureEquals(Feature expected, Feature actual) {
+    Assert.assertEquals(expected.getMz(), actual.getMz());
+    Assert.assertEquals(expected.getRetentionTime(), actual.getRetentionTime());
+    Assert.assertEquals(expected.getArea(), actual.getArea());
+    Assert.assertEquals(expected.getHeight(), actual.getHeight());
+    Assert.assertEquals(expected.getSNRatio(), actual.getSNRatio());
+    Assert.assertEquals(expected.getScore(), actual.getScore());
+  }
+
+  @Test
+  public void testLayouts() {
+    for (Layout layout : Layout.values()) {
+      Random random = new Random(1);
+      List<Sample> samples = createSamples(7);
+      SimpleFeatureTable simpleTable = new SimpleFeatureTable();
+      simpleTable.setSamples(samples);
+      ColumnarFeatureTable columnarTable = new ColumnarFeatureTable(samples, layout);
+
+      // Enough rows to grow the matrices several times
+      for (int i = 0; i < 100; i++) {
+        SimpleFeatureTableRow simpleRow = new SimpleFeatureTableRow(simpleTable);
+        ColumnarFeatureTableRow columnarRow = columnarTable.addRow();
+        simpleRow.setCharge(i % 3 == 0 ? null : i % 3);
+        columnarRow.setCharge(simpleRow.getCharge());
+        for (Sample sample : samples) {
+          if (random.nextInt(4) == 0)
+            continue;
+          SimpleFeature feature = createFeature(random);
+          simpleRow.setFeature(sample, feature);
+          columnarRow.setFeature(sample, feature);
+        }
+        simpleTable.addRow(simpleRow);
+      }
+
+      List<FeatureTableRow> simpleRows = simpleTable.getRows();
+      List<FeatureTableRow> columnarRows = columnarTable.getRows();
+      Assert.assertEquals(simpleRows.size(), columnarRows.size());
+      for (int i = 0; i < simpleRows.size(); i++) {
+        FeatureTableRow simpleRow = simpleRows.get(i);
+        FeatureTableRow columnarRow = columnarRows.get(i);
+        Assert.assertSame(columnarTable, columnarRow.getFeatureTable());
+        Assert.assertEquals(simpleRow.getCharge(), columnarRow.getCharge());
+        Assert.assertEquals(simpleRow.getMz(), columnarRow.getMz(), 1E-9);
+        Assert.assertEquals(simpleRow.getRT(), columnarRow.getRT(), 1E-4);
+        for (int s = 0; s < samples.size(); s++) {
+          Feature simpleFeature = simpleRow.getFeature(samples.get(s));
+          Feature columnarFeature = columnarRow.getFeature(samples.get(s));
+          if (simpleFeature == null) {
+            Assert.assertNull(columnarFeature);
+            Assert.assertFalse(columnarTable.hasFeature(i, s));
+            Assert.assertTrue(Float.isNaN(columnarTable.getArea(i, s)));
+            continue;
+          }
+          assertFeatureEquals(simpleFeature, columnarFeature);
+          Assert.assertEquals(columnarFeature, columnarRow.getFeature(s));
+          Assert.assertEquals(simpleFeature.getMz(), columnarTable.getMz(i, s), 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUpdates() {
+    List<Sample> samples = createSamples(2);
+    ColumnarFeatureTable table = new ColumnarFeatureTable(samples, Layout.SAMPLE_MAJOR);
+    ColumnarFeatureTableRow row = table.addRow();
+    Assert.assertNull(row.getMz());
+    Assert.assertNull(row.getRT());
+
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(100.0);
+    feature.setRetentionTime(10f);
+    row.setFeature(samples.get(0), feature);
+    feature.setMz(200.0);
+    feature.setRetentionTime(20f);
+    row.setFeature(samples.get(1), feature);
+    Assert.assertEquals(150.0, row.getMz(), 0.0);
+    Assert.assertEquals(15f, row.getRT(), 0f);
+
+    // Replacing and removing features updates the row averages
+    feature.setMz(300.0);
+    row.setFeature(samples.get(1), feature);
+    Assert.assertEquals(200.0, row.getMz(), 0.0);
+    row.removeFeature(samples.get(0));
+    Assert.assertEquals(300.0, row.getMz(), 0.0);
+    Assert.assertEquals(20f, row.getRT(), 0f);
+    Assert.assertNull(row.getFeature(samples.get(0)));
+
+    // Chromatograms are loaded when they are requested
+    AtomicInteger loads = new AtomicInteger();
+    Chromatogram chromatogram = new SimpleChromatogram();
+    row.setChromatogram(samples.get(1), () -> {
+      loads.incrementAndGet();
+      return chromatogram;
+    });
+    Assert.assertEquals(0, loads.get());
+    Assert.assertSame(chromatogram, row.getFeature(samples.get(1)).getChromatogram());
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testCopy() {
+    List<Sample> samples = createSamples(3);
+    ColumnarFeatureTable table = new ColumnarFeatureTable(samples, Layout.SAMPLE_MAJOR);
+    Random random = new Random(2);
+    for (int i = 0; i < 20; i++) {
+      ColumnarFeatureTableRow row = table.addRow();
+      row.setCharge(i);
+      row.setFeature(samples.get(i % 3), createFeature(random));
+    }
+
+    ColumnarFeatureTable copy = new ColumnarFeatureTable(table);
+    Assert.assertEquals(Layout.SAMPLE_MAJOR, copy.getLayout());
+    Assert.assertEquals(20, copy.getNumberOfRows());
+    for (int i = 0; i < 20; i++) {
+      Assert.assertSame(copy, copy.getRow(i).getFeatureTable());
+      Assert.assertEquals(Integer.valueOf(i), copy.getRow(i).getCharge());
+      Assert.assertEquals(table.getRow(i).getMz(), copy.getRow(i).getMz());
+      assertFeatureEquals(table.getRow(i).getFeature(i % 3), copy.getRow(i).getFeature(i % 3));
+    }
+
+    // Changes of the copy do not affect the original table
+    final float area = table.getArea(0, 0);
+    copy.setArea(0, 0, 2f * area);
+    copy.setHeight(0, 0, 1f);
+    Assert.assertEquals(2f * area, copy.getArea(0, 0), 0f);
+    Assert.assertEquals(1f, copy.getHeight(0, 0), 0f);
+    Assert.assertEquals(area, table.getArea(0, 0), 0f);
+    copy.addRow().setFeature(samples.get(0), createFeature(random));
+    Assert.assertEquals(21, copy.getNumberOfRows());
+    Assert.assertEquals(20, table.getNumberOfRows());
+  }
+
+  @Test(expected = MSDKRuntimeException.class)
+  public void testSetAreaWithoutFeature() {
+    ColumnarFeatureTable table = new ColumnarFeatureTable(createSamples(1));
+    table.addRow();
+    table.setArea(0, 0, 1f);
+  }
+
+  @Test(expected = MSDKRuntimeException.class)
+  public void testUnknownSample() {
+    ColumnarFeatureTable table = new ColumnarFeatureTable(createSamples(1));
+    table.addRow().setFeature(new SimpleSample("unknown"), new SimpleFeature());
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.datamodel;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.FeatureTableIndex;
+import io.github.msdk.util.FeatureTableUtil;
+
+/**
+ * Tests for FeatureTableIndex
+ */
+public class FeatureTableIndexTest {
+
+  private static SimpleFeatureTableRow createRow(SimpleFeatureTable table, Sample sample,
+      double mz, float rt) {
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(mz);
+    feature.setRetentionTime(rt);
+    row.setFeature(sample, feature);
+    return row;
+  }
+
+  @Test
+  public void testRandomQueries() {
+    Random random = new Random(1);
+    Sample sample = new SimpleSample("sample");
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Collections.singletonList(sample));
+    FeatureTableIndex index = new FeatureTableIndex();
+
+    for (int i = 0; i < 1000; i++) {
+      // Many rows share the same m/z value
+      double mz = 100.0 + random.nextInt(200) * 0.01;
+      float rt = 10f * random.nextFloat();
+      SimpleFeatureTableRow row = createRow(table, sample, mz, rt);
+      table.addRow(row);
+      index.addRow(row);
+
+      // Rows are added between queries
+      if (i % 100 != 99)
+        continue;
+      for (int j = 0; j < 50; j++) {
+        double mzCenter = 100.0 + random.nextDouble() * 2.0;
+        float rtCenter = 10f * random.nextFloat();
+        Range<Double> mzRange = j % 2 == 0 ? Range.closed(mzCenter - 0.05, mzCenter + 0.05)
+            : Range.open(mzCenter - 0.05, mzCenter + 0.05);
+        Range<Float> rtRange = Range.closed(rtCenter - 1f, rtCenter + 1f);
+        Assert.assertEquals(FeatureTableUtil.getRowsInsideRange(table, rtRange, mzRange),
+            index.getRowsInsideRange(rtRange, mzRange));
+      }
+    }
+
+    Assert.assertEquals(1000, index.getNumberOfRows());
+    Assert.assertEquals(table.getRows(), new FeatureTableIndex(table)
+        .getRowsInsideRange(Range.<Float>all(), Range.<Double>all()));
+  }
+
+  @Test
+  public void testBounds() {
+    Sample sample = new SimpleSample("sample");
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Collections.singletonList(sample));
+    table.addRow(createRow(table, sample, 200.0, 5f));
+    table.addRow(createRow(table, sample, 100.0, 5f));
+    table.addRow(createRow(table, sample, 150.0, 5f));
+    FeatureTableIndex index = new FeatureTableIndex(table);
+
+    Assert.assertEquals(2,
+        index.getRowsInsideRange(Range.closed(4f, 6f), Range.closed(100.0, 150.0)).size());
+    Assert.assertEquals(0,
+        index.getRowsInsideRange(Range.closed(4f, 6f), Range.open(100.0, 150.0)).size());
+    Assert.assertEquals(0,
+        index.getRowsInsideRange(Range.closed(6f, 7f), Range.closed(100.0, 150.0)).size());
+    Assert.assertEquals(table.getRows().subList(1, 3),
+        index.getRowsInsideRange(Range.closed(4f, 6f), Range.lessThan(200.0)));
+  }
+
+}
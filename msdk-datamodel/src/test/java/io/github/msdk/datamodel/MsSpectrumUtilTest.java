@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.util.MsSpectrumUtil;
+
+public class MsSpectrumUtilTest {
+
+  private static SimpleMsSpectrum createSpectrum(float intensities[]) {
+    double mz[] = new double[intensities.length];
+    for (int i = 0; i < mz.length; i++)
+      mz[i] = 100.0 + i * 0.5;
+    return new SimpleMsSpectrum(mz, intensities, intensities.length, MsSpectrumType.CENTROIDED);
+  }
+
+  @Test
+  public void testFilterMsSpectrum() {
+    Random random = new Random(1);
+    for (int size : new int[] {1, 2, 7, 100, 1000}) {
+      // Few distinct intensities, so there are many ties
+      float intensities[] = new float[size];
+      for (int i = 0; i < size; i++)
+        intensities[i] = random.nextInt(10);
+      SimpleMsSpectrum spectrum = createSpectrum(intensities);
+
+      for (int limit : new int[] {0, 1, 5, size - 1, size}) {
+        if ((limit < 0) || (limit > size))
+          continue;
+        MsSpectrum filtered = MsSpectrumUtil.filterMsSpectrum(spectrum, limit);
+        Assert.assertEquals(limit, filtered.getNumberOfDataPoints().intValue());
+
+        // Expected: the most intense data points, of equal ones those with lower m/z
+        Integer order[] = new Integer[size];
+        for (int i = 0; i < size; i++)
+          order[i] = i;
+        Arrays.sort(order, (a, b) -> Float.compare(intensities[b], intensities[a]));
+        int expected[] = new int[limit];
+        for (int i = 0; i < limit; i++)
+          expected[i] = order[i];
+        Arrays.sort(expected);
+
+        double mz[] = filtered.getMzValues();
+        float filteredIntensities[] = filtered.getIntensityValues();
+        for (int i = 0; i < limit; i++) {
+          Assert.assertEquals(spectrum.getMzValues()[expected[i]], mz[i], 0.0);
+          Assert.assertEquals(intensities[expected[i]], filteredIntensities[i], 0.0f);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFilterMsSpectra() {
+    List<MsSpectrum> spectra = new ArrayList<>();
+    spectra.add(createSpectrum(new float[] {1f, 5f}));
+    spectra.add(createSpectrum(new float[] {7f, 2f}));
+    spectra.add(createSpectrum(new float[] {5f}));
+    spectra.add(createSpectrum(new float[] {3f, 0f, 2f}));
+    spectra.add(createSpectrum(new float[] {7f}));
+
+    List<MsSpectrum> filtered = MsSpectrumUtil.filterMsSpectra(spectra, 4);
+    Assert.assertEquals(
+        Arrays.asList(spectra.get(1), spectra.get(4), spectra.get(0), spectra.get(2)), filtered);
+
+    Assert.assertSame(spectra, MsSpectrumUtil.filterMsSpectra(spectra, 6));
+    Assert.assertNull(MsSpectrumUtil.filterMsSpectra(null, 4));
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.util.MzBinning;
+import io.github.msdk.util.MzBinning.Aggregation;
+import io.github.msdk.util.MzGrid;
+import io.github.msdk.util.SparseBinMatrix;
+
+public class MzBinningTest {
+
+  private static final double mzValues[] = {100.0, 100.2, 100.7, 103.1, 103.9, 110.0};
+  private static final float intensityValues[] = {1f, 3f, 2f, 10f, 4f, 7f};
+
+  @Test
+  public void testFixedWidthGrid() {
+    MzGrid grid = MzGrid.fixedWidth(Range.closed(100.0, 110.0), 1.0);
+    Assert.assertEquals(11, grid.getNumberOfBins());
+    Assert.assertEquals(0, grid.getBinIndex(100.0));
+    Assert.assertEquals(0, grid.getBinIndex(100.999));
+    Assert.assertEquals(1, grid.getBinIndex(101.0));
+    Assert.assertEquals(10, grid.getBinIndex(110.0));
+    Assert.assertEquals(-1, grid.getBinIndex(99.999));
+    Assert.assertEquals(-1, grid.getBinIndex(111.0));
+    Assert.assertEquals(103.5, grid.getBinCenter(3), 1E-12);
+  }
+
+  @Test
+  public void testPpmGrid() {
+    MzGrid grid = MzGrid.ppmWidth(Range.closed(100.0, 1000.0), 10.0);
+    final int numOfBins = grid.getNumberOfBins();
+    Assert.assertEquals(Math.log(10.0) / Math.log1p(1E-5), numOfBins, 1.0);
+    for (int bin : new int[] {0, 1, 1000, numOfBins - 1}) {
+      final double start = grid.getBinStart(bin), end = grid.getBinStart(bin + 1);
+      Assert.assertEquals(start * 1E-5, end - start, start * 1E-12);
+      Assert.assertEquals(bin, grid.getBinIndex(start));
+      Assert.assertEquals(bin, grid.getBinIndex(Math.nextDown(end)));
+    }
+    Assert.assertEquals(numOfBins - 1, grid.getBinIndex(1000.0));
+  }
+
+  @Test
+  public void testAggregation() {
+    MzGrid grid = MzGrid.fixedWidth(Range.closed(100.0, 105.0), 1.0);
+    int bins[] = new int[6];
+    float intensities[] = new float[6];
+
+    MzBinning sum = new MzBinning(grid, Aggregation.SUM);
+    Assert.assertEquals(2, sum.binSparse(mzValues, intensityValues, 6, bins, intensities));
+    Assert.assertArrayEquals(new int[] {0, 3}, new int[] {bins[0], bins[1]});
+    Assert.assertEquals(6f, intensities[0], 0f);
+    Assert.assertEquals(14f, intensities[1], 0f);
+
+    MzBinning max = new MzBinning(grid, Aggregation.MAX);
+    max.binSparse(mzValues, intensityValues, 6, bins, intensities);
+    Assert.assertEquals(3f, intensities[0], 0f);
+    Assert.assertEquals(10f, intensities[1], 0f);
+
+    MzBinning mean = new MzBinning(grid, Aggregation.MEAN);
+    float dense[] = new float[grid.getNumberOfBins()];
+    mean.binDense(mzValues, intensityValues, 6, dense);
+    Assert.assertArrayEquals(new float[] {2f, 0f, 0f, 7f, 0f, 0f}, dense, 0f);
+  }
+
+  @Test
+  public void testMatrices() throws Exception {
+    Random random = new Random(1);
+    List<MsSpectrum> spectra = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      final int size = random.nextInt(200);
+      double mz[] = new double[size];
+      float intensities[] = new float[size];
+      double currentMz = 90.0;
+      for (int j = 0; j < size; j++) {
+        currentMz += random.nextDouble();
+        mz[j] = currentMz;
+        intensities[j] = random.nextFloat();
+      }
+      spectra.add(new SimpleMsSpectrum(mz, intensities, size, MsSpectrumType.PROFILE));
+    }
+    MzBinning binning =
+        new MzBinning(MzGrid.ppmWidth(Range.closed(100.0, 150.0), 5000.0), Aggregation.MEAN);
+    final int numOfBins = binning.getGrid().getNumberOfBins();
+
+    float dense[][] = binning.binDense(spectra, 1);
+    for (int parallelism : new int[] {1, 3}) {
+      Assert.assertArrayEquals(dense, binning.binDense(spectra, parallelism));
+      SparseBinMatrix sparse = binning.binSparse(spectra, parallelism);
+      Assert.assertEquals(spectra.size(), sparse.getNumberOfRows());
+      Assert.assertEquals(numOfBins, sparse.getNumberOfColumns());
+      for (int row = 0; row < spectra.size(); row++) {
+        float expanded[] = new float[numOfBins];
+        for (int i = sparse.getRowStarts()[row]; i < sparse.getRowStarts()[row + 1]; i++)
+          expanded[sparse.getColumns()[i]] = sparse.getValues()[i];
+        Assert.assertArrayEquals(dense[row], expanded, 0f);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
+import io.github.msdk.util.ParallelUtil;
+
+public class ParallelUtilTest {
+
+  @Test
+  public void testForEachIndex() throws MSDKException {
+    for (int parallelism = 1; parallelism <= 4; parallelism++) {
+      final long squares[] = new long[1000];
+      ParallelUtil.forEachIndex(squares.length, parallelism, i -> squares[i] = (long) i * i);
+      for (int i = 0; i < squares.length; i++)
+        Assert.assertEquals((long) i * i, squares[i]);
+    }
+
+    // Nothing to do
+    ParallelUtil.forEachIndex(0, 4, i -> Assert.fail());
+  }
+
+  @Test
+  public void testPool() throws MSDKException {
+    Assert.assertNull(ParallelUtil.createPool(1));
+
+    // Without a pool, the indices are visited in order in the calling thread
+    final Thread caller = Thread.currentThread();
+    final int next[] = {5};
+    ParallelUtil.forEachIndex(null, 5, 10, i -> {
+      Assert.assertSame(caller, Thread.currentThread());
+      Assert.assertEquals(next[0]++, i);
+    });
+    Assert.assertEquals(10, next[0]);
+
+    ForkJoinPool pool = ParallelUtil.createPool(3);
+    try {
+      Assert.assertEquals(3, pool.getParallelism());
+      final int values[] = new int[100];
+      ParallelUtil.forEachIndex(pool, 10, 60, i -> values[i]++);
+      ParallelUtil.forEachIndex(pool, 50, 100, i -> values[i]++);
+      for (int i = 0; i < values.length; i++)
+        Assert.assertEquals(i < 10 ? 0 : (i >= 50 && i < 60) ? 2 : 1, values[i]);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testMapOrdered() throws MSDKException {
+    List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+      items.add(i);
+    final Thread caller = Thread.currentThread();
+    for (int parallelism = 1; parallelism <= 4; parallelism++) {
+      // Odd items are mapped to null, the results arrive in order in the calling thread
+      List<Integer> results = new ArrayList<>();
+      Assert.assertTrue(ParallelUtil.mapOrdered(items, parallelism, 7,
+          item -> item % 2 == 0 ? item * 3 : null, (result, index) -> {
+            Assert.assertSame(caller, Thread.currentThread());
+            Assert.assertEquals(results.size(), (int) index);
+            results.add(result);
+          }, () -> false));
+      for (int i = 0; i < items.size(); i++)
+        Assert.assertEquals(i % 2 == 0 ? (Integer) (i * 3) : null, results.get(i));
+
+      // Canceled after the first block
+      final int numOfResults[] = {0};
+      Assert.assertFalse(ParallelUtil.mapOrdered(items, parallelism, 7, item -> item,
+          (result, index) -> numOfResults[0]++, () -> numOfResults[0] > 0));
+      Assert.assertEquals(parallelism > 1 ? 7 * parallelism : 1, numOfResults[0]);
+    }
+  }
+
+  @Test(expected = MSDKRuntimeException.class)
+  public void testUncheckedException() throws MSDKException {
+    ParallelUtil.forEachIndex(100, 4, i -> {
+      if (i == 42)
+        throw new MSDKRuntimeException("Failed at index " + i);
+    });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() throws MSDKException {
+    ParallelUtil.forEachIndex(10, 0, i -> {
+    });
+  }
+
+}
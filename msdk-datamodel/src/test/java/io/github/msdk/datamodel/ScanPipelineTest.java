@@ -0,0 +1,72 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.datamodel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.util.MsScanUtil;
+import io.github.msdk.util.ScanPipeline;
+import io.github.msdk.util.ScanPipelineStage;
+
+public class ScanPipelineTest {
+
+  private static SimpleMsScan createScan(int scanNumber) {
+    SimpleMsScan scan = new SimpleMsScan(scanNumber);
+    scan.setRetentionTime(scanNumber * 0.1f);
+    scan.setDataPoints(new double[] {100.0, 200.0, 300.0}, new float[] {1f, 2f, 3f}, 3);
+    return scan;
+  }
+
+  // Multiplies all intensities by given factor
+  private static ScanPipelineStage scale(float factor) {
+    return scan -> {
+      SimpleMsScan newScan = MsScanUtil.clone(scan, false);
+      float intensityValues[] = scan.getIntensityValues();
+      for (int i = 0; i < scan.getNumberOfDataPoints(); i++)
+        intensityValues[i] *= factor;
+      newScan.setDataPoints(scan.getMzValues(), intensityValues, scan.getNumberOfDataPoints());
+      return newScan;
+    };
+  }
+
+  @Test
+  public void testStages() {
+    SimpleMsScan scan = createScan(5);
+    ScanPipeline pipeline = new ScanPipeline(scale(2f), scale(3f));
+    MsScan result = pipeline.processScan(scan);
+    Assert.assertNotNull(result);
+    Assert.assertEquals(new Integer(5), result.getScanNumber());
+    Assert.assertArrayEquals(new float[] {6f, 12f, 18f}, result.getIntensityValues(), 0f);
+
+    // The input scan is not modified
+    Assert.assertArrayEquals(new float[] {1f, 2f, 3f}, scan.getIntensityValues(), 0f);
+  }
+
+  @Test
+  public void testRemovedScan() {
+    ScanPipelineStage evenScans = scan -> scan.getScanNumber() % 2 == 0 ? scan : null;
+    ScanPipeline pipeline = new ScanPipeline(evenScans).then(scale(2f));
+    Assert.assertEquals(2, pipeline.getStages().size());
+    Assert.assertNull(pipeline.processScan(createScan(1)));
+    Assert.assertArrayEquals(new float[] {2f, 4f, 6f},
+        pipeline.processScan(createScan(2)).getIntensityValues(), 0f);
+  }
+
+  @Test
+  public void testEmptyPipeline() {
+    SimpleMsScan scan = createScan(1);
+    Assert.assertSame(scan, new ScanPipeline().processScan(scan));
+  }
+
+}
@@ -34,6 +34,7 @@ import io.github.msdk.datamodel.SimpleFeature;
 import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm;
 import io.github.msdk.featuredetection.adap3d.algorithms.CurveTool;
 import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * <p>
@@ -62,6 +63,8 @@ public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
 
   private boolean canceled = false;
 
+  private int parallelism = 1;
+
 
   /**
    * <p>
@@ -118,6 +121,19 @@ public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
     this.finalFeatureList = new ArrayList<>();
   }
 
+  /**
+   * <p>
+   * Sets the number of threads used to evaluate the intensity maxima, see
+   * {@link ADAP3DPeakDetectionAlgorithm#setParallelism(int)}. The detected features do not depend
+   * on this setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
   /**
    * <p>
    * This method performs 3 steps:<br>
@@ -149,6 +165,7 @@ public class ADAP3DFeatureDetectionMethod implements MSDKMethod<List<Feature>> {
     // Here first 20 peaks are determined to estimate the parameters to determine remaining peaks.
     logger.debug("Detecting 20 highest peaks to determine optimal parameters");
     objPeakDetection = new ADAP3DPeakDetectionAlgorithm(objSliceSparseMatrix);
+    objPeakDetection.setParallelism(parallelism);
     List<ADAP3DPeakDetectionAlgorithm.GoodPeakInfo> goodPeakList =
         objPeakDetection.execute(20, parameters, roundedFWHM);
 
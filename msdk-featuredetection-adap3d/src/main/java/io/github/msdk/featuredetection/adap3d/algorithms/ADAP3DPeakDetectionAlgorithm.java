@@ -12,15 +12,21 @@
  */
 package io.github.msdk.featuredetection.adap3d.algorithms;
 
+import java.lang.Math;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionParameters;
 import io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet;
 import io.github.msdk.featuredetection.adap3d.datamodel.Result;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * <p>ADAP3DPeakDetectionAlgorithm class.</p>
@@ -42,6 +48,40 @@ public class ADAP3DPeakDetectionAlgorithm {
     public Result objResult;
   }
 
+  /**
+   * <p>
+   * Removal or restoration of the data points in a rectangle of the sparse matrix.
+   * </p>
+   */
+  private static class Update {
+    final boolean restore;
+    final int lowerMz, upperMz, lowerScanBound, upperScanBound;
+
+    Update(boolean restore, int lowerMz, int upperMz, int lowerScanBound, int upperScanBound) {
+      this.restore = restore;
+      this.lowerMz = lowerMz;
+      this.upperMz = upperMz;
+      this.lowerScanBound = lowerScanBound;
+      this.upperScanBound = upperScanBound;
+    }
+  }
+
+  /**
+   * <p>
+   * Outcome of the evaluation of one maximum: the good peak, if any, and the updates of the sparse
+   * matrix in the order in which they have to be applied.
+   * </p>
+   */
+  private static class Evaluation {
+    GoodPeakInfo goodPeak;
+    final List<Update> updates = new ArrayList<Update>();
+  }
+
+  /**
+   * Number of maxima evaluated speculatively per thread in one batch.
+   */
+  private static final int CANDIDATES_PER_THREAD = 4;
+
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
   
   private final SliceSparseMatrix objSliceSparseMatrix;
@@ -53,6 +93,13 @@ public class ADAP3DPeakDetectionAlgorithm {
 
   private float progressPercent;
 
+  private int parallelism = 1;
+
+  // Statistics of the speculative evaluation with more than one thread: the number of batches, the
+  // number of evaluations taken from a batch and the number of serial evaluations after a batch
+  // no longer matched the serial order
+  int numOfBatches, numOfBatchEvaluations, numOfFallbacks;
+
   /**
    * <p>
    * Constructor
@@ -80,29 +127,11 @@ public class ADAP3DPeakDetectionAlgorithm {
     
     logger.debug("Starting ADAP3D algorithm for " + numOfPeaks + " peaks");
     
-    int maxCount = 0;
-    Triplet maxIntensityTriplet = objSliceSparseMatrix.findNextMaxIntensity();
     List<GoodPeakInfo> peakList = new ArrayList<GoodPeakInfo>();
 
+    if (!detectPeaks(Math.min(numOfPeaks, 20), objParameters, roundedFWHM, peakList))
+      return peakList; // canceled
 
-    while (maxCount < numOfPeaks) {
-      if (maxCount == 20)
-        break;
-      GoodPeakInfo goodPeak = iteration(maxIntensityTriplet, roundedFWHM, objParameters);
-      if (goodPeak != null) {
-        maxCount++;
-        peakList.add(goodPeak);
-      }
-
-
-      if (canceled)
-        return peakList;
-
-      progressPercent = objSliceSparseMatrix.getFinishedPercent(maxIntensityTriplet);
-      maxIntensityTriplet = objSliceSparseMatrix.findNextMaxIntensity();
-
-    }
-    
     logger.debug("Finished ADAP3D algorithm for " + numOfPeaks + " peaks");
 
     return peakList;
@@ -123,27 +152,159 @@ public class ADAP3DPeakDetectionAlgorithm {
 
     logger.debug("Starting ADAP3D algorithm for all good peaks");
 
-    Triplet maxIntensityTriplet = objSliceSparseMatrix.findNextMaxIntensity();
     List<GoodPeakInfo> peakList = new ArrayList<GoodPeakInfo>();
-    
 
-    while (maxIntensityTriplet != null) {
-      
-      if (canceled)
-        return null;
+    if (!detectPeaks(Integer.MAX_VALUE, objParameters, roundedFWHM, peakList))
+      return null;
 
-      //logger.debug("Running iteration on triplet " + maxIntensityTriplet);
-      GoodPeakInfo goodPeak = iteration(maxIntensityTriplet, roundedFWHM, objParameters);
-      if (goodPeak != null)
-        peakList.add(goodPeak);
+    logger.debug("Finished ADAP3D algorithm for all good peaks");
 
+    return peakList;
+  }
+
+  /**
+   * <p>
+   * Sets the number of threads used to evaluate maxima. The default value 1 evaluates one maximum
+   * at a time in the calling thread. The detected peaks do not depend on this setting.
+   * </p>
+   *
+   * <p>
+   * With more than one thread, a batch of the next highest maxima is taken from the sparse matrix,
+   * as long as the regions of the matrix which their evaluations read and update do not overlap.
+   * The maxima are evaluated concurrently and the updates are then applied in the order of
+   * decreasing intensity. When a maximum, which the serial algorithm would take next, is not the
+   * next one of the batch (because an update restored data points of higher intensity), that
+   * maximum is evaluated in the calling thread and the rest of the batch is discarded.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
 
-      maxIntensityTriplet = objSliceSparseMatrix.findNextMaxIntensity();
+  /**
+   * <p>
+   * Evaluates the maxima in the order of decreasing intensity until maxNumOfPeaks good peaks are
+   * found or no data points are left. Returns false if the algorithm was canceled.
+   * </p>
+   */
+  private boolean detectPeaks(int maxNumOfPeaks, ADAP3DFeatureDetectionParameters objParameters,
+      int fwhm, List<GoodPeakInfo> peakList) {
+
+    final ForkJoinPool pool = ParallelUtil.createPool(parallelism);
+    try {
+      List<Triplet> candidates = Collections.emptyList();
+      Evaluation evaluations[] = new Evaluation[0];
+      int nextCandidate = 0;
+
+      while (peakList.size() < maxNumOfPeaks) {
+
+        if (canceled)
+          return false;
+
+        if ((pool != null) && (nextCandidate == candidates.size())) {
+          candidates = findIndependentMaxima(objParameters, fwhm);
+          evaluations = evaluate(pool, candidates, objParameters, fwhm);
+          nextCandidate = 0;
+          numOfBatches++;
+        }
+
+        Triplet maxIntensityTriplet = objSliceSparseMatrix.findNextMaxIntensity();
+        if (maxIntensityTriplet == null)
+          return true;
+
+        Evaluation evaluation;
+        if ((nextCandidate < candidates.size())
+            && isSameDataPoint(candidates.get(nextCandidate), maxIntensityTriplet)) {
+          evaluation = evaluations[nextCandidate++];
+          numOfBatchEvaluations++;
+        } else {
+          // The batch no longer matches the serial order, fall back to a serial evaluation.
+          if (nextCandidate < candidates.size())
+            numOfFallbacks++;
+          nextCandidate = candidates.size();
+          evaluation = iteration(maxIntensityTriplet, fwhm, objParameters);
+        }
+
+        apply(evaluation);
+        if (evaluation.goodPeak != null)
+          peakList.add(evaluation.goodPeak);
+
+        progressPercent = objSliceSparseMatrix.getFinishedPercent();
+      }
+
+      // The maximum following the last good peak is taken without being evaluated.
+      objSliceSparseMatrix.findNextMaxIntensity();
+      return true;
+
+    } finally {
+      if (pool != null)
+        pool.shutdown();
     }
+  }
 
-    logger.debug("Finished ADAP3D algorithm for all good peaks");
+  /**
+   * <p>
+   * Returns the next highest maxima, stopping at the first one whose region of the sparse matrix
+   * overlaps with the region of a previous one. The region of a maximum covers the m/z values
+   * within 2 * fwhm, which bound the m/z values read by Peak3DTest and all updates, and the scans
+   * within the largest wavelet scale.
+   * </p>
+   */
+  private List<Triplet> findIndependentMaxima(ADAP3DFeatureDetectionParameters objParameters,
+      int fwhm) {
+    final List<Triplet> maxima =
+        objSliceSparseMatrix.peekNextMaxIntensities(parallelism * CANDIDATES_PER_THREAD);
+    final long mzDistance = 4L * fwhm;
+    final long scanDistance = 2L * objParameters.getLargeScaleIn();
+    for (int i = 1; i < maxima.size(); i++) {
+      final Triplet candidate = maxima.get(i);
+      for (int j = 0; j < i; j++) {
+        final Triplet previous = maxima.get(j);
+        if ((Math.abs((long) candidate.mz - previous.mz) <= mzDistance)
+            && (Math.abs((long) candidate.scanListIndex - previous.scanListIndex) <= scanDistance))
+          return maxima.subList(0, i);
+      }
+    }
+    return maxima;
+  }
 
-    return peakList;
+  /**
+   * <p>
+   * Evaluates the given maxima concurrently. The sparse matrix is only read.
+   * </p>
+   */
+  private Evaluation[] evaluate(ForkJoinPool pool, List<Triplet> maxima,
+      ADAP3DFeatureDetectionParameters objParameters, int fwhm) {
+    final Evaluation evaluations[] = new Evaluation[maxima.size()];
+    try {
+      ParallelUtil.forEachIndex(pool, 0, maxima.size(),
+          i -> evaluations[i] = iteration(maxima.get(i), fwhm, objParameters));
+    } catch (MSDKException e) {
+      throw new MSDKRuntimeException(e);
+    }
+    return evaluations;
+  }
+
+  private static boolean isSameDataPoint(Triplet a, Triplet b) {
+    return (a.mz == b.mz) && (a.scanListIndex == b.scanListIndex);
+  }
+
+  /**
+   * <p>
+   * Applies the updates of an evaluation to the sparse matrix.
+   * </p>
+   */
+  private void apply(Evaluation evaluation) {
+    for (Update update : evaluation.updates) {
+      if (update.restore)
+        restoreDataPoints(update.lowerMz, update.upperMz, update.lowerScanBound,
+            update.upperScanBound);
+      else
+        removeDataPoints(update.lowerMz, update.upperMz, update.lowerScanBound,
+            update.upperScanBound);
+    }
   }
 
   /**
@@ -156,11 +317,13 @@ public class ADAP3DPeakDetectionAlgorithm {
    *        object. This is the element of sparse matrix.
    * @param fwhm a {@link java.lang.Double} object. This is estimated full width half max.
    * 
-   * @return objPeakInfo a {@link GoodPeakInfo} object. This contains information of good peak. If
-   *         there's no good peak it'll return null.
+   * @return evaluation a {@link Evaluation} object. This contains information of good peak, or null
+   *         if there's no good peak, and the data points to be removed or restored. The sparse
+   *         matrix is not changed.
    */
-  private GoodPeakInfo iteration(Triplet triplet, int fwhm, ADAP3DFeatureDetectionParameters objParameters) {
+  private Evaluation iteration(Triplet triplet, int fwhm, ADAP3DFeatureDetectionParameters objParameters) {
 
+    Evaluation evaluation = new Evaluation();
     GoodPeakInfo objPeakInfo = null;
     int lowerScanBound = triplet.scanListIndex - objParameters.getLargeScaleIn() < 0 ? 0
         : triplet.scanListIndex - objParameters.getLargeScaleIn();
@@ -190,7 +353,8 @@ public class ADAP3DPeakDetectionAlgorithm {
 
     // If there's no peak detected.
     if (peakList.isEmpty()) {
-      removeDataPoints(triplet.mz - fwhm, triplet.mz + fwhm, lowerScanBound, upperScanBound);
+      evaluation.updates.add(new Update(false, triplet.mz - fwhm, triplet.mz + fwhm,
+          lowerScanBound, upperScanBound));
     }
 
     else {
@@ -216,12 +380,13 @@ public class ADAP3DPeakDetectionAlgorithm {
         // If there's no peak at apex.
         if (scanNumber != triplet.scanListIndex) {
           if (remove) {
-            removeDataPoints(triplet.mz - fwhm, triplet.mz + fwhm, lowerScanBound, upperScanBound);
+            evaluation.updates.add(new Update(false, triplet.mz - fwhm, triplet.mz + fwhm,
+                lowerScanBound, upperScanBound));
             remove = false;
           }
-          restoreDataPoints(triplet.mz - fwhm, triplet.mz + fwhm,
+          evaluation.updates.add(new Update(true, triplet.mz - fwhm, triplet.mz + fwhm,
               peakList.get(i).curLeftBound + lowerScanBound,
-              peakList.get(i).curRightBound + lowerScanBound);
+              peakList.get(i).curRightBound + lowerScanBound));
         }
 
         // If there's peak at apex.
@@ -237,9 +402,9 @@ public class ADAP3DPeakDetectionAlgorithm {
 
           // If there's good peak
           if (peak.goodPeak && goodPeak) {
-            removeDataPoints(peak.lowerMzBound, peak.upperMzBound,
+            evaluation.updates.add(new Update(false, peak.lowerMzBound, peak.upperMzBound,
                 peakList.get(i).curLeftBound + lowerScanBound,
-                peakList.get(i).curRightBound + lowerScanBound);
+                peakList.get(i).curRightBound + lowerScanBound));
             objPeakInfo = new GoodPeakInfo();
             objPeakInfo.mz = (double) triplet.mz / 10000;
             objPeakInfo.lowerScanBound = peakList.get(i).curLeftBound + lowerScanBound;
@@ -248,21 +413,21 @@ public class ADAP3DPeakDetectionAlgorithm {
             objPeakInfo.maxHeightScanNumber = triplet.scanListIndex;
             objPeakInfo.objResult = peakList.get(i);
           } else {
-            removeDataPoints(peak.lowerMzBound, peak.upperMzBound,
+            evaluation.updates.add(new Update(false, peak.lowerMzBound, peak.upperMzBound,
                 peakList.get(i).curLeftBound + lowerScanBound,
-                peakList.get(i).curRightBound + lowerScanBound);
+                peakList.get(i).curRightBound + lowerScanBound));
           }
         }
 
       }
     }
-    return objPeakInfo;
+    evaluation.goodPeak = objPeakInfo;
+    return evaluation;
   }
 
   /**
    * <p>
-   * This method removes data point in loop by calling removeDataPoints method from
-   * SliceSparseMatrix.
+   * This method removes data points by calling removeDataPoints method from SliceSparseMatrix.
    * </p>
    * 
    * @param lowerMZ a {@link java.lang.Integer} object. This is the lower m/z boundary from which
@@ -276,15 +441,12 @@ public class ADAP3DPeakDetectionAlgorithm {
    * 
    */
   private void removeDataPoints(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound) {
-    for (int i = lowerMZ; i <= upperMZ; i++) {
-      objSliceSparseMatrix.removeDataPoints(i, lowerScanBound, upperScanBound);
-    }
+    objSliceSparseMatrix.removeDataPoints(lowerMZ, upperMZ, lowerScanBound, upperScanBound);
   }
 
   /**
    * <p>
-   * This method restores data point in loop by calling restoreDataPoints method from
-   * SliceSparseMatrix.
+   * This method restores data points by calling restoreDataPoints method from SliceSparseMatrix.
    * </p>
    * 
    * @param lowerMZ a {@link java.lang.Integer} object. This is the lower m/z boundary from which
@@ -297,9 +459,7 @@ public class ADAP3DPeakDetectionAlgorithm {
    *        which data point restoration ends.
    */
   private void restoreDataPoints(int lowerMZ, int upperMZ, int lowerScanBound, int upperScanBound) {
-    for (int i = lowerMZ; i <= upperMZ; i++) {
-      objSliceSparseMatrix.restoreDataPoints(i, lowerScanBound, upperScanBound);
-    }
+    objSliceSparseMatrix.restoreDataPoints(lowerMZ, upperMZ, lowerScanBound, upperScanBound);
   }
 
   /**
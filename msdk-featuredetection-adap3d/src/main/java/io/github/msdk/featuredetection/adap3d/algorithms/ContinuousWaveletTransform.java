@@ -64,6 +64,10 @@ public class ContinuousWaveletTransform {
   // estimated compact support
   int scaleCoefHowFarOut = 5;
 
+  // x values are considered uniformly spaced if the spacing differs from the average spacing by at
+  // most this fraction of the average spacing, plus the float rounding error of the x values
+  private static final double UNIFORM_SPACING_TOLERANCE = 1e-6;
+
   /**
    * <p>returnAllCoefficients.</p>
    *
@@ -449,8 +453,22 @@ public class ContinuousWaveletTransform {
 
   /**
    * <p>getCoefficientsForAllScales.</p>
+   *
+   * <p>
+   * If the x values are uniformly spaced, the coefficients of all scales are computed at once by
+   * {@link RickerWaveletEngine}. Otherwise the wavelet is evaluated at every pair of x values.
+   * </p>
    */
   public void getCoefficientsForAllScales() {
+    if (isUniformlySpaced()) {
+      double[] scales = new double[arrScales.size()];
+      for (int i = 0; i < scales.length; i++)
+        scales[i] = arrScales.get(i);
+      allCoefficients = RickerWaveletEngine.getInstance().transform(signal, scales, avgXSpace,
+          scaleCoefHowFarOut);
+      return;
+    }
+
     int NScales = arrScales.size();
     allCoefficients = new double[NScales][];
     int count = 0;
@@ -461,6 +479,15 @@ public class ContinuousWaveletTransform {
     // writeAllCoeffs();
   }
 
+  /**
+   * <p>
+   * Returns true if getCoefficientsForAllScales() uses the {@link RickerWaveletEngine}.
+   * </p>
+   */
+  boolean isUniformlySpaced() {
+    return RickerWaveletEngine.isUniform(x, avgXSpace, UNIFORM_SPACING_TOLERANCE);
+  }
+
   /**
    * <p>getCoefficientsForThisScale.</p>
    *
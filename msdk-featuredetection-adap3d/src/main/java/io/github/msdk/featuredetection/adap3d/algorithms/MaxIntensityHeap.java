@@ -0,0 +1,208 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <p>
+ * Indexed binary max-heap of data point indices, ordered by decreasing intensity and then by
+ * increasing point index. The position of every point in the heap is tracked, so removed data
+ * points can be taken out of the heap directly instead of being skipped when they reach the top.
+ * </p>
+ *
+ * <p>
+ * The heap behaves like a cursor moving through the list of points sorted by intensity: a point
+ * which is restored after the cursor passed its position in that list is not returned again.
+ * </p>
+ */
+class MaxIntensityHeap {
+
+  private final float intensities[];
+
+  // heap[0 .. size - 1] contains the point indices, position[p] is the index of point p in heap or
+  // -1 if the point is not in the heap
+  private final int heap[], position[];
+  private int size;
+
+  // Last point returned by poll(), or -1
+  private int lastPolled;
+  private int numOfPolled;
+
+  /**
+   * <p>
+   * Constructor for MaxIntensityHeap.
+   * </p>
+   *
+   * @param intensities intensity of each data point
+   * @param excluded data points which are not added to the heap
+   */
+  MaxIntensityHeap(float intensities[], BitSet excluded) {
+    this.intensities = intensities;
+    this.heap = new int[intensities.length];
+    this.position = new int[intensities.length];
+    reset(excluded);
+  }
+
+  /**
+   * <p>
+   * Rebuilds the heap from all data points which are not excluded and moves the cursor back to the
+   * highest intensity.
+   * </p>
+   *
+   * @param excluded data points which are not added to the heap
+   */
+  void reset(BitSet excluded) {
+    Arrays.fill(position, -1);
+    size = 0;
+    for (int p = 0; p < intensities.length; p++) {
+      if (!excluded.get(p)) {
+        heap[size] = p;
+        position[p] = size;
+        size++;
+      }
+    }
+    for (int i = size / 2 - 1; i >= 0; i--)
+      siftDown(i);
+    lastPolled = -1;
+    numOfPolled = 0;
+  }
+
+  /**
+   * <p>
+   * Removes and returns the data point with the highest intensity, or -1 if the heap is empty.
+   * </p>
+   */
+  int poll() {
+    if (size == 0)
+      return -1;
+    final int top = heap[0];
+    removeAt(0);
+    lastPolled = top;
+    numOfPolled++;
+    return top;
+  }
+
+  /**
+   * <p>
+   * Removes the given data point from the heap, if present.
+   * </p>
+   */
+  void remove(int point) {
+    final int i = position[point];
+    if (i >= 0)
+      removeAt(i);
+  }
+
+  /**
+   * <p>
+   * Adds the given data point back to the heap, unless the cursor already passed it.
+   * </p>
+   */
+  void restore(int point) {
+    if (position[point] >= 0)
+      return;
+    if ((lastPolled >= 0) && !before(lastPolled, point))
+      return;
+    insert(point);
+  }
+
+  /**
+   * <p>
+   * Writes the data points which the next calls of poll() would return into the given array,
+   * without changing the heap or the cursor.
+   * </p>
+   *
+   * @param points array which receives the data points
+   * @return number of data points written, lower than the array length if the heap runs empty
+   */
+  int peek(int points[]) {
+    final int previous = lastPolled, polled = numOfPolled;
+    int n = 0;
+    while ((n < points.length) && (size > 0))
+      points[n++] = poll();
+    for (int i = 0; i < n; i++)
+      insert(points[i]);
+    lastPolled = previous;
+    numOfPolled = polled;
+    return n;
+  }
+
+  /**
+   * <p>
+   * Returns the number of data points returned by poll() since the last reset.
+   * </p>
+   */
+  int getNumberOfPolled() {
+    return numOfPolled;
+  }
+
+  private void insert(int point) {
+    heap[size] = point;
+    position[point] = size;
+    size++;
+    siftUp(size - 1);
+  }
+
+  private void removeAt(int i) {
+    final int point = heap[i];
+    position[point] = -1;
+    size--;
+    if (i == size)
+      return;
+    heap[i] = heap[size];
+    position[heap[i]] = i;
+    siftDown(i);
+    siftUp(i);
+  }
+
+  // True if point a comes before point b in the order of decreasing intensity
+  private boolean before(int a, int b) {
+    final int c = Float.compare(intensities[b], intensities[a]);
+    return c < 0 || (c == 0 && a < b);
+  }
+
+  private void siftUp(int i) {
+    final int point = heap[i];
+    while (i > 0) {
+      final int parent = (i - 1) >>> 1;
+      if (!before(point, heap[parent]))
+        break;
+      heap[i] = heap[parent];
+      position[heap[i]] = i;
+      i = parent;
+    }
+    heap[i] = point;
+    position[point] = i;
+  }
+
+  private void siftDown(int i) {
+    final int point = heap[i];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size)
+        break;
+      if ((child + 1 < size) && before(heap[child + 1], heap[child]))
+        child++;
+      if (!before(heap[child], point))
+        break;
+      heap[i] = heap[child];
+      position[heap[i]] = i;
+      i = child;
+    }
+    heap[i] = point;
+    position[point] = i;
+  }
+
+}
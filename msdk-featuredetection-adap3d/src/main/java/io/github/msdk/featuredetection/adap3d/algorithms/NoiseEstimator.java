@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.Random;
+
+/**
+ * <p>
+ * Mean and standard deviation of windows of a sequence of values in constant time. The values are
+ * appended to the estimator, which keeps the prefix sums and the prefix sums of squares, so the sum
+ * and the sum of squares of any range of positions is the difference of two prefix values.
+ * </p>
+ *
+ * <p>
+ * The values are shifted by the first appended value before they are summed up, which keeps the
+ * cancellation in the variance small for intensities far from zero. Standard deviations are sample
+ * standard deviations, like DescriptiveStatistics.getStandardDeviation(): NaN for no values and 0
+ * for a single value.
+ * </p>
+ *
+ * <p>
+ * The arrays and the random number generator are reused between calls of clear(). Instances are
+ * not thread-safe; use getInstance() to obtain the instance of the current thread.
+ * </p>
+ */
+class NoiseEstimator {
+
+  private static final ThreadLocal<NoiseEstimator> instances =
+      ThreadLocal.withInitial(NoiseEstimator::new);
+
+  // sum[i] and sumOfSquares[i] hold the sums of the first i shifted values
+  private double sum[] = new double[1], sumOfSquares[] = new double[1];
+  private int size = 0;
+  private double shift = 0.0;
+
+  private final Random random = new Random();
+
+  /**
+   * <p>
+   * Returns the instance of the current thread.
+   * </p>
+   */
+  static NoiseEstimator getInstance() {
+    return instances.get();
+  }
+
+  /**
+   * <p>
+   * Removes all values.
+   * </p>
+   */
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * <p>
+   * Appends source[from] ... source[to - 1].
+   * </p>
+   */
+  void append(double source[], int from, int to) {
+    if (to <= from)
+      return;
+    ensureCapacity(size + to - from);
+    if (size == 0)
+      shift = source[from];
+    for (int i = from; i < to; i++) {
+      final double value = source[i] - shift;
+      sum[size + 1] = sum[size] + value;
+      sumOfSquares[size + 1] = sumOfSquares[size] + value * value;
+      size++;
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the number of values.
+   * </p>
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * <p>
+   * Returns the sum of the values at positions from ... to - 1.
+   * </p>
+   */
+  double sum(int from, int to) {
+    if (to <= from)
+      return 0.0;
+    return sum[to] - sum[from] + (to - from) * shift;
+  }
+
+  /**
+   * <p>
+   * Returns the sample standard deviation of the values at positions from1 ... to1 - 1 together
+   * with the values at positions from2 ... to2 - 1. Positions contained in both ranges count twice.
+   * </p>
+   */
+  double standardDeviation(int from1, int to1, int from2, int to2) {
+    final int n1 = Math.max(0, to1 - from1), n2 = Math.max(0, to2 - from2);
+    final int n = n1 + n2;
+    if (n == 0)
+      return Double.NaN;
+    if (n == 1)
+      return 0.0;
+    double s = 0.0, q = 0.0;
+    if (n1 > 0) {
+      s += sum[to1] - sum[from1];
+      q += sumOfSquares[to1] - sumOfSquares[from1];
+    }
+    if (n2 > 0) {
+      s += sum[to2] - sum[from2];
+      q += sumOfSquares[to2] - sumOfSquares[from2];
+    }
+    final double variance = (q - s * s / n) / (n - 1);
+    return variance > 0.0 ? Math.sqrt(variance) : 0.0;
+  }
+
+  /**
+   * <p>
+   * Returns the random number generator of this instance, reset to given seed.
+   * </p>
+   */
+  Random getRandom(long seed) {
+    random.setSeed(seed);
+    return random;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (sum.length > capacity)
+      return;
+    final int newLength = Math.max(capacity + 1, 2 * sum.length);
+    final double newSum[] = new double[newLength];
+    final double newSumOfSquares[] = new double[newLength];
+    System.arraycopy(sum, 0, newSum, 0, size + 1);
+    System.arraycopy(sumOfSquares, 0, newSumOfSquares, 0, size + 1);
+    sum = newSum;
+    sumOfSquares = newSumOfSquares;
+  }
+
+}
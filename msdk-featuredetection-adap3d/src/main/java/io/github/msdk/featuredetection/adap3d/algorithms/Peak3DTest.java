@@ -137,7 +137,7 @@ public class Peak3DTest {
     List<Double> similarityValues = new ArrayList<Double>();
 
     // mzIndex is index of given mz from the sorted list of all mz values from raw file.
-    int mzIndex = objsliceSparseMatrix.mzValues.indexOf(roundedMz);
+    int mzIndex = objsliceSparseMatrix.getMzIndex(roundedMz);
 
     // Here we're getting highest mz value for which the EIC is similar to given mz value.
     int upperMzBound = findMZbound(leftBound, rightBound, roundedMz, roundedFWHM, mzIndex,
@@ -228,8 +228,10 @@ public class Peak3DTest {
 
       // This condition checks whether we've mz values above or below given mz value.
 
-      curMZ = objsliceSparseMatrix.mzValues.get(curMzIndex);
-//      mzBound = objsliceSparseMatrix.mzValues.get(curMzIndex - multiplier);
+      if (curMzIndex < 0 || curMzIndex >= objsliceSparseMatrix.getNumberOfMzValues())
+        break;
+
+      curMZ = objsliceSparseMatrix.getMzValue(curMzIndex);
 
       if (curMZ == null || Math.abs(curMZ - roundedMz) >= 2 * roundedFWHM)
         break;
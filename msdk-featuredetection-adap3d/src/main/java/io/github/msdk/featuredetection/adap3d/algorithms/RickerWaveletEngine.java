@@ -0,0 +1,347 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Computes the Ricker (Mexican hat) wavelet coefficients of a signal with uniformly spaced x values
+ * for many scales at once. The result is the same as evaluating
+ * ContinuousWaveletTransform.signalWaveletInnerProductOnePoint() for every x index, up to rounding
+ * errors.
+ * </p>
+ *
+ * <p>
+ * With uniform spacing, the wavelet evaluated at x[i] - x[j] only depends on i - j, so the
+ * coefficients of one scale are a correlation of the signal with a fixed kernel. Short signals are
+ * correlated directly with a precomputed kernel, longer signals are transformed with a radix-2
+ * FFT: the signal spectrum is computed once, multiplied by the cached kernel spectrum of every
+ * scale and transformed back, two scales per inverse transform. Kernel spectra are cached by
+ * padded size, signal length and scale, and the complex work buffers are reused.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread-safe; use getInstance() to obtain the instance of the current thread.
+ * </p>
+ */
+class RickerWaveletEngine {
+
+  /**
+   * <p>
+   * Signals shorter than this are correlated directly. Determined by
+   * RickerWaveletEngineBenchmark.
+   * </p>
+   */
+  static final int FFT_MIN_LENGTH = 96;
+
+  /**
+   * <p>
+   * Maximum number of cached kernels before the cache is cleared.
+   * </p>
+   */
+  private static final int MAX_CACHED_KERNELS = 1024;
+
+  private static final ThreadLocal<RickerWaveletEngine> instances =
+      ThreadLocal.withInitial(RickerWaveletEngine::new);
+
+  // Kernel values g[k - left] for offsets left <= k <= right, per scale
+  private final Map<Double, double[]> kernels = new HashMap<>();
+
+  // Spectra of the kernels, per (padded size, signal length) and scale
+  private final Map<Long, Map<Double, double[][]>> kernelSpectra = new HashMap<>();
+  private int numOfKernelSpectra = 0;
+
+  // cos/sin tables and bit reversal permutation, per padded size
+  private final Map<Integer, double[][]> twiddles = new HashMap<>();
+  private final Map<Integer, int[]> bitReversals = new HashMap<>();
+
+  // Work buffers
+  private double signalRe[] = new double[0], signalIm[] = new double[0];
+  private double workRe[] = new double[0], workIm[] = new double[0];
+
+  /**
+   * <p>
+   * Returns the instance of the current thread.
+   * </p>
+   */
+  static RickerWaveletEngine getInstance() {
+    return instances.get();
+  }
+
+  /**
+   * <p>
+   * Returns true if the spacing of the x values differs from the average spacing by at most
+   * tolerance times the average spacing. The rounding errors of x values computed in float
+   * precision, like retention times, are also allowed, so regular scans are uniform even if their
+   * spacing is far below the float resolution of the x values.
+   * </p>
+   */
+  static boolean isUniform(double x[], double avgXSpace, double tolerance) {
+    if ((x.length < 2) || !(avgXSpace > 0))
+      return false;
+    final double maxDeviation = tolerance * avgXSpace;
+    for (int i = 0; i < x.length - 1; i++) {
+      // Each x value may be rounded by up to one float ulp
+      final double roundingError =
+          2 * Math.ulp((float) Math.max(Math.abs(x[i]), Math.abs(x[i + 1])));
+      if (!(Math.abs(x[i + 1] - x[i] - avgXSpace) <= maxDeviation + roundingError))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * <p>
+   * Computes the wavelet coefficients for all scales.
+   * </p>
+   *
+   * @param signal signal values at uniformly spaced x values
+   * @param scales wavelet scales in units of x indices
+   * @param avgXSpace spacing of the x values
+   * @param howFarOut support of the wavelet in each direction, in multiples of the scale
+   * @return coefficients, one array per scale
+   */
+  double[][] transform(double signal[], double scales[], double avgXSpace, int howFarOut) {
+    return transform(signal, scales, avgXSpace, howFarOut, signal.length >= FFT_MIN_LENGTH);
+  }
+
+  /**
+   * <p>
+   * Computes the wavelet coefficients for all scales, using the FFT or the direct correlation.
+   * </p>
+   *
+   * @param signal signal values at uniformly spaced x values
+   * @param scales wavelet scales in units of x indices
+   * @param avgXSpace spacing of the x values
+   * @param howFarOut support of the wavelet in each direction, in multiples of the scale
+   * @param useFFT true to use the FFT, false to correlate directly
+   * @return coefficients, one array per scale
+   */
+  double[][] transform(double signal[], double scales[], double avgXSpace, int howFarOut,
+      boolean useFFT) {
+    final int n = signal.length;
+    final double factor = 1.0 / Math.sqrt(avgXSpace);
+    final double coefficients[][] = new double[scales.length][n];
+    if (n == 0)
+      return coefficients;
+
+    if (!useFFT) {
+      for (int s = 0; s < scales.length; s++)
+        correlate(signal, scales[s], howFarOut, factor, coefficients[s]);
+      return coefficients;
+    }
+
+    // The kernel never reaches further than n - 1 points from its center
+    int maxWidth = 0;
+    for (double scale : scales) {
+      maxWidth = Math.max(maxWidth,
+          clippedRight(scale, howFarOut, n) - clippedLeft(scale, howFarOut, n));
+    }
+    int m = 1;
+    while (m < n + maxWidth)
+      m <<= 1;
+    ensureCapacity(m);
+
+    // Spectrum of the signal
+    for (int i = 0; i < m; i++) {
+      signalRe[i] = i < n ? signal[i] : 0.0;
+      signalIm[i] = 0.0;
+    }
+    fft(signalRe, signalIm, m);
+
+    final double normalization = factor / m;
+    for (int s = 0; s < scales.length; s += 2) {
+      final double first[][] = getKernelSpectrum(scales[s], howFarOut, n, m);
+      final double second[][] =
+          s + 1 < scales.length ? getKernelSpectrum(scales[s + 1], howFarOut, n, m) : null;
+
+      // Both results are real, so the second one can be carried in the imaginary part:
+      // z = S * K1 + i * S * K2. The inverse transform is computed as conj(fft(conj(z))) / m.
+      for (int i = 0; i < m; i++) {
+        final double a = signalRe[i], b = signalIm[i];
+        double re = a * first[0][i] - b * first[1][i];
+        double im = a * first[1][i] + b * first[0][i];
+        if (second != null) {
+          re -= a * second[1][i] + b * second[0][i];
+          im += a * second[0][i] - b * second[1][i];
+        }
+        workRe[i] = re;
+        workIm[i] = -im;
+      }
+      fft(workRe, workIm, m);
+      for (int i = 0; i < n; i++) {
+        coefficients[s][i] = workRe[i] * normalization;
+        if (second != null)
+          coefficients[s + 1][i] = -workIm[i] * normalization;
+      }
+    }
+    return coefficients;
+  }
+
+  // Direct correlation with the precomputed kernel
+  private void correlate(double signal[], double scale, int howFarOut, double factor,
+      double result[]) {
+    final int n = signal.length;
+    final int left = left(scale, howFarOut);
+    final double kernel[] = getKernel(scale, howFarOut);
+    final int right = left + kernel.length - 1;
+    for (int c = 0; c < n; c++) {
+      final int from = Math.max(left, -c), to = Math.min(right, n - 1 - c);
+      double innerProduct = 0.0;
+      for (int k = from; k <= to; k++)
+        innerProduct += signal[c + k] * kernel[k - left];
+      result[c] = innerProduct * factor;
+    }
+  }
+
+  /**
+   * <p>
+   * Offset of the first point of the integration window relative to its center, matching the
+   * rounding in ContinuousWaveletTransform.signalWaveletInnerProductOnePoint().
+   * </p>
+   */
+  static int left(double scale, int howFarOut) {
+    return (int) Math.round(-howFarOut * scale - 1.0);
+  }
+
+  /**
+   * <p>
+   * Offset of the last point of the integration window relative to its center.
+   * </p>
+   */
+  static int right(double scale, int howFarOut) {
+    return (int) Math.round(howFarOut * scale + 1.0);
+  }
+
+  private static int clippedLeft(double scale, int howFarOut, int n) {
+    return Math.max(left(scale, howFarOut), -(n - 1));
+  }
+
+  private static int clippedRight(double scale, int howFarOut, int n) {
+    return Math.min(right(scale, howFarOut), n - 1);
+  }
+
+  /**
+   * <p>
+   * Ricker wavelet at offset k (in x indices) for given scale, without the factor
+   * 1 / sqrt(avgXSpace). Same formula as ContinuousWaveletTransform.rickerWavelet().
+   * </p>
+   */
+  static double wavelet(int k, double scale) {
+    final double A =
+        2.0 / Math.sqrt(3.0 * scale * Math.sqrt(Math.PI)) * (1.0 - Math.pow(k / scale, 2.0));
+    return Math.exp(-Math.pow(k / scale, 2.0) / 2.0) * A;
+  }
+
+  private double[] getKernel(double scale, int howFarOut) {
+    double kernel[] = kernels.get(scale);
+    if (kernel == null) {
+      final int left = left(scale, howFarOut), right = right(scale, howFarOut);
+      kernel = new double[right - left + 1];
+      for (int k = left; k <= right; k++)
+        kernel[k - left] = wavelet(k, scale);
+      kernels.put(scale, kernel);
+    }
+    return kernel;
+  }
+
+  private double[][] getKernelSpectrum(double scale, int howFarOut, int n, int m) {
+    Map<Double, double[][]> spectra = kernelSpectra.get(((long) m << 32) | n);
+    if (spectra == null) {
+      if (numOfKernelSpectra >= MAX_CACHED_KERNELS) {
+        kernelSpectra.clear();
+        numOfKernelSpectra = 0;
+      }
+      spectra = new HashMap<>();
+      kernelSpectra.put(((long) m << 32) | n, spectra);
+    }
+    double spectrum[][] = spectra.get(scale);
+    if (spectrum == null) {
+      // Correlation with g[k] is a convolution with g[-k], stored at index -k mod m
+      final double kernel[] = getKernel(scale, howFarOut);
+      final int left = left(scale, howFarOut);
+      spectrum = new double[2][m];
+      for (int k = clippedLeft(scale, howFarOut, n); k <= clippedRight(scale, howFarOut, n); k++)
+        spectrum[0][(m - k) & (m - 1)] = kernel[k - left];
+      fft(spectrum[0], spectrum[1], m);
+      spectra.put(scale, spectrum);
+      numOfKernelSpectra++;
+    }
+    return spectrum;
+  }
+
+  private void ensureCapacity(int m) {
+    if (signalRe.length < m) {
+      signalRe = new double[m];
+      signalIm = new double[m];
+      workRe = new double[m];
+      workIm = new double[m];
+    }
+  }
+
+  /**
+   * <p>
+   * In-place iterative radix-2 FFT of the first m elements, m being a power of two.
+   * </p>
+   */
+  private void fft(double re[], double im[], int m) {
+    int reversal[] = bitReversals.get(m);
+    double table[][] = twiddles.get(m);
+    if (reversal == null) {
+      final int bits = Integer.numberOfTrailingZeros(m);
+      reversal = new int[m];
+      for (int i = 0; i < m; i++)
+        reversal[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+      table = new double[2][m / 2];
+      for (int i = 0; i < m / 2; i++) {
+        table[0][i] = Math.cos(2.0 * Math.PI * i / m);
+        table[1][i] = -Math.sin(2.0 * Math.PI * i / m);
+      }
+      bitReversals.put(m, reversal);
+      twiddles.put(m, table);
+    }
+
+    for (int i = 0; i < m; i++) {
+      final int j = reversal[i];
+      if (j > i) {
+        double t = re[i];
+        re[i] = re[j];
+        re[j] = t;
+        t = im[i];
+        im[i] = im[j];
+        im[j] = t;
+      }
+    }
+
+    final double cos[] = table[0], sin[] = table[1];
+    for (int size = 2; size <= m; size <<= 1) {
+      final int half = size >>> 1, step = m / size;
+      for (int start = 0; start < m; start += size) {
+        for (int j = 0; j < half; j++) {
+          final double wr = cos[j * step], wi = sin[j * step];
+          final int a = start + j, b = a + half;
+          final double tr = re[b] * wr - im[b] * wi;
+          final double ti = re[b] * wi + im[b] * wr;
+          re[b] = re[a] - tr;
+          im[b] = im[a] - ti;
+          re[a] += tr;
+          im[a] += ti;
+        }
+      }
+    }
+  }
+
+}
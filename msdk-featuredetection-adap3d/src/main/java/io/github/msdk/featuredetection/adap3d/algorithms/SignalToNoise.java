@@ -7,8 +7,7 @@ package io.github.msdk.featuredetection.adap3d.algorithms;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import java.util.Random;
 
 /**
  * <p>
@@ -18,6 +17,17 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
  * @author owenmyers Modified by Dharak Shah to include in MSDK
  */
 public class SignalToNoise {
+
+  /**
+   * Seed of the random window selection in filterBySNRandWindowSelect, unless given.
+   */
+  public static final long DEFAULT_SEED = 0L;
+
+  /**
+   * Number of random pairs of noise windows drawn by filterBySNRandWindowSelect.
+   */
+  private static final int NUM_OF_RANDOM_WINDOWS = 1000;
+
   /**
    * <p>
    * findSNUsingWaveletCoefficents.
@@ -119,7 +129,8 @@ public class SignalToNoise {
 
   /**
    * <p>
-   * filterBySNRandWindowSelect.
+   * filterBySNRandWindowSelect. Same as filterBySNRandWindowSelect(intensities, peakLeft,
+   * peakRight, DEFAULT_SEED).
    * </p>
    *
    * @param intensities an array of double.
@@ -129,144 +140,58 @@ public class SignalToNoise {
    */
   public static double filterBySNRandWindowSelect(double[] intensities, int peakLeft,
       int peakRight) {
+    return filterBySNRandWindowSelect(intensities, peakLeft, peakRight, DEFAULT_SEED);
+  }
 
-    DescriptiveStatistics stdDevStats = new DescriptiveStatistics();
-
-    DescriptiveStatistics toFindMinWithPeakNoise = new DescriptiveStatistics();
-    DescriptiveStatistics toFindLocalMean = new DescriptiveStatistics();
+  /**
+   * <p>
+   * filterBySNRandWindowSelect. The noise is the mean intensity of randomly selected windows of
+   * the peak width, one on each half of the data points within 10 peak widths around the peak
+   * (the peak excluded). The result only depends on the seed of the random window selection.
+   * </p>
+   *
+   * @param intensities an array of double.
+   * @param peakLeft a int.
+   * @param peakRight a int.
+   * @param seed a long. This is the seed of the random window selection.
+   * @return a double.
+   */
+  public static double filterBySNRandWindowSelect(double[] intensities, int peakLeft,
+      int peakRight, long seed) {
 
-    // first get the value of the peak
-    for (int i = peakLeft; i < (peakRight + 1); i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double peakHeight = stdDevStats.getMax();
-    stdDevStats.clear();
+    double peakHeight = findMax(intensities, peakLeft, peakRight);
 
     int peakWidth = peakRight - peakLeft;
-
-    // Initial size of expanding window will be twice the peak width on either side of the peak
-    // (really half the total window size.
     int sampleWindowSize = peakWidth;
 
+    int rightBound = java.lang.Math.min(peakRight + 10 * sampleWindowSize, intensities.length - 1);
+    int leftBound = java.lang.Math.max(peakLeft - 10 * sampleWindowSize, 0);
 
-    int rightBound = peakRight + 10 * sampleWindowSize;
-    int leftBound = peakLeft - 10 * sampleWindowSize;
-
-    // Make sure the these values don't go out of bounds
-    if (rightBound >= intensities.length) {
-      rightBound = intensities.length - 1;
-    }
-    if (leftBound < 0) {
-      leftBound = 0;
-    }
-
-    // Make a new arr containing only the value in the window
-    List<Double> forNoiseCalc = new ArrayList<Double>();
-    // first find the standard deviation from the windows EXCLUDING the peak
-    for (int j = peakRight + 1; j < (rightBound + 1); j++) {
-      forNoiseCalc.add(intensities[j]);
-    }
-    for (int j = leftBound; j < (peakLeft); j++) {
-      forNoiseCalc.add(intensities[j]);
-    }
-
-
-    toFindMinWithPeakNoise.clear();
-    DescriptiveStatistics toCollectSampleWindows = new DescriptiveStatistics();
-    // See what you get when yu put all the windows together before final std calc.
-    DescriptiveStatistics allWindowSTD = new DescriptiveStatistics();
-
-    for (int i = 0; i < 1000; i++) {
-      toCollectSampleWindows.clear();
-      toCollectSampleWindows.clear();
-      for (int j = 0; j < 1; j++) {
-        int min = 0;
-        int max = forNoiseCalc.size() / 2 - sampleWindowSize;
-        int windowStart = ThreadLocalRandom.current().nextInt(min, max);
-        for (int k = 0; k < sampleWindowSize; k++) {
-          toCollectSampleWindows.addValue(forNoiseCalc.get(windowStart + k));
-          allWindowSTD.addValue(forNoiseCalc.get(windowStart + k));
-        }
-      }
-      for (int j = 0; j < 1; j++) {
-        int min = forNoiseCalc.size() / 2;
-        int max = forNoiseCalc.size() - sampleWindowSize;
-        int windowStart = ThreadLocalRandom.current().nextInt(min, max);
-        for (int k = 0; k < sampleWindowSize; k++) {
-          toCollectSampleWindows.addValue(forNoiseCalc.get(windowStart + k));
-          allWindowSTD.addValue(forNoiseCalc.get(windowStart + k));
-        }
-      }
-      stdDevStats.addValue(toCollectSampleWindows.getStandardDeviation());
-      double curNoPeakMean = toCollectSampleWindows.getMean();
-      toFindLocalMean.addValue(curNoPeakMean);
-
-      // Now add in the peak becausase the difference in std with the peak will tell us something
-      // about it height.
-      for (int j = peakLeft; j < (peakRight + 1); j++) {
-        toCollectSampleWindows.addValue(intensities[j]);
-      }
-      double curWithPeakNoise = toCollectSampleWindows.getStandardDeviation();
-      toFindMinWithPeakNoise.addValue(curWithPeakNoise);
+    // The data points in the window, EXCLUDING the peak
+    NoiseEstimator noise = NoiseEstimator.getInstance();
+    noise.clear();
+    noise.append(intensities, peakRight + 1, rightBound + 1);
+    noise.append(intensities, leftBound, peakLeft);
 
+    // Sum of the intensities of all sampled windows
+    Random random = noise.getRandom(seed);
+    int half = noise.size() / 2;
+    double windowSum = 0.0;
+    for (int i = 0; i < NUM_OF_RANDOM_WINDOWS; i++) {
+      int windowStart = nextInt(random, 0, half - sampleWindowSize);
+      windowSum += noise.sum(windowStart, windowStart + sampleWindowSize);
+      windowStart = nextInt(random, half, noise.size() - sampleWindowSize);
+      windowSum += noise.sum(windowStart, windowStart + sampleWindowSize);
     }
-    // double bestNoise = stdDevStats.getMin();
-    // I think we should use the mean instead of the min. This assumes that the majority of the
-    // stuff within our max window
-    // is noise.
-    // double bestNoise = stdDevStats.getMean();
-    // Lets try looking at the std from collecting all of the data first
-    double bestNoise = allWindowSTD.getMean();
-
-
-
-    // before calculating the signal to noise ratio we need to "normalize" the height.
-    // What can happen is if a bad peak is found on a plateau the local stadard deviation will be
-    // small compared to the absolute height (or mean of peak) of peak.
-    //
-    // Find the minimum intesity point starting at the boundry and going a boundry width out.
-    // Then subtract this from the peak value (height or mean) before comparing to the standard
-    // deviation.
-
-    stdDevStats.clear();
-    rightBound = peakRight + peakWidth;
-    leftBound = peakLeft - peakWidth;
-
-    // Make sure the these values don't go out of bounds
-    if (rightBound >= intensities.length) {
-      rightBound = intensities.length - 1;
-    }
-    if (leftBound < 0) {
-      leftBound = 0;
-    }
-    // out to right
-    for (int i = peakRight; i <= rightBound; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity1 = stdDevStats.getMin();
-    stdDevStats.clear();
-    for (int i = leftBound; i <= peakLeft; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity2 = stdDevStats.getMin();
-    double smallIntensityAvg = (smallIntensity1 + smallIntensity2) / 2.0;
-
-
-    double SNRatio = (peakHeight - smallIntensityAvg) / bestNoise;
-    // double SNRatio = (meanOfSignal-smallIntensityAvg)/bestNoise;
-
-
-    // if (bestWithPeakNoise/bestNoise <= 1.2){
-    // return -1;
-    // }
-
-    return SNRatio;
+    double bestNoise = windowSum / (2.0 * NUM_OF_RANDOM_WINDOWS * sampleWindowSize);
 
+    return (peakHeight - findSmallIntensityAvg(intensities, peakLeft, peakRight)) / bestNoise;
   }
 
   /**
    * <p>
-   * filterBySNWindowSweep.
+   * filterBySNWindowSweep. The noise is the smallest standard deviation of the data points in
+   * windows on both sides of the peak (the peak excluded), growing from 3 to 12 peak widths.
    * </p>
    *
    * @param intensities an array of double.
@@ -275,18 +200,8 @@ public class SignalToNoise {
    * @return a double.
    */
   public static double filterBySNWindowSweep(double[] intensities, int peakLeft, int peakRight) {
-    DescriptiveStatistics stdDevStats = new DescriptiveStatistics();
-    DescriptiveStatistics toFindMinNoPeakNoise = new DescriptiveStatistics();
-    DescriptiveStatistics toFindMinWithPeakNoise = new DescriptiveStatistics();
-    DescriptiveStatistics toFindLocalMean = new DescriptiveStatistics();
-
-    // first get the value of the peak
-    for (int i = peakLeft; i < (peakRight + 1); i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
 
-    double peakHeight = stdDevStats.getMax();
-    stdDevStats.clear();
+    double peakHeight = findMax(intensities, peakLeft, peakRight);
 
     int peakWidth = peakRight - peakLeft;
 
@@ -296,89 +211,28 @@ public class SignalToNoise {
     // final size of expanding window.
     int finalWindowSize = 9 * peakWidth;
 
-
-    toFindMinNoPeakNoise.clear();
-    toFindMinWithPeakNoise.clear();
+    // Positions in the noise estimator are offset by first
+    int first = java.lang.Math.max(peakLeft - initialWindowSize - finalWindowSize, 0);
+    int last =
+        java.lang.Math.min(peakRight + initialWindowSize + finalWindowSize, intensities.length - 1);
+    NoiseEstimator noise = NoiseEstimator.getInstance();
+    noise.clear();
+    noise.append(intensities, first, last + 1);
 
     // loop over different window sizes
+    double bestNoPeakNoise = Double.NaN;
     for (int i = 0; i < (finalWindowSize + 1); i++) {
-      stdDevStats.clear();
-      int curRight = peakRight + initialWindowSize + i;
-      int curLeft = peakLeft - initialWindowSize - i;
+      int curRight = java.lang.Math.min(peakRight + initialWindowSize + i, intensities.length - 1);
+      int curLeft = java.lang.Math.max(peakLeft - initialWindowSize - i, 0);
 
-      // Make sure the these values don't go out of bounds
-      if (curRight >= intensities.length) {
-        curRight = intensities.length - 1;
-      }
-      if (curLeft < 0) {
-        curLeft = 0;
-      }
-
-      // first find the standard deviation from the windows EXCLUDING the peak
-      for (int j = peakRight + 1; j < (curRight + 1); j++) {
-        stdDevStats.addValue(intensities[j]);
-      }
-      for (int j = curLeft; j < (peakLeft); j++) {
-        stdDevStats.addValue(intensities[j]);
-      }
-      double curNoPeakNoise = stdDevStats.getStandardDeviation();
-      toFindMinNoPeakNoise.addValue(curNoPeakNoise);
-      double curNoPeakMean = stdDevStats.getMean();
-      toFindLocalMean.addValue(curNoPeakMean);
-
-      // Now add in the peak becausase the difference in std with the peak will tell us something
-      // about it height.
-      for (int j = peakLeft; j < (peakRight + 1); j++) {
-        stdDevStats.addValue(intensities[j]);
-      }
-      double curWithPeakNoise = stdDevStats.getStandardDeviation();
-      toFindMinWithPeakNoise.addValue(curWithPeakNoise);
+      // the standard deviation from the windows EXCLUDING the peak
+      double curNoPeakNoise = noise.standardDeviation(peakRight + 1 - first, curRight + 1 - first,
+          curLeft - first, peakLeft - first);
+      bestNoPeakNoise = min(bestNoPeakNoise, curNoPeakNoise);
     }
 
-    // for a good looking peak we think the difference between the noise with and without the peak
-    // included should
-    // be about a factor of 2. Specificaly with the peak the noise should be 2x higher than without
-    // if it is real.
-    double bestNoPeakNoise = toFindMinNoPeakNoise.getMin();
-
-
-
-    // before calculating the signal to noise ratio we need to "normalize" the height.
-    // What can happen is if a bad peak is found on a plateau the local stadard deviation will be
-    // small compared to the absolute height (or mean of peak) of peak.
-    //
-    // Find the minimum intesity point starting at the boundry and going a boundry width out.
-    // Then subtract this from the peak value (height or mean) before comparing to the standard
-    // deviation.
-
-    stdDevStats.clear();
-    int rightBound = peakRight + peakWidth;
-    int leftBound = peakLeft - peakWidth;
-
-    // Make sure the these values don't go out of bounds
-    if (rightBound >= intensities.length) {
-      rightBound = intensities.length - 1;
-    }
-    if (leftBound < 0) {
-      leftBound = 0;
-    }
-    // out to right
-    for (int i = peakRight; i <= rightBound; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity1 = stdDevStats.getMin();
-    stdDevStats.clear();
-    for (int i = leftBound; i <= peakLeft; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity2 = stdDevStats.getMin();
-    double smallIntensityAvg = (smallIntensity1 + smallIntensity2) / 2.0;
-
-
-    double SNRatio = (peakHeight - smallIntensityAvg) / bestNoPeakNoise;
-    // double SNRatio = (meanOfSignal-smallIntensityAvg)/bestNoPeakNoise;
-    return SNRatio;
-
+    return (peakHeight - findSmallIntensityAvg(intensities, peakLeft, peakRight))
+        / bestNoPeakNoise;
   }
 
   // This sweeps the window size ffrom the points furthest from the peak out and then from the
@@ -396,18 +250,8 @@ public class SignalToNoise {
    */
   public static double filterBySNWindowInOutSweep(double[] intensities, int peakLeft,
       int peakRight) {
-    DescriptiveStatistics stdDevStats = new DescriptiveStatistics();
-    DescriptiveStatistics toFindMinNoPeakNoise = new DescriptiveStatistics();
-    DescriptiveStatistics toFindMinWithPeakNoise = new DescriptiveStatistics();
-    DescriptiveStatistics toFindLocalMean = new DescriptiveStatistics();
-
-    // first get the value of the peak
-    for (int i = peakLeft; i < (peakRight + 1); i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
 
-    double peakHeight = stdDevStats.getMax();
-    stdDevStats.clear();
+    double peakHeight = findMax(intensities, peakLeft, peakRight);
 
     int peakWidth = peakRight - peakLeft;
 
@@ -417,57 +261,43 @@ public class SignalToNoise {
     // final size of expanding window.
     int finalWindowSize = 8 * peakWidth;
 
+    // Positions in the noise estimator are offset by first
+    int first = java.lang.Math.max(peakLeft - initialWindowSize - finalWindowSize - 1, 0);
+    int last = java.lang.Math.min(peakRight + initialWindowSize + finalWindowSize + 1,
+        intensities.length - 1);
+    NoiseEstimator noise = NoiseEstimator.getInstance();
+    noise.clear();
+    noise.append(intensities, first, last + 1);
 
-    toFindMinNoPeakNoise.clear();
-    toFindMinWithPeakNoise.clear();
+    double bestNoPeakNoise = Double.NaN;
 
     // loop over different window sizes
     for (int i = 0; i < (finalWindowSize + 1); i++) {
-      stdDevStats.clear();
-      int curRight = peakRight + initialWindowSize + i + 1;
-      int curLeft = peakLeft - initialWindowSize - i - 1;
-
-      int this_time_num_added = 0;
-
-      // Make sure the these values don't go out of bounds
-      if (curRight >= intensities.length) {
-        curRight = intensities.length - 1;
-      }
-      if (curLeft < 0) {
-        curLeft = 0;
-      }
+      int curRight =
+          java.lang.Math.min(peakRight + initialWindowSize + i + 1, intensities.length - 1);
+      int curLeft = java.lang.Math.max(peakLeft - initialWindowSize - i - 1, 0);
 
+      // Windows from curLeft to the peak and from the peak to curRight, each of them only if it is
+      // at least initialWindowSize wide
+      int leftFrom = 0, leftTo = 0, rightFrom = 0, rightTo = 0;
       if (!(java.lang.Math.abs(curLeft - peakLeft) < initialWindowSize)) {
-        for (int j = curLeft; j < peakLeft; j++) {
-          stdDevStats.addValue(intensities[j]);
-          this_time_num_added += 1;
-        }
+        leftFrom = curLeft;
+        leftTo = peakLeft;
       }
       if (!(java.lang.Math.abs(curRight - peakRight) < initialWindowSize)) {
-        for (int j = curRight; j > peakRight; j--) {
-          stdDevStats.addValue(intensities[j]);
-          this_time_num_added += 1;
-        }
+        rightFrom = peakRight + 1;
+        rightTo = curRight + 1;
       }
-      if (this_time_num_added == 0) {
+      if ((leftTo <= leftFrom) && (rightTo <= rightFrom)) {
         continue;
       }
 
-
-      // first find the standard deviation from the windows EXCLUDING the peak
-      double curNoPeakNoise = stdDevStats.getStandardDeviation();
-      toFindMinNoPeakNoise.addValue(curNoPeakNoise);
-      double curNoPeakMean = stdDevStats.getMean();
-      toFindLocalMean.addValue(curNoPeakMean);
-
-      // Now add in the peak becausase the difference in std with the peak will tell us something
-      // about it height.
-      for (int j = peakLeft; j < (peakRight + 1); j++) {
-        stdDevStats.addValue(intensities[j]);
-      }
-      double curWithPeakNoise = stdDevStats.getStandardDeviation();
-      toFindMinWithPeakNoise.addValue(curWithPeakNoise);
+      // the standard deviation from the windows EXCLUDING the peak
+      double curNoPeakNoise = noise.standardDeviation(leftFrom - first, leftTo - first,
+          rightFrom - first, rightTo - first);
+      bestNoPeakNoise = min(bestNoPeakNoise, curNoPeakNoise);
     }
+
     // Now sweep the points closest to the peak out
     int anchorRight = peakRight + initialWindowSize + finalWindowSize;
     int anchorLeft = peakRight - initialWindowSize - finalWindowSize;
@@ -480,94 +310,31 @@ public class SignalToNoise {
     }
 
     for (int i = 0; i < (finalWindowSize - initialWindowSize); i++) {
+      int curRight = java.lang.Math.min(peakRight + 1 + i, intensities.length - 1);
+      int curLeft = java.lang.Math.max(peakLeft - 1 - i, 0);
 
-      stdDevStats.clear();
-      int curRight = peakRight + 1 + i;
-      int curLeft = peakLeft - 1 - i;
-
-      int this_time_num_added = 0;
-
-      // Make sure the these values don't go out of bounds
-      if (curRight >= intensities.length) {
-        curRight = intensities.length - 1;
-      }
-      if (curLeft < 0) {
-        curLeft = 0;
-      }
-
+      // Windows from the anchors to curLeft and curRight, each of them only if it is at least
+      // initialWindowSize wide
+      int leftFrom = 0, leftTo = 0, rightFrom = 0, rightTo = 0;
       if (!(java.lang.Math.abs(curLeft - anchorLeft) < initialWindowSize)) {
-        for (int j = curLeft; j > anchorLeft; j--) {
-          stdDevStats.addValue(intensities[j]);
-          this_time_num_added += 1;
-        }
+        leftFrom = anchorLeft + 1;
+        leftTo = curLeft + 1;
       }
       if (!(java.lang.Math.abs(curRight - anchorRight) < initialWindowSize)) {
-        for (int j = curRight; j < anchorRight; j++) {
-          stdDevStats.addValue(intensities[j]);
-          this_time_num_added += 1;
-        }
+        rightFrom = curRight;
+        rightTo = anchorRight;
       }
-      if (this_time_num_added == 0) {
+      if ((leftTo <= leftFrom) && (rightTo <= rightFrom)) {
         continue;
       }
 
-      double curNoPeakNoise = stdDevStats.getStandardDeviation();
-      toFindMinNoPeakNoise.addValue(curNoPeakNoise);
-    }
-
-    // for a good looking peak we think the difference between the noise with and without the peak
-    // included should
-    // be about a factor of 2. Specificaly with the peak the noise should be 2x higher than without
-    // if it is real.
-    double bestNoPeakNoise = toFindMinNoPeakNoise.getMin();
-
-
-
-    // if (meanOfSignal>(1.5*smallestLocalMean)){
-    //
-    // }
-    // if (bestWithPeakNoise/bestNoPeakNoise <= 1.5){
-    // return false;
-    // }
-
-
-    // before calculating the signal to noise ratio we need to "normalize" the height.
-    // What can happen is if a bad peak is found on a plateau the local stadard deviation will be
-    // small compared to the absolute height (or mean of peak) of peak.
-    //
-    // Find the minimum intesity point starting at the boundry and going a boundry width out.
-    // Then subtract this from the peak value (height or mean) before comparing to the standard
-    // deviation.
-
-    stdDevStats.clear();
-    int rightBound = peakRight + peakWidth;
-    int leftBound = peakLeft - peakWidth;
-
-    // Make sure the these values don't go out of bounds
-    if (rightBound >= intensities.length) {
-      rightBound = intensities.length - 1;
+      double curNoPeakNoise = noise.standardDeviation(leftFrom - first, leftTo - first,
+          rightFrom - first, rightTo - first);
+      bestNoPeakNoise = min(bestNoPeakNoise, curNoPeakNoise);
     }
-    if (leftBound < 0) {
-      leftBound = 0;
-    }
-    // out to right
-    for (int i = peakRight; i <= rightBound; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity1 = stdDevStats.getMin();
-    stdDevStats.clear();
-    for (int i = leftBound; i <= peakLeft; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity2 = stdDevStats.getMin();
-    double smallIntensityAvg = (smallIntensity1 + smallIntensity2) / 2.0;
-
-
-    double SNRatio = (peakHeight - smallIntensityAvg) / bestNoPeakNoise;
-    // double SNRatio = (meanOfSignal-smallIntensityAvg)/bestNoPeakNoise;
-
-    return SNRatio;
 
+    return (peakHeight - findSmallIntensityAvg(intensities, peakLeft, peakRight))
+        / bestNoPeakNoise;
   }
 
   // Uses two windows on eaiter side of the peak that are a constand width. These windows then both
@@ -586,16 +353,8 @@ public class SignalToNoise {
    */
   public static double filterBySNStaticWindowSweep(double[] intensities, int peakLeft,
       int peakRight) {
-    DescriptiveStatistics stdDevStats = new DescriptiveStatistics();
-    DescriptiveStatistics toFindMinNoPeakNoise = new DescriptiveStatistics();
-
-    // first get the value of the peak
-    for (int i = peakLeft; i < (peakRight + 1); i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
 
-    double peakHeight = stdDevStats.getMax();
-    stdDevStats.clear();
+    double peakHeight = findMax(intensities, peakLeft, peakRight);
 
     int peakWidth = peakRight - peakLeft;
 
@@ -605,12 +364,19 @@ public class SignalToNoise {
     // final size of expanding window.
     int furthestPoint = 8 * peakWidth;
 
+    // Positions in the noise estimator are offset by first
+    int first = java.lang.Math.max(peakLeft - furthestPoint, 0);
+    int last = java.lang.Math.min(peakRight + furthestPoint, intensities.length - 1);
+    NoiseEstimator noise = NoiseEstimator.getInstance();
+    noise.clear();
+    noise.append(intensities, first, last + 1);
+
+    double bestNoPeakNoise = Double.NaN;
     int finalCurLeft = 0;
     int finalCurRight = 0;
     boolean stop_sliding_right = false;
     boolean stop_sliding_left = false;
     for (int i = 0; i < (furthestPoint - windowSize); i++) {
-      stdDevStats.clear();
 
       int curRight = peakRight + i;
       int curRightRight = curRight + windowSize;
@@ -621,9 +387,7 @@ public class SignalToNoise {
       }
       if (stop_sliding_right) {
         curRight = finalCurRight;
-        // curRightRight = curRightRight - windowSize;
         curRightRight = intensities.length - 1;
-
       }
 
       int curLeft = peakLeft - i;
@@ -636,58 +400,77 @@ public class SignalToNoise {
       }
       if (stop_sliding_left) {
         curLeft = finalCurLeft;
-        // curLeftLeft = curLeftLeft + windowSize;
         curLeftLeft = 0;
-
       }
 
-      for (int j = curRight; j <= curRightRight; j++) {
-        stdDevStats.addValue(intensities[j]);
-      }
-      for (int j = curLeft; j >= curLeftLeft; j--) {
-        stdDevStats.addValue(intensities[j]);
-      }
-      double curNoPeakNoise = stdDevStats.getStandardDeviation();
+      double curNoPeakNoise = noise.standardDeviation(curRight - first, curRightRight + 1 - first,
+          curLeftLeft - first, curLeft + 1 - first);
+      bestNoPeakNoise = min(bestNoPeakNoise, curNoPeakNoise);
+    }
 
+    return (peakHeight - findSmallIntensityAvg(intensities, peakLeft, peakRight))
+        / bestNoPeakNoise;
+  }
 
-      toFindMinNoPeakNoise.addValue(curNoPeakNoise);
+  /**
+   * <p>
+   * Returns the highest intensity from peakLeft to peakRight.
+   * </p>
+   */
+  private static double findMax(double[] intensities, int peakLeft, int peakRight) {
+    double max = Double.NaN;
+    for (int i = peakLeft; i <= peakRight; i++) {
+      if (!Double.isNaN(intensities[i]) && !(intensities[i] <= max))
+        max = intensities[i];
     }
-    double bestNoPeakNoise = toFindMinNoPeakNoise.getMin();
-    // before calculating the signal to noise ratio we need to "normalize" the height.
-    // What can happen is if a bad peak is found on a plateau the local stadard deviation will be
-    // small compared to the absolute height (or mean of peak) of peak.
-    //
-    // Find the minimum intesity point starting at the boundry and going a boundry width out.
-    // Then subtract this from the peak value (height or mean) before comparing to the standard
-    // deviation.
-
-    stdDevStats.clear();
-    int rightBound = peakRight + peakWidth;
-    int leftBound = peakLeft - peakWidth;
+    return max;
+  }
 
-    // Make sure the these values don't go out of bounds
-    if (rightBound >= intensities.length) {
-      rightBound = intensities.length - 1;
-    }
-    if (leftBound < 0) {
-      leftBound = 0;
-    }
-    // out to right
-    for (int i = peakRight; i <= rightBound; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity1 = stdDevStats.getMin();
-    stdDevStats.clear();
-    for (int i = leftBound; i <= peakLeft; i++) {
-      stdDevStats.addValue(intensities[i]);
-    }
-    double smallIntensity2 = stdDevStats.getMin();
-    double smallIntensityAvg = (smallIntensity1 + smallIntensity2) / 2.0;
+  /**
+   * <p>
+   * Before calculating the signal to noise ratio we need to "normalize" the height. What can
+   * happen is if a bad peak is found on a plateau the local standard deviation will be small
+   * compared to the absolute height (or mean of peak) of peak.
+   * </p>
+   *
+   * <p>
+   * Find the minimum intensity point starting at the boundary and going a boundary width out, on
+   * both sides, and return the average of both. This is subtracted from the peak value before
+   * comparing to the standard deviation.
+   * </p>
+   */
+  private static double findSmallIntensityAvg(double[] intensities, int peakLeft, int peakRight) {
+    int peakWidth = peakRight - peakLeft;
+    int rightBound = java.lang.Math.min(peakRight + peakWidth, intensities.length - 1);
+    int leftBound = java.lang.Math.max(peakLeft - peakWidth, 0);
 
+    double smallIntensity1 = Double.NaN;
+    for (int i = peakRight; i <= rightBound; i++)
+      smallIntensity1 = min(smallIntensity1, intensities[i]);
+    double smallIntensity2 = Double.NaN;
+    for (int i = leftBound; i <= peakLeft; i++)
+      smallIntensity2 = min(smallIntensity2, intensities[i]);
 
-    double SNRatio = (peakHeight - smallIntensityAvg) / bestNoPeakNoise;
-    // double SNRatio = (meanOfSignal-smallIntensityAvg)/bestNoPeakNoise;
+    return (smallIntensity1 + smallIntensity2) / 2.0;
+  }
 
-    return SNRatio;
+  /**
+   * <p>
+   * Minimum of two values ignoring NaN, like DescriptiveStatistics.getMin().
+   * </p>
+   */
+  private static double min(double min, double value) {
+    return Double.isNaN(value) || (min <= value) ? min : value;
+  }
+
+  /**
+   * <p>
+   * Returns a random integer from min (inclusive) to max (exclusive).
+   * </p>
+   */
+  private static int nextInt(Random random, int min, int max) {
+    if (max <= min)
+      throw new IllegalArgumentException("Not enough data points around the peak");
+    return min + random.nextInt(max - min);
   }
 }
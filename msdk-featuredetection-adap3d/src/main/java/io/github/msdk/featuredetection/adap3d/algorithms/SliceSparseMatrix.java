@@ -12,17 +12,13 @@
  */
 package io.github.msdk.featuredetection.adap3d.algorithms;
 
+import java.lang.Math;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.lang.Math;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
@@ -33,66 +29,91 @@ import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgo
 /**
  * <p>
  * SliceSparseMatrix class is used for slicing the sparse matrix of raw data as per given mz value.
- * slice contains intensities for one mz value for different scans. In this class sparse matrix has
- * been implemented in the form of multikey map. Mz and scan number are keys and object containing
- * Intensities along information like retention time and whether the value is still in matrix or not
- * is the value. Consider Scan numbers as column index and mz values as row index. cell values as
- * object containing Intensities along with other information like retention time and whether the
- * value is still in matrix or not.
+ * slice contains intensities for one mz value for different scans. Consider scan numbers as column
+ * index and rounded mz values as row index.
+ * </p>
+ *
+ * <p>
+ * The matrix is stored in primitive arrays. Data points are numbered in the order of (scan, mz)
+ * and their mz values and intensities are kept in two arrays, with the first data point of each
+ * scan given by scanStart (compressed sparse column layout). The rows are stored in a second
+ * compressed layout: the sorted distinct mz values of the matrix and, for each of them, the data
+ * points in the order of scans. Removed data points are marked in a BitSet and the next maximum
+ * intensity is taken from an indexed max-heap, so the matrix needs about 30 bytes per data point.
  * </p>
  */
 public class SliceSparseMatrix {
 
   /**
    * <p>
-   * tripletMap is used for creating MultiKeyMap type of hashmap from raw data file.
+   * Data points with intensity lower or equal to this value are not added to the matrix.
+   * </p>
+   */
+  private static final float MIN_INTENSITY = 1000;
+
+  /**
+   * <p>
+   * roundMz is used for rounding mz value.
    * </p>
    */
-  private final HashMap<Integer, Float> rtMap;
+  private final int roundMzFactor = 10000;
 
-  private final List<Triplet> sortListAccordingToMzScan;
-  private final List<Triplet> sortListAccordingToIntensity;
-  private final List<Triplet> sortListAccordingToScan;
-  Comparator<Triplet> compareMzScan;
-  Comparator<Triplet> compareIntensity;
-  Comparator<Triplet> compareScanMz;
-  Comparator<Triplet> compareScan;
+  /**
+   * <p>
+   * Number of scans which passed the scan predicate.
+   * </p>
+   */
+  private final int numOfScans;
 
+  /**
+   * <p>
+   * Retention time of each scan, or NaN if the scan has no retention time.
+   * </p>
+   */
+  private final float rtValues[];
 
   /**
    * <p>
-   * filterListOfTriplet is used for adding intensities for same mz values under same scan numbers.
+   * Data points in (scan, mz) order. The data points of scan i are scanStart[i] ...
+   * scanStart[i + 1] - 1.
    * </p>
    */
-  private final List<Triplet> filterListOfTriplet;
+  private final int scanStart[];
+  private final int pointMz[];
+  private final float pointIntensity[];
 
   /**
    * <p>
-   * maxIntensityIndex is used for keeping track of next maximum intensity in the loop.
+   * Rows of the matrix. The data points of row i have mz value rowMz[i] and are rowPoints[j] for
+   * rowStart[i] &lt;= j &lt; rowStart[i + 1], in the order of scans given by rowScan[j].
    * </p>
    */
-  private int maxIntensityIndex = 0;
+  private final int rowMz[];
+  private final int rowStart[];
+  private final int rowPoints[];
+  private final int rowScan[];
 
   /**
    * <p>
-   * roundMz is used for rounding mz value.
+   * Sorted distinct rounded mz values of all data points in the raw file, including the ones
+   * below the intensity threshold.
    * </p>
    */
-  private final int roundMzFactor = 10000;
+  private final int mzValues[];
 
   /**
    * <p>
-   * listOfScans is used for getting scan objects from raw data file.
+   * Data points which were removed from the matrix.
    * </p>
    */
-  private final List<MsScan> listOfScans;
+  private final BitSet removed;
 
   /**
    * <p>
-   * mzValues is used to store all the mz values from raw file.
+   * Used for keeping track of next maximum intensity.
    * </p>
    */
-  public final List<Integer> mzValues;
+  private final MaxIntensityHeap maxIntensityHeap;
 
   /**
    * <p>
@@ -118,8 +139,8 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This constructor takes raw data file and create the triplet map which contains information such
-   * as mz,intensity,rt,scan number
+   * This constructor takes raw data file and create the sparse matrix which contains information
+   * such as mz,intensity,rt,scan number
    * </p>
    *
    * @param rawFile a {@link io.github.msdk.datamodel.RawDataFile} object. This is raw data
@@ -131,8 +152,8 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This constructor takes raw data file and create the triplet map which contains information such
-   * as mz,intensity,rt,scan number
+   * This constructor takes raw data file and create the sparse matrix which contains information
+   * such as mz,intensity,rt,scan number
    * </p>
    *
    * @param rawFile a {@link io.github.msdk.datamodel.RawDataFile} object. This is raw data
@@ -141,143 +162,119 @@ public class SliceSparseMatrix {
    *        this predicate will be processed.
    */
   public SliceSparseMatrix(RawDataFile rawFile, Predicate<MsScan> msScanPredicate) {
-    listOfScans =
-        rawFile.getScans().stream().filter(msScanPredicate).collect(Collectors.<MsScan>toList());
-    List<Triplet> listOfTriplet = new ArrayList<Triplet>();
-    rtMap = new HashMap<Integer, Float>();
 
-    for (int i = 0; i < listOfScans.size(); i++) {
-      MsScan scan = listOfScans.get(i);
+    final List<MsScan> scans = rawFile.getScans();
+    float rt[] = new float[scans.size()];
+    int starts[] = new int[scans.size() + 1];
+    int mzBuffer[] = new int[1024];
+    float intensityBuffer[] = new float[1024];
+    int numOfPoints = 0;
+    int allMz[] = new int[1024];
+    int numOfAllMz = 0;
+    int scanIndex = 0;
+
+    for (MsScan scan : scans) {
+      if (!msScanPredicate.test(scan))
+        continue;
+
+      starts[scanIndex] = numOfPoints;
+      rt[scanIndex] = Float.NaN;
+      final int i = scanIndex++;
 
       if (scan == null)
         continue;
 
-      double mzBuffer[];
-      float intensityBuffer[];
-      Float rt;
-      mzBuffer = scan.getMzValues();
-      intensityBuffer = scan.getIntensityValues();
-      rt = scan.getRetentionTime();
-
-      if (rt == null)
+      final Float retentionTime = scan.getRetentionTime();
+      if (retentionTime == null)
         continue;
-      rtMap.put(i, rt);
-
-      for (int j = 0; j < mzBuffer.length; j++) {
-        Triplet triplet = new Triplet();
-        triplet.intensity = intensityBuffer[j];
-        triplet.mz = roundMZ(mzBuffer[j]);
-        triplet.scanListIndex = i;
-        triplet.removed = 0;
-        listOfTriplet.add(triplet);
+      rt[i] = retentionTime;
+
+      final double mzRaw[] = scan.getMzValues();
+      final float intensityRaw[] = scan.getIntensityValues();
+      final int size = mzRaw.length;
+      final int rounded[] = new int[size];
+      for (int j = 0; j < size; j++)
+        rounded[j] = roundMZ(mzRaw[j]);
+      final int order[] = sortedOrder(rounded);
+
+      if (numOfAllMz + size > allMz.length) {
+        numOfAllMz = sortUnique(allMz, numOfAllMz);
+        if (numOfAllMz + size > allMz.length / 2)
+          allMz = Arrays.copyOf(allMz, Math.max(allMz.length * 2, numOfAllMz + size));
       }
-    }
-
-
 
-    compareScanMz = new Comparator<Triplet>() {
-
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int scan1 = o1.scanListIndex;
-        int scan2 = o2.scanListIndex;
-        int scanCompare = Integer.compare(scan1, scan2);
+      if (numOfPoints + size > mzBuffer.length) {
+        final int newLength = Math.max(mzBuffer.length * 2, numOfPoints + size);
+        mzBuffer = Arrays.copyOf(mzBuffer, newLength);
+        intensityBuffer = Arrays.copyOf(intensityBuffer, newLength);
+      }
 
-        if (scanCompare != 0) {
-          return scanCompare;
-        } else {
-          int mz1 = o1.mz;
-          int mz2 = o2.mz;
-          return Integer.compare(mz1, mz2);
+      // Intensities of data points with the same rounded mz value are summed up. The very first
+      // data point is always kept, independent of its intensity.
+      for (int k = 0; k < size; k++) {
+        final int j = order[k];
+        final int mz = rounded[j];
+        if ((numOfAllMz == 0) || (allMz[numOfAllMz - 1] != mz))
+          allMz[numOfAllMz++] = mz;
+        if (numOfPoints == 0) {
+          mzBuffer[0] = mz;
+          intensityBuffer[0] = intensityRaw[j];
+          numOfPoints = 1;
+          continue;
         }
-      }
-    };
-
-
-    Collections.sort(listOfTriplet, compareScanMz);
-
-    filterListOfTriplet = new ArrayList<Triplet>();
-    Triplet currTriplet = new Triplet();
-    Triplet lastFilterTriplet = new Triplet();
-    // tripletMap = new MultiKeyMap<Integer, Triplet>();
-    int index = 0;
-    Set<Integer> mzSet = new HashSet<Integer>();
-
-    filterListOfTriplet.add(listOfTriplet.get(0));
-    for (int i = 1; i < listOfTriplet.size(); i++) {
-      currTriplet = listOfTriplet.get(i);
-      mzSet.add(listOfTriplet.get(i).mz);
-      lastFilterTriplet = filterListOfTriplet.get(index);
-      if (currTriplet.intensity > 1000) {
-        if (currTriplet.mz == lastFilterTriplet.mz
-            && currTriplet.scanListIndex == lastFilterTriplet.scanListIndex) {
-          lastFilterTriplet.intensity += currTriplet.intensity;
+        if (intensityRaw[j] <= MIN_INTENSITY)
+          continue;
+        if ((numOfPoints > starts[i]) && (mzBuffer[numOfPoints - 1] == mz)) {
+          intensityBuffer[numOfPoints - 1] += intensityRaw[j];
         } else {
-          filterListOfTriplet.add(currTriplet);
-          index++;
+          mzBuffer[numOfPoints] = mz;
+          intensityBuffer[numOfPoints] = intensityRaw[j];
+          numOfPoints++;
         }
       }
     }
-    mzValues = new ArrayList<Integer>(mzSet);
-    Collections.sort(mzValues);
-
-    sortListAccordingToScan = new ArrayList<>(filterListOfTriplet);
-    compareScan = new Comparator<Triplet>() {
-
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int scan1 = o1.scanListIndex;
-        int scan2 = o2.scanListIndex;
-        int scanCompare = Integer.compare(scan1, scan2);
-        return scanCompare;
-      }
-    };
-
-    Collections.sort(sortListAccordingToScan, compareScan);
-
-
-    sortListAccordingToIntensity = new ArrayList<>(filterListOfTriplet);
-
-    compareIntensity = new Comparator<Triplet>() {
-
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        Float intensity1 = o1.intensity;
-        Float intensity2 = o2.intensity;
-        int intensityCompare = intensity2.compareTo(intensity1);
-        return intensityCompare;
+    starts[scanIndex] = numOfPoints;
+
+    numOfScans = scanIndex;
+    rtValues = Arrays.copyOf(rt, numOfScans);
+    scanStart = Arrays.copyOf(starts, numOfScans + 1);
+    pointMz = Arrays.copyOf(mzBuffer, numOfPoints);
+    pointIntensity = Arrays.copyOf(intensityBuffer, numOfPoints);
+    mzBuffer = null;
+    intensityBuffer = null;
+    mzValues = Arrays.copyOf(allMz, sortUnique(allMz, numOfAllMz));
+    allMz = null;
+
+    // Build the rows by counting sort. The data points are visited in the order of (scan, mz), so
+    // the data points of each row are in the order of scans.
+    final int sortedMz[] = Arrays.copyOf(pointMz, numOfPoints);
+    rowMz = Arrays.copyOf(sortedMz, sortUnique(sortedMz, numOfPoints));
+    rowStart = new int[rowMz.length + 1];
+    final int pointRow[] = sortedMz;
+    for (int p = 0; p < numOfPoints; p++) {
+      pointRow[p] = Arrays.binarySearch(rowMz, pointMz[p]);
+      rowStart[pointRow[p] + 1]++;
+    }
+    for (int r = 0; r < rowMz.length; r++)
+      rowStart[r + 1] += rowStart[r];
+    rowPoints = new int[numOfPoints];
+    rowScan = new int[numOfPoints];
+    final int next[] = Arrays.copyOf(rowStart, rowMz.length);
+    for (int s = 0; s < numOfScans; s++) {
+      for (int p = scanStart[s]; p < scanStart[s + 1]; p++) {
+        final int position = next[pointRow[p]]++;
+        rowPoints[position] = p;
+        rowScan[position] = s;
       }
-    };
-    Collections.sort(sortListAccordingToIntensity, compareIntensity);
-
-    sortListAccordingToMzScan = new ArrayList<>(filterListOfTriplet);
-    compareMzScan = new Comparator<Triplet>() {
-
-      @Override
-      public int compare(Triplet o1, Triplet o2) {
-
-        int mz1 = o1.mz;
-        int mz2 = o2.mz;
-        int scanCompare = Integer.compare(mz1, mz2);
+    }
 
-        if (scanCompare != 0) {
-          return scanCompare;
-        } else {
-          int scan1 = o1.scanListIndex;
-          int scan2 = o2.scanListIndex;
-          return Integer.compare(scan1, scan2);
-        }
-      }
-    };
-    Collections.sort(sortListAccordingToMzScan, compareMzScan);
+    removed = new BitSet(numOfPoints);
+    maxIntensityHeap = new MaxIntensityHeap(pointIntensity, removed);
   }
 
   /**
    * <p>
-   * This method returns the MultiKeyMap slice of data for given mz,lowerScanBound,upperScanBound
+   * This method returns the slice of data for given mz,lowerScanBound,upperScanBound
    * </p>
    *
    * @param mz a {@link java.lang.Double} object. This is original m/z value from raw file.
@@ -285,36 +282,17 @@ public class SliceSparseMatrix {
    *        horizontal matrix slice.
    * @param upperScanBound a {@link java.lang.Integer} object. This is highest scan number in the
    *        horizontal matrix slice.
-   * @return sliceMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This object
-   *         contains horizontal slice with single m/z value,different scan numbers and different
-   *         intensities along with retention time.
+   * @return sliceList a {@link java.util.List} object. This object contains horizontal slice with
+   *         single m/z value, one element for each scan between the bounds. Scans without a data
+   *         point have zero intensity.
    */
   public List<Triplet> getHorizontalSlice(double mz, int lowerScanBound, int upperScanBound) {
-
-    int roundedmz = roundMZ(mz);
-    List<Triplet> sliceList = new ArrayList<Triplet>();
-
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
-      Triplet searchTriplet = new Triplet();
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(sortListAccordingToMzScan, searchTriplet, compareMzScan);
-      if (index >= 0) {
-        Triplet triplet = sortListAccordingToMzScan.get(index);
-        sliceList.add(triplet);
-      } else {
-        searchTriplet.intensity = 0;
-        searchTriplet.removed = 0;
-        sliceList.add(searchTriplet);
-      }
-    }
-
-    return sliceList;
+    return getHorizontalSlice(roundMZ(mz), lowerScanBound, upperScanBound);
   }
 
   /**
    * <p>
-   * This method returns the MultiKeyMap slice of data for rounded mz,lowerScanBound,upperScanBound
+   * This method returns the slice of data for rounded mz,lowerScanBound,upperScanBound
    * </p>
    *
    * @param roundedMZ a {@link java.lang.Double} object. This is rounded m/z value which is already
@@ -323,12 +301,32 @@ public class SliceSparseMatrix {
    *        horizontal matrix slice.
    * @param upperScanBound a {@link java.lang.Integer} object. This is highest scan number in the
    *        horizontal matrix slice.
-   * @return sliceMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This object
-   *         contains horizontal slice with single m/z value,different scan numbers and different
-   *         intensities along with retention time.
+   * @return sliceList a {@link java.util.List} object. This object contains horizontal slice with
+   *         single m/z value, one element for each scan between the bounds. Scans without a data
+   *         point have zero intensity.
    */
   public List<Triplet> getHorizontalSlice(int roundedMZ, int lowerScanBound, int upperScanBound) {
-    return getHorizontalSlice((double) roundedMZ / roundMzFactor, lowerScanBound, upperScanBound);
+
+    List<Triplet> sliceList =
+        new ArrayList<Triplet>(Math.max(0, upperScanBound - lowerScanBound + 1));
+
+    final int row = Arrays.binarySearch(rowMz, roundedMZ);
+    int j = row >= 0 ? firstInRow(row, lowerScanBound) : 0;
+    final int rowEnd = row >= 0 ? rowStart[row + 1] : 0;
+
+    for (int i = lowerScanBound; i <= upperScanBound; i++) {
+      Triplet triplet = new Triplet();
+      triplet.mz = roundedMZ;
+      triplet.scanListIndex = i;
+      if ((j < rowEnd) && (rowScan[j] == i)) {
+        final int point = rowPoints[j++];
+        triplet.intensity = pointIntensity[point];
+        triplet.removed = (byte) (removed.get(point) ? 1 : 0);
+      }
+      sliceList.add(triplet);
+    }
+
+    return sliceList;
   }
 
   /**
@@ -343,55 +341,30 @@ public class SliceSparseMatrix {
    */
   public List<VerticalSliceDataPoint> getVerticalSlice(int scanNumber) {
 
-    List<Triplet> oneScanTriplet = new ArrayList<Triplet>();
     List<VerticalSliceDataPoint> datapointList = new ArrayList<VerticalSliceDataPoint>();
 
-    Triplet searchTriplet = new Triplet();
-    searchTriplet.scanListIndex = scanNumber;
-    int index1 = Collections.binarySearch(sortListAccordingToScan, searchTriplet, compareScan);
-    int index2 = index1;
-    oneScanTriplet.add(sortListAccordingToScan.get(index1));
-
-    while (index1 >= 0) {
-      index1--;
-      if (index1 < 0 || sortListAccordingToScan.get(index1).scanListIndex != scanNumber) {
-        break;
-      }
-      oneScanTriplet.add(sortListAccordingToScan.get(index1));
-    }
+    final int start = scanStart[scanNumber], end = scanStart[scanNumber + 1];
+    if (start == end)
+      return datapointList;
 
-    while (index2 >= 0) {
-      index2++;
-      if (index2 > filterListOfTriplet.size() - 1
-          || filterListOfTriplet.get(index2).scanListIndex != scanNumber) {
-        break;
-      }
-      oneScanTriplet.add(filterListOfTriplet.get(index2));
+    int maxPoint = start;
+    for (int p = start + 1; p < end; p++) {
+      if (pointIntensity[p] > pointIntensity[maxPoint])
+        maxPoint = p;
     }
-
-    Collections.sort(oneScanTriplet, compareIntensity);
-    int maxIntensityMZ = oneScanTriplet.get(0).mz;
-    Collections.sort(oneScanTriplet, compareScanMz);
-
-    Triplet searchMz = new Triplet();
-    for (int roundedMZ : mzValues) {
+    final int maxIntensityMZ = pointMz[maxPoint];
+
+    // Walk the mz values around the maximum and the data points of the scan side by side
+    int p = start;
+    for (int k = lowerBound(mzValues, maxIntensityMZ - roundMzFactor); k < mzValues.length
+        && mzValues[k] <= maxIntensityMZ + roundMzFactor; k++) {
+      final int roundedMZ = mzValues[k];
+      while ((p < end) && (pointMz[p] < roundedMZ))
+        p++;
       VerticalSliceDataPoint datapoint = new VerticalSliceDataPoint();
-
-      searchMz.mz = roundedMZ;
-      searchMz.scanListIndex = scanNumber;
-      if (roundedMZ >= (maxIntensityMZ - roundMzFactor)
-          && roundedMZ <= (maxIntensityMZ + roundMzFactor)) {
-        int mzInex = Collections.binarySearch(oneScanTriplet, searchMz, compareScanMz);
-        if (mzInex >= 0) {
-          datapoint.intensity = oneScanTriplet.get(mzInex).intensity;
-          datapoint.mz = (float) roundedMZ / roundMzFactor;
-          datapointList.add(datapoint);
-        } else {
-          datapoint.intensity = (float) 0.0;
-          datapoint.mz = (float) roundedMZ / roundMzFactor;
-          datapointList.add(datapoint);
-        }
-      }
+      datapoint.mz = (float) roundedMZ / roundMzFactor;
+      datapoint.intensity = (p < end) && (pointMz[p] == roundedMZ) ? pointIntensity[p] : 0f;
+      datapointList.add(datapoint);
     }
     return datapointList;
   }
@@ -400,24 +373,37 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This method finds next maximum intensity from filterListOfTriplet
+   * This method finds the data point with next maximum intensity which is not removed.
    * </p>
    *
-   * @return tripletObject a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} object. This is element of sparse matrix.
+   * @return tripletObject a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} object. This is element of sparse matrix, or null if there are no more data points.
    */
   public Triplet findNextMaxIntensity() {
 
-    Triplet tripletObject = null;
+    final int point = maxIntensityHeap.poll();
+    if (point < 0)
+      return null;
 
-    for (int i = maxIntensityIndex; i < sortListAccordingToIntensity.size(); i++) {
-      if (sortListAccordingToIntensity.get(i).removed == 0) {
-        tripletObject = sortListAccordingToIntensity.get(i);
-        maxIntensityIndex = i + 1;
-        break;
-      }
+    return getTriplet(point);
+  }
 
-    }
-    return tripletObject;
+  /**
+   * <p>
+   * This method returns the data points which the next calls of findNextMaxIntensity would return
+   * if no data points were removed or restored in between. The matrix is not changed.
+   * </p>
+   *
+   * @param count a int. This is the maximum number of data points.
+   * @return tripletList a {@link java.util.List} object. This contains at most count data points
+   *         in the order of decreasing intensity.
+   */
+  public List<Triplet> peekNextMaxIntensities(int count) {
+    final int points[] = new int[count];
+    final int n = maxIntensityHeap.peek(points);
+    List<Triplet> tripletList = new ArrayList<Triplet>(n);
+    for (int i = 0; i < n; i++)
+      tripletList.add(getTriplet(points[i]));
+    return tripletList;
   }
 
   /**
@@ -426,43 +412,26 @@ public class SliceSparseMatrix {
    * retention time and intensity values.
    * </p>
    *
-   * @param slice a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *        horizontal slice from sparse matrix.
+   * @param slice a {@link java.util.List} object. This is horizontal slice from sparse matrix.
    * @return listOfDataPoint a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} list. This returns list of retention time and
    *         intensities.
    */
   public List<ContinuousWaveletTransform.DataPoint> getCWTDataPoint(List<Triplet> slice) {
 
-    Iterator<Triplet> iterator = slice.iterator();
     List<ContinuousWaveletTransform.DataPoint> listOfDataPoint =
-        new ArrayList<ContinuousWaveletTransform.DataPoint>();
+        new ArrayList<ContinuousWaveletTransform.DataPoint>(slice.size());
 
-    while (iterator.hasNext()) {
+    for (Triplet triplet : slice) {
       ContinuousWaveletTransform.DataPoint dataPoint = new ContinuousWaveletTransform.DataPoint();
-      Triplet triplet = (Triplet) iterator.next();
-      if (triplet.intensity != 0 && triplet.removed == 0) {
-        dataPoint.rt = rtMap.get(triplet.scanListIndex) / 60;
+      dataPoint.rt = getRetentionTime(triplet.scanListIndex) / 60;
+      if (triplet.intensity != 0 && triplet.removed == 0)
         dataPoint.intensity = triplet.intensity;
-        listOfDataPoint.add(dataPoint);
-      } else {
-        dataPoint.rt = rtMap.get(triplet.scanListIndex) / 60;
+      else
         dataPoint.intensity = 0.0;
-        listOfDataPoint.add(dataPoint);
-      }
+      listOfDataPoint.add(dataPoint);
     }
-    Comparator<ContinuousWaveletTransform.DataPoint> compare =
-        new Comparator<ContinuousWaveletTransform.DataPoint>() {
-
-          @Override
-          public int compare(ContinuousWaveletTransform.DataPoint o1,
-              ContinuousWaveletTransform.DataPoint o2) {
-            Double rt1 = o1.rt;
-            Double rt2 = o2.rt;
-            return rt1.compareTo(rt2);
-          }
-        };
 
-    Collections.sort(listOfDataPoint, compare);
+    listOfDataPoint.sort(Comparator.comparingDouble(dataPoint -> dataPoint.rt));
 
     return listOfDataPoint;
   }
@@ -473,27 +442,37 @@ public class SliceSparseMatrix {
    * upperscanbound
    * </p>
    *
+   * @param roundedmz a int.
    * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
    * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
-   * @return tripletMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *         whole sparse matrix.
-   * @param roundedmz a int.
    */
-  public List<Triplet> removeDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
-
-    Triplet searchTriplet = new Triplet();
-
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
+  public void removeDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
+    removeDataPoints(roundedmz, roundedmz, lowerScanBound, upperScanBound);
+  }
 
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        Triplet triplet = filterListOfTriplet.get(index);
-        triplet.removed = 1;
+  /**
+   * <p>
+   * This method removes data points from whole data set for all rounded mz values between lowerMz
+   * and upperMz and scans between lowerScanBound and upperScanBound
+   * </p>
+   *
+   * @param lowerMz a int. This is the lowest rounded m/z value.
+   * @param upperMz a int. This is the highest rounded m/z value.
+   * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
+   * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
+   */
+  public void removeDataPoints(int lowerMz, int upperMz, int lowerScanBound, int upperScanBound) {
+    for (int row = lowerBound(rowMz, lowerMz); (row < rowMz.length) && (rowMz[row] <= upperMz);
+        row++) {
+      for (int j = firstInRow(row, lowerScanBound); j < rowStart[row + 1]
+          && rowScan[j] <= upperScanBound; j++) {
+        final int point = rowPoints[j];
+        if (!removed.get(point)) {
+          removed.set(point);
+          maxIntensityHeap.remove(point);
+        }
       }
     }
-    return filterListOfTriplet;
   }
 
   /**
@@ -502,27 +481,55 @@ public class SliceSparseMatrix {
    * upperscanbound
    * </p>
    *
+   * @param roundedmz a int.
    * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
    * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
-   * @return tripletMap a {@link org.apache.commons.collections4.map.MultiKeyMap} object. This is
-   *         whole sparse matrix.
-   * @param roundedmz a int.
    */
-  public List<Triplet> restoreDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
-
-    Triplet searchTriplet = new Triplet();
-
-    for (int i = lowerScanBound; i <= upperScanBound; i++) {
+  public void restoreDataPoints(int roundedmz, int lowerScanBound, int upperScanBound) {
+    restoreDataPoints(roundedmz, roundedmz, lowerScanBound, upperScanBound);
+  }
 
-      searchTriplet.mz = roundedmz;
-      searchTriplet.scanListIndex = i;
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        Triplet triplet = filterListOfTriplet.get(index);
-        triplet.removed = 0;
+  /**
+   * <p>
+   * This method restores data points from whole data set for all rounded mz values between lowerMz
+   * and upperMz and scans between lowerScanBound and upperScanBound. Restored data points, which
+   * have a lower intensity than the last one returned by findNextMaxIntensity, can be returned by
+   * findNextMaxIntensity again.
+   * </p>
+   *
+   * @param lowerMz a int. This is the lowest rounded m/z value.
+   * @param upperMz a int. This is the highest rounded m/z value.
+   * @param lowerScanBound a {@link java.lang.Integer} object.This is lowest scan number.
+   * @param upperScanBound a {@link java.lang.Integer} object.This is highest scan number.
+   */
+  public void restoreDataPoints(int lowerMz, int upperMz, int lowerScanBound,
+      int upperScanBound) {
+    for (int row = lowerBound(rowMz, lowerMz); (row < rowMz.length) && (rowMz[row] <= upperMz);
+        row++) {
+      for (int j = firstInRow(row, lowerScanBound); j < rowStart[row + 1]
+          && rowScan[j] <= upperScanBound; j++) {
+        final int point = rowPoints[j];
+        if (removed.get(point)) {
+          removed.clear(point);
+          maxIntensityHeap.restore(point);
+        }
       }
     }
-    return filterListOfTriplet;
+  }
+
+  /**
+   * <p>
+   * This method returns true if the data point with given rounded mz value and scan number exists
+   * and was removed.
+   * </p>
+   *
+   * @param roundedmz a int.
+   * @param scanNumber a int.
+   * @return a boolean.
+   */
+  public boolean isRemoved(int roundedmz, int scanNumber) {
+    final int point = findPoint(roundedmz, scanNumber);
+    return point >= 0 && removed.get(point);
   }
 
   /**
@@ -541,11 +548,12 @@ public class SliceSparseMatrix {
 
   /**
    * <p>
-   * This method sets maxIntensityIndex to 0
+   * This method moves the search for next maximum intensity back to the highest intensity data
+   * point which is not removed.
    * </p>
    */
   public void setMaxIntensityIndexZero() {
-    maxIntensityIndex = 0;
+    maxIntensityHeap.reset(removed);
   }
 
   /**
@@ -556,8 +564,7 @@ public class SliceSparseMatrix {
    * @return size a {@link java.lang.Integer} object. This is total number of scans in raw file.
    */
   public int getSizeOfRawDataFile() {
-    int size = listOfScans.size();
-    return size;
+    return numOfScans;
   }
 
   /**
@@ -591,17 +598,13 @@ public class SliceSparseMatrix {
 
     float[] intensities = new float[peak.upperScanBound - peak.lowerScanBound + 1];
 
-    for (int i = 0; i < peak.upperScanBound - peak.lowerScanBound + 1; i++) {
-      Triplet searchTriplet = new Triplet();
-      searchTriplet.scanListIndex = i + peak.lowerScanBound;
-      searchTriplet.mz = roundMZ(peak.mz);
+    final int row = Arrays.binarySearch(rowMz, roundMZ(peak.mz));
+    if (row < 0)
+      return intensities;
 
-      int index = Collections.binarySearch(filterListOfTriplet, searchTriplet, compareScanMz);
-      if (index >= 0) {
-        intensities[i] = filterListOfTriplet.get(index).intensity;
-      } else {
-        intensities[i] = 0;
-      }
+    for (int j = firstInRow(row, peak.lowerScanBound); j < rowStart[row + 1]
+        && rowScan[j] <= peak.upperScanBound; j++) {
+      intensities[rowScan[j] - peak.lowerScanBound] = pointIntensity[rowPoints[j]];
     }
 
     return intensities;
@@ -616,7 +619,7 @@ public class SliceSparseMatrix {
    * @param scanNumber a int.
    */
   public double getRetentionTime(int scanNumber) {
-    return rtMap.get(scanNumber);
+    return rtValues[scanNumber];
   }
 
   /**
@@ -624,17 +627,149 @@ public class SliceSparseMatrix {
    * This method tracks progress of algorithm
    * </p>
    *
-   * @return progress a {@link java.lang.Float} object.
-   * @param maxIntensityTriplet a {@link io.github.msdk.featuredetection.adap3d.algorithms.SliceSparseMatrix.Triplet} object.
+   * @return progress a {@link java.lang.Float} object. This is the fraction of data points
+   *         returned by findNextMaxIntensity.
    */
-  public float getFinishedPercent(Triplet maxIntensityTriplet) {
+  public float getFinishedPercent() {
+    if (pointMz.length == 0)
+      return 1f;
+    return (float) maxIntensityHeap.getNumberOfPolled() / pointMz.length;
+  }
 
-    int index = Collections.binarySearch(sortListAccordingToIntensity, maxIntensityTriplet,
-        compareIntensity);
-    float progress = index / sortListAccordingToIntensity.size();
-    return progress;
+  /**
+   * <p>
+   * This method returns the index of given rounded mz value in the sorted array of all distinct
+   * rounded mz values from raw file, or -1 if the value is not present.
+   * </p>
+   *
+   * @param roundedmz a int.
+   * @return a int.
+   */
+  public int getMzIndex(int roundedmz) {
+    final int index = Arrays.binarySearch(mzValues, roundedmz);
+    return index >= 0 ? index : -1;
+  }
+
+  /**
+   * <p>
+   * This method returns the rounded mz value at given index in the sorted array of all distinct
+   * rounded mz values from raw file.
+   * </p>
+   *
+   * @param index a int.
+   * @return a int.
+   */
+  public int getMzValue(int index) {
+    return mzValues[index];
+  }
+
+  /**
+   * <p>
+   * This method returns number of distinct rounded mz values from raw file.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfMzValues() {
+    return mzValues.length;
+  }
+
+  /**
+   * <p>numOfScans.</p>
+   *
+   * @return a double.
+   */
+  public double numOfScans() {
+    return numOfScans;
+  }
+
+  // Position of the first data point of the row with scan number not lower than given scan
+  private int firstInRow(int row, int scanNumber) {
+    int low = rowStart[row], high = rowStart[row + 1];
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (rowScan[mid] < scanNumber)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  private Triplet getTriplet(int point) {
+    Triplet tripletObject = new Triplet();
+    tripletObject.mz = pointMz[point];
+    tripletObject.scanListIndex = findScan(point);
+    tripletObject.intensity = pointIntensity[point];
+    return tripletObject;
+  }
+
+  // Data point with given rounded mz value and scan number, or -1
+  private int findPoint(int roundedmz, int scanNumber) {
+    final int row = Arrays.binarySearch(rowMz, roundedmz);
+    if (row < 0)
+      return -1;
+    final int j = firstInRow(row, scanNumber);
+    if ((j < rowStart[row + 1]) && (rowScan[j] == scanNumber))
+      return rowPoints[j];
+    return -1;
+  }
 
+  // Scan number of given data point
+  private int findScan(int point) {
+    int low = 0, high = numOfScans - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (scanStart[mid] <= point)
+        low = mid;
+      else
+        high = mid - 1;
+    }
+    return low;
+  }
+
+  // Index of the first element of the sorted array not lower than given value
+  private static int lowerBound(int array[], int value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  // Sorts the first size elements of the array, removes duplicates and returns the new size
+  private static int sortUnique(int array[], int size) {
+    Arrays.sort(array, 0, size);
+    int unique = 0;
+    for (int i = 0; i < size; i++) {
+      if ((unique == 0) || (array[unique - 1] != array[i]))
+        array[unique++] = array[i];
+    }
+    return unique;
+  }
+
+  // Indices of the values in the order of increasing value, keeping the order of equal values
+  private static int[] sortedOrder(int values[]) {
+    final int order[] = new int[values.length];
+    boolean sorted = true;
+    for (int j = 0; j < values.length; j++) {
+      order[j] = j;
+      if ((j > 0) && (values[j] < values[j - 1]))
+        sorted = false;
+    }
+    if (sorted)
+      return order;
+    Integer boxed[] = new Integer[values.length];
+    for (int j = 0; j < values.length; j++)
+      boxed[j] = j;
+    Arrays.sort(boxed, Comparator.comparingInt(j -> values[j]));
+    for (int j = 0; j < values.length; j++)
+      order[j] = boxed[j];
+    return order;
   }
 
-  public double numOfScans() {return listOfScans.size();}
 }
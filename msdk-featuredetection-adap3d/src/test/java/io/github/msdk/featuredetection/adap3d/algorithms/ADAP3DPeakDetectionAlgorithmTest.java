@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.featuredetection.adap3d.ADAP3DFeatureDetectionParameters;
+import io.github.msdk.featuredetection.adap3d.algorithms.ADAP3DPeakDetectionAlgorithm.GoodPeakInfo;
+import io.github.msdk.util.DataPointSorter;
+import io.github.msdk.util.DataPointSorter.SortingDirection;
+import io.github.msdk.util.DataPointSorter.SortingProperty;
+
+public class ADAP3DPeakDetectionAlgorithmTest {
+
+  private static final int numOfScans = 100;
+  private static final int numOfPeaks = 20;
+  private static final double mzStep = 0.0001;
+
+  @Test
+  public void testParallelism() {
+
+    RawDataFile rawFile = createRawFile(new Random(1));
+    ADAP3DFeatureDetectionParameters parameters = new ADAP3DFeatureDetectionParameters();
+    final int fwhm = 4;
+
+    // Every run modifies its sparse matrix, so each one gets a new matrix
+    ADAP3DPeakDetectionAlgorithm serialAlgorithm =
+        new ADAP3DPeakDetectionAlgorithm(new SliceSparseMatrix(rawFile));
+    List<GoodPeakInfo> serialPeaks = serialAlgorithm.execute(parameters, fwhm);
+    Assert.assertEquals(0, serialAlgorithm.numOfBatches);
+
+    ADAP3DPeakDetectionAlgorithm parallelAlgorithm =
+        new ADAP3DPeakDetectionAlgorithm(new SliceSparseMatrix(rawFile));
+    parallelAlgorithm.setParallelism(4);
+    List<GoodPeakInfo> parallelPeaks = parallelAlgorithm.execute(parameters, fwhm);
+
+    // Some batches contain several independent maxima, and some batches are discarded because an
+    // update restored data points of higher intensity than their next maximum
+    Assert.assertTrue(
+        parallelAlgorithm.numOfBatchEvaluations > parallelAlgorithm.numOfBatches);
+    Assert.assertTrue(parallelAlgorithm.numOfFallbacks > 0);
+
+    // The peaks must be identical and in the same order
+    Assert.assertFalse(serialPeaks.isEmpty());
+    Assert.assertEquals(serialPeaks.size(), parallelPeaks.size());
+    for (int i = 0; i < serialPeaks.size(); i++) {
+      GoodPeakInfo serialPeak = serialPeaks.get(i);
+      GoodPeakInfo parallelPeak = parallelPeaks.get(i);
+      Assert.assertEquals(serialPeak.mz, parallelPeak.mz, 0.0);
+      Assert.assertEquals(serialPeak.lowerScanBound, parallelPeak.lowerScanBound);
+      Assert.assertEquals(serialPeak.upperScanBound, parallelPeak.upperScanBound);
+      Assert.assertEquals(serialPeak.maxHeight, parallelPeak.maxHeight, 0f);
+      Assert.assertEquals(serialPeak.maxHeightScanNumber, parallelPeak.maxHeightScanNumber);
+    }
+  }
+
+  /**
+   * Creates Gaussian peaks with some noise. Every other peak is followed by a second peak, 3 m/z
+   * steps higher and a few scans later, so the regions of their maxima overlap.
+   */
+  private static RawDataFile createRawFile(Random random) {
+    final double peakMz[] = new double[numOfPeaks];
+    final int apexScan[] = new int[numOfPeaks];
+    final double width[] = new double[numOfPeaks];
+    final double height[] = new double[numOfPeaks];
+    for (int p = 0; p < numOfPeaks; p++) {
+      if (p % 4 == 1) {
+        peakMz[p] = peakMz[p - 1] + 3 * mzStep;
+        apexScan[p] = apexScan[p - 1] + 8 + random.nextInt(5);
+      } else {
+        peakMz[p] = 100.0 + random.nextInt(200000) * mzStep;
+        apexScan[p] = 15 + random.nextInt(numOfScans - 40);
+      }
+      width[p] = 2.0 + random.nextDouble() * 2.0;
+      height[p] = 1E4 + random.nextDouble() * 1E6;
+    }
+
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("adap3d", Optional.empty(), FileType.UNKNOWN);
+    for (int scan = 0; scan < numOfScans; scan++) {
+      final double mzValues[] = new double[numOfPeaks * 9 + 10];
+      final float intensityValues[] = new float[mzValues.length];
+      int size = 0;
+      for (int p = 0; p < numOfPeaks; p++) {
+        final double d = (scan - apexScan[p]) / width[p];
+        if (Math.abs(d) > 4)
+          continue;
+        for (int k = -4; k <= 4; k++) {
+          mzValues[size] = peakMz[p] + k * mzStep;
+          intensityValues[size] = (float) (height[p] * Math.exp(-d * d / 2 - k * k / 4.0));
+          size++;
+        }
+      }
+      for (int n = 0; n < 10; n++) {
+        mzValues[size] = 100.0 + random.nextInt(200000) * mzStep;
+        intensityValues[size] = 1f + random.nextFloat() * 500f;
+        size++;
+      }
+      DataPointSorter.sortDataPoints(mzValues, intensityValues, size, SortingProperty.MZ,
+          SortingDirection.ASCENDING);
+      SimpleMsScan msScan = new SimpleMsScan(scan + 1);
+      msScan.setRetentionTime(scan * 1f);
+      msScan.setDataPoints(mzValues, intensityValues, size);
+      rawFile.addScan(msScan);
+    }
+    return rawFile;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MaxIntensityHeapTest {
+
+  @Test
+  public void testOrder() {
+    float intensities[] = {5f, 9f, 1f, 9f, 7f};
+    MaxIntensityHeap heap = new MaxIntensityHeap(intensities, new BitSet());
+    // Equal intensities are returned in the order of point indices
+    Assert.assertEquals(1, heap.poll());
+    Assert.assertEquals(3, heap.poll());
+    Assert.assertEquals(4, heap.poll());
+    Assert.assertEquals(0, heap.poll());
+    Assert.assertEquals(2, heap.poll());
+    Assert.assertEquals(-1, heap.poll());
+    Assert.assertEquals(5, heap.getNumberOfPolled());
+  }
+
+  @Test
+  public void testRemoveAndRestore() {
+    float intensities[] = {5f, 9f, 1f, 8f, 7f};
+    MaxIntensityHeap heap = new MaxIntensityHeap(intensities, new BitSet());
+    heap.remove(3);
+    heap.remove(2);
+    Assert.assertEquals(1, heap.poll());
+    Assert.assertEquals(4, heap.poll());
+
+    // Point 3 was passed by the cursor, point 2 was not
+    heap.restore(3);
+    heap.restore(2);
+    Assert.assertEquals(0, heap.poll());
+    Assert.assertEquals(2, heap.poll());
+    Assert.assertEquals(-1, heap.poll());
+
+    // Reset returns all points which are not excluded
+    BitSet excluded = new BitSet();
+    excluded.set(1);
+    heap.reset(excluded);
+    Assert.assertEquals(3, heap.poll());
+    Assert.assertEquals(1, heap.getNumberOfPolled());
+  }
+
+  @Test
+  public void testPeek() {
+    float intensities[] = {5f, 9f, 1f, 8f, 7f};
+    MaxIntensityHeap heap = new MaxIntensityHeap(intensities, new BitSet());
+    Assert.assertEquals(1, heap.poll());
+    heap.remove(4);
+
+    int points[] = new int[5];
+    Assert.assertEquals(3, heap.peek(points));
+    Assert.assertArrayEquals(new int[] {3, 0, 2}, Arrays.copyOf(points, 3));
+
+    // Peeking changes neither the heap nor the cursor
+    Assert.assertEquals(1, heap.getNumberOfPolled());
+    heap.restore(1);
+    Assert.assertEquals(3, heap.poll());
+    heap.restore(4);
+    Assert.assertEquals(4, heap.poll());
+    Assert.assertEquals(0, heap.poll());
+  }
+
+}
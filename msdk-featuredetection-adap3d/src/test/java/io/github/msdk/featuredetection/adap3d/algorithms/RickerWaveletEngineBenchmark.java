@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the wavelet transform of all scales (1 to 10) computed point by point, by direct
+ * correlation with precomputed kernels and by FFT, across signal lengths. Arguments (all
+ * optional): number of runs (default 200), followed by the signal lengths (default 21 32 48 64
+ * 128 256 512 1024 4096).
+ */
+public class RickerWaveletEngineBenchmark {
+
+  public static void main(String[] args) {
+
+    int numberOfRuns = 200;
+    int lengths[] = {21, 32, 48, 64, 128, 256, 512, 1024, 4096};
+    Logger logger = LoggerFactory.getLogger(RickerWaveletEngineBenchmark.class);
+
+    if (args.length > 0)
+      numberOfRuns = Integer.valueOf(args[0]);
+    if (args.length > 1) {
+      lengths = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++)
+        lengths[i - 1] = Integer.valueOf(args[i]);
+    }
+
+    double scales[] = new double[10];
+    for (int i = 0; i < scales.length; i++)
+      scales[i] = i + 1;
+    RickerWaveletEngine engine = RickerWaveletEngine.getInstance();
+
+    for (int length : lengths) {
+      List<ContinuousWaveletTransform.DataPoint> dataPoints =
+          RickerWaveletEngineTest.createSignal(length, 1);
+      double signal[] = new double[length];
+      for (int i = 0; i < length; i++)
+        signal[i] = dataPoints.get(i).intensity;
+      ContinuousWaveletTransform cwt = new ContinuousWaveletTransform(1, 10, 1);
+      cwt.setX(dataPoints);
+      cwt.setSignal(dataPoints);
+      double avgXSpace = dataPoints.get(1).rt - dataPoints.get(0).rt;
+
+      // Warm up
+      for (int run = 0; run < 10; run++) {
+        for (double scale : scales)
+          cwt.getCoefficientsForThisScale(scale);
+        engine.transform(signal, scales, avgXSpace, 5, false);
+        engine.transform(signal, scales, avgXSpace, 5, true);
+      }
+
+      long startTime = System.nanoTime();
+      for (int run = 0; run < numberOfRuns; run++) {
+        for (double scale : scales)
+          cwt.getCoefficientsForThisScale(scale);
+      }
+      long pointByPointTime = System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      for (int run = 0; run < numberOfRuns; run++)
+        engine.transform(signal, scales, avgXSpace, 5, false);
+      long directTime = System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      for (int run = 0; run < numberOfRuns; run++)
+        engine.transform(signal, scales, avgXSpace, 5, true);
+      long fftTime = System.nanoTime() - startTime;
+
+      logger.info("Signal length " + length + ": point by point "
+          + pointByPointTime / 1000 / numberOfRuns + "us, direct correlation "
+          + directTime / 1000 / numberOfRuns + "us, FFT " + fftTime / 1000 / numberOfRuns
+          + "us");
+    }
+
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.featuredetection.adap3d.datamodel.Result;
+
+public class RickerWaveletEngineTest {
+
+  /**
+   * Generates a signal of Gaussian peaks on noise, with uniformly spaced retention times.
+   */
+  static List<ContinuousWaveletTransform.DataPoint> createSignal(int length, long seed) {
+    Random random = new Random(seed);
+    List<ContinuousWaveletTransform.DataPoint> signal = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      ContinuousWaveletTransform.DataPoint dataPoint = new ContinuousWaveletTransform.DataPoint();
+      dataPoint.rt = 12.5 + i * 0.0125;
+      dataPoint.intensity = random.nextDouble() * 1000;
+      for (int p = 10; p < length; p += 40) {
+        double d = (i - p) / 4.0;
+        dataPoint.intensity += 1e6 * Math.exp(-d * d / 2);
+      }
+      signal.add(dataPoint);
+    }
+    return signal;
+  }
+
+  private static void assertEquivalent(int length, double smallScale, double largeScale,
+      double incrementScale) {
+    assertEquivalent(createSignal(length, length), smallScale, largeScale, incrementScale, 1e-9);
+  }
+
+  private static void assertEquivalent(List<ContinuousWaveletTransform.DataPoint> signal,
+      double smallScale, double largeScale, double incrementScale, double tolerance) {
+    ContinuousWaveletTransform cwt =
+        new ContinuousWaveletTransform(smallScale, largeScale, incrementScale);
+    cwt.setX(signal);
+    cwt.setSignal(signal);
+    Assert.assertEquals(signal.size() > 1, cwt.isUniformlySpaced());
+    cwt.getCoefficientsForAllScales();
+    double allCoefficients[][] = cwt.returnAllCoefficients();
+
+    int s = 0;
+    for (double scale = smallScale; scale <= largeScale; scale += incrementScale) {
+      double expected[] = cwt.getCoefficientsForThisScale(scale);
+      double max = 0;
+      for (double value : expected)
+        max = Math.max(max, Math.abs(value));
+      Assert.assertEquals(expected.length, allCoefficients[s].length);
+      for (int i = 0; i < expected.length; i++)
+        Assert.assertEquals(expected[i], allCoefficients[s][i], max * tolerance);
+      s++;
+    }
+    Assert.assertEquals(s, allCoefficients.length);
+  }
+
+  @Test
+  public void testDirectCorrelation() {
+    assertEquivalent(1, 1, 10, 1);
+    assertEquivalent(2, 1, 10, 1);
+    assertEquivalent(21, 1, 10, 1);
+    assertEquivalent(RickerWaveletEngine.FFT_MIN_LENGTH - 1, 1, 12, 0.5);
+  }
+
+  @Test
+  public void testFFT() {
+    assertEquivalent(RickerWaveletEngine.FFT_MIN_LENGTH, 1, 10, 1);
+    assertEquivalent(100, 1, 10, 1);
+    assertEquivalent(257, 1.5, 20, 1.5);
+    assertEquivalent(1000, 1, 30, 1);
+    // Odd number of scales
+    assertEquivalent(300, 1, 9, 1);
+  }
+
+  @Test
+  public void testFloatRetentionTimes() {
+    // Retention times in minutes computed from float scan times in seconds, as in
+    // SliceSparseMatrix. Their float rounding errors are much larger than 1e-6 of the spacing, so
+    // the direct evaluation only agrees up to these errors.
+    List<ContinuousWaveletTransform.DataPoint> signal = createSignal(500, 4);
+    for (int i = 0; i < signal.size(); i++) {
+      final float rt = (float) (3000.0 + i * 0.5);
+      signal.get(i).rt = rt / 60;
+    }
+    assertEquivalent(signal, 1, 10, 1, 1e-2);
+
+    // Retention times which are not uniform still take the direct evaluation
+    signal.get(250).rt += 0.01 * (signal.get(1).rt - signal.get(0).rt);
+    ContinuousWaveletTransform cwt = new ContinuousWaveletTransform(1, 10, 1);
+    cwt.setX(signal);
+    Assert.assertFalse(cwt.isUniformlySpaced());
+  }
+
+  @Test
+  public void testFindPeaks() {
+    List<ContinuousWaveletTransform.DataPoint> signal = createSignal(200, 3);
+
+    // Tiny jitter of the retention times makes the transform fall back to direct evaluation
+    List<ContinuousWaveletTransform.DataPoint> jittered = createSignal(200, 3);
+    for (int i = 1; i < jittered.size(); i += 2)
+      jittered.get(i).rt += 1e-4;
+
+    List<Result> peaks = findPeaks(signal);
+    List<Result> expectedPeaks = findPeaks(jittered);
+    Assert.assertFalse(peaks.isEmpty());
+    Assert.assertEquals(expectedPeaks.size(), peaks.size());
+    for (int i = 0; i < peaks.size(); i++) {
+      Assert.assertEquals(expectedPeaks.get(i).curLeftBound, peaks.get(i).curLeftBound);
+      Assert.assertEquals(expectedPeaks.get(i).curRightBound, peaks.get(i).curRightBound);
+    }
+  }
+
+  private static List<Result> findPeaks(List<ContinuousWaveletTransform.DataPoint> signal) {
+    ContinuousWaveletTransform cwt = new ContinuousWaveletTransform(1, 10, 1);
+    cwt.setX(signal);
+    cwt.setSignal(signal);
+    cwt.setPeakWidth(0.0, 10.0);
+    cwt.setcoefAreaRatioTolerance(0.0);
+    return cwt.findPeaks();
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the per-peak cost of the random window selection and the window sweep, computed value
+ * by value with DescriptiveStatistics and with prefix sums, across peak widths. Arguments (all
+ * optional): number of runs (default 200), followed by the peak widths (default 5 10 20 40).
+ */
+public class SignalToNoiseBenchmark {
+
+  public static void main(String[] args) {
+
+    int numberOfRuns = 200;
+    int peakWidths[] = {5, 10, 20, 40};
+    Logger logger = LoggerFactory.getLogger(SignalToNoiseBenchmark.class);
+
+    if (args.length > 0)
+      numberOfRuns = Integer.valueOf(args[0]);
+    if (args.length > 1) {
+      peakWidths = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++)
+        peakWidths[i - 1] = Integer.valueOf(args[i]);
+    }
+
+    for (int peakWidth : peakWidths) {
+      int length = 30 * peakWidth;
+      int peakLeft = 15 * peakWidth - peakWidth / 2, peakRight = peakLeft + peakWidth;
+      double intensities[] = SignalToNoiseTest.createSignal(length, peakLeft, peakRight, 1e6, 1);
+
+      // Warm up
+      for (int run = 0; run < 10; run++) {
+        SignalToNoiseTest.naiveRandWindowSelect(intensities, peakLeft, peakRight, run);
+        SignalToNoiseTest.naiveWindowSweep(intensities, peakLeft, peakRight);
+        SignalToNoise.filterBySNRandWindowSelect(intensities, peakLeft, peakRight, run);
+        SignalToNoise.filterBySNWindowSweep(intensities, peakLeft, peakRight);
+      }
+
+      long startTime = System.nanoTime();
+      for (int run = 0; run < numberOfRuns; run++)
+        SignalToNoiseTest.naiveRandWindowSelect(intensities, peakLeft, peakRight, run);
+      long naiveRandomTime = System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      for (int run = 0; run < numberOfRuns; run++)
+        SignalToNoise.filterBySNRandWindowSelect(intensities, peakLeft, peakRight, run);
+      long randomTime = System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      for (int run = 0; run < numberOfRuns; run++)
+        SignalToNoiseTest.naiveWindowSweep(intensities, peakLeft, peakRight);
+      long naiveSweepTime = System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      for (int run = 0; run < numberOfRuns; run++)
+        SignalToNoise.filterBySNWindowSweep(intensities, peakLeft, peakRight);
+      long sweepTime = System.nanoTime() - startTime;
+
+      logger.info("Peak width " + peakWidth + ": random windows "
+          + naiveRandomTime / 1000 / numberOfRuns + "us value by value, "
+          + randomTime / 1000 / numberOfRuns + "us with prefix sums; window sweep "
+          + naiveSweepTime / 1000 / numberOfRuns + "us value by value, "
+          + sweepTime / 1000 / numberOfRuns + "us with prefix sums");
+    }
+
+  }
+
+}
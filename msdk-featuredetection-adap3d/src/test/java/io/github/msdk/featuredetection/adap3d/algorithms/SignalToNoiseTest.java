@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.adap3d.algorithms;
+
+import java.lang.Math;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SignalToNoiseTest {
+
+  /**
+   * Noise of uniform random intensities around base, with a triangular peak from peakLeft to
+   * peakRight.
+   */
+  static double[] createSignal(int length, int peakLeft, int peakRight, double base, long seed) {
+    Random random = new Random(seed);
+    double intensities[] = new double[length];
+    for (int i = 0; i < length; i++)
+      intensities[i] = base + 1000.0 * random.nextDouble();
+    int apex = (peakLeft + peakRight) / 2;
+    for (int i = peakLeft; i <= peakRight; i++)
+      intensities[i] += 1e5 * (1.0 - Math.abs(i - apex) / (peakRight - peakLeft + 1.0));
+    return intensities;
+  }
+
+  /**
+   * Random window selection computed with DescriptiveStatistics, value by value.
+   */
+  static double naiveRandWindowSelect(double[] intensities, int peakLeft, int peakRight,
+      long seed) {
+    int peakWidth = peakRight - peakLeft;
+    int rightBound = Math.min(peakRight + 10 * peakWidth, intensities.length - 1);
+    int leftBound = Math.max(peakLeft - 10 * peakWidth, 0);
+    DescriptiveStatistics noiseStats = new DescriptiveStatistics();
+    for (int j = peakRight + 1; j <= rightBound; j++)
+      noiseStats.addValue(intensities[j]);
+    for (int j = leftBound; j < peakLeft; j++)
+      noiseStats.addValue(intensities[j]);
+    double forNoiseCalc[] = noiseStats.getValues();
+
+    Random random = new Random(seed);
+    DescriptiveStatistics allWindowStats = new DescriptiveStatistics();
+    int half = forNoiseCalc.length / 2;
+    for (int i = 0; i < 1000; i++) {
+      int windowStart = random.nextInt(half - peakWidth);
+      for (int k = 0; k < peakWidth; k++)
+        allWindowStats.addValue(forNoiseCalc[windowStart + k]);
+      windowStart = half + random.nextInt(forNoiseCalc.length - peakWidth - half);
+      for (int k = 0; k < peakWidth; k++)
+        allWindowStats.addValue(forNoiseCalc[windowStart + k]);
+    }
+    return (getPeakHeight(intensities, peakLeft, peakRight)
+        - getSmallIntensityAvg(intensities, peakLeft, peakRight)) / allWindowStats.getMean();
+  }
+
+  /**
+   * Window sweep computed with DescriptiveStatistics, value by value.
+   */
+  static double naiveWindowSweep(double[] intensities, int peakLeft, int peakRight) {
+    int peakWidth = peakRight - peakLeft;
+    DescriptiveStatistics minStats = new DescriptiveStatistics();
+    for (int i = 0; i <= 9 * peakWidth; i++) {
+      int curRight = Math.min(peakRight + 3 * peakWidth + i, intensities.length - 1);
+      int curLeft = Math.max(peakLeft - 3 * peakWidth - i, 0);
+      DescriptiveStatistics windowStats = new DescriptiveStatistics();
+      for (int j = peakRight + 1; j <= curRight; j++)
+        windowStats.addValue(intensities[j]);
+      for (int j = curLeft; j < peakLeft; j++)
+        windowStats.addValue(intensities[j]);
+      minStats.addValue(windowStats.getStandardDeviation());
+    }
+    return (getPeakHeight(intensities, peakLeft, peakRight)
+        - getSmallIntensityAvg(intensities, peakLeft, peakRight)) / minStats.getMin();
+  }
+
+  private static double getPeakHeight(double[] intensities, int peakLeft, int peakRight) {
+    double height = intensities[peakLeft];
+    for (int i = peakLeft; i <= peakRight; i++)
+      height = Math.max(height, intensities[i]);
+    return height;
+  }
+
+  private static double getSmallIntensityAvg(double[] intensities, int peakLeft, int peakRight) {
+    int peakWidth = peakRight - peakLeft;
+    double small1 = intensities[peakRight], small2 = intensities[peakLeft];
+    for (int i = peakRight; i <= Math.min(peakRight + peakWidth, intensities.length - 1); i++)
+      small1 = Math.min(small1, intensities[i]);
+    for (int i = Math.max(peakLeft - peakWidth, 0); i <= peakLeft; i++)
+      small2 = Math.min(small2, intensities[i]);
+    return (small1 + small2) / 2.0;
+  }
+
+  @Test
+  public void testRandWindowSelect() {
+    for (long seed = 0; seed < 20; seed++) {
+      double intensities[] = createSignal(300, 140, 151, seed % 2 == 0 ? 0.0 : 1e6, seed);
+      double snRatio = SignalToNoise.filterBySNRandWindowSelect(intensities, 140, 151, seed);
+      Assert.assertEquals(naiveRandWindowSelect(intensities, 140, 151, seed), snRatio,
+          1e-9 * Math.abs(snRatio));
+
+      // The same seed gives the same result
+      Assert.assertEquals(snRatio,
+          SignalToNoise.filterBySNRandWindowSelect(intensities, 140, 151, seed), 0.0);
+    }
+  }
+
+  @Test
+  public void testWindowSweep() {
+    for (long seed = 0; seed < 20; seed++) {
+      // Peaks close to the borders limit the windows on one side
+      int peakLeft = 5 + (int) (seed * 13), peakRight = peakLeft + 4 + (int) seed % 5;
+      double intensities[] =
+          createSignal(300, peakLeft, peakRight, seed % 2 == 0 ? 0.0 : 1e6, seed);
+      double snRatio = SignalToNoise.filterBySNWindowSweep(intensities, peakLeft, peakRight);
+      Assert.assertEquals(naiveWindowSweep(intensities, peakLeft, peakRight), snRatio,
+          1e-6 * Math.abs(snRatio));
+    }
+  }
+
+  @Test
+  public void testNoiseEstimator() {
+    double values[] = createSignal(50, 20, 25, 1e6, 1);
+    NoiseEstimator noise = NoiseEstimator.getInstance();
+    noise.clear();
+    noise.append(values, 10, 30);
+    noise.append(values, 0, 5);
+
+    DescriptiveStatistics stats = new DescriptiveStatistics();
+    for (int i = 12; i < 30; i++)
+      stats.addValue(values[i]);
+    for (int i = 0; i < 3; i++)
+      stats.addValue(values[i]);
+    Assert.assertEquals(stats.getSum(), noise.sum(2, 23), 1e-6);
+    Assert.assertEquals(stats.getStandardDeviation(), noise.standardDeviation(2, 20, 20, 23),
+        1e-6);
+    Assert.assertEquals(Double.NaN, noise.standardDeviation(3, 3, 5, 4), 0.0);
+    Assert.assertEquals(0.0, noise.standardDeviation(3, 4, 5, 5), 0.0);
+  }
+
+}
@@ -88,13 +88,19 @@ public class SliceSparseMatrixTest {
 
   @Test
   public void testRemoveDataPoints() throws MSDKException, IOException {
-    List<Triplet> updatedTripletList = objSliceSparseMatrix.removeDataPoints(1810596, 50, 77);
-    for (int i = 0; i < updatedTripletList.size(); i++) {
-      SliceSparseMatrix.Triplet triplet = updatedTripletList.get(i);
-      if (triplet.removed == 1) {
-        Assert.assertEquals(51, triplet.scanListIndex);
-        break;
+    objSliceSparseMatrix.removeDataPoints(1810596, 50, 77);
+    List<Triplet> slice = objSliceSparseMatrix.getHorizontalSlice(1810596, 50, 77);
+    int firstRemovedScan = -1;
+    for (Triplet triplet : slice) {
+      if (triplet.intensity != 0) {
+        Assert.assertEquals(1, triplet.removed);
+        Assert.assertTrue(objSliceSparseMatrix.isRemoved(triplet.mz, triplet.scanListIndex));
+        if (firstRemovedScan < 0)
+          firstRemovedScan = triplet.scanListIndex;
       }
     }
+    Assert.assertEquals(51, firstRemovedScan);
+    objSliceSparseMatrix.restoreDataPoints(1810596, 50, 77);
+    Assert.assertFalse(objSliceSparseMatrix.isRemoved(1810596, 51));
   }
 }
@@ -27,6 +27,7 @@ import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.ScanPipelineStage;
 import io.github.msdk.util.tolerances.MzTolerance;
 
 /**
@@ -43,6 +44,7 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
   private final @Nonnull Double noiseLevel;
   private final @Nonnull Double minimumTimeSpan, minimumHeight;
   private final @Nonnull MzTolerance mzTolerance;
+  private @Nullable ScanPipelineStage scanPipeline;
 
   private int processedScans = 0, totalScans = 0;
   private boolean canceled = false;
@@ -90,6 +92,21 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
     this.mzTolerance = mzTolerance;
   }
 
+  /**
+   * <p>
+   * Sets a stage, typically a {@link io.github.msdk.util.ScanPipeline}, which processes each input
+   * scan before its data points are connected into chromatograms, e.g. to smooth and centroid
+   * profile scans. The processed scans are not stored, so no intermediate raw data files are
+   * needed. Scans removed by the stage are skipped.
+   * </p>
+   *
+   * @param scanPipeline a {@link io.github.msdk.util.ScanPipelineStage} object, or null to use the
+   *        input scans as they are.
+   */
+  public void setScanPipeline(@Nullable ScanPipelineStage scanPipeline) {
+    this.scanPipeline = scanPipeline;
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nullable
@@ -124,11 +141,17 @@ public class ChromatogramBuilderMethod implements MSDKMethod<List<Chromatogram>>
     HighestDataPointConnector massConnector =
         new HighestDataPointConnector(noiseLevel, minimumTimeSpan, minimumHeight);
 
-    for (MsScan scan : inputScans) {
+    for (MsScan inputScan : inputScans) {
 
       if (canceled)
         return null;
 
+      final MsScan scan = scanPipeline == null ? inputScan : scanPipeline.processScan(inputScan);
+      if (scan == null) {
+        processedScans++;
+        continue;
+      }
+
       MzTolerance mzTolerance = scan.getMzTolerance();
       if (mzTolerance == null && this.mzTolerance != null) {
         mzTolerance = this.mzTolerance;
@@ -15,8 +15,9 @@ package io.github.msdk.featuredetection.gridmass;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -24,6 +25,8 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.FeatureTable;
@@ -35,6 +38,7 @@ import io.github.msdk.datamodel.SimpleFeatureTable;
 import io.github.msdk.datamodel.SimpleFeatureTableRow;
 import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.util.ChromatogramUtil;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 
 /**
@@ -51,14 +55,13 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
   private boolean canceled = false;
   private int processedScans = 0, totalScans = 0;
 
-  private HashMap<MsScan, DataPoint[]> dpCache = null;
-
   // scan counter
   private final @Nonnull List<MsScan> scans;
-  Datum[] roi[];
+  ScanPoints roi[];
   double retentiontime[];
 
   // User parameters
+  private final @Nonnull MzTolerance mzTolerance;
   private double mzTol;
   private double intensitySimilarity;
   private double minimumTimeSpan, maximumTimeSpan;
@@ -78,6 +81,9 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
 
   private String ignoreTimes = "";
 
+  private int parallelism = 1;
+  private LocalMaxima localMaxima;
+
 
   /**
    * <p>
@@ -105,11 +111,43 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
       @Nonnull Double rtPerScan) {
     this.rawDataFile = rawDataFile;
     this.scans = scans;
+    this.mzTolerance = mzTol;
+    this.intensitySimilarity = intensitySimilarity;
+    this.minimumTimeSpan = minimumTimeSpan;
+    this.maximumTimeSpan = maximumTimeSpan;
+    this.smoothTimeSpan = smoothTimeSpan;
+    this.smoothTimeMZ = smoothTimeMZ;
+    this.smoothMZ = smoothMZ;
+    this.additionTimeMaxPeaksPerScan = additionTimeMaxPeaksPerScan;
+    this.minimumHeight = minimumHeight;
+    this.rtPerScan = rtPerScan;
+  }
+
+  /**
+   * Sets the number of threads used to move the probes to their local maxima and to resolve the
+   * spot of data points claimed by several spots. The detected features do not depend on this
+   * setting.
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
   }
 
   /** {@inheritDoc} */
   @Override
   public FeatureTable execute() throws MSDKException {
+    ForkJoinPool pool = ParallelUtil.createPool(parallelism);
+    try {
+      return detectFeatures(pool);
+    } finally {
+      if (pool != null)
+        pool.shutdown();
+      localMaxima = null;
+    }
+  }
+
+  private FeatureTable detectFeatures(@Nullable ForkJoinPool pool) throws MSDKException {
 
     logger.info("Started GRIDMASS v1.0 [Apr-09-2014]");
 
@@ -131,6 +169,7 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     // Create new peak list
     newPeakList = new SimpleFeatureTable();
     newSample = new SimpleSample(rawDataFile.getName(), rawDataFile);
+    newPeakList.setSamples(Collections.singletonList(newSample));
 
     // If no scans, return
     if (scans.size() == 0) {
@@ -168,41 +207,44 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     // (3.1.3) if extension < mintime ==> mark all pixels with spot ID = -1
     // (4) Group spots within a time-tolerance and mass-tolerance
 
-    roi = new Datum[totalScans][];
-    ArrayList<Datum> roiAL = new ArrayList<Datum>();
+    roi = new ScanPoints[totalScans];
     long passed = 0, nopassed = 0;
     minMasa = Double.MAX_VALUE;
     maxMasa = 0;
-    int maxJ = 0;
     boolean[] scanOk = new boolean[totalScans];
     Arrays.fill(scanOk, true);
 
     logger.info(
         "Smoothing data points (Time min=" + smoothTimeSpan + "; Time m/z=" + smoothTimeMZ + ")");
-    IndexedDataPoint[][] data = smoothDataPoints(rawDataFile, smoothTimeSpan, smoothTimeMZ, 0,
-        smoothMZ, 0, minimumHeight, scans);
+    ScanPoints[] data = smoothDataPoints(rawDataFile, smoothTimeSpan, smoothTimeMZ, 0, smoothMZ,
+        0, minimumHeight, scans);
+    if (data == null)
+      return null;
 
     logger.info("Determining intensities (mass sum) per scan on " + rawDataFile);
+    final StringBuilder debugLine = new StringBuilder();
     for (i = 0; i < totalScans; i++) {
       if (canceled)
         return null;
       scan = scans.get(i);
-      IndexedDataPoint mzv[] = data[i]; // scan.getDataPoints();
-      double prev = (mzv.length > 0 ? mzv[0].datapoint.getMZ() : 0);
+      ScanPoints mzv = data[i]; // scan.getDataPoints();
+      double prev = (mzv.size > 0 ? mzv.mz[0] : 0);
       double massSum = 0;
-      for (j = 0; j < mzv.length; j++) {
-        if (mzv[j].datapoint.getIntensity() >= minimumHeight)
-          massSum += mzv[j].datapoint.getMZ() - prev;
-        prev = mzv[j].datapoint.getMZ();
-        if (mzv[j].datapoint.getMZ() < minMasa)
-          minMasa = mzv[j].datapoint.getMZ();
-        if (mzv[j].datapoint.getMZ() > maxMasa)
-          maxMasa = mzv[j].datapoint.getMZ();
+      for (j = 0; j < mzv.size; j++) {
+        if (mzv.intensity[j] >= minimumHeight)
+          massSum += mzv.mz[j] - prev;
+        prev = mzv.mz[j];
+        if (mzv.mz[j] < minMasa)
+          minMasa = mzv.mz[j];
+        if (mzv.mz[j] > maxMasa)
+          maxMasa = mzv.mz[j];
       }
       double dm = 100.0 / (maxMasa - minMasa);
       if (i % 30 == 0 && debug > 0) {
-        logger.debug("");
-        System.out.print("t=" + Math.round(retentiontime[i] * 100) / 100.0 + ": (in %) ");
+        if (debugLine.length() > 0)
+          logger.debug(debugLine.toString());
+        debugLine.setLength(0);
+        debugLine.append("t=" + Math.round(retentiontime[i] * 100) / 100.0 + ": (in %) ");
       }
       if (scanOk[i]) {
         if (!scanOk[i]) {
@@ -217,15 +259,19 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
           }
         }
         if (debug > 0)
-          System.out.print(((int) (massSum * dm)) + (scanOk[i] ? " " : "*** "));
+          debugLine.append(((int) (massSum * dm)) + (scanOk[i] ? " " : "*** "));
       } else {
         if (debug > 0)
-          System.out.print(((int) (massSum * dm)) + (scanOk[i] ? " " : "* "));
+          debugLine.append(((int) (massSum * dm)) + (scanOk[i] ? " " : "* "));
       }
     }
 
-    if (debug > 0)
-      logger.debug("");
+    if (debugLine.length() > 0)
+      logger.debug(debugLine.toString());
+
+    // The m/z tolerance is evaluated at the highest m/z of the data
+    Range<Double> mzTolRange = mzTolerance.getToleranceRange(maxMasa);
+    mzTol = (mzTolRange.upperEndpoint() - mzTolRange.lowerEndpoint()) / 2;
 
     String[] it = ignoreTimes.trim().split(", ?");
     for (j = 0; j < it.length; j++) {
@@ -248,23 +294,11 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
       if (canceled)
         return null;
       if (scanOk[i]) {
-        scan = scans.get(i);
-        IndexedDataPoint mzv[] = data[i];
-        DataPoint mzvOriginal[] = getCachedDataPoints(scan);
-        ArrayList<Datum> dal = new ArrayList<Datum>();
-        for (j = 0; j < mzv.length; j++) {
-          if (mzv[j].datapoint.getIntensity() >= minimumHeight) {
-            dal.add(new Datum(mzv[j].datapoint, i, mzvOriginal[mzv[j].index]));
-            passed++;
-          } else {
-            nopassed++;
-          }
-        }
-        if (j > maxJ)
-          maxJ = j;
-        roi[i] = dal.toArray(new Datum[0]);
-        roiAL.addAll(dal);
+        // The smoothed data only contain intensities >= minimumHeight
+        roi[i] = data[i];
+        passed += data[i].size;
       }
+      data[i] = null;
     }
     logger.info(passed + " intensities >= " + minimumHeight + " of " + (passed + nopassed) + " ("
         + Math.round(passed * 10000.0 / (double) (passed + nopassed)) / 100.0 + "%) on "
@@ -283,13 +317,12 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     double m;
     int ndata = (int) Math
         .round((((double) totalScans / (double) byScan) + 1) * ((maxMasa - minMasa + byMZ) / byMZ));
-    Probe probes[] = new Probe[ndata];
-    int idata = 0;
+    Probes probes = new Probes(ndata);
     for (i = 0; i < totalScans; i += byScan) {
       if (canceled)
         return null;
       for (m = minMasa - (i % 2) * byMZ / 2; m <= maxMasa; m += byMZ) {
-        probes[idata++] = new Probe(m, i);
+        probes.add(m, i);
       }
     }
 
@@ -297,50 +330,49 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     double mzR = byMZ / 2;
     int scanR = Math.max(byScan - 1, 2);
     logger.info("Finding local maxima for each probe radius: scans=" + scanR + ", m/z=" + mzR);
-    int okProbes = 0;
-    for (i = 0; i < idata; i++) {
-      if (canceled)
-        return null;
-      moveProbeToCenter(probes[i], scanR, mzR);
-      if (probes[i].intensityCenter < minimumHeight) {
-        probes[i] = null;
-      } else {
-        okProbes++;
+    if (pool == null) {
+      for (i = 0; i < probes.size; i++) {
+        if (canceled)
+          return null;
+        moveProbeToCenter(probes, i, scanR, mzR);
       }
-    }
-    if (okProbes > 0) {
-      Probe[] pArr = new Probe[okProbes];
-      for (okProbes = i = 0; i < idata; i++) {
-        if (probes[i] != null) {
-          pArr[okProbes++] = probes[i];
+    } else {
+      // Resolve the local maximum of every data point first, then each
+      // probe only needs to find the first maximum of its own window
+      final Probes allProbes = probes;
+      localMaxima = new LocalMaxima(roi, scanR, mzR);
+      if (!localMaxima.compute(pool, () -> canceled))
+        return null;
+      if (!LocalMaxima.forEachChunk(pool, allProbes.size, () -> canceled, (from, to) -> {
+        for (int p = from; p < to; p++) {
+          int center = localMaxima.getCenter(allProbes.mz[p], allProbes.scan[p]);
+          if (center >= 0)
+            setProbeCenter(allProbes, p, center);
         }
-      }
-      probes = pArr;
-      pArr = null;
+      }))
+        return null;
     }
     // (3) Assign spot id to each "center"
     logger.info("Sorting probes");
-    Arrays.sort(probes);
+    probes.retainAndSort(minimumHeight);
     logger.info("Assigning spot id to local maxima");
-    SpotByProbes sbp = new SpotByProbes();
+    SpotByProbes sbp = new SpotByProbes(probes);
     ArrayList<SpotByProbes> spots = new ArrayList<SpotByProbes>();
     double mzA = -1;
     int scanA = -1;
-    for (i = 0; i < probes.length; i++) {
-      if (probes[i] != null && probes[i].intensityCenter >= minimumHeight) {
-        if (probes[i].mzCenter != mzA || probes[i].scanCenter != scanA) {
-          if (canceled)
-            return null;
-          if (sbp.size() > 0) {
-            spots.add(sbp);
-            sbp.assignSpotId();
-          }
-          sbp = new SpotByProbes();
-          mzA = probes[i].mzCenter;
-          scanA = probes[i].scanCenter;
+    for (i = 0; i < probes.size; i++) {
+      if (probes.mzCenter[i] != mzA || probes.scanCenter[i] != scanA) {
+        if (canceled)
+          return null;
+        if (sbp.size() > 0) {
+          spots.add(sbp);
+          sbp.assignSpotId();
         }
-        sbp.addProbe(probes[i]);
+        sbp = new SpotByProbes(probes);
+        mzA = probes.mzCenter[i];
+        scanA = probes.scanCenter[i];
       }
+      sbp.addProbe(i);
     }
     if (sbp.size() > 0) {
       spots.add(sbp);
@@ -366,28 +398,28 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     int joins = 0;
     for (i = 0; i < spots.size() - 1; i++) {
       SpotByProbes s1 = spots.get(i);
-      if (s1.center != null && s1.size() > 0) {
+      if (s1.hasCenter() && s1.size() > 0) {
         if (canceled)
           return null;
-        for (j = i; j > 0 && j < spots.size() && spots.get(j - 1).center != null
-            && spots.get(j - 1).center.mzCenter + mzTol > s1.center.mzCenter; j--);
+        for (j = i; j > 0 && j < spots.size() && spots.get(j - 1).hasCenter()
+            && spots.get(j - 1).getCenterMz() + mzTol > s1.getCenterMz(); j--);
         for (; j < spots.size(); j++) {
           SpotByProbes s2 = spots.get(j);
-          if (i != j && s2.center != null) {
-            if (s2.center.mzCenter - s1.center.mzCenter > mzTol)
+          if (i != j && s2.hasCenter()) {
+            if (s2.getCenterMz() - s1.getCenterMz() > mzTol)
               break;
             int l = Math.min(Math.abs(s1.minScan - s2.minScan), Math.abs(s1.minScan - s2.maxScan));
             int r = Math.min(Math.abs(s1.maxScan - s2.minScan), Math.abs(s1.maxScan - s2.maxScan));
             int d = Math.min(l, r);
             boolean overlap = !(s2.maxScan < s1.minScan || s2.minScan > s1.maxScan);
-            if ((d <= criticScans || overlap) && (intensityRatio(s1.center.intensityCenter,
-                s2.center.intensityCenter) > intensitySimilarity)) {
+            if ((d <= criticScans || overlap) && (intensityRatio(s1.getCenterIntensity(),
+                s2.getCenterIntensity()) > intensitySimilarity)) {
               if (debug > 2)
-                logger.debug("Joining s1 id " + s1.spotId + "=" + s1.center.mzCenter + " mz ["
-                    + s1.minMZ + " ~ " + s1.maxMZ + "] time=" + retentiontime[s1.center.scanCenter]
-                    + " int=" + s1.center.intensityCenter + " with s2 id " + s2.spotId + "="
-                    + s2.center.mzCenter + " mz [" + s2.minMZ + " ~ " + s2.maxMZ + "] time="
-                    + retentiontime[s2.center.scanCenter] + " int=" + s2.center.intensityCenter);
+                logger.debug("Joining s1 id " + s1.spotId + "=" + s1.getCenterMz() + " mz ["
+                    + s1.minMZ + " ~ " + s1.maxMZ + "] time=" + retentiontime[s1.getCenterScan()]
+                    + " int=" + s1.getCenterIntensity() + " with s2 id " + s2.spotId + "="
+                    + s2.getCenterMz() + " mz [" + s2.minMZ + " ~ " + s2.maxMZ + "] time="
+                    + retentiontime[s2.getCenterScan()] + " int=" + s2.getCenterIntensity());
               assignSpotIdToDatumsFromSpotId(s1, s2, scanR, mzR);
               s1.addProbesFromSpot(s2, true);
               j = i; // restart
@@ -404,7 +436,7 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     logger.info("Removing long and comparable 'masses'");
     for (i = 0; i < spots.size() - 1; i++) {
       SpotByProbes s1 = spots.get(i);
-      if (s1.center != null && s1.size() > 0) {
+      if (s1.hasCenter() && s1.size() > 0) {
         if (canceled)
           return null;
         int totalScans = s1.maxScan - s1.minScan + 1;
@@ -412,15 +444,15 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
         int rScan = s1.maxScan;
         ArrayList<Integer> toRemove = new ArrayList<Integer>();
         toRemove.add(i);
-        for (j = i; j > 0 && j < spots.size() && spots.get(j - 1).center != null
-            && spots.get(j - 1).center.mzCenter + mzTol > s1.center.mzCenter; j--);
+        for (j = i; j > 0 && j < spots.size() && spots.get(j - 1).hasCenter()
+            && spots.get(j - 1).getCenterMz() + mzTol > s1.getCenterMz(); j--);
         for (; j < spots.size(); j++) {
           SpotByProbes s2 = spots.get(j);
-          if (i != j && s2.center != null) {
-            if (s2.center.mzCenter - s1.center.mzCenter > mzTol)
+          if (i != j && s2.hasCenter()) {
+            if (s2.getCenterMz() - s1.getCenterMz() > mzTol)
               break;
-            if (intensityRatio(s1.center.intensityCenter,
-                s2.center.intensityCenter) > intensitySimilarity) {
+            if (intensityRatio(s1.getCenterIntensity(),
+                s2.getCenterIntensity()) > intensitySimilarity) {
               int dl = Math.min(Math.abs(lScan - s2.minScan), Math.abs(lScan - s2.maxScan));
               int dr = Math.min(Math.abs(rScan - s2.minScan), Math.abs(rScan - s2.maxScan));
               int md = Math.min(dl, dr);
@@ -436,9 +468,9 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
         }
         if (totalScans * rtPerScan > maximumTimeSpan) {
           if (debug > 2)
-            logger.debug("Removing " + toRemove.size() + " masses around " + s1.center.mzCenter
-                + " m/z (" + s1.spotId + "), time " + retentiontime[s1.center.scanCenter]
-                + ", intensity " + s1.center.intensityCenter + ", Total Scans=" + totalScans + " ("
+            logger.debug("Removing " + toRemove.size() + " masses around " + s1.getCenterMz()
+                + " m/z (" + s1.spotId + "), time " + retentiontime[s1.getCenterScan()]
+                + ", intensity " + s1.getCenterIntensity() + ", Total Scans=" + totalScans + " ("
                 + Math.round(totalScans * rtPerScan * 1000.0) / 1000.0 + " min).");
           for (Integer J : toRemove) {
             // logger.debug("Removing: "+spots.get(J).spotId);
@@ -476,9 +508,9 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
               newRow.setFeature(newSample, newFeature);
               newPeakList.addRow(newRow);
               if (debug > 0)
-                logger.debug("Peak added id=" + sx.spotId + " " + sx.center.mzCenter + " mz, time="
-                    + retentiontime[sx.center.scanCenter] + ", intensity="
-                    + sx.center.intensityCenter + ", probes=" + sx.size() + ", data scans="
+                logger.debug("Peak added id=" + sx.spotId + " " + sx.getCenterMz() + " mz, time="
+                    + retentiontime[sx.getCenterScan()] + ", intensity="
+                    + sx.getCenterIntensity() + ", probes=" + sx.size() + ", data scans="
                     + sx.getMaxDatumScans() + ", cont scans=" + sx.getContigousMaxDatumScans()
                     + ", cont ratio=" + sx.getContigousToMaxDatumScansRatio());
               if (debug > 1) {
@@ -488,18 +520,18 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
               }
             } else {
               if (debug > 0)
-                logger.debug("Ignored by area ~ 0 id=" + sx.spotId + " " + sx.center.mzCenter
-                    + " mz, time=" + retentiontime[sx.center.scanCenter] + ", intensity="
-                    + sx.center.intensityCenter + ", probes=" + sx.size() + ", data scans="
+                logger.debug("Ignored by area ~ 0 id=" + sx.spotId + " " + sx.getCenterMz()
+                    + " mz, time=" + retentiontime[sx.getCenterScan()] + ", intensity="
+                    + sx.getCenterIntensity() + ", probes=" + sx.size() + ", data scans="
                     + sx.getMaxDatumScans() + ", cont scans=" + sx.getContigousMaxDatumScans()
                     + ", cont ratio=" + sx.getContigousToMaxDatumScansRatio());
             }
           }
         } else {
           if (debug > 0)
-            logger.debug("Ignored by continous criteria: id=" + sx.spotId + " " + sx.center.mzCenter
-                + " mz, time=" + retentiontime[sx.center.scanCenter] + ", intensity="
-                + sx.center.intensityCenter + ", probes=" + sx.size() + ", data scans="
+            logger.debug("Ignored by continous criteria: id=" + sx.spotId + " " + sx.getCenterMz()
+                + " mz, time=" + retentiontime[sx.getCenterScan()] + ", intensity="
+                + sx.getCenterIntensity() + ", probes=" + sx.size() + ", data scans="
                 + sx.getMaxDatumScans() + ", cont scans=" + sx.getContigousMaxDatumScans()
                 + ", cont ratio=" + sx.getContigousToMaxDatumScansRatio());
         }
@@ -507,9 +539,9 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
         if (sx.size() > 0) {
           if (debug > 0)
             logger
-                .debug("Ignored by time range criteria: id=" + sx.spotId + " " + sx.center.mzCenter
-                    + " mz, time=" + retentiontime[sx.center.scanCenter] + ", intensity="
-                    + sx.center.intensityCenter + ", probes=" + sx.size() + ", data scans="
+                .debug("Ignored by time range criteria: id=" + sx.spotId + " " + sx.getCenterMz()
+                    + " mz, time=" + retentiontime[sx.getCenterScan()] + ", intensity="
+                    + sx.getCenterIntensity() + ", probes=" + sx.size() + ", data scans="
                     + sx.getMaxDatumScans() + ", cont scans=" + sx.getContigousMaxDatumScans()
                     + ", cont ratio=" + sx.getContigousToMaxDatumScansRatio());
         }
@@ -524,16 +556,24 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     return Math.min(int1, int2) / Math.max(int1, int2);
   }
 
-  IndexedDataPoint[][] smoothDataPoints(RawDataFile dataFile, double timeSpan, double timeMZSpan,
+  /**
+   * Smooths the intensities of each scan over the neighbouring scans and returns the points with
+   * smoothed intensity >= minimumHeight. The original scan data are loaded only for the scans in
+   * the current smoothing window and released as soon as the window moves past them.
+   */
+  ScanPoints[] smoothDataPoints(RawDataFile dataFile, double timeSpan, double timeMZSpan,
       int scanSpan, double mzTol, int mzPoints, double minimumHeight, List<MsScan> scans) {
     int totalScans = scans.size();
-    DataPoint mzValues[][] = null; // [relative scan][j value]
-    DataPoint mzValuesJ[] = null;
+    double scanMz[][] = new double[totalScans][]; // [scan][j value]
+    float scanIntensity[][] = new float[totalScans][];
+    int released = 0;
+    double mzValuesJ[] = null;
     int mzValuesMZidx[] = null;
-    IndexedDataPoint newMZValues[][] = null;
-    IndexedDataPoint tmpDP[] = new IndexedDataPoint[0];
-    newMZValues = new IndexedDataPoint[totalScans][];
-    int i, j, si, sj, ii, k, ssi, ssj, m;
+    ScanPoints newMZValues[] = new ScanPoints[totalScans];
+    double tmpMz[] = new double[0];
+    float tmpIntensity[] = new float[0], tmpIntensityOriginal[] = new float[0];
+    int tmpIndex[] = new int[0];
+    int i, j, si, sj, k, ssi, ssj, m;
     double timeSmoothingMZtol = Math.max(timeMZSpan, 1e-6);
 
     int modts = Math.max(1, totalScans / 10);
@@ -546,8 +586,6 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
       // Smoothing in TIME space
       MsScan scan = scans.get(i);
       double rt = retentiontime[i];
-      DataPoint[] xDP = null;
-      IndexedDataPoint[] iDP = null;
       sj = si = i;
       ssi = ssj = i;
       int t = 0;
@@ -579,47 +617,53 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
           }
         }
         if (scan != null && sj > si) {
+          // Release the scans that are left behind by the window
+          for (; released < si; released++) {
+            scanMz[released] = null;
+            scanIntensity[released] = null;
+          }
           // Allocate
-          if (mzValues == null || mzValues.length < sj - si + 1) {
-            mzValues = new DataPoint[sj - si + 1][];
+          if (mzValuesMZidx == null || mzValuesMZidx.length < sj - si + 1) {
             mzValuesMZidx = new int[sj - si + 1];
           }
           // Load Data Points
           for (j = si; j <= sj; j++) {
-            int jsi = j - si;
-            if (mzValues[jsi] == null) {
-              // if (mzValues[jsi] == null || jsi >= mzValuesScan.length - 1 || mzValuesScan[jsi +
-              // 1] != scanNumbers[j]) {
+            if (scanMz[j] == null) {
               MsScan xscan = scans.get(j);
-              mzValues[jsi] = getCachedDataPoints(xscan);
-            } else {
-              mzValues[jsi] = mzValues[jsi + 1];
-              // mzValuesScan[jsi] = mzValuesScan[jsi + 1];
+              scanMz[j] = xscan.getMzValues();
+              scanIntensity[j] = xscan.getIntensityValues();
             }
-            mzValuesMZidx[jsi] = 0;
+            mzValuesMZidx[j - si] = 0;
           }
           // Estimate Averages
-          ii = i - si;
-          if (tmpDP.length < mzValues[ii].length)
-            tmpDP = new IndexedDataPoint[mzValues[ii].length * 3 / 2];
-          for (k = 0; k < mzValues[ii].length; k++) {
-            DataPoint dp = mzValues[ii][k];
-            double mz = dp.getMZ();
+          double iMz[] = scanMz[i];
+          float iIntensity[] = scanIntensity[i];
+          int iSize = iMz.length;
+          if (tmpMz.length < iSize) {
+            tmpMz = new double[iSize];
+            tmpIntensity = new float[iSize];
+            tmpIntensityOriginal = new float[iSize];
+            tmpIndex = new int[iSize];
+          }
+          for (k = 0; k < iSize; k++) {
+            double mz = iMz[k];
             double intensidad = 0;
-            if (dp.getIntensity() > 0) { // only process those > 0
+            if (iIntensity[k] > 0) { // only process those > 0
               double a = 0;
               short c = 0;
               int f = 0;
               for (j = 0; j <= sj - si; j++) {
-                for (mzValuesJ = mzValues[j]; mzValuesMZidx[j] < mzValuesJ.length - 1
-                    && mzValuesJ[mzValuesMZidx[j] + 1].getMZ() < mz
-                        - timeSmoothingMZtol; mzValuesMZidx[j]++);
+                mzValuesJ = scanMz[si + j];
+                float intensityJ[] = scanIntensity[si + j];
+                int lengthJ = mzValuesJ.length;
+                for (; mzValuesMZidx[j] < lengthJ - 1
+                    && mzValuesJ[mzValuesMZidx[j] + 1] < mz - timeSmoothingMZtol; mzValuesMZidx[j]++);
 
                 f = mzValuesMZidx[j];
 
-                for (m = mzValuesMZidx[j] + 1; m < mzValuesJ.length
-                    && mzValuesJ[m].getMZ() < mz + timeSmoothingMZtol; m++) {
-                  if (Math.abs(mzValuesJ[m].getMZ() - mz) < Math.abs(mzValuesJ[f].getMZ() - mz)) {
+                for (m = mzValuesMZidx[j] + 1; m < lengthJ
+                    && mzValuesJ[m] < mz + timeSmoothingMZtol; m++) {
+                  if (Math.abs(mzValuesJ[m] - mz) < Math.abs(mzValuesJ[f] - mz)) {
                     f = m;
                   } else {
                     // siempre debe ser mas cercano porque
@@ -628,40 +672,47 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
                     break;
                   }
                 }
-                if (f > 0 && f < mzValuesJ.length
-                    && Math.abs(mzValuesJ[f].getMZ() - mz) <= timeSmoothingMZtol
-                    && mzValuesJ[f].getIntensity() > 0) { // >=
+                if (f > 0 && f < lengthJ && Math.abs(mzValuesJ[f] - mz) <= timeSmoothingMZtol
+                    && intensityJ[f] > 0) { // >=
                   // minimumHeight
                   // ?
-                  // logger.debug("mz="+mz+"; Closer="+mzValuesJ[f].getMZ()+", f="+f+",
-                  // Intensity="+mzValuesJ[f].getIntensity());
-                  a += mzValuesJ[f].getIntensity();
+                  a += intensityJ[f];
                   c++;
                 }
               }
               intensidad = c > 0 ? a / c : 0;
               if (intensidad >= minimumHeight) {
-                tmpDP[t++] = new IndexedDataPoint(k, new DataPoint(mz, intensidad));
+                tmpMz[t] = mz;
+                tmpIntensity[t] = (float) intensidad;
+                tmpIntensityOriginal[t] = iIntensity[k];
+                tmpIndex[t] = k;
+                t++;
               }
             }
           }
 
         }
       } else if (scan != null) {
-        xDP = getCachedDataPoints(scan);
-        if (tmpDP.length < xDP.length)
-          tmpDP = new IndexedDataPoint[xDP.length];
-        for (k = 0; k < xDP.length; k++) {
-          if (xDP[k].getIntensity() >= minimumHeight) {
-            tmpDP[t++] = new IndexedDataPoint(k, xDP[k]);
+        double xMz[] = scan.getMzValues();
+        float xIntensity[] = scan.getIntensityValues();
+        int xSize = xMz.length;
+        if (tmpMz.length < xSize) {
+          tmpMz = new double[xSize];
+          tmpIntensity = new float[xSize];
+          tmpIntensityOriginal = new float[xSize];
+          tmpIndex = new int[xSize];
+        }
+        for (k = 0; k < xSize; k++) {
+          if (xIntensity[k] >= minimumHeight) {
+            tmpMz[t] = xMz[k];
+            tmpIntensity[t] = tmpIntensityOriginal[t] = xIntensity[k];
+            tmpIndex[t] = k;
+            t++;
           }
         }
       }
-      iDP = new IndexedDataPoint[t];
-      for (k = 0; k < t; k++) {
-        iDP[k] = tmpDP[k];
-      }
-      newMZValues[i] = iDP;
+      newMZValues[i] = new ScanPoints(i, Arrays.copyOf(tmpMz, t), Arrays.copyOf(tmpIntensity, t),
+          Arrays.copyOf(tmpIntensityOriginal, t), Arrays.copyOf(tmpIndex, t), t);
 
       if (i % modts == 0) {
         logger.info("Smoothing/Caching " + dataFile + "..." + (i / modts) * 10 + "%");
@@ -696,26 +747,32 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
 
     int i, j;
     int adds = 0;
+    float rtValues[] = new float[s.maxScan - s.minScan + 1];
+    double mzValues[] = new double[rtValues.length];
+    float intensityValues[] = new float[rtValues.length];
     for (i = s.minScan; i <= s.maxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        Datum max = new Datum(new DataPoint(0, -1), 0, new DataPoint(0, -1));
-        int idx = findFirstMass(s.minMZ, di);
-        for (j = idx; j < di.length && di[j].mz <= s.maxMZ; j++) {
-          Datum d = di[j];
-          if (d.spotId == s.spotId) {
-            if (d.intensity > max.intensity && d.mz >= s.minMZ && d.intensity > minimumHeight) {
-              max = d;
+      ScanPoints di = roi[i];
+      if (di != null && di.size > 0) {
+        int max = -1;
+        int idx = di.findFirstMass(s.minMZ);
+        for (j = idx; j < di.size && di.mz[j] <= s.maxMZ; j++) {
+          if (di.spotId[j] == s.spotId) {
+            if ((max < 0 || di.intensity[j] > di.intensity[max]) && di.mz[j] >= s.minMZ
+                && di.intensity[j] > minimumHeight) {
+              max = j;
             }
           }
         }
-        if (max.intensity > 0) {
+        if (max >= 0 && di.intensity[max] > 0) {
+          rtValues[adds] = scans.get(i).getRetentionTime();
+          mzValues[adds] = di.mz[max];
+          intensityValues[adds] = di.intensityOriginal[max];
           adds++;
-          peak.addDataPoint(scans.get(i).getRetentionTime(), max.mzOriginal,
-              new Float(max.intensityOriginal));
         }
       }
     }
+    if (adds > 0)
+      peak.setDataPoints(rtValues, mzValues, intensityValues, adds);
     return adds;
   }
 
@@ -723,27 +780,37 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
 
     int i, j;
     for (i = s.minScan; i <= s.maxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        int idx = findFirstMass(s.minMZ - mzRadius, di);
-        for (j = idx; j < di.length && di[j].mz <= s.maxMZ + mzRadius; j++) {
-          Datum d = di[j];
-          if (d.mz >= s.minMZ - mzRadius) {
-            if (d.spotId != 0) {
+      ScanPoints di = roi[i];
+      if (di != null && di.size > 0) {
+        int idx = di.findFirstMass(s.minMZ - mzRadius);
+        for (j = idx; j < di.size && di.mz[j] <= s.maxMZ + mzRadius; j++) {
+          if (di.mz[j] >= s.minMZ - mzRadius) {
+            if (di.spotId[j] != 0) {
               // Some spot already assigned this to it. Check
               // exactly who is the winner
-              Probe p = new Probe(d.mz, d.scan);
-              moveProbeToCenter(p, sRadius, mzRadius);
-              if (p.mzCenter == s.center.mzCenter && p.scanCenter == s.center.scanCenter) {
+              double mzCenter = di.mz[j];
+              int scanCenter = i;
+              if (localMaxima != null) {
+                int center = localMaxima.getCenter(i, j);
+                if (center >= 0) {
+                  scanCenter = localMaxima.findScan(center);
+                  mzCenter = roi[scanCenter].mz[center - localMaxima.getOffset(scanCenter)];
+                }
+              } else {
+                long center = findCenter(mzCenter, scanCenter, sRadius, mzRadius);
+                if (center >= 0) {
+                  scanCenter = (int) (center >>> 32);
+                  mzCenter = roi[scanCenter].mz[(int) center];
+                }
+              }
+              if (mzCenter == s.getCenterMz() && scanCenter == s.getCenterScan()) {
                 // This datum is actually MINE (s) !!!, this
                 // will happen to datums close to spot borders
                 // and that compete with other spot
-                // logger.debug("Reassigning spot to Id="+s.spotId+" from
-                // Spot:"+d.toString());
-                s.setSpotIdToDatum(d);
+                s.setSpotIdToDatum(di, j);
               }
             } else {
-              s.setSpotIdToDatum(d);
+              s.setSpotIdToDatum(di, j);
             }
           }
         }
@@ -760,199 +827,75 @@ public class GridMassMethod implements MSDKMethod<FeatureTable> {
     double minMZ = Math.min(s.minMZ, s2.minMZ);
     double maxMZ = Math.max(s.maxMZ, s2.maxMZ);
     for (i = Math.min(s.minScan, s2.minScan); i <= mxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        int idx = findFirstMass(minMZ - mzRadius, di);
-        for (j = idx; j < di.length && di[j].mz <= maxMZ + mzRadius; j++) {
-          Datum d = di[j];
-          if (d.spotId == oldSpotId) {
-            s.setSpotIdToDatum(d);
+      ScanPoints di = roi[i];
+      if (di != null && di.size > 0) {
+        int idx = di.findFirstMass(minMZ - mzRadius);
+        for (j = idx; j < di.size && di.mz[j] <= maxMZ + mzRadius; j++) {
+          if (di.spotId[j] == oldSpotId) {
+            s.setSpotIdToDatum(di, j);
           }
         }
       }
     }
   }
 
-  void moveProbeToCenter(Probe p, int sRadius, double mzRadius) {
-
-    int i, j, k;
-    double maxMZ, minMZ;
-    boolean move = true;
-    Datum max = new Datum(new DataPoint(0, -1), 0, new DataPoint(0, -1));
-    while (move) {
-      k = Math.min(totalScans - 1, p.scanCenter + sRadius);
-      for (i = Math.max(p.scanCenter - sRadius, 0); i <= k; i++) {
-        Datum[] di = roi[i];
-        if (di != null && di.length > 0) {
-          minMZ = p.mzCenter - mzRadius;
-          int idx = findFirstMass(minMZ, di);
-          maxMZ = p.mzCenter + mzRadius;
-          for (j = idx; j < di.length && di[j].mz <= maxMZ; j++) {
-            Datum d = di[j];
-            if (d.intensity > max.intensity && d.mz >= minMZ) {
-              max = d;
-            }
-          }
-        }
-      }
-      if (max.intensity >= 0 && (max.mz != p.mzCenter || max.scan != p.scanCenter)) {
-        p.mzCenter = max.mz;
-        p.scanCenter = max.scan;
-        p.intensityCenter = max.intensity;
-        // p.moves++;
-      } else {
-        move = false;
-      }
+  void moveProbeToCenter(Probes p, int probe, int sRadius, double mzRadius) {
+    long center = findCenter(p.mzCenter[probe], p.scanCenter[probe], sRadius, mzRadius);
+    if (center >= 0) {
+      ScanPoints di = roi[(int) (center >>> 32)];
+      p.mzCenter[probe] = di.mz[(int) center];
+      p.scanCenter[probe] = di.scan;
+      p.intensityCenter[probe] = di.intensity[(int) center];
     }
   }
 
-  double intensityForMZorScan(ArrayList<DatumExpand> deA, double mz, int scan) {
-    double h = -1;
-    int j;
-    for (j = 0; j < deA.size(); j++) {
-      DatumExpand de = deA.get(j);
-      if ((de.dato.scan == scan || de.dato.mz == mz) && de.dato.intensity > h) {
-        h = de.dato.intensity;
-      }
-    }
-    return h;
+  private void setProbeCenter(Probes p, int probe, int center) {
+    int scan = localMaxima.findScan(center);
+    int j = center - localMaxima.getOffset(scan);
+    p.mzCenter[probe] = roi[scan].mz[j];
+    p.scanCenter[probe] = scan;
+    p.intensityCenter[probe] = roi[scan].intensity[j];
   }
 
-  double[] massCenter(int l, int r, double min, double max) {
-    double x = 0;
-    double y = 0;
-    double sum = 0;
-    double maxValue = 0;
-    for (int i = l; i <= r; i++) {
-      DataPoint mzs[] = getCachedDataPoints(scans.get(i));
-      if (mzs != null) {
-        for (int j = findFirstMass(min, mzs); j < mzs.length; j++) {
-          double mass = mzs[j].getMZ();
-          if (mass >= min) {
-            if (mass <= max) {
-              double intensity = mzs[j].getIntensity();
-              if (intensity >= minimumHeight) {
-                x += i * intensity;
-                y += mass * intensity;
-                sum += intensity;
-                if (intensity > maxValue) {
-                  maxValue = intensity;
-                }
-              }
-            } else {
-              break;
+  /**
+   * Moves a probe from the given position to the closest local maximum. Returns the position of
+   * the maximum encoded as (scan &lt;&lt; 32 | point index), or -1 if the probe did not move.
+   */
+  long findCenter(double mzCenter, int scanCenter, int sRadius, double mzRadius) {
+
+    int i, j, k;
+    double maxMZ, minMZ;
+    long center = -1;
+    long max = -1;
+    double maxMz = 0;
+    int maxScan = 0;
+    float maxIntensity = -1;
+    while (true) {
+      k = Math.min(totalScans - 1, scanCenter + sRadius);
+      for (i = Math.max(scanCenter - sRadius, 0); i <= k; i++) {
+        ScanPoints di = roi[i];
+        if (di != null && di.size > 0) {
+          minMZ = mzCenter - mzRadius;
+          int idx = di.findFirstMass(minMZ);
+          maxMZ = mzCenter + mzRadius;
+          for (j = idx; j < di.size && di.mz[j] <= maxMZ; j++) {
+            if (di.intensity[j] > maxIntensity && di.mz[j] >= minMZ) {
+              max = ((long) i << 32) | j;
+              maxMz = di.mz[j];
+              maxScan = i;
+              maxIntensity = di.intensity[j];
             }
           }
         }
       }
-    }
-    if (sum > 0.0) {
-      x /= sum;
-      y /= sum;
-    }
-    return new double[] {x, y, maxValue};
-  }
-
-  static int findFirstMass(double mass, DataPoint mzValues[]) {
-    int l = 0;
-    int r = mzValues.length - 1;
-    int mid = 0;
-    while (l < r) {
-      mid = (r + l) / 2;
-      if (mzValues[mid].getMZ() > mass) {
-        r = mid - 1;
-      } else if (mzValues[mid].getMZ() < mass) {
-        l = mid + 1;
-      } else {
-        return mid;
-      }
-    }
-    while (l > 0 && mzValues[l].getMZ() > mass)
-      l--;
-    return l;
-  }
-
-  static int findFirstMass(double mass, Datum mzValues[]) {
-    return findFirstMass(mass, mzValues, 0, mzValues.length - 1);
-  }
-
-  static int findFirstMass(double mass, Datum mzValues[], int l, int r) {
-    int mid = 0;
-    while (l < r) {
-      mid = (r + l) / 2;
-      if (mzValues[mid].mz > mass) {
-        r = mid - 1;
-      } else if (mzValues[mid].mz < mass) {
-        l = mid + 1;
+      if (maxIntensity >= 0 && (maxMz != mzCenter || maxScan != scanCenter)) {
+        mzCenter = maxMz;
+        scanCenter = maxScan;
+        center = max;
       } else {
-        return mid;
-      }
-    }
-    while (l > 0 && mzValues[l].mz > mass)
-      l--;
-    return l;
-  }
-
-  Spot intensities(int l, int r, double min, double max, SimpleChromatogram chr,
-      PearsonCorrelation stats, int spotId) {
-    boolean passSpot = false;
-    Spot s = new Spot();
-    if (r >= scans.size())
-      r = scans.size() - 1;
-    if (l < 0)
-      l = 0;
-    for (int i = l; i <= r; i++) {
-      Datum mzs[] = roi[i];
-      if (mzs != null) {
-        Datum mzMax = null;
-        for (int j = findFirstMass(min, mzs); j < mzs.length; j++) {
-          double mass = mzs[j].mz;
-          double mjint = mzs[j].intensity;
-          if (mass >= min) {
-            if (mass <= max) {
-              if (mzs[j].spotId == spotId || passSpot) {
-                s.addPoint(i, mass, (mjint >= minimumHeight ? mjint : -mjint));
-                if (mjint >= minimumHeight) {
-                  if (mzMax == null || mjint > mzMax.intensity) {
-                    mzMax = mzs[j];
-                  }
-                }
-              } else {
-                if (mjint >= minimumHeight)
-                  s.pointsNoSpot++;
-              }
-            } else {
-              break;
-            }
-          }
-        }
-        if (chr != null && mzMax != null) {
-          // Add ONLY THE MAX INTENSITY PER SCAN
-          chr.addDataPoint(scans.get(i).getRetentionTime(), mzMax.mz, new Float(mzMax.intensity));
-        }
-        if (stats != null && mzMax != null) {
-          stats.enter(i, mzMax.mz);
-        }
+        return center;
       }
     }
-    return s;
-  }
-
-  DataPoint[] getCachedDataPoints(MsScan scan) {
-    if (dpCache == null)
-      dpCache = new HashMap<>();
-    DataPoint[] dp = dpCache.get(scan);
-    if (dp != null) {
-      return dp;
-    }
-    dp = new DataPoint[scan.getNumberOfDataPoints()];
-    double mzValues[] = scan.getMzValues();
-    float intensityValues[] = scan.getIntensityValues();
-    for (int i = 0; i < scan.getNumberOfDataPoints(); i++) {
-      dp[i] = new DataPoint(mzValues[i], intensityValues[i]);
-    }
-    dpCache.put(scan, dp);
-    return dp;
   }
 
   /** {@inheritDoc} */
@@ -0,0 +1,193 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.gridmass;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nonnull;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.util.ParallelUtil;
+
+/**
+ * Local maximum (the final probe center) of every data point of the region of interest, computed
+ * in parallel.
+ *
+ * A probe sitting on a data point moves to the first point with the highest intensity in its
+ * window, as long as that intensity is higher than its own. This defines a parent for each data
+ * point, and the parent links form a forest whose roots are the local maxima. The parents are
+ * computed independently for all points, and the roots are then resolved by following the links,
+ * so the result does not depend on the number of threads and is the same as moving each probe
+ * step by step.
+ */
+class LocalMaxima {
+
+  /**
+   * Part of a parallel loop, processing the indices from (inclusive) to (exclusive).
+   */
+  interface ChunkTask {
+    void run(int from, int to);
+  }
+
+  static final int CHUNK_SIZE = 4096;
+
+  private final @Nonnull ScanPoints roi[];
+  private final int sRadius;
+  private final double mzRadius;
+
+  // Global index of the first point of each scan; offsets[roi.length] is the number of points
+  private final @Nonnull int offsets[];
+
+  // First point with the highest intensity in the window of each point, and the local maximum
+  // reached from each point
+  private final @Nonnull int firstMaximum[], center[];
+
+  LocalMaxima(@Nonnull ScanPoints roi[], int sRadius, double mzRadius) {
+    this.roi = roi;
+    this.sRadius = sRadius;
+    this.mzRadius = mzRadius;
+    offsets = new int[roi.length + 1];
+    for (int i = 0; i < roi.length; i++)
+      offsets[i + 1] = offsets[i] + (roi[i] == null ? 0 : roi[i].size);
+    firstMaximum = new int[offsets[roi.length]];
+    center = new int[offsets[roi.length]];
+  }
+
+  /**
+   * Computes the local maxima of all points. Returns false if canceled.
+   */
+  boolean compute(@Nonnull ForkJoinPool pool, @Nonnull BooleanSupplier canceled)
+      throws MSDKException {
+
+    final int numOfPoints = center.length;
+
+    // Parent of each point: the first maximum of its window if it is higher than the point
+    // itself, otherwise the point is a root
+    if (!forEachChunk(pool, numOfPoints, canceled, (from, to) -> {
+      int scan = findScan(from);
+      for (int p = from; p < to; p++) {
+        while (offsets[scan + 1] <= p)
+          scan++;
+        final ScanPoints di = roi[scan];
+        final int j = p - offsets[scan];
+        final int max = findFirstMaximum(di.mz[j], scan);
+        firstMaximum[p] = max;
+        center[p] = (max >= 0) && (getIntensity(max) > di.intensity[j]) ? max : p;
+      }
+    }))
+      return false;
+
+    // Follow the parent links up to the roots. Only the roots are written in this pass, so the
+    // chunks can be processed in any order.
+    return forEachChunk(pool, numOfPoints, canceled, (from, to) -> {
+      for (int p = from; p < to; p++) {
+        int r = center[p];
+        while (center[r] != r)
+          r = center[r];
+        center[p] = r;
+      }
+    });
+  }
+
+  /**
+   * Returns the local maximum reached by a probe starting at the given position, as a global point
+   * index, or -1 if the probe does not move.
+   */
+  int getCenter(double mz, int scan) {
+    final int max = findFirstMaximum(mz, scan);
+    if (max < 0)
+      return -1;
+    return getCenterOfFirstMaximum(max, mz, scan);
+  }
+
+  /**
+   * Returns the local maximum reached by a probe starting at the given point, as a global point
+   * index, or -1 if the probe does not move.
+   */
+  int getCenter(int scan, int j) {
+    return getCenterOfFirstMaximum(firstMaximum[offsets[scan] + j], roi[scan].mz[j], scan);
+  }
+
+  private int getCenterOfFirstMaximum(int max, double mz, int scan) {
+    final int maxScan = findScan(max);
+    if ((roi[maxScan].mz[max - offsets[maxScan]] == mz) && (maxScan == scan))
+      return -1;
+    // The parent links compare against the current intensity, so continue from the first
+    // maximum
+    return center[max];
+  }
+
+  int findScan(int point) {
+    int low = 0, high = roi.length - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (offsets[mid] <= point)
+        low = mid;
+      else
+        high = mid - 1;
+    }
+    return low;
+  }
+
+  int getOffset(int scan) {
+    return offsets[scan];
+  }
+
+  private float getIntensity(int point) {
+    final int scan = findScan(point);
+    return roi[scan].intensity[point - offsets[scan]];
+  }
+
+  /**
+   * Returns the global index of the first point with the highest intensity in the window around
+   * the given position, or -1 if the window contains no points. Points are visited in the same
+   * order as in GridMassMethod.findCenter().
+   */
+  private int findFirstMaximum(double mzCenter, int scanCenter) {
+    int max = -1;
+    float maxIntensity = -1;
+    final int k = Math.min(roi.length - 1, scanCenter + sRadius);
+    final double minMZ = mzCenter - mzRadius;
+    final double maxMZ = mzCenter + mzRadius;
+    for (int i = Math.max(scanCenter - sRadius, 0); i <= k; i++) {
+      final ScanPoints di = roi[i];
+      if (di != null && di.size > 0) {
+        final int idx = di.findFirstMass(minMZ);
+        for (int j = idx; j < di.size && di.mz[j] <= maxMZ; j++) {
+          if (di.intensity[j] > maxIntensity && di.mz[j] >= minMZ) {
+            max = offsets[i] + j;
+            maxIntensity = di.intensity[j];
+          }
+        }
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Runs the given task over the range [0, size) split into chunks, using the given pool. The
+   * cancellation flag is checked before each chunk. Returns false if canceled.
+   */
+  static boolean forEachChunk(@Nonnull ForkJoinPool pool, int size,
+      @Nonnull BooleanSupplier canceled, @Nonnull ChunkTask task) throws MSDKException {
+    final int numOfChunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    ParallelUtil.forEachIndex(pool, 0, numOfChunks, c -> {
+      if (!canceled.getAsBoolean())
+        task.run(c * CHUNK_SIZE, Math.min(size, (c + 1) * CHUNK_SIZE));
+    });
+    return !canceled.getAsBoolean();
+  }
+
+}
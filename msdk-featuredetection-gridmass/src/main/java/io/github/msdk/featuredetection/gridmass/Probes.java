@@ -0,0 +1,117 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.gridmass;
+
+import java.util.Arrays;
+
+/**
+ * All probes of the GridMass grid, stored as parallel arrays. A probe starts at a grid position
+ * (mz, scan) and is moved to the closest local maximum (mzCenter, scanCenter).
+ */
+class Probes {
+
+  int size = 0;
+  double mz[];
+  int scan[];
+  double mzCenter[];
+  int scanCenter[];
+  float intensityCenter[];
+
+  Probes(int capacity) {
+    mz = new double[capacity];
+    scan = new int[capacity];
+    mzCenter = new double[capacity];
+    scanCenter = new int[capacity];
+    intensityCenter = new float[capacity];
+  }
+
+  void add(double probeMz, int probeScan) {
+    if (size == mz.length) {
+      int newCapacity = Math.max(16, size * 2);
+      mz = Arrays.copyOf(mz, newCapacity);
+      scan = Arrays.copyOf(scan, newCapacity);
+      mzCenter = Arrays.copyOf(mzCenter, newCapacity);
+      scanCenter = Arrays.copyOf(scanCenter, newCapacity);
+      intensityCenter = Arrays.copyOf(intensityCenter, newCapacity);
+    }
+    mz[size] = mzCenter[size] = probeMz;
+    scan[size] = scanCenter[size] = probeScan;
+    intensityCenter[size] = -1;
+    size++;
+  }
+
+  /**
+   * Compares two probes by their center m/z and then by their center scan.
+   */
+  int compareCenters(int a, int b) {
+    if (mzCenter[a] < mzCenter[b])
+      return -1;
+    if (mzCenter[a] > mzCenter[b])
+      return 1;
+    return Integer.compare(scanCenter[a], scanCenter[b]);
+  }
+
+  /**
+   * Keeps only the probes with center intensity of at least the given height, sorted by their
+   * centers. The sort is stable, so probes with the same center keep their grid order.
+   */
+  void retainAndSort(double minimumHeight) {
+    int order[] = new int[size];
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      if (intensityCenter[i] >= minimumHeight)
+        order[n++] = i;
+    }
+    order = Arrays.copyOf(order, n);
+    mergeSort(order, new int[n], 0, n);
+
+    double newMz[] = new double[n];
+    int newScan[] = new int[n];
+    double newMzCenter[] = new double[n];
+    int newScanCenter[] = new int[n];
+    float newIntensityCenter[] = new float[n];
+    for (int i = 0; i < n; i++) {
+      int p = order[i];
+      newMz[i] = mz[p];
+      newScan[i] = scan[p];
+      newMzCenter[i] = mzCenter[p];
+      newScanCenter[i] = scanCenter[p];
+      newIntensityCenter[i] = intensityCenter[p];
+    }
+    mz = newMz;
+    scan = newScan;
+    mzCenter = newMzCenter;
+    scanCenter = newScanCenter;
+    intensityCenter = newIntensityCenter;
+    size = n;
+  }
+
+  private void mergeSort(int a[], int tmp[], int from, int to) {
+    if (to - from < 2)
+      return;
+    int mid = (from + to) >>> 1;
+    mergeSort(a, tmp, from, mid);
+    mergeSort(a, tmp, mid, to);
+    if (compareCenters(a[mid - 1], a[mid]) <= 0)
+      return;
+    System.arraycopy(a, from, tmp, from, to - from);
+    int i = from, j = mid, k = from;
+    while (i < mid && j < to)
+      a[k++] = compareCenters(tmp[j], tmp[i]) < 0 ? tmp[j++] : tmp[i++];
+    while (i < mid)
+      a[k++] = tmp[i++];
+    while (j < to)
+      a[k++] = tmp[j++];
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.featuredetection.gridmass;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Data points of a single scan that passed the intensity threshold, stored in parallel arrays
+ * sorted by m/z. Replaces the former per-point Datum and IndexedDataPoint objects.
+ */
+class ScanPoints {
+
+  final int scan;
+  final int size;
+
+  // m/z values (the smoothing does not change them)
+  final @Nonnull double mz[];
+
+  // Smoothed and original intensities
+  final @Nonnull float intensity[];
+  final @Nonnull float intensityOriginal[];
+
+  // Index of each point in the original scan
+  final @Nonnull int index[];
+
+  // Spot assigned to each point, 0 if none
+  final @Nonnull int spotId[];
+
+  ScanPoints(int scan, @Nonnull double mz[], @Nonnull float intensity[],
+      @Nonnull float intensityOriginal[], @Nonnull int index[], int size) {
+    this.scan = scan;
+    this.size = size;
+    this.mz = mz;
+    this.intensity = intensity;
+    this.intensityOriginal = intensityOriginal;
+    this.index = index;
+    this.spotId = new int[size];
+  }
+
+  /**
+   * Returns the position of the first point with m/z not smaller than the given mass, or a
+   * position slightly before it. Callers must still check the m/z of the returned point.
+   */
+  int findFirstMass(double mass) {
+    int l = 0;
+    int r = size - 1;
+    int mid = 0;
+    while (l < r) {
+      mid = (r + l) / 2;
+      if (mz[mid] > mass) {
+        r = mid - 1;
+      } else if (mz[mid] < mass) {
+        l = mid + 1;
+      } else {
+        return mid;
+      }
+    }
+    while (l > 0 && mz[l] > mass)
+      l--;
+    return l;
+  }
+
+}
@@ -18,7 +18,7 @@
 
 package io.github.msdk.featuredetection.gridmass;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,7 +28,10 @@ class SpotByProbes implements Comparable<SpotByProbes> {
 
   private Logger logger = LoggerFactory.getLogger(this.getClass());
 
-  ArrayList<Probe> probes = new ArrayList<Probe>();
+  // Indices into the probe arrays
+  final Probes allProbes;
+  int probes[] = new int[4];
+  int numOfProbes = 0;
   int minScan = Integer.MAX_VALUE;
   int maxScan = Integer.MIN_VALUE;
   double maxMZ = Double.NEGATIVE_INFINITY;
@@ -37,11 +40,16 @@ class SpotByProbes implements Comparable<SpotByProbes> {
   double maxIntensity = Double.NEGATIVE_INFINITY;
   static int sid = 0;
   int spotId = -1;
-  Probe center = null;
+  int center = -1;
   int consecutiveScans = 0;
-  ArrayList<Datum> maxDatums = null;
 
-  SpotByProbes() {}
+  // Scan range and count of the per-scan maxima, see buildMaxDatumFromScans()
+  int maxDatums = 0;
+  int firstMaxDatumScan, lastMaxDatumScan;
+
+  SpotByProbes(Probes allProbes) {
+    this.allProbes = allProbes;
+  }
 
   void assignSpotId() {
     if (spotId < 0) {
@@ -51,68 +59,85 @@ class SpotByProbes implements Comparable<SpotByProbes> {
   }
 
   int size() {
-    return probes.size();
+    return numOfProbes;
+  }
+
+  boolean hasCenter() {
+    return center >= 0;
+  }
+
+  double getCenterMz() {
+    return allProbes.mzCenter[center];
+  }
+
+  int getCenterScan() {
+    return allProbes.scanCenter[center];
+  }
+
+  float getCenterIntensity() {
+    return allProbes.intensityCenter[center];
   }
 
-  /**
-   * <p>compareTo.</p>
-   *
-   * @param other a {@link io.github.msdk.featuredetection.gridmass.SpotByProbes} object.
-   * @return a int.
-   */
   public int compareTo(SpotByProbes other) {
-    if (other == null || other.center == null)
+    if (other == null || other.center < 0)
       return -1;
-    return this.center.compareTo(other.center);
+    return allProbes.compareCenters(center, other.center);
   }
 
-  void addProbe(Probe p) {
-    probes.add(p);
-    if (center == null)
+  void addProbe(int p) {
+    if (numOfProbes == probes.length)
+      probes = Arrays.copyOf(probes, numOfProbes * 2);
+    probes[numOfProbes++] = p;
+    if (center < 0)
       center = p;
-    if (p.mz > maxMZ)
-      maxMZ = p.mz;
-    if (p.mz < minMZ)
-      minMZ = p.mz;
-    if (p.mzCenter > maxMZ)
-      maxMZ = p.mzCenter;
-    if (p.mzCenter < minMZ)
-      minMZ = p.mzCenter;
-    if (p.scan > maxScan)
-      maxScan = p.scan;
-    if (p.scan < minScan)
-      minScan = p.scan;
-    if (p.scanCenter > maxScan)
-      maxScan = p.scanCenter;
-    if (p.scanCenter < minScan)
-      minScan = p.scanCenter;
-    if (p.intensityCenter > maxIntensity)
-      maxIntensity = p.intensityCenter;
-    if (p.intensityCenter < minIntensity)
-      minIntensity = p.intensityCenter;
-  }
-
-  void setSpotIdToDatum(Datum d) {
-    d.spotId = spotId;
-    if (d.mz > maxMZ)
-      maxMZ = d.mz;
-    if (d.mz < minMZ)
-      minMZ = d.mz;
-    if (d.scan > maxScan)
-      maxScan = d.scan;
-    if (d.scan < minScan)
-      minScan = d.scan;
-    if (d.intensity > maxIntensity)
-      maxIntensity = d.intensity;
-    if (d.intensity < minIntensity)
-      minIntensity = d.intensity;
+    final double mz = allProbes.mz[p], mzCenter = allProbes.mzCenter[p];
+    final int scan = allProbes.scan[p], scanCenter = allProbes.scanCenter[p];
+    final float intensityCenter = allProbes.intensityCenter[p];
+    if (mz > maxMZ)
+      maxMZ = mz;
+    if (mz < minMZ)
+      minMZ = mz;
+    if (mzCenter > maxMZ)
+      maxMZ = mzCenter;
+    if (mzCenter < minMZ)
+      minMZ = mzCenter;
+    if (scan > maxScan)
+      maxScan = scan;
+    if (scan < minScan)
+      minScan = scan;
+    if (scanCenter > maxScan)
+      maxScan = scanCenter;
+    if (scanCenter < minScan)
+      minScan = scanCenter;
+    if (intensityCenter > maxIntensity)
+      maxIntensity = intensityCenter;
+    if (intensityCenter < minIntensity)
+      minIntensity = intensityCenter;
+  }
+
+  void setSpotIdToDatum(ScanPoints points, int j) {
+    points.spotId[j] = spotId;
+    final double mz = points.mz[j];
+    final float intensity = points.intensity[j];
+    if (mz > maxMZ)
+      maxMZ = mz;
+    if (mz < minMZ)
+      minMZ = mz;
+    if (points.scan > maxScan)
+      maxScan = points.scan;
+    if (points.scan < minScan)
+      minScan = points.scan;
+    if (intensity > maxIntensity)
+      maxIntensity = intensity;
+    if (intensity < minIntensity)
+      minIntensity = intensity;
   }
 
   void addProbesFromSpot(SpotByProbes sbp, boolean clear) {
-    for (Probe p : sbp.probes) {
-      addProbe(p);
+    for (int i = 0; i < sbp.numOfProbes; i++) {
+      addProbe(sbp.probes[i]);
     }
-    if (center.intensityCenter < sbp.center.intensityCenter)
+    if (getCenterIntensity() < sbp.getCenterIntensity())
       center = sbp.center;
     if (clear) {
       sbp.clear();
@@ -120,8 +145,9 @@ class SpotByProbes implements Comparable<SpotByProbes> {
   }
 
   void clear() {
-    probes.clear();
-    center = null;
+    probes = new int[4];
+    numOfProbes = 0;
+    center = -1;
     spotId = -1;
     minScan = Integer.MAX_VALUE;
     maxScan = Integer.MIN_VALUE;
@@ -131,77 +157,63 @@ class SpotByProbes implements Comparable<SpotByProbes> {
     maxIntensity = Double.NEGATIVE_INFINITY;
   }
 
-  /**
-   * <p>toString.</p>
-   *
-   * @return a {@link java.lang.String} object.
-   */
   public String toString() {
     return spotId + " : "
-        + (center != null
-            ? "MZ=" + Math.round(center.mzCenter * 10000) / 10000.0 + ", Scan=" + center.scanCenter
-                + ", Intensity=" + Math.round(center.intensityCenter * 10) / 10.0 + ", "
+        + (center >= 0
+            ? "MZ=" + Math.round(getCenterMz() * 10000) / 10000.0 + ", Scan=" + getCenterScan()
+                + ", Intensity=" + Math.round(getCenterIntensity() * 10) / 10.0 + ", "
             : "")
         + "Scans=[" + minScan + "~" + maxScan + "],  MZ=[" + Math.round(minMZ * 10000) / 10000.0
         + "~" + Math.round(maxMZ * 10000) / 10000.0 + "]";
   }
 
-  /**
-   * <p>toString.</p>
-   *
-   * @param rettimes an array of double.
-   * @return a {@link java.lang.String} object.
-   */
   public String toString(double[] rettimes) {
     return spotId + " : "
-        + (center != null ? "MZ=" + Math.round(center.mzCenter * 10000) / 10000.0 + ", Time="
-            + Math.round(rettimes[center.scanCenter] * 1000.0) / 1000.0 + ", Intensity="
-            + Math.round(center.intensityCenter * 10) / 10.0 + ", " : "")
+        + (center >= 0 ? "MZ=" + Math.round(getCenterMz() * 10000) / 10000.0 + ", Time="
+            + Math.round(rettimes[getCenterScan()] * 1000.0) / 1000.0 + ", Intensity="
+            + Math.round(getCenterIntensity() * 10) / 10.0 + ", " : "")
         + "Times=[" + Math.round(rettimes[minScan] * 1000.0) / 1000.0 + "~"
         + Math.round(rettimes[maxScan] * 1000.0) / 1000.0 + "],  MZ=["
         + Math.round(minMZ * 10000) / 10000.0 + "~" + Math.round(maxMZ * 10000) / 10000.0 + "]";
   }
 
-  /**
-   * <p>printDebugInfo.</p>
-   */
   public void printDebugInfo() {
     logger.debug("*** SpotId : " + spotId + " ***");
-    for (Probe p : probes) {
-      logger.debug("SpotId=" + spotId + ", Probe Scan=" + p.scan + ", Probe m/z=" + p.mz
-          + " Feature Scan=" + p.scanCenter + ", Feature m/z=" + p.mzCenter);
+    for (int i = 0; i < numOfProbes; i++) {
+      int p = probes[i];
+      logger.debug("SpotId=" + spotId + ", Probe Scan=" + allProbes.scan[p] + ", Probe m/z="
+          + allProbes.mz[p] + " Feature Scan=" + allProbes.scanCenter[p] + ", Feature m/z="
+          + allProbes.mzCenter[p]);
     }
   }
 
-  void buildMaxDatumFromScans(Datum[][] roi, double minimumHeight) {
+  void buildMaxDatumFromScans(ScanPoints[] roi, double minimumHeight) {
 
     int i, j;
-    ArrayList<Datum> mxD = new ArrayList<Datum>();
     int cont = 0;
+    maxDatums = 0;
     consecutiveScans = 0;
     double theMinMZ = minMZ;// - mzTol;
     double theMaxMZ = maxMZ;// + mzTol;
     for (i = minScan; i <= maxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        Datum max = null;
-        int idx = GridMassMethod.findFirstMass(theMinMZ, di);
-        for (j = idx; j < di.length && di[j].mz <= theMaxMZ; j++) {
-          Datum d = di[j];
-          if (d.spotId == spotId) {
-            if ((max == null || d.intensity > max.intensity) && d.intensity > minimumHeight) { // d.mz
-                                                                                               // >=
-              // theMinMZ &&
-              // (it is
-              // already
-              // assigned to
-              // spotid)
-              max = d;
+      ScanPoints di = roi[i];
+      if (di != null && di.size > 0) {
+        int max = -1;
+        int idx = di.findFirstMass(theMinMZ);
+        for (j = idx; j < di.size && di.mz[j] <= theMaxMZ; j++) {
+          // d.mz >= theMinMZ is not checked (it is already assigned to spotid)
+          if (di.spotId[j] == spotId) {
+            if ((max < 0 || di.intensity[j] > di.intensity[max])
+                && di.intensity[j] > minimumHeight) {
+              max = j;
             }
           }
         }
-        if (max != null && max.intensity > 0) {
-          mxD.add(max);
+        if (max >= 0 && di.intensity[max] > 0) {
+          if (maxDatums == 0)
+            firstMaxDatumScan = i;
+          lastMaxDatumScan = i;
+          maxDatums++;
           cont++;
         } else {
           cont = 0;
@@ -212,21 +224,19 @@ class SpotByProbes implements Comparable<SpotByProbes> {
       if (cont > consecutiveScans)
         consecutiveScans = cont;
     }
-    maxDatums = mxD;
 
   }
 
   int getMaxDatumScans() {
-    return (maxDatums == null || maxDatums.size() == 0 ? 0
-        : maxDatums.get(maxDatums.size() - 1).scan - maxDatums.get(0).scan + 1); // maxDatums.size()
+    return (maxDatums == 0 ? 0 : lastMaxDatumScan - firstMaxDatumScan + 1);
   }
 
   int getContigousMaxDatumScans() {
-    return (maxDatums == null || maxDatums.size() == 0 ? 0 : consecutiveScans);
+    return (maxDatums == 0 ? 0 : consecutiveScans);
   }
 
   float getContigousToMaxDatumScansRatio() {
-    if (maxDatums == null || maxDatums.size() == 0)
+    if (maxDatums == 0)
       return 0;
     return ((float) getContigousMaxDatumScans() / (float) getMaxDatumScans());
   }
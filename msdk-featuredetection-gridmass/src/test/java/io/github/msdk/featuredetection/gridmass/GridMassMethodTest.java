@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.gridmass;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.Feature;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.tolerances.MaximumMzTolerance;
+
+public class GridMassMethodTest {
+
+  // m/z, apex scan and height of the synthetic peaks
+  private static final double peakMz[] = {150.0512, 300.1234, 450.2468};
+  private static final int peakScan[] = {50, 100, 150};
+  private static final float peakHeight[] = {1e5f, 5e4f, 2e5f};
+
+  /**
+   * Generates 200 scans of noise (intensity below 100) with three Gaussian peaks.
+   */
+  static RawDataFile createSyntheticFile() {
+    Random random = new Random(7);
+    SimpleRawDataFile rawFile =
+        new SimpleRawDataFile("synthetic", Optional.empty(), FileType.UNKNOWN);
+    for (int i = 0; i < 200; i++) {
+      double mzValues[] = new double[103];
+      float intensityValues[] = new float[103];
+      int size = 0;
+      for (int k = 0; k < 100; k++) {
+        double mz = 100.0 + k * 4.0;
+        for (int p = 0; p < peakMz.length; p++) {
+          if ((peakMz[p] > mz - 4.0) && (peakMz[p] <= mz)) {
+            double d = (i - peakScan[p]) / 6.0;
+            mzValues[size] = peakMz[p];
+            intensityValues[size++] = (float) (peakHeight[p] * Math.exp(-d * d / 2));
+          }
+        }
+        mzValues[size] = mz + random.nextDouble() * 0.01;
+        intensityValues[size++] = random.nextFloat() * 100f;
+      }
+      SimpleMsScan scan = new SimpleMsScan(i + 1);
+      scan.setMsLevel(1);
+      scan.setRetentionTime(i * 1.0f);
+      scan.setDataPoints(mzValues, intensityValues, size);
+      rawFile.addScan(scan);
+    }
+    return rawFile;
+  }
+
+  @Test
+  public void testSyntheticPeaks() throws Exception {
+
+    RawDataFile rawFile = createSyntheticFile();
+
+    GridMassMethod method = new GridMassMethod(rawFile, rawFile.getScans(),
+        new MaximumMzTolerance(0.005, 10.0), 0.5, 5.0, 60.0, 0.0, 0.01, 0.01, 1.0, 500.0, 1.0);
+    FeatureTable featureTable = method.execute();
+    Assert.assertNotNull(featureTable);
+
+    Assert.assertEquals(3, featureTable.getRows().size());
+    for (int p = 0; p < peakMz.length; p++) {
+      FeatureTableRow row = featureTable.getRows().get(p);
+      Chromatogram chromatogram = row.getFeature(0).getChromatogram();
+      Assert.assertEquals(peakMz[p], chromatogram.getMzValues()[0], 0.0001);
+      Assert.assertEquals(peakHeight[p], row.getFeature(0).getHeight(), peakHeight[p] * 0.01);
+      float rtValues[] = chromatogram.getRetentionTimes();
+      int n = chromatogram.getNumberOfDataPoints();
+      Assert.assertTrue(rtValues[0] < peakScan[p]);
+      Assert.assertTrue(rtValues[n - 1] > peakScan[p]);
+    }
+  }
+
+  @Test
+  public void testParallel() throws Exception {
+
+    RawDataFile rawFile = createSyntheticFile();
+
+    GridMassMethod serialMethod = new GridMassMethod(rawFile, rawFile.getScans(),
+        new MaximumMzTolerance(0.005, 10.0), 0.5, 5.0, 60.0, 6.0, 0.01, 0.01, 1.0, 500.0, 1.0);
+    FeatureTable serialTable = serialMethod.execute();
+
+    GridMassMethod parallelMethod = new GridMassMethod(rawFile, rawFile.getScans(),
+        new MaximumMzTolerance(0.005, 10.0), 0.5, 5.0, 60.0, 6.0, 0.01, 0.01, 1.0, 500.0, 1.0);
+    parallelMethod.setParallelism(4);
+    FeatureTable parallelTable = parallelMethod.execute();
+
+    Assert.assertEquals(serialTable.getRows().size(), parallelTable.getRows().size());
+    for (int i = 0; i < serialTable.getRows().size(); i++) {
+      Feature serialFeature = serialTable.getRows().get(i).getFeature(0);
+      Feature parallelFeature = parallelTable.getRows().get(i).getFeature(0);
+      Assert.assertEquals(serialFeature.getMz(), parallelFeature.getMz());
+      Assert.assertEquals(serialFeature.getRetentionTime(), parallelFeature.getRetentionTime());
+      Assert.assertEquals(serialFeature.getArea(), parallelFeature.getArea());
+    }
+  }
+
+}
@@ -15,12 +15,15 @@ package io.github.msdk.featuredetection.msmsdetection;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.IonAnnotation;
@@ -121,6 +124,12 @@ public class MsMsDetectionMethod implements MSDKMethod<List<IonAnnotation>> {
       processedScans++;
     }
 
+    // Only the first processedScans rows were filled (scans without a
+    // precursor m/z are skipped)
+    final int numOfEntries = processedScans;
+    if (numOfEntries < totalScans)
+      scanData = Arrays.copyOf(scanData, numOfEntries);
+
     // Sort the array descending based on total intensity
     Arrays.sort(scanData, new Comparator<double[]>() {
       @Override
@@ -131,51 +140,88 @@ public class MsMsDetectionMethod implements MSDKMethod<List<IonAnnotation>> {
       }
     });
 
+    // Calculate the tolerance windows once for each entry. The largest
+    // window determines the cell size of the grid.
+    final double mzValues[] = new double[numOfEntries];
+    final float rtValues[] = new float[numOfEntries];
+    final double mzLow[] = new double[numOfEntries], mzHigh[] = new double[numOfEntries];
+    final float rtLow[] = new float[numOfEntries], rtHigh[] = new float[numOfEntries];
+    double mzCellSize = 0, rtCellSize = 0;
+    for (int i = 0; i < numOfEntries; i++) {
+      mzValues[i] = scanData[i][0];
+      rtValues[i] = (float) scanData[i][1];
+      Range<Double> mzRange = mzTolerance.getToleranceRange(mzValues[i]);
+      Range<Float> rtRange = rtTolerance.getToleranceRange(rtValues[i]);
+      mzLow[i] = mzRange.lowerEndpoint();
+      mzHigh[i] = mzRange.upperEndpoint();
+      rtLow[i] = rtRange.lowerEndpoint();
+      rtHigh[i] = rtRange.upperEndpoint();
+      mzCellSize = Math.max(mzCellSize, mzHigh[i] - mzLow[i]);
+      rtCellSize = Math.max(rtCellSize, rtHigh[i] - rtLow[i]);
+    }
+    final PrecursorGrid grid =
+        new PrecursorGrid(mzValues, rtValues, numOfEntries, mzCellSize, rtCellSize);
+
     // Loop through the array and find duplicates within the m/z and RT
-    // tolerances
-    List<Integer> removeEntries = new ArrayList<>();
-    for (int firstIndex = 0; firstIndex < scanData.length; firstIndex++) {
+    // tolerances. Each entry removes all entries with lower intensity
+    // inside its tolerance window, which can only be located in the grid
+    // cells overlapping that window.
+    final BitSet removeEntries = new BitSet(numOfEntries);
+    for (int firstIndex = 0; firstIndex < numOfEntries; firstIndex++) {
 
-      double floatMz1 = scanData[firstIndex][0];
-      float floatRt1 = (float) scanData[firstIndex][1];
+      if (canceled)
+        return null;
+
+      final long mzCellLow = grid.getMzCell(mzLow[firstIndex]);
+      final long mzCellHigh = grid.getMzCell(mzHigh[firstIndex]);
+      final long rtCellLow = grid.getRtCell(rtLow[firstIndex]);
+      final long rtCellHigh = grid.getRtCell(rtHigh[firstIndex]);
 
-      // Loop through all the entries with lower intensity
-      for (int secondIndex = firstIndex + 1; secondIndex < scanData.length; secondIndex++) {
+      for (long mzCell = mzCellLow; mzCell <= mzCellHigh; mzCell++) {
+        for (long rtCell = rtCellLow; rtCell <= rtCellHigh; rtCell++) {
 
-        if (removeEntries.contains(secondIndex))
-          continue;
+          final int cell = grid.findCell(mzCell, rtCell);
+          if (cell < 0)
+            continue;
 
-        double floatMz2 = scanData[secondIndex][0];
-        float floatRt2 = (float) scanData[secondIndex][1];
+          for (int p = grid.getCellStart(cell); p < grid.getCellEnd(cell); p++) {
 
-        // Compare m/z
-        final boolean sameMz = mzTolerance.getToleranceRange(floatMz1).contains(floatMz2);
+            // Only entries with lower intensity
+            final int secondIndex = grid.getPoint(p);
+            if ((secondIndex <= firstIndex) || removeEntries.get(secondIndex))
+              continue;
 
-        // Compare RT
-        final boolean sameRt = rtTolerance.getToleranceRange(floatRt1).contains(floatRt2);
+            // Compare m/z
+            final boolean sameMz = (mzValues[secondIndex] >= mzLow[firstIndex])
+                && (mzValues[secondIndex] <= mzHigh[firstIndex]);
 
-        // Same feature?
-        if (sameMz && sameRt) {
-          removeEntries.add(secondIndex);
+            // Compare RT
+            final boolean sameRt = (rtValues[secondIndex] >= rtLow[firstIndex])
+                && (rtValues[secondIndex] <= rtHigh[firstIndex]);
+
+            // Same feature?
+            if (sameMz && sameRt) {
+              removeEntries.set(secondIndex);
+            }
+          }
         }
       }
 
     }
 
     // Add the unique entries to the result list
-    for (int i = 0; i < scanData.length; i++) {
-      if (!removeEntries.contains(i)) {
-        double mzValue = scanData[i][0];
-        float rtValue = (float) scanData[i][1];
-
-        // Create ion
-        SimpleIonAnnotation ionAnnotation = new SimpleIonAnnotation();
-        ionAnnotation.setExpectedMz(mzValue);
-        ionAnnotation.setExpectedRetentionTime(rtValue);
-
-        // add the ion to the result
-        result.add(ionAnnotation);
-      }
+    for (int i = removeEntries.nextClearBit(0); i < numOfEntries; i =
+        removeEntries.nextClearBit(i + 1)) {
+      double mzValue = mzValues[i];
+      float rtValue = rtValues[i];
+
+      // Create ion
+      SimpleIonAnnotation ionAnnotation = new SimpleIonAnnotation();
+      ionAnnotation.setExpectedMz(mzValue);
+      ionAnnotation.setExpectedRetentionTime(rtValue);
+
+      // add the ion to the result
+      result.add(ionAnnotation);
     }
 
     return result;
@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.msmsdetection;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Bucket index over (precursor m/z, RT) points. The cell size in each dimension is at least the
+ * widest tolerance window of all points, so the window of any point overlaps at most two cells per
+ * dimension. Cells are stored in a compressed form (sorted cell coordinates plus offsets into a
+ * single array of point indices), and the points inside each cell are kept in ascending index
+ * order.
+ */
+class PrecursorGrid {
+
+  private final double mzCellSize, rtCellSize;
+
+  // Sorted unique cell coordinates
+  private final long cellMz[], cellRt[];
+
+  // Points of cell i are cellPoints[cellStart[i]] ... cellPoints[cellStart[i + 1] - 1]
+  private final int cellStart[], cellPoints[];
+
+  /**
+   * <p>
+   * Constructor for PrecursorGrid.
+   * </p>
+   *
+   * @param mzValues m/z values of the points
+   * @param rtValues RT values of the points
+   * @param numOfPoints number of valid points in the arrays
+   * @param mzCellSize cell size in the m/z dimension
+   * @param rtCellSize cell size in the RT dimension
+   */
+  PrecursorGrid(@Nonnull double mzValues[], @Nonnull float rtValues[], int numOfPoints,
+      double mzCellSize, double rtCellSize) {
+
+    this.mzCellSize = mzCellSize > 0 ? mzCellSize : 1.0;
+    this.rtCellSize = rtCellSize > 0 ? rtCellSize : 1.0;
+
+    final long pointMz[] = new long[numOfPoints];
+    final long pointRt[] = new long[numOfPoints];
+    for (int i = 0; i < numOfPoints; i++) {
+      pointMz[i] = getMzCell(mzValues[i]);
+      pointRt[i] = getRtCell(rtValues[i]);
+    }
+
+    // Sort the point indices by cell, keeping the index order inside each cell
+    Integer order[] = new Integer[numOfPoints];
+    for (int i = 0; i < numOfPoints; i++)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> {
+      int c = Long.compare(pointMz[a], pointMz[b]);
+      if (c == 0)
+        c = Long.compare(pointRt[a], pointRt[b]);
+      if (c == 0)
+        c = Integer.compare(a, b);
+      return c;
+    });
+
+    int numOfCells = 0;
+    for (int i = 0; i < numOfPoints; i++) {
+      if ((i == 0) || (pointMz[order[i]] != pointMz[order[i - 1]])
+          || (pointRt[order[i]] != pointRt[order[i - 1]]))
+        numOfCells++;
+    }
+
+    cellMz = new long[numOfCells];
+    cellRt = new long[numOfCells];
+    cellStart = new int[numOfCells + 1];
+    cellPoints = new int[numOfPoints];
+
+    int cell = -1;
+    for (int i = 0; i < numOfPoints; i++) {
+      final int point = order[i];
+      if ((cell < 0) || (pointMz[point] != cellMz[cell]) || (pointRt[point] != cellRt[cell])) {
+        cell++;
+        cellMz[cell] = pointMz[point];
+        cellRt[cell] = pointRt[point];
+        cellStart[cell] = i;
+      }
+      cellPoints[i] = point;
+    }
+    cellStart[numOfCells] = numOfPoints;
+  }
+
+  long getMzCell(double mz) {
+    return (long) Math.floor(mz / mzCellSize);
+  }
+
+  long getRtCell(double rt) {
+    return (long) Math.floor(rt / rtCellSize);
+  }
+
+  /**
+   * Returns the position of the given cell in the cell arrays, or -1 if the cell contains no
+   * points.
+   */
+  int findCell(long mzCell, long rtCell) {
+    int low = 0, high = cellMz.length - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      int c = Long.compare(cellMz[mid], mzCell);
+      if (c == 0)
+        c = Long.compare(cellRt[mid], rtCell);
+      if (c < 0)
+        low = mid + 1;
+      else if (c > 0)
+        high = mid - 1;
+      else
+        return mid;
+    }
+    return -1;
+  }
+
+  int getCellStart(int cell) {
+    return cellStart[cell];
+  }
+
+  int getCellEnd(int cell) {
+    return cellStart[cell + 1];
+  }
+
+  int getPoint(int position) {
+    return cellPoints[position];
+  }
+
+}
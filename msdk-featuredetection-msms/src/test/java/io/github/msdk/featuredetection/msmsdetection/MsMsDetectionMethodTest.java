@@ -16,15 +16,24 @@ package io.github.msdk.featuredetection.msmsdetection;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.IonAnnotation;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleIsolationInfo;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
 import io.github.msdk.featuredetection.msmsdetection.MsMsDetectionMethod;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
+import io.github.msdk.util.tolerances.ConstantPpmTolerance;
 import io.github.msdk.util.tolerances.MaximumMzTolerance;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
@@ -128,4 +137,61 @@ public class MsMsDetectionMethodTest {
 
   }
 
+  @Test
+  public void testRandomScans() throws Exception {
+
+    // Generate MS/MS scans with random precursors, many of them close to each
+    // other
+    Random random = new Random(42);
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("random", Optional.empty(), FileType.UNKNOWN);
+    List<MsScan> msScans = new ArrayList<MsScan>();
+    for (int i = 0; i < 2000; i++) {
+      SimpleMsScan scan = new SimpleMsScan(i + 1);
+      scan.setMsLevel(2);
+      scan.setRetentionTime(random.nextFloat() * 600f);
+      double precursorMz = 100.0 + random.nextInt(200) * 0.5 + random.nextDouble() * 0.01;
+      scan.getIsolations().add(new SimpleIsolationInfo(Range.singleton(precursorMz), null,
+          precursorMz, null, null, null));
+      scan.setDataPoints(new double[] {100.0}, new float[] {random.nextFloat() * 1000f}, 1);
+      scan.setRawDataFile(rawFile);
+      msScans.add(scan);
+    }
+
+    final MzTolerance mzTolerance = new ConstantPpmTolerance(20.0);
+    final RTTolerance rtTolerance = new RTTolerance(10f, true);
+
+    MsMsDetectionMethod msMethod =
+        new MsMsDetectionMethod(rawFile, msScans, mzTolerance, rtTolerance, 0.10d);
+    final List<IonAnnotation> ionAnnotations = msMethod.execute();
+    Assert.assertEquals(1.0, msMethod.getFinishedPercentage(), 0.0001);
+
+    // Reference: an entry is kept if no entry with higher intensity contains
+    // it within its tolerance windows
+    List<MsScan> sortedScans = new ArrayList<MsScan>(msScans);
+    sortedScans.sort((s1, s2) -> Double.compare(s2.getTIC(), s1.getTIC()));
+    List<MsScan> expected = new ArrayList<MsScan>();
+    for (int i = 0; i < sortedScans.size(); i++) {
+      MsScan scan = sortedScans.get(i);
+      double mz = scan.getIsolations().get(0).getPrecursorMz();
+      float rt = scan.getRetentionTime();
+      boolean duplicate = false;
+      for (int j = 0; j < i; j++) {
+        MsScan other = sortedScans.get(j);
+        if (mzTolerance.getToleranceRange(other.getIsolations().get(0).getPrecursorMz())
+            .contains(mz) && rtTolerance.getToleranceRange(other.getRetentionTime()).contains(rt))
+          duplicate = true;
+      }
+      if (!duplicate)
+        expected.add(scan);
+    }
+
+    Assert.assertEquals(expected.size(), ionAnnotations.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.get(i).getIsolations().get(0).getPrecursorMz(),
+          ionAnnotations.get(i).getExpectedMz(), 0.0);
+      Assert.assertEquals(expected.get(i).getRetentionTime(),
+          ionAnnotations.get(i).getExpectedRetentionTime(), 0.0);
+    }
+  }
+
 }
@@ -13,26 +13,25 @@
 
 package io.github.msdk.featuredetection.srm;
 
-import javax.annotation.Nonnull;
-
+/**
+ * Growable RT and intensity arrays of a single SRM transition, filled scan by scan.
+ */
 class BuildingChromatogram {
 
   // Initial variables
   private int size = 0;
   private float[] rtValues = new float[100];
-  private double[] mzValues = new double[100];
   private float[] intensityValues = new float[100];
 
-  void addDataPoint(@Nonnull Float rt, @Nonnull Double mz, @Nonnull Float intensity) {
+  void addDataPoint(float rt, float intensity) {
 
     // Make sure we have enough space to add a new data point
-    if (size == mzValues.length) {
+    if (size == rtValues.length) {
       allocate(size * 2);
     }
 
     // Add data point
     rtValues[size] = rt;
-    mzValues[size] = mz;
     intensityValues[size] = intensity;
     size++;
   }
@@ -41,10 +40,6 @@ class BuildingChromatogram {
     return rtValues;
   }
 
-  double[] getMzValues() {
-    return mzValues;
-  }
-
   float[] getIntensityValues() {
     return intensityValues;
   }
@@ -58,21 +53,18 @@ class BuildingChromatogram {
    */
   public void allocate(int newSize) {
 
-    if (mzValues.length >= newSize)
+    if (rtValues.length >= newSize)
       return;
 
     float[] rtValuesNew = new float[newSize];
-    double[] mzValuesNew = new double[newSize];
     float[] intensityValuesNew = new float[newSize];
 
     if (size > 0) {
       System.arraycopy(rtValues, 0, rtValuesNew, 0, size);
-      System.arraycopy(mzValues, 0, mzValuesNew, 0, size);
       System.arraycopy(intensityValues, 0, intensityValuesNew, 0, size);
     }
 
     rtValues = rtValuesNew;
-    mzValues = mzValuesNew;
     intensityValues = intensityValuesNew;
   }
 
@@ -15,11 +15,9 @@ package io.github.msdk.featuredetection.srm;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -27,8 +25,6 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Range;
-
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.Chromatogram;
@@ -101,10 +97,13 @@ public class SrmDetectionMethod implements MSDKMethod<List<Chromatogram>> {
       parsed++;
     }
 
-    // Iterate over all scans
-    Map<String, SimpleChromatogram> chromatogramMap = new HashMap<String, SimpleChromatogram>();
-    Map<Double, Range<Double>> q1IsolationMzRangeMap = new HashMap<Double, Range<Double>>();
-    Map<Double, Range<Double>> q3IsolationMzRangeMap = new HashMap<Double, Range<Double>>();
+    // Iterate over all scans. The Q3 values parsed from the scan definitions
+    // are cached by the definition string, because all scans of a
+    // transition share the same definition.
+    Map<String, SrmScanDefinition> scanDefinitionCache = new HashMap<>();
+    Map<String, Boolean> srmFunctionCache = new HashMap<>();
+    Map<SrmTransition.Key, SrmTransition> transitionMap = new LinkedHashMap<>();
+    float intensityBuffer[] = new float[1];
     for (MsScan scan : scans) {
       // Canceled
       if (canceled)
@@ -112,70 +111,65 @@ public class SrmDetectionMethod implements MSDKMethod<List<Chromatogram>> {
 
       // Ignore non SRM scans
       String msFunction = scan.getMsFunction();
-      if (msFunction == null || (!msFunction.toLowerCase().contains("srm"))) {
+      Boolean isSrm = srmFunctionCache.get(msFunction);
+      if (isSrm == null) {
+        isSrm = msFunction != null && msFunction.toLowerCase().contains("srm");
+        srmFunctionCache.put(msFunction, isSrm);
+      }
+      if (!isSrm) {
         parsed++;
         continue;
       }
 
       // Q1 data
-      Double q1 = scan.getIsolations().get(0).getPrecursorMz();
+      IsolationInfo q1Isolation = scan.getIsolations().get(0);
+      double q1 = q1Isolation.getPrecursorMz();
 
       // Q3 data
-      /*
-       * TODO: This is a workaround for issue # 123: https://github.com/msdk/msdk/issues/127
-       */
       String scanDefinition = scan.getScanDefinition();
-      Pattern pattern = Pattern.compile("(?<=\\[)(.*)(?=\\])");
-      Matcher matcher = pattern.matcher(scanDefinition);
-      Double q3 = 1d;
-      Range<Double> q3IsolationMzRange = Range.singleton(q3);
-      if (matcher.find()) {
-        String str = matcher.group(0);
-        String[] mzValues = str.split("-");
-        double mz1 = Double.parseDouble(mzValues[0]);
-        double mz2 = Double.parseDouble(mzValues[1]);
-        q3 = (mz1 + mz2) / 2;
-        q3IsolationMzRange = Range.closed(mz1, mz2);
+      SrmScanDefinition q3Definition = scanDefinitionCache.get(scanDefinition);
+      if (q3Definition == null) {
+        q3Definition = SrmScanDefinition.parse(scanDefinition);
+        scanDefinitionCache.put(scanDefinition, q3Definition);
       }
-
-      // Get the chromatogram for the Q1 and Q3 value or generate a new
-      SimpleChromatogram buildingChromatogram = chromatogramMap.get(q1 + ";" + q3);
-      if (buildingChromatogram == null) {
-        buildingChromatogram = new SimpleChromatogram();
-        chromatogramMap.put(q1 + ";" + q3, buildingChromatogram);
-
-        // Store the mz isolation range for the q1 and q3 values
-        q1IsolationMzRangeMap.put(q1, scan.getIsolations().get(0).getIsolationMzRange());
-        q3IsolationMzRangeMap.put(q3, q3IsolationMzRange);
+      double q3 = q3Definition.getQ3();
+
+      // Get the transition for the Q1 and Q3 value or generate a new
+      SrmTransition.Key key = new SrmTransition.Key(q1, q3);
+      SrmTransition transition = transitionMap.get(key);
+      if (transition == null) {
+        transition = new SrmTransition(q1, q1Isolation.getIsolationMzRange(), q3,
+            q3Definition.getQ3IsolationMzRange());
+        transitionMap.put(key, transition);
       }
 
       // Add the new data point
-      Float rt = scan.getRetentionTime();
-      float intenstiy = scan.getIntensityValues()[0]; // Assume only 1 value
-      buildingChromatogram.addDataPoint(rt, null, intenstiy);
+      float rt = scan.getRetentionTime();
+      intensityBuffer = scan.getIntensityValues(intensityBuffer);
+      // Assume only 1 value
+      float intenstiy = scan.getNumberOfDataPoints() > 0 ? intensityBuffer[0] : 0f;
+      transition.getBuildingChromatogram().addDataPoint(rt, intenstiy);
 
       parsed++;
     }
 
     // Add the newly generated chromatograms to the result list
-    Iterator<Map.Entry<String, SimpleChromatogram>> iterator =
-        chromatogramMap.entrySet().iterator();
-    while (iterator.hasNext()) {
-      Map.Entry<String, SimpleChromatogram> entry = iterator.next();
-      String q1q3 = entry.getKey();
-      SimpleChromatogram chromatogram = entry.getValue();
+    for (SrmTransition transition : transitionMap.values()) {
+      BuildingChromatogram buildingChromatogram = transition.getBuildingChromatogram();
+      SimpleChromatogram chromatogram = new SimpleChromatogram();
+      chromatogram.setDataPoints(buildingChromatogram.getRtValues(), null,
+          buildingChromatogram.getIntensityValues(), buildingChromatogram.getSize());
 
       // Set the Q1 and Q3 values to the isolations for the chromatogram
-      String[] strs = q1q3.split(";");
-      double q1 = Double.parseDouble(strs[0]);
-      double q3 = Double.parseDouble(strs[1]);
+      double q1 = transition.getQ1();
+      double q3 = transition.getQ3();
       List<IsolationInfo> isolations = chromatogram.getIsolations();
       // TODO Also add precursor scan number
-      IsolationInfo isolationInfo =
-          new SimpleIsolationInfo(q1IsolationMzRangeMap.get(q1), null, q1, null, null, null);
+      IsolationInfo isolationInfo = new SimpleIsolationInfo(transition.getQ1IsolationMzRange(),
+          null, q1, null, null, null);
       isolations.add(isolationInfo);
-      isolationInfo =
-          new SimpleIsolationInfo(q3IsolationMzRangeMap.get(q3), null, q3, null, null, null);
+      isolationInfo = new SimpleIsolationInfo(transition.getQ3IsolationMzRange(), null, q3, null,
+          null, null);
       isolations.add(isolationInfo);
 
       if ((chromatogram.getMz() == null) && (chromatogram.getMzValues() != null)) {
@@ -187,9 +181,8 @@ public class SrmDetectionMethod implements MSDKMethod<List<Chromatogram>> {
 
       // Add the chromatogram
       result.add(chromatogram);
-
-      iterator.remove();
     }
+    transitionMap.clear();
 
     return result;
   }
@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.srm;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Range;
+
+/**
+ * Q3 information parsed from the scan definition of a SRM scan, e.g. "... [409.189-409.191]".
+ *
+ * TODO: This is a workaround for issue # 123: https://github.com/msdk/msdk/issues/127
+ */
+
+class SrmScanDefinition {
+
+  private static final Pattern q3Pattern = Pattern.compile("(?<=\\[)(.*)(?=\\])");
+
+  private final double q3;
+  private final @Nonnull Range<Double> q3IsolationMzRange;
+
+  private SrmScanDefinition(double q3, @Nonnull Range<Double> q3IsolationMzRange) {
+    this.q3 = q3;
+    this.q3IsolationMzRange = q3IsolationMzRange;
+  }
+
+  double getQ3() {
+    return q3;
+  }
+
+  @Nonnull
+  Range<Double> getQ3IsolationMzRange() {
+    return q3IsolationMzRange;
+  }
+
+  /**
+   * Parses the Q3 isolation range from the given scan definition. If the definition contains no
+   * isolation range, Q3 is set to 1.
+   */
+  static @Nonnull SrmScanDefinition parse(@Nullable String scanDefinition) {
+    if (scanDefinition != null) {
+      Matcher matcher = q3Pattern.matcher(scanDefinition);
+      if (matcher.find()) {
+        String str = matcher.group(0);
+        String[] mzValues = str.split("-");
+        double mz1 = Double.parseDouble(mzValues[0]);
+        double mz2 = Double.parseDouble(mzValues[1]);
+        return new SrmScanDefinition((mz1 + mz2) / 2, Range.closed(mz1, mz2));
+      }
+    }
+    return new SrmScanDefinition(1d, Range.singleton(1d));
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.srm;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.Range;
+
+/**
+ * A single SRM transition, identified by its Q1 and Q3 m/z values, together with the trace built
+ * for it.
+ */
+
+class SrmTransition {
+
+  private final double q1, q3;
+  private final @Nonnull Range<Double> q1IsolationMzRange, q3IsolationMzRange;
+  private final @Nonnull BuildingChromatogram buildingChromatogram = new BuildingChromatogram();
+
+  SrmTransition(double q1, @Nonnull Range<Double> q1IsolationMzRange, double q3,
+      @Nonnull Range<Double> q3IsolationMzRange) {
+    this.q1 = q1;
+    this.q1IsolationMzRange = q1IsolationMzRange;
+    this.q3 = q3;
+    this.q3IsolationMzRange = q3IsolationMzRange;
+  }
+
+  double getQ1() {
+    return q1;
+  }
+
+  double getQ3() {
+    return q3;
+  }
+
+  @Nonnull
+  Range<Double> getQ1IsolationMzRange() {
+    return q1IsolationMzRange;
+  }
+
+  @Nonnull
+  Range<Double> getQ3IsolationMzRange() {
+    return q3IsolationMzRange;
+  }
+
+  @Nonnull
+  BuildingChromatogram getBuildingChromatogram() {
+    return buildingChromatogram;
+  }
+
+  /**
+   * Map key of a transition. Two transitions are the same if both their Q1 and Q3 values are
+   * equal.
+   */
+  static final class Key {
+
+    private final double q1, q3;
+
+    Key(double q1, double q3) {
+      this.q1 = q1;
+      this.q3 = q3;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key))
+        return false;
+      Key other = (Key) o;
+      return (Double.compare(q1, other.q1) == 0) && (Double.compare(q3, other.q3) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Double.hashCode(q1) + Double.hashCode(q3);
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.featuredetection.srm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.RawDataFile;
+
+/**
+ * Runs the SRM detection on a synthetic file. Arguments (all optional): number of runs, number of
+ * scans (default 5,000,000), number of transitions (default 500). The default file needs a heap
+ * of a few GB.
+ */
+public class SrmDetectionMethodBenchmark {
+
+  public static void main(String[] args) throws MSDKException, NumberFormatException {
+
+    int numberOfRuns = 10;
+    int numberOfScans = 5000000;
+    int numberOfTransitions = 500;
+    Logger logger = LoggerFactory.getLogger(SrmDetectionMethodBenchmark.class);
+
+    if (args.length > 0)
+      numberOfRuns = Integer.valueOf(args[0]);
+    if (args.length > 1)
+      numberOfScans = Integer.valueOf(args[1]);
+    if (args.length > 2)
+      numberOfTransitions = Integer.valueOf(args[2]);
+
+    RawDataFile rawFile =
+        SrmDetectionMethodTest.createSyntheticFile(numberOfScans, numberOfTransitions);
+
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < numberOfRuns; i++)
+      new SrmDetectionMethod(rawFile).execute();
+    long endTime = System.currentTimeMillis();
+
+    logger.info("Average run time with SrmDetectionMethod (" + numberOfScans + " scans, "
+        + numberOfTransitions + " transitions): " + (endTime - startTime) / numberOfRuns + "ms");
+
+  }
+
+}
@@ -16,13 +16,20 @@ package io.github.msdk.featuredetection.srm;
 import java.io.File;
 import java.net.URL;
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.Assert;
 import org.junit.Assume;
 import org.junit.Test;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.FileType;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleIsolationInfo;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
 import io.github.msdk.featuredetection.srm.SrmDetectionMethod;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
 import io.github.msdk.io.nativeformats.ThermoRawImportMethod;
@@ -98,4 +105,75 @@ public class SrmDetectionMethodTest {
     Assert.assertEquals(912.2, chromatogram.getIsolations().get(0).getPrecursorMz(), 0.0001);
 
   }
+
+  @Test
+  public void test_synthetic() throws Exception {
+
+    RawDataFile rawFile = createSyntheticFile(30000, 100);
+
+    // SRM detection method
+    SrmDetectionMethod srmMethod = new SrmDetectionMethod(rawFile);
+    final List<Chromatogram> chromatograms = srmMethod.execute();
+    Assert.assertEquals(1.0, srmMethod.getFinishedPercentage(), 0.0001);
+
+    // Verify data
+    Assert.assertEquals(100, chromatograms.size());
+    for (int i = 0; i < 100; i++) {
+      Chromatogram chromatogram = chromatograms.get(i);
+      Assert.assertEquals(300, chromatogram.getNumberOfDataPoints(), 0.0001);
+      Assert.assertEquals(2, chromatogram.getIsolations().size());
+      Assert.assertEquals(getQ1(i), chromatogram.getIsolations().get(0).getPrecursorMz(), 0.0001);
+      Assert.assertEquals(getQ3(i), chromatogram.getIsolations().get(1).getPrecursorMz(), 0.0001);
+      Assert.assertEquals(Range.closed(getQ3(i) - 0.5, getQ3(i) + 0.5),
+          chromatogram.getIsolations().get(1).getIsolationMzRange());
+      float rtValues[] = chromatogram.getRetentionTimes();
+      float intensityValues[] = chromatogram.getIntensityValues();
+      Assert.assertEquals(i * 0.01f, rtValues[0], 0.0001);
+      Assert.assertEquals(i + 1, intensityValues[0], 0.0001);
+      Assert.assertEquals((29900 + i) * 0.01f, rtValues[299], 0.0001);
+      Assert.assertEquals(29900 + i + 1, intensityValues[299], 0.0001);
+    }
+  }
+
+  /**
+   * Generates a raw data file with the given number of SRM scans, cycling through the given number
+   * of transitions. Every 10 transitions share the same Q1.
+   */
+  static RawDataFile createSyntheticFile(int numberOfScans, int numberOfTransitions) {
+    SimpleRawDataFile rawFile =
+        new SimpleRawDataFile("synthetic-SRM", Optional.empty(), FileType.UNKNOWN);
+    String scanDefinitions[] = new String[numberOfTransitions];
+    SimpleIsolationInfo isolations[] = new SimpleIsolationInfo[numberOfTransitions];
+    for (int i = 0; i < numberOfTransitions; i++) {
+      double q1 = getQ1(i), q3 = getQ3(i);
+      scanDefinitions[i] =
+          "+ c ESI SRM ms2 " + q1 + " [" + (q3 - 0.5) + "-" + (q3 + 0.5) + "]";
+      isolations[i] = new SimpleIsolationInfo(Range.closed(q1 - 0.5, q1 + 0.5), null, q1, null,
+          null, null);
+    }
+    double mzValues[] = new double[1];
+    float intensityValues[] = new float[1];
+    for (int i = 0; i < numberOfScans; i++) {
+      int transition = i % numberOfTransitions;
+      SimpleMsScan scan = new SimpleMsScan(i + 1, "srm");
+      scan.setMsLevel(2);
+      scan.setRetentionTime(i * 0.01f);
+      scan.setScanDefinition(scanDefinitions[transition]);
+      scan.getIsolations().add(isolations[transition]);
+      mzValues[0] = getQ3(transition);
+      intensityValues[0] = i + 1;
+      scan.setDataPoints(mzValues, intensityValues, 1);
+      rawFile.addScan(scan);
+    }
+    return rawFile;
+  }
+
+  private static double getQ1(int transition) {
+    return 200.0 + (transition / 10) * 10.0;
+  }
+
+  private static double getQ3(int transition) {
+    return 100.0 + transition;
+  }
+
 }
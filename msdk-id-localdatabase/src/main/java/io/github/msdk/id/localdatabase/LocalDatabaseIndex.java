@@ -0,0 +1,174 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.id.localdatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.IonAnnotation;
+
+/**
+ * <p>
+ * Index of the ion annotations of a local database by expected m/z value and RT. The annotations
+ * are sorted by m/z value and then by RT in primitive arrays, so the annotations inside an m/z
+ * range are found by binary search and only those are filtered by RT. Annotations without
+ * expected m/z value or RT are not indexed.
+ * </p>
+ *
+ * <p>
+ * The expected RTs of the database are in seconds, and are converted to minutes when the index is
+ * built. The index is immutable, so it can be built once and used by many searches, also
+ * concurrently.
+ * </p>
+ */
+public class LocalDatabaseIndex {
+
+  private final IonAnnotation annotations[];
+  private final double mzValues[];
+  private final float rtValues[];
+  private final int databaseOrder[];
+
+  /**
+   * <p>
+   * Creates the index of the given ion annotations.
+   * </p>
+   *
+   * @param ionAnnotations a {@link java.util.List} of
+   *        {@link io.github.msdk.datamodel.IonAnnotation} objects.
+   */
+  public LocalDatabaseIndex(@Nonnull List<? extends IonAnnotation> ionAnnotations) {
+    Preconditions.checkNotNull(ionAnnotations);
+
+    // Read the expected values once
+    final int size = ionAnnotations.size();
+    final IonAnnotation indexed[] = new IonAnnotation[size];
+    final double mz[] = new double[size];
+    final float rt[] = new float[size];
+    final int order[] = new int[size];
+    int numOfIndexed = 0;
+    for (int i = 0; i < size; i++) {
+      final IonAnnotation ionAnnotation = ionAnnotations.get(i);
+      final Double ionMz = ionAnnotation.getExpectedMz();
+      final Float ionRT = ionAnnotation.getExpectedRetentionTime();
+      if ((ionMz == null) || (ionRT == null) || ionMz.isNaN())
+        continue;
+      indexed[numOfIndexed] = ionAnnotation;
+      mz[numOfIndexed] = ionMz;
+      // Convert from seconds to minutes
+      rt[numOfIndexed] = ionRT / 60.0f;
+      order[numOfIndexed] = i;
+      numOfIndexed++;
+    }
+
+    // Sort by m/z value, then by RT, then by the order in the database
+    Integer sorted[] = new Integer[numOfIndexed];
+    for (int i = 0; i < numOfIndexed; i++)
+      sorted[i] = i;
+    Arrays.sort(sorted, (a, b) -> {
+      int result = Double.compare(mz[a], mz[b]);
+      if (result == 0)
+        result = Float.compare(rt[a], rt[b]);
+      return result != 0 ? result : Integer.compare(a, b);
+    });
+
+    annotations = new IonAnnotation[numOfIndexed];
+    mzValues = new double[numOfIndexed];
+    rtValues = new float[numOfIndexed];
+    databaseOrder = new int[numOfIndexed];
+    for (int i = 0; i < numOfIndexed; i++) {
+      annotations[i] = indexed[sorted[i]];
+      mzValues[i] = mz[sorted[i]];
+      rtValues[i] = rt[sorted[i]];
+      databaseOrder[i] = order[sorted[i]];
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the number of indexed ion annotations.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int size() {
+    return annotations.length;
+  }
+
+  /**
+   * <p>
+   * Returns the ion annotations whose expected m/z value and RT (in minutes) are inside the given
+   * ranges, in the order of the database.
+   * </p>
+   *
+   * @param mzRange a {@link com.google.common.collect.Range} object.
+   * @param rtRange a {@link com.google.common.collect.Range} object.
+   * @return a {@link java.util.List} object.
+   */
+  public @Nonnull List<IonAnnotation> getAnnotations(@Nonnull Range<Double> mzRange,
+      @Nonnull Range<Float> rtRange) {
+
+    int first = 0, last = mzValues.length;
+    if (mzRange.hasLowerBound())
+      first = lowerBound(mzValues, mzRange.lowerEndpoint());
+    if (mzRange.hasUpperBound())
+      last = upperBound(mzValues, mzRange.upperEndpoint());
+
+    // Sort the matching annotations by the order in the database
+    long matches[] = new long[Math.max(0, last - first)];
+    int numOfMatches = 0;
+    for (int i = first; i < last; i++) {
+      if (mzRange.contains(mzValues[i]) && rtRange.contains(rtValues[i]))
+        matches[numOfMatches++] = ((long) databaseOrder[i] << 32) | i;
+    }
+    Arrays.sort(matches, 0, numOfMatches);
+
+    List<IonAnnotation> result = new ArrayList<>(numOfMatches);
+    for (int i = 0; i < numOfMatches; i++)
+      result.add(annotations[(int) matches[i]]);
+    return result;
+  }
+
+  // First index with value >= given value
+  private static int lowerBound(double array[], double value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  // First index with value > given value
+  private static int upperBound(double array[], double value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] <= value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+}
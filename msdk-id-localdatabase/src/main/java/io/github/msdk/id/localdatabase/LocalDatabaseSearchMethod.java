@@ -14,6 +14,7 @@
 package io.github.msdk.id.localdatabase;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -27,6 +28,7 @@ import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.IonAnnotation;
 import io.github.msdk.datamodel.SimpleIonAnnotation;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
@@ -37,11 +39,12 @@ import io.github.msdk.util.tolerances.RTTolerance;
 public class LocalDatabaseSearchMethod implements MSDKMethod<Void> {
 
   private final @Nonnull FeatureTable featureTable;
-  private final @Nonnull List<SimpleIonAnnotation> ionAnnotations;
+  private final @Nonnull LocalDatabaseIndex databaseIndex;
   private final @Nonnull MzTolerance mzTolerance;
   private final @Nonnull RTTolerance rtTolerance;
 
   private boolean canceled = false;
+  private int parallelism = 1;
   private int processedFeatures = 0, totalFeatures = 0;
 
   /**
@@ -58,74 +61,100 @@ public class LocalDatabaseSearchMethod implements MSDKMethod<Void> {
   public LocalDatabaseSearchMethod(@Nonnull FeatureTable featureTable,
       @Nonnull List<SimpleIonAnnotation> ionAnnotations, @Nonnull MzTolerance mzTolerance,
       @Nonnull RTTolerance rtTolerance) {
+    this(featureTable, new LocalDatabaseIndex(ionAnnotations), mzTolerance, rtTolerance);
+  }
+
+  /**
+   * <p>
+   * Constructor for LocalDatabaseSearchMethod, using a prebuilt index of the database.
+   * </p>
+   *
+   * @param featureTable a {@link io.github.msdk.datamodel.FeatureTable} object.
+   * @param databaseIndex a {@link io.github.msdk.id.localdatabase.LocalDatabaseIndex} object.
+   * @param mzTolerance an object
+   * @param rtTolerance a {@link io.github.msdk.util.tolerances.RTTolerance} object.
+   */
+  public LocalDatabaseSearchMethod(@Nonnull FeatureTable featureTable,
+      @Nonnull LocalDatabaseIndex databaseIndex, @Nonnull MzTolerance mzTolerance,
+      @Nonnull RTTolerance rtTolerance) {
     this.featureTable = featureTable;
-    this.ionAnnotations = ionAnnotations;
+    this.databaseIndex = databaseIndex;
     this.mzTolerance = mzTolerance;
     this.rtTolerance = rtTolerance;
   }
 
-  /** {@inheritDoc} */
+  /**
+   * <p>
+   * Sets the number of threads used to search the rows. The result does not depend on this
+   * setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The matching ion annotations are stored on the rows, see
+   * {@link io.github.msdk.datamodel.FeatureTableRow#getIonAnnotations()}.
+   * </p>
+   */
   @Override
   public Void execute() throws MSDKException {
 
-    totalFeatures = featureTable.getRows().size();
-
-    // Loop through all features in the feature table
-    for (FeatureTableRow row : featureTable.getRows()) {
-
-      final Double mz = row.getMz();
-      final Float rt = row.getRT();
-      if ((mz == null) || (rt == null))
-        continue;
-
-      // Row values
-      Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
-      Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
-      List<SimpleIonAnnotation> rowIonAnnotations = null;
-
-      // Empty rowIonAnnotations
-      if (rowIonAnnotations == null)
-        rowIonAnnotations = new ArrayList<SimpleIonAnnotation>();
-
-      // Loop through all ion annotations from the local database
-      for (SimpleIonAnnotation ionAnnotation : ionAnnotations) {
-
-        // Ion values
-        final Double ionMz = ionAnnotation.getExpectedMz();
-        final Float ionRT = ionAnnotation.getExpectedRetentionTime();
-        if ((ionMz == null) || (ionRT == null))
-          continue;
-
-        // Convert from seconds to minutes
-        float ionRtSec = ionRT / 60.0f;
-        final boolean mzMatch = mzRange.contains(ionMz);
-        final boolean rtMatch = rtRange.contains(ionRtSec);
-
-        // If match, add the ion annotation to the list
-        if (mzMatch && rtMatch) {
-
-          // If first ion annotation is empty then remove it
-          if (rowIonAnnotations.size() > 0) {
-            IonAnnotation firstionAnnotation = rowIonAnnotations.get(0);
-          }
-
-          rowIonAnnotations.add(ionAnnotation);
-        }
-
+    final List<FeatureTableRow> rows = featureTable.getRows();
+    totalFeatures = rows.size();
+
+    // Search the rows, in parallel if requested
+    final List<List<IonAnnotation>> rowIonAnnotations =
+        new ArrayList<>(Collections.nCopies(rows.size(), null));
+    if (parallelism == 1) {
+      for (int i = 0; i < rows.size(); i++) {
+        rowIonAnnotations.set(i, search(rows.get(i)));
+        if (canceled)
+          return null;
+        processedFeatures++;
       }
-
-      // Update the ion annotations of the feature
-      //row.setData(ionAnnotationColumn, rowIonAnnotations);
-
+    } else {
+      ParallelUtil.forEachIndex(rows.size(), parallelism, i -> {
+        if (!canceled)
+          rowIonAnnotations.set(i, search(rows.get(i)));
+      });
       if (canceled)
         return null;
+      processedFeatures = rows.size();
+    }
 
-      processedFeatures++;
+    // Update the ion annotations of the rows
+    for (int i = 0; i < rows.size(); i++) {
+      if (rowIonAnnotations.get(i) != null)
+        rows.get(i).setIonAnnotations(rowIonAnnotations.get(i));
     }
 
     return null;
   }
 
+  /**
+   * Returns the ion annotations of the database which match the row, or null if the row has no
+   * m/z value or RT.
+   */
+  private @Nullable List<IonAnnotation> search(@Nonnull FeatureTableRow row) {
+    final Double mz = row.getMz();
+    final Float rt = row.getRT();
+    if ((mz == null) || (rt == null))
+      return null;
+
+    // Row values
+    Range<Double> mzRange = mzTolerance.getToleranceRange(mz);
+    Range<Float> rtRange = rtTolerance.getToleranceRange(rt);
+
+    return databaseIndex.getAnnotations(mzRange, rtRange);
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nullable
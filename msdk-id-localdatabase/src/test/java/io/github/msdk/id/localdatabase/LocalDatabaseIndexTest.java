@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.id.localdatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.IonAnnotation;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleIonAnnotation;
+import io.github.msdk.datamodel.SimpleSample;
+import io.github.msdk.util.tolerances.MaximumMzTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+import io.github.msdk.util.tolerances.RTTolerance;
+
+public class LocalDatabaseIndexTest {
+
+  private static List<SimpleIonAnnotation> createDatabase(Random random, int size) {
+    List<SimpleIonAnnotation> database = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      SimpleIonAnnotation ionAnnotation = new SimpleIonAnnotation();
+      // Many annotations share the same m/z value, some have no RT
+      ionAnnotation.setExpectedMz(100.0 + random.nextInt(500) * 0.01);
+      if (random.nextInt(10) > 0)
+        ionAnnotation.setExpectedRetentionTime(random.nextFloat() * 600f);
+      database.add(ionAnnotation);
+    }
+    return database;
+  }
+
+  private static List<IonAnnotation> naiveSearch(List<SimpleIonAnnotation> database,
+      Range<Double> mzRange, Range<Float> rtRange) {
+    List<IonAnnotation> result = new ArrayList<>();
+    for (SimpleIonAnnotation ionAnnotation : database) {
+      final Double ionMz = ionAnnotation.getExpectedMz();
+      final Float ionRT = ionAnnotation.getExpectedRetentionTime();
+      if ((ionMz == null) || (ionRT == null))
+        continue;
+      if (mzRange.contains(ionMz) && rtRange.contains(ionRT / 60.0f))
+        result.add(ionAnnotation);
+    }
+    return result;
+  }
+
+  @Test
+  public void testRandomQueries() {
+    Random random = new Random(1);
+    List<SimpleIonAnnotation> database = createDatabase(random, 5000);
+    LocalDatabaseIndex index = new LocalDatabaseIndex(database);
+
+    for (int i = 0; i < 500; i++) {
+      double mz = 100.0 + random.nextDouble() * 5.0;
+      float rt = random.nextFloat() * 10f;
+      Range<Double> mzRange = Range.closed(mz - 0.02, mz + 0.02);
+      Range<Float> rtRange = Range.closed(rt - 0.5f, rt + 0.5f);
+      Assert.assertEquals(naiveSearch(database, mzRange, rtRange),
+          index.getAnnotations(mzRange, rtRange));
+    }
+    Assert.assertEquals(naiveSearch(database, Range.all(), Range.all()).size(), index.size());
+  }
+
+  @Test
+  public void testSearchMethod() throws Exception {
+    Random random = new Random(2);
+    List<SimpleIonAnnotation> database = createDatabase(random, 2000);
+    Sample sample = new SimpleSample("sample");
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < 200; i++) {
+      SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+      SimpleFeature feature = new SimpleFeature();
+      feature.setMz(100.0 + random.nextDouble() * 5.0);
+      feature.setRetentionTime(random.nextFloat() * 10f);
+      row.setFeature(sample, feature);
+      table.addRow(row);
+    }
+
+    MzTolerance mzTolerance = new MaximumMzTolerance(0.01, 10.0);
+    RTTolerance rtTolerance = new RTTolerance(0.5f, false);
+    LocalDatabaseSearchMethod method =
+        new LocalDatabaseSearchMethod(table, database, mzTolerance, rtTolerance);
+    method.setParallelism(3);
+    method.execute();
+    Assert.assertEquals(1.0f, method.getFinishedPercentage(), 0.0001f);
+
+    int numOfMatches = 0;
+    for (FeatureTableRow row : table.getRows()) {
+      List<IonAnnotation> expected = naiveSearch(database,
+          mzTolerance.getToleranceRange(row.getMz()), rtTolerance.getToleranceRange(row.getRT()));
+      Assert.assertEquals(expected, row.getIonAnnotations());
+      numOfMatches += expected.size();
+    }
+    Assert.assertTrue(numOfMatches > 0);
+  }
+
+}
@@ -32,6 +32,9 @@ import com.google.common.collect.Lists;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+import io.github.msdk.datamodel.ColumnarFeatureTableRow;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeature;
@@ -58,7 +61,8 @@ public class ChromaTofFileImportMethod implements MSDKMethod<FeatureTable> {
   private String fieldSeparator = ChromaTofParser.FIELD_SEPARATOR_TAB;
   private String quotationCharacter = ChromaTofParser.QUOTATION_CHARACTER_NONE;
 
-  private SimpleFeatureTable newFeatureTable;
+  private FeatureTable newFeatureTable;
+  private @Nullable Layout columnarLayout;
   private final Sample fileSample;
   private boolean canceled = false;
 
@@ -93,6 +97,18 @@ public class ChromaTofFileImportMethod implements MSDKMethod<FeatureTable> {
     this(sourceFile, Locale.US, null, null);
   }
 
+  /**
+   * <p>
+   * Makes the method produce a {@link io.github.msdk.datamodel.ColumnarFeatureTable} with given
+   * layout instead of a {@link io.github.msdk.datamodel.SimpleFeatureTable}.
+   * </p>
+   *
+   * @param columnarLayout layout of the columnar feature table, or null for a simple feature table
+   */
+  public void setColumnarLayout(@Nullable Layout columnarLayout) {
+    this.columnarLayout = columnarLayout;
+  }
+
   /** {@inheritDoc} */
   @Override
   public FeatureTable execute() throws MSDKException {
@@ -116,8 +132,14 @@ public class ChromaTofFileImportMethod implements MSDKMethod<FeatureTable> {
     logger.info("Using quotation character: '" + quotationCharacter + "'");
 
     String fileName = sourceFile.getName();
-    newFeatureTable = new SimpleFeatureTable();
-    newFeatureTable.setSamples(Collections.singletonList(fileSample));
+    if (columnarLayout == null) {
+      SimpleFeatureTable simpleFeatureTable = new SimpleFeatureTable();
+      simpleFeatureTable.setSamples(Collections.singletonList(fileSample));
+      newFeatureTable = simpleFeatureTable;
+    } else {
+      newFeatureTable =
+          new ColumnarFeatureTable(Collections.singletonList(fileSample), columnarLayout);
+    }
     boolean normalizeColumnNames = false;
 
     ChromaTofParser parser = new ChromaTofParser(fieldSeparator, quotationCharacter, Locale.US);
@@ -137,10 +159,7 @@ public class ChromaTofFileImportMethod implements MSDKMethod<FeatureTable> {
 
       // Feature table row
       rowId++;
-      SimpleFeatureTableRow row = new SimpleFeatureTableRow(newFeatureTable);
-      newFeatureTable.addRow(row);
       SimpleFeature feature = new SimpleFeature();
-      row.setFeature(fileSample, feature);
       SimpleIonAnnotation ionAnnotation = new SimpleIonAnnotation();;
       feature.setIonAnnotation(ionAnnotation);
 
@@ -170,6 +189,17 @@ public class ChromaTofFileImportMethod implements MSDKMethod<FeatureTable> {
 
       }
 
+      // The columnar feature table copies the values of the feature, so the row is added after
+      // the feature was filled
+      if (newFeatureTable instanceof ColumnarFeatureTable) {
+        ColumnarFeatureTableRow row = ((ColumnarFeatureTable) newFeatureTable).addRow();
+        row.setFeature(fileSample, feature);
+      } else {
+        SimpleFeatureTableRow row = new SimpleFeatureTableRow(newFeatureTable);
+        ((SimpleFeatureTable) newFeatureTable).addRow(row);
+        row.setFeature(fileSample, feature);
+      }
+
       parsedLines++;
 
       // Check if cancel is requested
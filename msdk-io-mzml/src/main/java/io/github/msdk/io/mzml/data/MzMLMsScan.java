@@ -243,17 +243,17 @@ public class MzMLMsScan implements MsScan {
       }
 
       try {
-        mzValues = MzMLPeaksDecoder.decodeToDouble(inputStream, getMzBinaryDataInfo(), array);
+        // Decode into a private array, the caller's array must not become our cache
+        mzValues = MzMLPeaksDecoder.decodeToDouble(inputStream, getMzBinaryDataInfo(), null);
       } catch (Exception e) {
         throw (new MSDKRuntimeException(e));
       }
     }
 
-    if (array == null || array.length < getNumberOfDataPoints()) {
-      array = new double[getNumberOfDataPoints()];
+    if (array == null || array.length < mzValues.length)
+      array = new double[mzValues.length];
 
-      System.arraycopy(mzValues, 0, array, 0, numOfDataPoints);
-    }
+    System.arraycopy(mzValues, 0, array, 0, mzValues.length);
 
     return array;
   }
@@ -269,18 +269,18 @@ public class MzMLMsScan implements MsScan {
       }
 
       try {
+        // Decode into a private array, the caller's array must not become our cache
         intensityValues =
-            MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), array);
+            MzMLPeaksDecoder.decodeToFloat(inputStream, getIntensityBinaryDataInfo(), null);
       } catch (Exception e) {
         throw (new MSDKRuntimeException(e));
       }
     }
 
-    if (array == null || array.length < numOfDataPoints) {
-      array = new float[numOfDataPoints];
+    if (array == null || array.length < intensityValues.length)
+      array = new float[intensityValues.length];
 
-      System.arraycopy(intensityValues, 0, array, 0, numOfDataPoints);
-    }
+    System.arraycopy(intensityValues, 0, array, 0, intensityValues.length);
 
     return array;
   }
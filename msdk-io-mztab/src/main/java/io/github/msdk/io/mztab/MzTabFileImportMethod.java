@@ -33,6 +33,9 @@ import com.google.common.io.ByteStreams;
 
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+import io.github.msdk.datamodel.ColumnarFeatureTableRow;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeatureTable;
@@ -57,7 +60,8 @@ public class MzTabFileImportMethod implements MSDKMethod<FeatureTable> {
 
   private final @Nonnull File sourceFile;
 
-  private SimpleFeatureTable newFeatureTable;
+  private FeatureTable newFeatureTable;
+  private @Nullable Layout columnarLayout;
   private boolean canceled = false;
 
   private final Map<MsRun, Sample> sampleMap = new Hashtable<>();
@@ -73,6 +77,18 @@ public class MzTabFileImportMethod implements MSDKMethod<FeatureTable> {
     this.sourceFile = sourceFile;
   }
 
+  /**
+   * <p>
+   * Makes the method produce a {@link io.github.msdk.datamodel.ColumnarFeatureTable} with given
+   * layout instead of a {@link io.github.msdk.datamodel.SimpleFeatureTable}.
+   * </p>
+   *
+   * @param columnarLayout layout of the columnar feature table, or null for a simple feature table
+   */
+  public void setColumnarLayout(@Nullable Layout columnarLayout) {
+    this.columnarLayout = columnarLayout;
+  }
+
   /** {@inheritDoc} */
   @Override
   public FeatureTable execute() throws MSDKException {
@@ -168,7 +184,10 @@ public class MzTabFileImportMethod implements MSDKMethod<FeatureTable> {
       allSamples.add(sample);
       sampleMap.put(entry.getValue(), sample);
     }
-    newFeatureTable.setSamples(allSamples);
+    if (columnarLayout == null)
+      ((SimpleFeatureTable) newFeatureTable).setSamples(allSamples);
+    else
+      newFeatureTable = new ColumnarFeatureTable(allSamples, columnarLayout);
   }
 
   private void addRows(@Nonnull FeatureTable featureTable, @Nonnull MZTabFile mzTabFile) {
@@ -177,9 +196,16 @@ public class MzTabFileImportMethod implements MSDKMethod<FeatureTable> {
     Collection<SmallMolecule> smallMolecules = mzTabFile.getSmallMolecules();
     for (SmallMolecule smallMolecule : smallMolecules) {
       parsedRows++;
-      SimpleFeatureTableRow currentRow = new SimpleFeatureTableRow(featureTable);
-
-      currentRow.setCharge(smallMolecule.getCharge());
+      // The rows of a columnar feature table are created by the table
+      SimpleFeatureTableRow simpleRow = null;
+      ColumnarFeatureTableRow columnarRow = null;
+      if (featureTable instanceof ColumnarFeatureTable) {
+        columnarRow = ((ColumnarFeatureTable) featureTable).addRow();
+        columnarRow.setCharge(smallMolecule.getCharge());
+      } else {
+        simpleRow = new SimpleFeatureTableRow(featureTable);
+        simpleRow.setCharge(smallMolecule.getCharge());
+      }
 
       // Add data to sample specific columns
       SortedMap<Integer, Assay> assayMap = mzTabFile.getMetadata().getAssayMap();
@@ -188,12 +214,16 @@ public class MzTabFileImportMethod implements MSDKMethod<FeatureTable> {
 
         Sample sample = sampleMap.get(sampleAssay.getMsRun());
         MzTabFeature newFeature = new MzTabFeature(smallMolecule, sampleAssay);
-        currentRow.setFeature(sample, newFeature);
+        if (columnarRow != null)
+          columnarRow.setFeature(sample, newFeature);
+        else
+          simpleRow.setFeature(sample, newFeature);
 
       }
 
       // Add row to feature table
-      newFeatureTable.addRow(currentRow);
+      if (simpleRow != null)
+        ((SimpleFeatureTable) featureTable).addRow(simpleRow);
 
       // Check if cancel is requested
       if (canceled)
@@ -63,6 +63,7 @@ public class MzXMLFileImportMethod implements MSDKMethod<RawDataFile> {
   private int totalScans = 0, parsedScans;
 
   private int peaksCount = 0;
+  private boolean centroided = false;
   private boolean compressFlag = false;
 
   private final MzXMLHandler handler = new MzXMLHandler();
@@ -178,6 +179,9 @@ public class MzXMLFileImportMethod implements MSDKMethod<RawDataFile> {
         int msLevel = Integer.parseInt(attrs.getValue("msLevel"));
         peaksCount = Integer.parseInt(attrs.getValue("peaksCount"));
 
+        // The optional centroided attribute saves the spectrum type detection
+        centroided = "1".equals(attrs.getValue("centroided"));
+
         // MS function
         String msFuncName = attrs.getValue("scanType");
         buildingScan = new SimpleMsScan(scanNumber);
@@ -313,9 +317,10 @@ public class MzXMLFileImportMethod implements MSDKMethod<RawDataFile> {
         // Set the final data points to the scan
         buildingScan.setDataPoints(mzValues, intensityValues, peaksCount);
 
-        // Auto-detect whether this scan is centroided
-        MsSpectrumType spectrumType = SpectrumTypeDetectionAlgorithm.detectSpectrumType(mzValues,
-            intensityValues, peaksCount);
+        // Auto-detect whether this scan is centroided, unless the file says so
+        MsSpectrumType spectrumType = centroided ? MsSpectrumType.CENTROIDED
+            : SpectrumTypeDetectionAlgorithm.detectSpectrumType(mzValues, intensityValues,
+                peaksCount);
         buildingScan.setSpectrumType(spectrumType);
 
         return;
@@ -146,6 +146,10 @@ public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
                 int msLevelInt = msLevel.toInt();
                 vars.peaksCount = peaksCount.toInt();
 
+                // The optional centroided attribute saves the spectrum type detection
+                CharArray centroided = xmlStreamReader.getAttributeValue(null, "centroided");
+                vars.centroided = (centroided != null) && centroided.contentEquals("1");
+
                 CharArray msFuncName = xmlStreamReader.getAttributeValue(null, "scanType");
 
                 buildingScan = new SimpleMsScan(scanNumberInt);
@@ -256,9 +260,10 @@ public class MzXMLFileParser implements MSDKMethod<RawDataFile> {
                   // Set the final data points to the scan
                   buildingScan.setDataPoints(mzValues, intensityValues, vars.peaksCount);
 
-                  // Auto-detect whether this scan is centroided
-                  MsSpectrumType spectrumType = SpectrumTypeDetectionAlgorithm
-                      .detectSpectrumType(mzValues, intensityValues, vars.peaksCount);
+                  // Auto-detect whether this scan is centroided, unless the file says so
+                  MsSpectrumType spectrumType = vars.centroided ? MsSpectrumType.CENTROIDED
+                      : SpectrumTypeDetectionAlgorithm.detectSpectrumType(mzValues,
+                          intensityValues, vars.peaksCount);
                   buildingScan.setSpectrumType(spectrumType);
                   break;
               }
@@ -341,6 +346,7 @@ class Vars {
   Integer precursorCharge;
   Integer precursorScanNumber;
   int peaksCount;
+  boolean centroided;
   boolean compressionFlag;
   CharArray currentTag;
   Integer peaksStart;
@@ -351,6 +357,7 @@ class Vars {
     precursorCharge = null;
     precursorScanNumber = null;
     peaksCount = 0;
+    centroided = false;
     compressionFlag = false;
     currentTag = null;
     peaksStart = 0;
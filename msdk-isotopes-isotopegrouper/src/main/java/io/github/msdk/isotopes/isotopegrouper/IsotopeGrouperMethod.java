@@ -13,19 +13,54 @@
 
 package io.github.msdk.isotopes.isotopegrouper;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.Sample;
 import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleGroupedFeature;
+import io.github.msdk.util.ParallelUtil;
 import io.github.msdk.util.tolerances.MzTolerance;
 import io.github.msdk.util.tolerances.RTTolerance;
 
 /**
+ * <p>
  * This class searches through a feature table and groups isotopes under a single feature.
+ * </p>
+ *
+ * <p>
+ * The rows are sorted by RT and split into buckets of consecutive rows. For every bucket, the rows
+ * within RT tolerance of the bucket are sorted by m/z value in primitive arrays, and for each row
+ * of the bucket the isotopes expected at m/z + n * 1.00335 / z are found by binary search, for all
+ * charges z from 1 to the maximum charge. The buckets are searched in parallel if requested. The
+ * rows are then assigned to isotope patterns in order of increasing m/z value: each unassigned
+ * row is taken as a monoisotopic feature, and for each charge the isotopes closest to the expected
+ * m/z values are chained until an isotope is missing. The charge with the longest chain wins,
+ * lower charges win ties. If a monotonic shape is required, every isotope must not be more intense
+ * than the previous one. The intensity of a row is the maximal height of its features.
+ * </p>
+ *
+ * <p>
+ * The resulting feature table contains one row for each isotope pattern, at the position of its
+ * monoisotopic row. Its features are {@link io.github.msdk.datamodel.GroupedFeature}s with the
+ * values of the monoisotopic feature of the sample. Rows which are not part of any isotope pattern
+ * are copied as they are.
+ * </p>
  */
 public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
 
@@ -33,28 +68,36 @@ public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
    * The isotopeDistance constant defines expected distance between isotopes. Actual weight of 1
    * neutron is 1.008665 Da, but part of this mass is consumed as binding energy to other
    * protons/neutrons. Actual mass increase of isotopes depends on chemical formula of the molecule.
-   * Since we don't know the formula, we can assume the distance to be ~1.0033 Da, with user-defined
-   * tolerance.
+   * Since we don't know the formula, we can assume the distance to be ~1.00335 Da (the difference
+   * between 13C and 12C), with user-defined tolerance.
    */
-  private static final double isotopeDistance = 1.0033;
+  private static final double isotopeDistance = 1.00335;
+
+  /** Number of rows in one RT bucket. */
+  private static final int BUCKET_SIZE = 4096;
 
   private final @Nonnull FeatureTable featureTable;
   private final @Nonnull MzTolerance mzTolerance;
   private final @Nonnull RTTolerance rtTolerance;
   private final @Nonnull Integer maximumCharge;
   private final @Nonnull Boolean requireMonotonicShape;
-  private final @Nonnull FeatureTable result;
+  private final @Nonnull SimpleFeatureTable result;
 
   private boolean canceled = false;
+  private int parallelism = 1;
   private int processedFeatures = 0, totalFeatures = 0;
 
+  // Values of the rows with m/z value and RT, in the order of the feature table
+  private int numOfRows;
+  private double mzValues[];
+  private float rtValues[], intensities[];
+
   /**
    * <p>
    * Constructor for IsotopeGrouperMethod.
    * </p>
    *
    * @param featureTable a {@link io.github.msdk.datamodel.FeatureTable} object.
-   * @param featureTableName a {@link java.lang.String} object.
    * @param mzTolerance a {@link io.github.msdk.util.tolerances.MzTolerance} object.
    * @param rtTolerance a {@link io.github.msdk.util.tolerances.RTTolerance} object.
    * @param maximumCharge a {@link java.lang.Integer} object.
@@ -63,6 +106,7 @@ public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
   public IsotopeGrouperMethod(@Nonnull FeatureTable featureTable,
       @Nonnull MzTolerance mzTolerance, @Nonnull RTTolerance rtTolerance,
       @Nonnull Integer maximumCharge, @Nonnull Boolean requireMonotonicShape) {
+    Preconditions.checkArgument(maximumCharge > 0, "Maximum charge must be at least 1");
     this.featureTable = featureTable;
     this.mzTolerance = mzTolerance;
     this.rtTolerance = rtTolerance;
@@ -73,33 +117,384 @@ public class IsotopeGrouperMethod implements MSDKMethod<FeatureTable> {
     result = new SimpleFeatureTable();
   }
 
+  /**
+   * <p>
+   * Sets the number of threads used to search the RT buckets. The result does not depend on this
+   * setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
   /** {@inheritDoc} */
   @Override
   public FeatureTable execute() throws MSDKException {
 
-    // Set the total features
-    totalFeatures = featureTable.getRows().size();
+    final List<FeatureTableRow> rows = featureTable.getRows();
+    final List<Sample> samples = featureTable.getSamples();
 
-    // Collect all possible charge states
-    int charges[] = new int[maximumCharge];
-    for (int i = 0; i < maximumCharge; i++) {
-      charges[i] = i + 1;
-    }
+    // Set the total features, each row is processed by the search and by the grouping
+    totalFeatures = 2 * rows.size();
 
-    // Loop through all features in the feature table
-    for (FeatureTableRow row : featureTable.getRows()) {
+    // Read the values of the rows once
+    final int tableIndex[] = new int[rows.size()];
+    mzValues = new double[rows.size()];
+    rtValues = new float[rows.size()];
+    intensities = new float[rows.size()];
+    numOfRows = 0;
+    for (int i = 0; i < rows.size(); i++) {
+      final FeatureTableRow row = rows.get(i);
+      final Double mz = row.getMz();
+      final Float rt = row.getRT();
+      if ((mz == null) || (rt == null) || mz.isNaN() || rt.isNaN())
+        continue;
+      tableIndex[numOfRows] = i;
+      mzValues[numOfRows] = mz;
+      rtValues[numOfRows] = rt;
+      intensities[numOfRows] = getIntensity(row, samples);
+      numOfRows++;
+    }
 
-      /*
-       * TODO: Write method
-       */
+    // Rank of each row by m/z value, and the rows sorted by RT
+    final int mzOrder[] = sortedIndices((a, b) -> Double.compare(mzValues[a], mzValues[b]));
+    final int mzRank[] = new int[numOfRows];
+    for (int i = 0; i < numOfRows; i++)
+      mzRank[mzOrder[i]] = i;
+    final int rtOrder[] = sortedIndices((a, b) -> Float.compare(rtValues[a], rtValues[b]));
+    final float sortedRT[] = new float[numOfRows];
+    for (int i = 0; i < numOfRows; i++)
+      sortedRT[i] = rtValues[rtOrder[i]];
 
+    // Search the isotopes of the rows of each RT bucket, in parallel if requested
+    final int numOfBuckets = (numOfRows + BUCKET_SIZE - 1) / BUCKET_SIZE;
+    final int candidates[][][] = new int[numOfRows][][];
+    if (parallelism == 1) {
+      for (int bucket = 0; bucket < numOfBuckets; bucket++) {
+        searchBucket(bucket, rtOrder, sortedRT, mzOrder, mzRank, candidates);
+        if (canceled)
+          return null;
+        processedFeatures += Math.min(BUCKET_SIZE, numOfRows - bucket * BUCKET_SIZE);
+      }
+    } else {
+      ParallelUtil.forEachIndex(numOfBuckets, parallelism, bucket -> {
+        if (!canceled)
+          searchBucket(bucket, rtOrder, sortedRT, mzOrder, mzRank, candidates);
+      });
       if (canceled)
         return null;
+    }
+    processedFeatures = rows.size();
+
+    // Assign the rows to isotope patterns in order of increasing m/z value
+    final boolean assigned[] = new boolean[numOfRows];
+    final int patterns[][] = new int[numOfRows][];
+    final int patternCharges[] = new int[numOfRows];
+    for (int i : mzOrder) {
+      if (assigned[i])
+        continue;
+      assigned[i] = true;
+      if (candidates[i] == null)
+        continue;
+      int bestPattern[] = null;
+      for (int charge = 1; charge <= maximumCharge; charge++) {
+        int pattern[] = buildPattern(i, candidates[i][charge - 1], assigned);
+        if ((pattern != null) && ((bestPattern == null) || (pattern.length > bestPattern.length))) {
+          bestPattern = pattern;
+          patternCharges[i] = charge;
+        }
+      }
+      if (bestPattern == null)
+        continue;
+      for (int isotope : bestPattern)
+        assigned[isotope] = true;
+      patterns[i] = bestPattern;
+    }
 
+    // Build the result table in the order of the original table
+    result.setSamples(samples);
+    final boolean grouped[] = new boolean[rows.size()];
+    for (int i = 0; i < numOfRows; i++) {
+      if (patterns[i] == null)
+        continue;
+      for (int isotope : patterns[i])
+        grouped[tableIndex[isotope]] = true;
+    }
+    int index = 0;
+    for (int i = 0; i < rows.size(); i++) {
+      final boolean indexed = (index < numOfRows) && (tableIndex[index] == i);
+      if (indexed && (patterns[index] != null)) {
+        result.addRow(createGroupedRow(rows, tableIndex, patterns[index], patternCharges[index]));
+      } else if (!grouped[i]) {
+        result.addRow(copyRow(rows.get(i)));
+      }
+      if (indexed)
+        index++;
+
+      if (canceled)
+        return null;
       processedFeatures++;
     }
 
-    return null;
+    return result;
+  }
+
+  /**
+   * Searches the isotopes of the rows of given RT bucket. For every row and charge, the candidates
+   * are stored as a sequence of isotopes, each one as the number of candidates followed by the
+   * candidates sorted by their distance to the expected m/z value. The candidates of a row stay
+   * null if none of its isotopes is found.
+   */
+  private void searchBucket(int bucket, int rtOrder[], float sortedRT[], int mzOrder[],
+      int mzRank[], int candidates[][][]) {
+
+    final int first = bucket * BUCKET_SIZE;
+    final int last = Math.min(first + BUCKET_SIZE, numOfRows);
+
+    // RT tolerance ranges of the rows of the bucket
+    final float rtLower[] = new float[last - first];
+    final float rtUpper[] = new float[last - first];
+    float windowLower = Float.POSITIVE_INFINITY, windowUpper = Float.NEGATIVE_INFINITY;
+    for (int i = first; i < last; i++) {
+      final Range<Float> rtRange = rtTolerance.getToleranceRange(rtValues[rtOrder[i]]);
+      rtLower[i - first] = rtRange.lowerEndpoint();
+      rtUpper[i - first] = rtRange.upperEndpoint();
+      windowLower = Math.min(windowLower, rtLower[i - first]);
+      windowUpper = Math.max(windowUpper, rtUpper[i - first]);
+    }
+
+    // Sort the rows within RT tolerance of the bucket by m/z value
+    final int windowFirst = lowerBound(sortedRT, windowLower);
+    final int windowLast = upperBound(sortedRT, windowUpper);
+    final int windowRanks[] = new int[windowLast - windowFirst];
+    for (int i = windowFirst; i < windowLast; i++)
+      windowRanks[i - windowFirst] = mzRank[rtOrder[i]];
+    Arrays.sort(windowRanks);
+    final int windowRows[] = new int[windowRanks.length];
+    final double windowMz[] = new double[windowRanks.length];
+    for (int i = 0; i < windowRanks.length; i++) {
+      windowRows[i] = mzOrder[windowRanks[i]];
+      windowMz[i] = mzValues[windowRows[i]];
+    }
+
+    final int isotopes[] = new int[windowRows.length];
+    final double distances[] = new double[windowRows.length];
+    for (int i = first; i < last; i++) {
+      final int row = rtOrder[i];
+      final float lower = rtLower[i - first], upper = rtUpper[i - first];
+      int rowCandidates[][] = null;
+
+      for (int charge = 1; charge <= maximumCharge; charge++) {
+        int chargeCandidates[] = new int[16];
+        int length = 1;
+        for (int n = 1;; n++) {
+          final double expectedMz = mzValues[row] + n * isotopeDistance / charge;
+          final Range<Double> mzRange = mzTolerance.getToleranceRange(expectedMz);
+          int numOfIsotopes = 0;
+          for (int k = lowerBound(windowMz, mzRange.lowerEndpoint()); (k < windowMz.length)
+              && (windowMz[k] <= mzRange.upperEndpoint()); k++) {
+            final int isotope = windowRows[k];
+            final float rt = rtValues[isotope];
+            if ((isotope == row) || (rt < lower) || (rt > upper))
+              continue;
+            isotopes[numOfIsotopes] = isotope;
+            distances[numOfIsotopes] = Math.abs(windowMz[k] - expectedMz);
+            numOfIsotopes++;
+          }
+          if (numOfIsotopes == 0)
+            break;
+
+          // Sort by distance to the expected m/z value, then by m/z order
+          sortByDistance(isotopes, distances, numOfIsotopes);
+          if (length + numOfIsotopes + 1 > chargeCandidates.length)
+            chargeCandidates = Arrays.copyOf(chargeCandidates,
+                Math.max(2 * chargeCandidates.length, length + numOfIsotopes + 1));
+          chargeCandidates[length++] = numOfIsotopes;
+          System.arraycopy(isotopes, 0, chargeCandidates, length, numOfIsotopes);
+          length += numOfIsotopes;
+          chargeCandidates[0]++;
+        }
+        if (chargeCandidates[0] == 0)
+          continue;
+        if (rowCandidates == null)
+          rowCandidates = new int[maximumCharge][];
+        rowCandidates[charge - 1] = Arrays.copyOf(chargeCandidates, length);
+      }
+
+      candidates[row] = rowCandidates;
+    }
+  }
+
+  /**
+   * Chains the closest unassigned candidates of each isotope, starting from the monoisotopic row.
+   * Returns the rows of the pattern in order of the isotopes, or null if no isotope was found.
+   */
+  private @Nullable int[] buildPattern(int row, @Nullable int chargeCandidates[],
+      boolean assigned[]) {
+    if (chargeCandidates == null)
+      return null;
+    final int numOfIsotopes = chargeCandidates[0];
+    final int pattern[] = new int[numOfIsotopes + 1];
+    pattern[0] = row;
+    int length = 1, position = 1;
+    for (int n = 0; n < numOfIsotopes; n++) {
+      final int count = chargeCandidates[position++];
+      int isotope = -1;
+      for (int k = position; k < position + count; k++) {
+        final int candidate = chargeCandidates[k];
+        if (assigned[candidate] || contains(pattern, length, candidate))
+          continue;
+        if (requireMonotonicShape
+            && (intensities[candidate] > intensities[pattern[length - 1]]))
+          continue;
+        isotope = candidate;
+        break;
+      }
+      if (isotope < 0)
+        break;
+      pattern[length++] = isotope;
+      position += count;
+    }
+    return length == 1 ? null : Arrays.copyOf(pattern, length);
+  }
+
+  private @Nonnull FeatureTableRow createGroupedRow(@Nonnull List<FeatureTableRow> rows,
+      int tableIndex[], int pattern[], int charge) {
+    final FeatureTableRow monoisotopicRow = rows.get(tableIndex[pattern[0]]);
+    final SimpleFeatureTableRow newRow = new SimpleFeatureTableRow(result);
+    newRow.setCharge(charge);
+    newRow.setIonAnnotations(monoisotopicRow.getIonAnnotations());
+    for (Sample sample : result.getSamples()) {
+      List<Feature> individualFeatures = new ArrayList<>();
+      for (int isotope : pattern) {
+        final Feature feature = rows.get(tableIndex[isotope]).getFeature(sample);
+        if (feature != null)
+          individualFeatures.add(feature);
+      }
+      if (individualFeatures.isEmpty())
+        continue;
+
+      // The values of the grouped feature are those of its lowest isotope
+      final Feature feature = individualFeatures.get(0);
+      SimpleGroupedFeature groupedFeature = new SimpleGroupedFeature();
+      groupedFeature.setMz(feature.getMz());
+      groupedFeature.setRetentionTime(feature.getRetentionTime());
+      groupedFeature.setArea(feature.getArea());
+      groupedFeature.setHeight(feature.getHeight());
+      groupedFeature.setSNRatio(feature.getSNRatio());
+      groupedFeature.setScore(feature.getScore());
+      groupedFeature.setChromatogram(feature.getChromatogram());
+      groupedFeature.setMSMSSpectra(feature.getMSMSSpectra());
+      groupedFeature.setIonAnnotation(feature.getIonAnnotation());
+      groupedFeature.setIndividualFeatures(individualFeatures);
+      groupedFeature.setCharge(charge);
+      newRow.setFeature(sample, groupedFeature);
+    }
+    return newRow;
+  }
+
+  private @Nonnull FeatureTableRow copyRow(@Nonnull FeatureTableRow row) {
+    final SimpleFeatureTableRow newRow = new SimpleFeatureTableRow(result);
+    newRow.setCharge(row.getCharge());
+    newRow.setIonAnnotations(row.getIonAnnotations());
+    for (Sample sample : result.getSamples()) {
+      final Feature feature = row.getFeature(sample);
+      if (feature != null)
+        newRow.setFeature(sample, feature);
+    }
+    return newRow;
+  }
+
+  // Maximal height of the features of the row, or area if no height is set
+  private static float getIntensity(@Nonnull FeatureTableRow row, @Nonnull List<Sample> samples) {
+    float intensity = 0f;
+    for (Sample sample : samples) {
+      final Feature feature = row.getFeature(sample);
+      if (feature == null)
+        continue;
+      Float value = feature.getHeight();
+      if (value == null)
+        value = feature.getArea();
+      if ((value != null) && (value > intensity))
+        intensity = value;
+    }
+    return intensity;
+  }
+
+  private int[] sortedIndices(@Nonnull Comparator<Integer> comparator) {
+    return IntStream.range(0, numOfRows).boxed()
+        .sorted(comparator.thenComparing(Integer::compare)).mapToInt(Integer::intValue).toArray();
+  }
+
+  // Insertion sort, the number of isotopes within m/z tolerance is small
+  private void sortByDistance(int isotopes[], double distances[], int length) {
+    for (int i = 1; i < length; i++) {
+      final int isotope = isotopes[i];
+      final double distance = distances[i];
+      int j = i - 1;
+      while ((j >= 0) && ((distances[j] > distance) || ((distances[j] == distance)
+          && (compareMz(isotopes[j], isotope) > 0)))) {
+        isotopes[j + 1] = isotopes[j];
+        distances[j + 1] = distances[j];
+        j--;
+      }
+      isotopes[j + 1] = isotope;
+      distances[j + 1] = distance;
+    }
+  }
+
+  private int compareMz(int a, int b) {
+    final int result = Double.compare(mzValues[a], mzValues[b]);
+    return result != 0 ? result : Integer.compare(a, b);
+  }
+
+  private static boolean contains(int array[], int length, int value) {
+    for (int i = 0; i < length; i++) {
+      if (array[i] == value)
+        return true;
+    }
+    return false;
+  }
+
+  // First index with value >= given value
+  private static int lowerBound(double array[], double value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  // First index with value >= given value
+  private static int lowerBound(float array[], float value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  // First index with value > given value
+  private static int upperBound(float array[], float value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] <= value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
   }
 
   /** {@inheritDoc} */
@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.isotopes.isotopegrouper;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
+import io.github.msdk.util.tolerances.MaximumMzTolerance;
+import io.github.msdk.util.tolerances.RTTolerance;
+
+/**
+ * Measures the run time of IsotopeGrouperMethod on a synthetic feature table of isotope patterns
+ * with charges 1 to 3. Arguments (all optional): number of runs (default 3), number of rows
+ * (default 1,000,000), parallelism (default number of processors).
+ */
+public class IsotopeGrouperMethodBenchmark {
+
+  public static void main(String[] args) throws MSDKException {
+
+    int numberOfRuns = 3;
+    int numberOfRows = 1000000;
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    Logger logger = LoggerFactory.getLogger(IsotopeGrouperMethodBenchmark.class);
+
+    if (args.length > 0)
+      numberOfRuns = Integer.valueOf(args[0]);
+    if (args.length > 1)
+      numberOfRows = Integer.valueOf(args[1]);
+    if (args.length > 2)
+      parallelism = Integer.valueOf(args[2]);
+
+    Sample sample = new SimpleSample("sample");
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Collections.singletonList(sample));
+    Random random = new Random(1);
+    int numberOfAddedRows = 0;
+    while (numberOfAddedRows < numberOfRows) {
+      double mz = 100.0 + random.nextDouble() * 1400.0;
+      float rt = random.nextFloat() * 60f;
+      float height = 1000f + random.nextFloat() * 1E6f;
+      int charge = 1 + random.nextInt(3);
+      int numOfIsotopes = random.nextInt(4);
+      for (int n = 0; (n <= numOfIsotopes) && (numberOfAddedRows < numberOfRows); n++) {
+        SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+        SimpleFeature feature = new SimpleFeature();
+        feature.setMz(mz + n * 1.00335 / charge + (random.nextDouble() - 0.5) * 0.002);
+        feature.setRetentionTime(rt + (random.nextFloat() - 0.5f) * 0.02f);
+        feature.setHeight(height);
+        row.setFeature(sample, feature);
+        table.addRow(row);
+        numberOfAddedRows++;
+        height *= random.nextFloat();
+      }
+    }
+
+    for (int run = 0; run < numberOfRuns; run++) {
+      for (int threads : new int[] {1, parallelism}) {
+        IsotopeGrouperMethod method = new IsotopeGrouperMethod(table,
+            new MaximumMzTolerance(0.002, 5.0), new RTTolerance(0.05f, true), 3, true);
+        method.setParallelism(threads);
+        long startTime = System.currentTimeMillis();
+        FeatureTable result = method.execute();
+        long endTime = System.currentTimeMillis();
+        logger.info("Run " + (run + 1) + ", parallelism " + threads + ": " + numberOfRows
+            + " rows grouped into " + result.getRows().size() + " rows in "
+            + (endTime - startTime) + " ms");
+      }
+    }
+
+  }
+
+}
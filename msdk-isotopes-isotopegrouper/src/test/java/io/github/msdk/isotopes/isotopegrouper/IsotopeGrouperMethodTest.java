@@ -13,17 +13,139 @@
 
 package io.github.msdk.isotopes.isotopegrouper;
 
-import org.junit.Ignore;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.Feature;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.GroupedFeature;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
+import io.github.msdk.util.tolerances.MaximumMzTolerance;
+import io.github.msdk.util.tolerances.MzTolerance;
+import io.github.msdk.util.tolerances.RTTolerance;
 
 public class IsotopeGrouperMethodTest {
 
-  @Ignore("Ignored because the module is unfinished")
+  private static final MzTolerance mzTolerance = new MaximumMzTolerance(0.003, 5.0);
+  private static final RTTolerance rtTolerance = new RTTolerance(0.1f, true);
+
+  private static void addRow(SimpleFeatureTable table, Sample sample, double mz, float rt,
+      float height) {
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+    SimpleFeature feature = new SimpleFeature();
+    feature.setMz(mz);
+    feature.setRetentionTime(rt);
+    feature.setHeight(height);
+    row.setFeature(sample, feature);
+    table.addRow(row);
+  }
+
   @Test
   public void singleSampleTest() throws MSDKException {
+    Sample sample = new SimpleSample("sample");
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Collections.singletonList(sample));
+
+    // Charge 1 pattern with three isotopes, listed out of m/z order
+    addRow(table, sample, 301.1403, 5.01f, 4000f);
+    addRow(table, sample, 300.1369, 5.0f, 10000f);
+    addRow(table, sample, 302.1436, 4.99f, 800f);
+    // Charge 2 pattern
+    addRow(table, sample, 500.2500, 8.0f, 20000f);
+    addRow(table, sample, 500.7517, 8.02f, 9000f);
+    addRow(table, sample, 501.2534, 7.98f, 2000f);
+    // Isotope distance but outside of RT tolerance
+    addRow(table, sample, 200.0000, 3.0f, 5000f);
+    addRow(table, sample, 201.0034, 3.5f, 1000f);
+    // More intense isotope
+    addRow(table, sample, 400.0000, 6.0f, 1000f);
+    addRow(table, sample, 401.0034, 6.0f, 5000f);
+
+    IsotopeGrouperMethod method =
+        new IsotopeGrouperMethod(table, mzTolerance, rtTolerance, 2, true);
+    FeatureTable result = method.execute();
+    Assert.assertEquals(1.0f, method.getFinishedPercentage(), 0.0001f);
+    Assert.assertSame(result, method.getResult());
+
+    List<FeatureTableRow> rows = result.getRows();
+    Assert.assertEquals(6, rows.size());
+
+    // Grouped rows are placed at the position of their monoisotopic row
+    FeatureTableRow row = rows.get(0);
+    Assert.assertEquals(Integer.valueOf(1), row.getCharge());
+    GroupedFeature groupedFeature = (GroupedFeature) row.getFeature(sample);
+    Assert.assertEquals(300.1369, groupedFeature.getMz(), 0.0001);
+    Assert.assertEquals(10000f, groupedFeature.getHeight(), 0.0001f);
+    Assert.assertEquals(Integer.valueOf(1), groupedFeature.getCharge());
+    List<Feature> isotopes = groupedFeature.getIndividualFeatures();
+    Assert.assertEquals(3, isotopes.size());
+    Assert.assertEquals(301.1403, isotopes.get(1).getMz(), 0.0001);
+    Assert.assertEquals(302.1436, isotopes.get(2).getMz(), 0.0001);
 
+    row = rows.get(1);
+    Assert.assertEquals(Integer.valueOf(2), row.getCharge());
+    groupedFeature = (GroupedFeature) row.getFeature(sample);
+    Assert.assertEquals(500.25, groupedFeature.getMz(), 0.0001);
+    Assert.assertEquals(3, groupedFeature.getIndividualFeatures().size());
 
+    // Other rows are copied
+    for (int i = 2; i < 6; i++)
+      Assert.assertFalse(rows.get(i).getFeature(sample) instanceof GroupedFeature);
+    Assert.assertEquals(200.0, rows.get(2).getMz(), 0.0001);
+    Assert.assertEquals(401.0034, rows.get(5).getMz(), 0.0001);
+
+    // Without monotonic shape the more intense isotope is grouped
+    method = new IsotopeGrouperMethod(table, mzTolerance, rtTolerance, 2, false);
+    Assert.assertEquals(5, method.execute().getRows().size());
   }
+
+  @Test
+  public void parallelTest() throws MSDKException {
+    Random random = new Random(1);
+    Sample sample = new SimpleSample("sample");
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Collections.singletonList(sample));
+    for (int i = 0; i < 20000; i++) {
+      double mz = 100.0 + random.nextDouble() * 900.0;
+      float rt = random.nextFloat() * 30f;
+      float height = 1000f + random.nextFloat() * 1E5f;
+      int charge = 1 + random.nextInt(3);
+      int numOfIsotopes = random.nextInt(4);
+      for (int n = 0; n <= numOfIsotopes; n++) {
+        addRow(table, sample, mz + n * 1.00335 / charge + (random.nextDouble() - 0.5) * 0.002,
+            rt + (random.nextFloat() - 0.5f) * 0.05f, height);
+        height *= random.nextFloat();
+      }
+    }
+
+    IsotopeGrouperMethod method =
+        new IsotopeGrouperMethod(table, mzTolerance, rtTolerance, 3, true);
+    List<FeatureTableRow> serialRows = method.execute().getRows();
+    Assert.assertTrue(serialRows.size() < table.getRows().size());
+
+    method = new IsotopeGrouperMethod(table, mzTolerance, rtTolerance, 3, true);
+    method.setParallelism(4);
+    List<FeatureTableRow> parallelRows = method.execute().getRows();
+    Assert.assertEquals(serialRows.size(), parallelRows.size());
+    for (int i = 0; i < serialRows.size(); i++) {
+      Feature serialFeature = serialRows.get(i).getFeature(sample);
+      Feature parallelFeature = parallelRows.get(i).getFeature(sample);
+      Assert.assertEquals(serialRows.get(i).getCharge(), parallelRows.get(i).getCharge());
+      Assert.assertEquals(serialFeature.getMz(), parallelFeature.getMz());
+      if (serialFeature instanceof GroupedFeature)
+        Assert.assertEquals(((GroupedFeature) serialFeature).getIndividualFeatures(),
+            ((GroupedFeature) parallelFeature).getIndividualFeatures());
+    }
+  }
+
 }
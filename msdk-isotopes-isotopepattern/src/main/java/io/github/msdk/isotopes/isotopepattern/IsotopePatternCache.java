@@ -0,0 +1,249 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.isotopes.isotopepattern;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.SimpleMsSpectrum;
+import io.github.msdk.util.MsSpectrumUtil;
+import io.github.msdk.util.ParallelUtil;
+
+/**
+ * <p>
+ * Memoizes the isotope patterns of
+ * {@link io.github.msdk.isotopes.isotopepattern.IsotopePatternGeneratorAlgorithm}, e.g. when
+ * scoring many candidate formulas of many features. Patterns are cached by the formula, charge,
+ * minimum abundance and m/z tolerance, and stored as primitive arrays normalized to the intensity
+ * 1, so they can be returned at any intensity scale. Formulas are normalized to Hill order first,
+ * so different notations of the same formula share their pattern.
+ * </p>
+ *
+ * <p>
+ * The cache holds at most the given number of patterns, evicting those not used recently. It is
+ * thread-safe, and a pattern requested by several threads at once is only generated once.
+ * </p>
+ */
+public class IsotopePatternCache {
+
+  private static final Pattern elementPattern = Pattern.compile("([A-Z][a-z]?)([0-9]*)");
+
+  private final @Nonnull LoadingCache<PatternKey, CachedPattern> cache;
+
+  /**
+   * <p>
+   * Constructor for IsotopePatternCache.
+   * </p>
+   *
+   * @param maximumSize the maximum number of cached patterns.
+   */
+  public IsotopePatternCache(long maximumSize) {
+    Preconditions.checkArgument(maximumSize >= 0, "Maximum size must not be negative");
+    cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats()
+        .build(CacheLoader.from(IsotopePatternCache::generatePattern));
+  }
+
+  /**
+   * <p>
+   * Returns the isotope pattern of a chemical formula, like
+   * {@link io.github.msdk.isotopes.isotopepattern.IsotopePatternGeneratorAlgorithm#generateIsotopes(String, Double, Float, Double)}.
+   * </p>
+   *
+   * @param chemicalFormula a {@link java.lang.String} object.
+   * @param minAbundance a {@link java.lang.Double} object.
+   * @param intensityScale a {@link java.lang.Float} object.
+   * @param mzTolerance a {@link java.lang.Double} object.
+   * @return a {@link io.github.msdk.datamodel.MsSpectrum} object.
+   */
+  public @Nonnull MsSpectrum generateIsotopes(@Nonnull String chemicalFormula,
+      @Nonnull Double minAbundance, @Nonnull Float intensityScale, @Nonnull Double mzTolerance) {
+
+    Matcher m = IsotopePatternGeneratorAlgorithm.matchFormula(chemicalFormula);
+    final PatternKey key = new PatternKey(normalizeFormula(m.group(1)),
+        IsotopePatternGeneratorAlgorithm.parseCharge(m), minAbundance, mzTolerance);
+
+    CachedPattern pattern;
+    try {
+      pattern = cache.getUnchecked(key);
+    } catch (UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+
+    // Scale a copy of the intensities, the maximum intensity is 1
+    final float intensityValues[] =
+        Arrays.copyOf(pattern.intensityValues, pattern.intensityValues.length);
+    MsSpectrumUtil.normalizeIntensity(intensityValues, intensityValues.length, intensityScale);
+    return new SimpleMsSpectrum(pattern.mzValues, intensityValues, intensityValues.length,
+        MsSpectrumType.CENTROIDED);
+  }
+
+  /**
+   * <p>
+   * Returns the isotope patterns of many chemical formulas.
+   * </p>
+   *
+   * @param chemicalFormulas a {@link java.util.List} of {@link java.lang.String} objects.
+   * @param minAbundance a {@link java.lang.Double} object.
+   * @param intensityScale a {@link java.lang.Float} object.
+   * @param mzTolerance a {@link java.lang.Double} object.
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   * @return a {@link java.util.List} of the patterns, in the order of the formulas.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  public @Nonnull List<MsSpectrum> generateIsotopes(@Nonnull List<String> chemicalFormulas,
+      @Nonnull Double minAbundance, @Nonnull Float intensityScale, @Nonnull Double mzTolerance,
+      int parallelism) throws MSDKException {
+    Preconditions.checkNotNull(chemicalFormulas);
+
+    final MsSpectrum patterns[] = new MsSpectrum[chemicalFormulas.size()];
+    ParallelUtil.forEachIndex(patterns.length, parallelism, i -> patterns[i] =
+        generateIsotopes(chemicalFormulas.get(i), minAbundance, intensityScale, mzTolerance));
+    return Arrays.asList(patterns);
+  }
+
+  /**
+   * <p>
+   * Returns the statistics of the cache, e.g. the numbers of hits, misses and evictions.
+   * </p>
+   *
+   * @return a {@link com.google.common.cache.CacheStats} object.
+   */
+  public @Nonnull CacheStats getStatistics() {
+    return cache.stats();
+  }
+
+  /**
+   * <p>
+   * Returns the number of cached patterns.
+   * </p>
+   *
+   * @return a long.
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * <p>
+   * Removes all cached patterns.
+   * </p>
+   */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Writes a formula without charge in Hill order: C and H first if there is C, then the other
+   * elements alphabetically, each with its total count.
+   */
+  static @Nonnull String normalizeFormula(@Nonnull String formulaNoCharge) {
+    Map<String, Integer> counts = new TreeMap<>();
+    Matcher m = elementPattern.matcher(formulaNoCharge);
+    while (m.find()) {
+      final int count = m.group(2).isEmpty() ? 1 : Integer.parseInt(m.group(2));
+      counts.merge(m.group(1), count, Integer::sum);
+    }
+
+    StringBuilder normalized = new StringBuilder();
+    if (counts.containsKey("C")) {
+      appendElement(normalized, "C", counts.remove("C"));
+      if (counts.containsKey("H"))
+        appendElement(normalized, "H", counts.remove("H"));
+    }
+    for (Map.Entry<String, Integer> element : counts.entrySet())
+      appendElement(normalized, element.getKey(), element.getValue());
+    return normalized.length() > 0 ? normalized.toString() : formulaNoCharge;
+  }
+
+  private static void appendElement(StringBuilder formula, String element, int count) {
+    if (count == 0)
+      return;
+    formula.append(element);
+    if (count != 1)
+      formula.append(count);
+  }
+
+  private static @Nonnull CachedPattern generatePattern(@Nonnull PatternKey key) {
+    MsSpectrum pattern = IsotopePatternGeneratorAlgorithm.generateIsotopes(
+        IsotopePatternGeneratorAlgorithm.parseFormula(key.formula), key.charge,
+        key.minAbundance, 1.0f, key.mzTolerance);
+    return new CachedPattern(pattern.getMzValues(), pattern.getIntensityValues());
+  }
+
+  private static class PatternKey {
+
+    private final @Nonnull String formula;
+    private final int charge;
+    private final double minAbundance, mzTolerance;
+
+    private PatternKey(@Nonnull String formula, int charge, double minAbundance,
+        double mzTolerance) {
+      this.formula = formula;
+      this.charge = charge;
+      this.minAbundance = minAbundance;
+      this.mzTolerance = mzTolerance;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof PatternKey))
+        return false;
+      final PatternKey other = (PatternKey) obj;
+      return formula.equals(other.formula) && (charge == other.charge)
+          && (Double.compare(minAbundance, other.minAbundance) == 0)
+          && (Double.compare(mzTolerance, other.mzTolerance) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = formula.hashCode();
+      result = 31 * result + charge;
+      result = 31 * result + Double.hashCode(minAbundance);
+      result = 31 * result + Double.hashCode(mzTolerance);
+      return result;
+    }
+
+  }
+
+  /** Isotope pattern with the maximum intensity 1. */
+  private static class CachedPattern {
+
+    private final @Nonnull double mzValues[];
+    private final @Nonnull float intensityValues[];
+
+    private CachedPattern(@Nonnull double mzValues[], @Nonnull float intensityValues[]) {
+      this.mzValues = mzValues;
+      this.intensityValues = intensityValues;
+    }
+
+  }
+
+}
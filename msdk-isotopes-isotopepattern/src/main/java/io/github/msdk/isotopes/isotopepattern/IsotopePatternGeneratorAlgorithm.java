@@ -57,11 +57,31 @@ public class IsotopePatternGeneratorAlgorithm {
   public static @Nonnull MsSpectrum generateIsotopes(@Nonnull String chemicalFormula,
       @Nonnull Double minAbundance, @Nonnull Float intensityScale, @Nonnull Double mzTolerance) {
 
+    Matcher m = matchFormula(chemicalFormula);
+    String formulaNoCharge = m.group(1);
+    int charge = parseCharge(m);
+
+    IMolecularFormula cdkFormula = parseFormula(formulaNoCharge);
+
+    return generateIsotopes(cdkFormula, charge, minAbundance, intensityScale, mzTolerance);
+
+  }
+
+  /**
+   * Matches a chemical formula with optional charge. Group 1 of the result is the formula without
+   * charge.
+   */
+  static @Nonnull Matcher matchFormula(@Nonnull String chemicalFormula) {
     Matcher m = formulaPattern.matcher(chemicalFormula);
     if (!m.matches())
       throw new IllegalArgumentException("Invalid chemical formula: " + chemicalFormula);
+    return m;
+  }
 
-    String formulaNoCharge = m.group(1);
+  /**
+   * Returns the charge of a formula matched by matchFormula().
+   */
+  static int parseCharge(@Nonnull Matcher m) {
     String chargeCount = m.group(4);
     String chargeSign = m.group(5);
 
@@ -78,6 +98,13 @@ public class IsotopePatternGeneratorAlgorithm {
     if ("-".equals(chargeSign))
       charge *= -1;
 
+    return charge;
+  }
+
+  /**
+   * Creates the CDK formula of a formula without charge.
+   */
+  static @Nonnull IMolecularFormula parseFormula(@Nonnull String formulaNoCharge) {
     IMolecularFormula cdkFormula = MolecularFormulaManipulator.getMolecularFormula(formulaNoCharge,
         SilentChemObjectBuilder.getInstance());
 
@@ -85,8 +112,7 @@ public class IsotopePatternGeneratorAlgorithm {
       throw new MSDKRuntimeException(
           "Could not generate CDK chemical formula for " + formulaNoCharge);
 
-    return generateIsotopes(cdkFormula, charge, minAbundance, intensityScale, mzTolerance);
-
+    return cdkFormula;
   }
 
   /**
@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.isotopes.isotopepattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.datamodel.MsSpectrum;
+
+public class IsotopePatternCacheTest {
+
+  // CDK sums the isotope masses in varying order, so repeated patterns differ in the last digits
+  private static void assertSamePattern(MsSpectrum expected, MsSpectrum actual) {
+    Assert.assertEquals(expected.getNumberOfDataPoints(), actual.getNumberOfDataPoints());
+    Assert.assertArrayEquals(expected.getMzValues(), actual.getMzValues(), 1E-9);
+    float intensityValues[] = expected.getIntensityValues();
+    for (int i = 0; i < intensityValues.length; i++)
+      Assert.assertEquals(intensityValues[i], actual.getIntensityValues()[i],
+          intensityValues[i] * 1E-6f);
+  }
+
+  @Test
+  public void testSamePatterns() {
+    IsotopePatternCache cache = new IsotopePatternCache(100);
+    for (String formula : new String[] {"C10", "C39H60N14O14", "C6H12O6+", "[C6H12O6]2-",
+        "C8H10N4O2", "H2O"}) {
+      for (float intensityScale : new float[] {1.0f, 1000.0f}) {
+        assertSamePattern(
+            IsotopePatternGeneratorAlgorithm.generateIsotopes(formula, 0.001, intensityScale,
+                0.001),
+            cache.generateIsotopes(formula, 0.001, intensityScale, 0.001));
+      }
+    }
+    Assert.assertEquals(6, cache.size());
+    Assert.assertEquals(6, cache.getStatistics().hitCount());
+    Assert.assertEquals(6, cache.getStatistics().missCount());
+  }
+
+  @Test
+  public void testNormalizedFormula() {
+    Assert.assertEquals("C6H12O6", IsotopePatternCache.normalizeFormula("O6H12C6"));
+    Assert.assertEquals("C2H6O", IsotopePatternCache.normalizeFormula("CH3CH2OH"));
+    Assert.assertEquals("ClH", IsotopePatternCache.normalizeFormula("HCl"));
+    Assert.assertEquals("H2O", IsotopePatternCache.normalizeFormula("H2O1"));
+
+    IsotopePatternCache cache = new IsotopePatternCache(100);
+    MsSpectrum pattern = cache.generateIsotopes("C2H6O", 0.001, 1.0f, 0.001);
+    MsSpectrum cachedPattern = cache.generateIsotopes("CH3CH2OH", 0.001, 1.0f, 0.001);
+    Assert.assertArrayEquals(pattern.getMzValues(), cachedPattern.getMzValues(), 0.0);
+    Assert.assertArrayEquals(pattern.getIntensityValues(), cachedPattern.getIntensityValues(), 0f);
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(1, cache.getStatistics().hitCount());
+
+    // Other parameters are cached separately
+    cache.generateIsotopes("C2H6O+", 0.001, 1.0f, 0.001);
+    cache.generateIsotopes("C2H6O", 0.01, 1.0f, 0.001);
+    cache.generateIsotopes("C2H6O", 0.001, 1.0f, 0.01);
+    Assert.assertEquals(4, cache.size());
+
+    cache.clear();
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testMaximumSize() {
+    IsotopePatternCache cache = new IsotopePatternCache(2);
+    for (String formula : new String[] {"C10", "C11", "C12", "C13"})
+      cache.generateIsotopes(formula, 0.001, 1.0f, 0.001);
+    Assert.assertTrue(cache.size() <= 2);
+    Assert.assertEquals(2, cache.getStatistics().evictionCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFormula() {
+    new IsotopePatternCache(10).generateIsotopes("c6h12o6", 0.001, 1.0f, 0.001);
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    List<String> formulas = new ArrayList<>();
+    for (int i = 1; i <= 30; i++)
+      formulas.add("C" + i + "H" + (2 * i + 2) + (i % 3 == 0 ? "O" : ""));
+    formulas.addAll(Arrays.asList("C1H4", "C2H6", "C3H8O"));
+
+    IsotopePatternCache cache = new IsotopePatternCache(1000);
+    List<MsSpectrum> patterns = cache.generateIsotopes(formulas, 0.001, 100.0f, 0.001, 3);
+    Assert.assertEquals(formulas.size(), patterns.size());
+    for (int i = 0; i < formulas.size(); i++) {
+      assertSamePattern(
+          IsotopePatternGeneratorAlgorithm.generateIsotopes(formulas.get(i), 0.001, 100.0f, 0.001),
+          patterns.get(i));
+    }
+    Assert.assertEquals(30, cache.size());
+    Assert.assertEquals(3, cache.getStatistics().hitCount());
+  }
+
+}
@@ -13,19 +13,49 @@
 
 package io.github.msdk.normalization.compound;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+
 import io.github.msdk.MSDKException;
 import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+import io.github.msdk.datamodel.ColumnarFeatureTableRow;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
-import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.util.ParallelUtil;
 
 /**
+ * <p>
  * This class normalized a list of feature table columns based on a set of features.
+ * </p>
+ *
+ * <p>
+ * The area and the height of every feature are divided by a normalization factor, which is
+ * calculated from the areas or heights of the internal standards in the same sample. The distance
+ * between a row and a standard is mzRtWeight * |m/z difference| + |RT difference|. With
+ * {@link NormalizationType#NEAREST_STANDARD} the factor is the value of the nearest standard
+ * which was detected in the sample. With {@link NormalizationType#WEIGHTED_CONTRIBUTION} the
+ * factor is the average of the values of all standards detected in the sample, weighted by the
+ * inverse of their distances. Features of samples without any detected standard are not changed.
+ * </p>
+ *
+ * <p>
+ * The result is a {@link io.github.msdk.datamodel.ColumnarFeatureTable}. The standards are sorted
+ * by m/z value, and the nearest standards and the weights of each row are calculated once for all
+ * samples. The factors are then applied to the area and height columns sample by sample, in
+ * parallel if requested, without creating any feature objects.
+ * </p>
  */
 public class FeatureNormalizationByCompoundMethod implements MSDKMethod<FeatureTable> {
 
@@ -36,10 +66,15 @@ public class FeatureNormalizationByCompoundMethod implements MSDKMethod<FeatureT
 
   // Other variables
   private final @Nonnull FeatureTable featureTable;
-  private final @Nonnull FeatureTable result;
+  private @Nullable ColumnarFeatureTable result;
   private boolean canceled = false;
+  private int parallelism = 1;
   private int processedFeatures = 0, totalFeatures = 0;
 
+  // Positions of the rows and of the standards, which are sorted by m/z value
+  private double rowMz[], standardMz[];
+  private float rowRT[], standardRT[];
+
   /**
    * <p>
    * Constructor for FeatureNormalizationByCompoundMethod.
@@ -59,26 +94,278 @@ public class FeatureNormalizationByCompoundMethod implements MSDKMethod<FeatureT
     this.normalizationType = normalizationType;
     this.mzRtWeight = mzRtWeight;
     this.internalStandardRows = internalStandardRows;
+  }
 
-    // Make a copy of the feature table
-    result = new SimpleFeatureTable();
+  /**
+   * <p>
+   * Sets the number of threads used to normalize the samples. The result does not depend on this
+   * setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
   }
 
   /** {@inheritDoc} */
   @Override
   public FeatureTable execute() throws MSDKException {
+
+    final List<FeatureTableRow> rows = featureTable.getRows();
+    final List<Sample> samples = featureTable.getSamples();
+
     // Total features
-    totalFeatures = featureTable.getRows().size();
+    totalFeatures = rows.size();
+
+    // Make a copy of the feature table
+    final ColumnarFeatureTable normalizedTable = copyFeatureTable(rows, samples);
+    if (canceled)
+      return null;
+
+    // Positions of the rows
+    rowMz = new double[rows.size()];
+    rowRT = new float[rows.size()];
+    for (int i = 0; i < rows.size(); i++) {
+      final Double mz = rows.get(i).getMz();
+      final Float rt = rows.get(i).getRT();
+      rowMz[i] = mz == null ? Double.NaN : mz;
+      rowRT[i] = rt == null ? Float.NaN : rt;
+    }
+
+    // Positions and values of the standards, sorted by m/z value
+    final List<FeatureTableRow> standards = new ArrayList<>();
+    for (FeatureTableRow standard : internalStandardRows) {
+      if ((standard.getMz() != null) && (standard.getRT() != null))
+        standards.add(standard);
+    }
+    if (standards.isEmpty())
+      throw new MSDKException("None of the internal standard rows has an m/z value and RT");
+    standards.sort((a, b) -> Double.compare(a.getMz(), b.getMz()));
+    standardMz = new double[standards.size()];
+    standardRT = new float[standards.size()];
+    final float standardAreas[][] = new float[samples.size()][standards.size()];
+    final float standardHeights[][] = new float[samples.size()][standards.size()];
+    for (int s = 0; s < standards.size(); s++) {
+      final FeatureTableRow standard = standards.get(s);
+      standardMz[s] = standard.getMz();
+      standardRT[s] = standard.getRT();
+      for (int j = 0; j < samples.size(); j++) {
+        final Feature feature = standard.getFeature(samples.get(j));
+        standardAreas[j][s] = getStandardValue(feature == null ? null : feature.getArea());
+        standardHeights[j][s] = getStandardValue(feature == null ? null : feature.getHeight());
+      }
+    }
+
+    // Calculate the factors of the rows once for all samples
+    final Normalizer areaNormalizer = new Normalizer(standardAreas);
+    final Normalizer heightNormalizer = new Normalizer(standardHeights);
+    if (canceled)
+      return null;
 
-    /*
-     * TODO: Write method
-     */
+    // Normalize the samples, in parallel if requested
+    if (parallelism == 1) {
+      for (int j = 0; j < samples.size(); j++) {
+        normalizeSample(normalizedTable, j, areaNormalizer, heightNormalizer);
+        if (canceled)
+          return null;
+        processedFeatures = (int) ((long) totalFeatures * (j + 1) / samples.size());
+      }
+    } else {
+      ParallelUtil.forEachIndex(samples.size(), parallelism, j -> {
+        if (!canceled)
+          normalizeSample(normalizedTable, j, areaNormalizer, heightNormalizer);
+      });
+      if (canceled)
+        return null;
+    }
     processedFeatures = totalFeatures;
 
     // Return the new feature table
+    result = normalizedTable;
     return result;
   }
 
+  /**
+   * Copies the feature table. A ColumnarFeatureTable is copied as a whole, other tables feature
+   * by feature into a sample-major ColumnarFeatureTable.
+   */
+  private @Nonnull ColumnarFeatureTable copyFeatureTable(@Nonnull List<FeatureTableRow> rows,
+      @Nonnull List<Sample> samples) {
+    if (featureTable instanceof ColumnarFeatureTable)
+      return new ColumnarFeatureTable((ColumnarFeatureTable) featureTable);
+
+    ColumnarFeatureTable copy = new ColumnarFeatureTable(samples, Layout.SAMPLE_MAJOR);
+    for (FeatureTableRow row : rows) {
+      ColumnarFeatureTableRow newRow = copy.addRow();
+      newRow.setCharge(row.getCharge());
+      newRow.setIonAnnotations(row.getIonAnnotations());
+      for (Sample sample : samples) {
+        final Feature feature = row.getFeature(sample);
+        if (feature != null)
+          newRow.setFeature(sample, feature);
+      }
+      if (canceled)
+        break;
+    }
+    return copy;
+  }
+
+  private void normalizeSample(@Nonnull ColumnarFeatureTable table, int sample,
+      @Nonnull Normalizer areaNormalizer, @Nonnull Normalizer heightNormalizer) {
+    final int numOfRows = table.getNumberOfRows();
+    for (int row = 0; row < numOfRows; row++) {
+      if (!table.hasFeature(row, sample))
+        continue;
+      final float area = table.getArea(row, sample);
+      if (!Float.isNaN(area)) {
+        final double factor = areaNormalizer.getFactor(row, sample);
+        if (!Double.isNaN(factor))
+          table.setArea(row, sample, (float) (area / factor));
+      }
+      final float height = table.getHeight(row, sample);
+      if (!Float.isNaN(height)) {
+        final double factor = heightNormalizer.getFactor(row, sample);
+        if (!Double.isNaN(factor))
+          table.setHeight(row, sample, (float) (height / factor));
+      }
+    }
+  }
+
+  // Values of standards which were not detected cannot be used as factors
+  private static float getStandardValue(@Nullable Float value) {
+    return (value == null) || !(value > 0f) ? Float.NaN : value;
+  }
+
+  private double getDistance(int row, int standard) {
+    return mzRtWeight * Math.abs(rowMz[row] - standardMz[standard])
+        + Math.abs(rowRT[row] - standardRT[standard]);
+  }
+
+  /**
+   * Returns the nearest of the detected standards, or -1 if there is none. The search starts at
+   * the m/z value of the row in the sorted standards and stops as soon as the m/z difference alone
+   * exceeds the distance of the nearest standard found so far.
+   */
+  private int findNearestStandard(int row, @Nonnull BitSet detected) {
+    if (Double.isNaN(rowMz[row]) || Float.isNaN(rowRT[row]))
+      return -1;
+    int nearest = -1;
+    double nearestDistance = Double.POSITIVE_INFINITY;
+    int lower = lowerBound(standardMz, rowMz[row]) - 1, upper = lower + 1;
+    while ((lower >= 0) || (upper < standardMz.length)) {
+      final double lowerMzDistance =
+          lower >= 0 ? mzRtWeight * (rowMz[row] - standardMz[lower]) : Double.POSITIVE_INFINITY;
+      final double upperMzDistance = upper < standardMz.length
+          ? mzRtWeight * (standardMz[upper] - rowMz[row]) : Double.POSITIVE_INFINITY;
+      if (Math.min(lowerMzDistance, upperMzDistance) > nearestDistance)
+        break;
+      final int standard = lowerMzDistance <= upperMzDistance ? lower-- : upper++;
+      if (!detected.get(standard))
+        continue;
+      final double distance = getDistance(row, standard);
+      if ((distance < nearestDistance)
+          || ((distance == nearestDistance) && (standard < nearest))) {
+        nearest = standard;
+        nearestDistance = distance;
+      }
+    }
+    return nearest;
+  }
+
+  // First index with value >= given value
+  private static int lowerBound(double array[], double value) {
+    int low = 0, high = array.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (array[mid] < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Normalization factors of one value (area or height). The samples are grouped by the set of
+   * detected standards, which is usually the same for all samples, and the nearest standards or
+   * the weights of the rows are calculated once for each group.
+   */
+  private class Normalizer {
+
+    private final float standardValues[][];
+    private final int sampleGroups[];
+    private final int nearestStandards[][];
+    private final double weights[][];
+
+    Normalizer(float standardValues[][]) {
+      this.standardValues = standardValues;
+      final int numOfRows = rowMz.length;
+
+      // Group the samples by detected standards
+      final Map<BitSet, Integer> groups = new LinkedHashMap<>();
+      sampleGroups = new int[standardValues.length];
+      for (int j = 0; j < standardValues.length; j++) {
+        BitSet detected = new BitSet(standardMz.length);
+        for (int s = 0; s < standardMz.length; s++) {
+          if (!Float.isNaN(standardValues[j][s]))
+            detected.set(s);
+        }
+        Integer group = groups.get(detected);
+        if (group == null) {
+          group = groups.size();
+          groups.put(detected, group);
+        }
+        sampleGroups[j] = group;
+      }
+
+      if (normalizationType == NormalizationType.NEAREST_STANDARD) {
+        nearestStandards = new int[groups.size()][];
+        for (Map.Entry<BitSet, Integer> group : groups.entrySet()) {
+          int nearest[] = new int[numOfRows];
+          for (int row = 0; row < numOfRows; row++)
+            nearest[row] = findNearestStandard(row, group.getKey());
+          nearestStandards[group.getValue()] = nearest;
+        }
+        weights = null;
+      } else {
+        // Standards at the position of the row get an infinite weight
+        weights = new double[numOfRows][standardMz.length];
+        for (int row = 0; row < numOfRows; row++) {
+          if (Double.isNaN(rowMz[row]) || Float.isNaN(rowRT[row]))
+            Arrays.fill(weights[row], Double.NaN);
+          else {
+            for (int s = 0; s < standardMz.length; s++)
+              weights[row][s] = 1.0 / getDistance(row, s);
+          }
+        }
+        nearestStandards = null;
+      }
+    }
+
+    /** Returns the factor of given row and sample, or NaN if the row cannot be normalized. */
+    double getFactor(int row, int sample) {
+      final float values[] = standardValues[sample];
+      if (nearestStandards != null) {
+        final int nearest = nearestStandards[sampleGroups[sample]][row];
+        return nearest < 0 ? Double.NaN : values[nearest];
+      }
+
+      final double rowWeights[] = weights[row];
+      double weightedSum = 0.0, sumOfWeights = 0.0;
+      for (int s = 0; s < values.length; s++) {
+        if (Float.isNaN(values[s]))
+          continue;
+        if (rowWeights[s] == Double.POSITIVE_INFINITY)
+          return values[s];
+        weightedSum += rowWeights[s] * values[s];
+        sumOfWeights += rowWeights[s];
+      }
+      return sumOfWeights > 0.0 ? weightedSum / sumOfWeights : Double.NaN;
+    }
+
+  }
+
   /** {@inheritDoc} */
   @Override
   @Nullable
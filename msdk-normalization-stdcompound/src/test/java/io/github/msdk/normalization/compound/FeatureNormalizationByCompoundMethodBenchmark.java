@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+
+package io.github.msdk.normalization.compound;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+import io.github.msdk.datamodel.ColumnarFeatureTableRow;
+import io.github.msdk.datamodel.FeatureTable;
+import io.github.msdk.datamodel.FeatureTableRow;
+import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleSample;
+
+/**
+ * Measures the run time of FeatureNormalizationByCompoundMethod on a synthetic sample-major
+ * ColumnarFeatureTable with 20 internal standards. Arguments (all optional): number of samples
+ * (default 1,000), number of rows (default 50,000), parallelism (default number of processors).
+ * The default size needs a heap of about 4 GB.
+ */
+public class FeatureNormalizationByCompoundMethodBenchmark {
+
+  public static void main(String[] args) throws MSDKException {
+
+    int numberOfSamples = 1000;
+    int numberOfRows = 50000;
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    Logger logger = LoggerFactory.getLogger(FeatureNormalizationByCompoundMethodBenchmark.class);
+
+    if (args.length > 0)
+      numberOfSamples = Integer.valueOf(args[0]);
+    if (args.length > 1)
+      numberOfRows = Integer.valueOf(args[1]);
+    if (args.length > 2)
+      parallelism = Integer.valueOf(args[2]);
+
+    List<Sample> samples = new ArrayList<>();
+    for (int i = 0; i < numberOfSamples; i++)
+      samples.add(new SimpleSample("sample " + i));
+    ColumnarFeatureTable table = new ColumnarFeatureTable(samples, Layout.SAMPLE_MAJOR);
+    Random random = new Random(1);
+    SimpleFeature feature = new SimpleFeature();
+    for (int i = 0; i < numberOfRows; i++) {
+      ColumnarFeatureTableRow row = table.addRow();
+      feature.setMz(100.0 + random.nextDouble() * 900.0);
+      feature.setRetentionTime(random.nextFloat() * 30f);
+      for (Sample sample : samples) {
+        feature.setArea(random.nextFloat() * 1E6f);
+        feature.setHeight(random.nextFloat() * 1E5f);
+        row.setFeature(sample, feature);
+      }
+    }
+    List<FeatureTableRow> standards = table.getRows().subList(0, Math.min(20, numberOfRows));
+
+    for (NormalizationType normalizationType : NormalizationType.values()) {
+      FeatureNormalizationByCompoundMethod method =
+          new FeatureNormalizationByCompoundMethod(table, normalizationType, standards, 10);
+      method.setParallelism(parallelism);
+      long startTime = System.currentTimeMillis();
+      FeatureTable result = method.execute();
+      long endTime = System.currentTimeMillis();
+      logger.info(normalizationType + ", parallelism " + parallelism + ": " + numberOfSamples
+          + " samples x " + numberOfRows + " rows normalized in " + (endTime - startTime)
+          + " ms");
+      result.dispose();
+    }
+
+  }
+
+}
@@ -15,21 +15,147 @@ package io.github.msdk.normalization.compound;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import io.github.msdk.datamodel.ColumnarFeatureTable;
+import io.github.msdk.datamodel.ColumnarFeatureTable.Layout;
+import io.github.msdk.datamodel.ColumnarFeatureTableRow;
+import io.github.msdk.datamodel.Feature;
 import io.github.msdk.datamodel.FeatureTable;
 import io.github.msdk.datamodel.FeatureTableRow;
 import io.github.msdk.datamodel.Sample;
+import io.github.msdk.datamodel.SimpleFeature;
+import io.github.msdk.datamodel.SimpleFeatureTable;
+import io.github.msdk.datamodel.SimpleFeatureTableRow;
+import io.github.msdk.datamodel.SimpleSample;
 import io.github.msdk.io.mztab.MzTabFileImportMethod;
 import io.github.msdk.normalization.compound.FeatureNormalizationByCompoundMethod;
 import io.github.msdk.normalization.compound.NormalizationType;
 
 public class FeatureNormalizationByCompoundMethodTest {
 
+  private static SimpleFeatureTableRow addRow(SimpleFeatureTable table, double mz, float rt,
+      float... areas) {
+    SimpleFeatureTableRow row = new SimpleFeatureTableRow(table);
+    List<Sample> samples = table.getSamples();
+    for (int i = 0; i < areas.length; i++) {
+      if (Float.isNaN(areas[i]))
+        continue;
+      SimpleFeature feature = new SimpleFeature();
+      feature.setMz(mz);
+      feature.setRetentionTime(rt);
+      feature.setArea(areas[i]);
+      feature.setHeight(areas[i] / 10f);
+      row.setFeature(samples.get(i), feature);
+    }
+    table.addRow(row);
+    return row;
+  }
+
+  private static SimpleFeatureTable createTable() {
+    SimpleFeatureTable table = new SimpleFeatureTable();
+    table.setSamples(Arrays.asList(new SimpleSample("sample 1"), new SimpleSample("sample 2")));
+    // Standards, the second one is not detected in sample 2
+    addRow(table, 100.0, 1f, 10f, 20f);
+    addRow(table, 300.0, 5f, 40f, Float.NaN);
+    // Near the first standard, and between the standards
+    addRow(table, 150.0, 2f, 100f, 100f);
+    addRow(table, 200.0, 2f, 100f, 100f);
+    return table;
+  }
+
+  @Test
+  public void testNearestStandard() throws Exception {
+    SimpleFeatureTable table = createTable();
+    List<FeatureTableRow> rows = table.getRows();
+    List<Sample> samples = table.getSamples();
+    FeatureNormalizationByCompoundMethod method = new FeatureNormalizationByCompoundMethod(table,
+        NormalizationType.NEAREST_STANDARD, rows.subList(0, 2), 1);
+    FeatureTable normalizedTable = method.execute();
+    Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+    Assert.assertSame(normalizedTable, method.getResult());
+    Assert.assertEquals(4, normalizedTable.getRows().size());
+
+    List<FeatureTableRow> normalizedRows = normalizedTable.getRows();
+    Feature feature = normalizedRows.get(2).getFeature(samples.get(0));
+    Assert.assertEquals(10f, feature.getArea(), 0.0001f);
+    Assert.assertEquals(10f, feature.getHeight(), 0.0001f);
+    Assert.assertEquals(150.0, feature.getMz(), 0.0);
+    // Distance 101 to the first and 103 to the second standard
+    Assert.assertEquals(10f, normalizedRows.get(3).getFeature(samples.get(0)).getArea(), 0.0001f);
+    // Only the first standard is detected in sample 2
+    Assert.assertEquals(5f, normalizedRows.get(3).getFeature(samples.get(1)).getArea(), 0.0001f);
+    Assert.assertEquals(1f, normalizedRows.get(1).getFeature(samples.get(0)).getArea(), 0.0001f);
+    Assert.assertNull(normalizedRows.get(1).getFeature(samples.get(1)));
+
+    // The original table is not changed
+    Assert.assertEquals(100f, rows.get(2).getFeature(samples.get(0)).getArea(), 0.0f);
+  }
+
+  @Test
+  public void testWeightedContribution() throws Exception {
+    SimpleFeatureTable table = createTable();
+    List<Sample> samples = table.getSamples();
+    FeatureNormalizationByCompoundMethod method = new FeatureNormalizationByCompoundMethod(table,
+        NormalizationType.WEIGHTED_CONTRIBUTION, table.getRows().subList(0, 2), 1);
+    List<FeatureTableRow> normalizedRows = method.execute().getRows();
+
+    // Weights 1/101 and 1/103
+    float factor = (float) ((10.0 / 101 + 40.0 / 103) / (1.0 / 101 + 1.0 / 103));
+    Assert.assertEquals(100f / factor, normalizedRows.get(3).getFeature(samples.get(0)).getArea(),
+        0.0001f);
+    Assert.assertEquals(5f, normalizedRows.get(3).getFeature(samples.get(1)).getArea(), 0.0001f);
+    // A standard has an infinite weight for itself
+    Assert.assertEquals(1f, normalizedRows.get(0).getFeature(samples.get(0)).getArea(), 0.0001f);
+  }
+
+  @Test
+  public void testParallelism() throws Exception {
+    List<Sample> samples = new ArrayList<>();
+    for (int i = 0; i < 50; i++)
+      samples.add(new SimpleSample("sample " + i));
+    ColumnarFeatureTable table = new ColumnarFeatureTable(samples, Layout.ROW_MAJOR);
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      ColumnarFeatureTableRow row = table.addRow();
+      double mz = 100.0 + random.nextDouble() * 900.0;
+      float rt = random.nextFloat() * 30f;
+      for (Sample sample : samples) {
+        if (random.nextInt(10) == 0)
+          continue;
+        SimpleFeature feature = new SimpleFeature();
+        feature.setMz(mz);
+        feature.setRetentionTime(rt);
+        feature.setArea(random.nextFloat() * 1E6f);
+        feature.setHeight(random.nextFloat() * 1E5f);
+        row.setFeature(sample, feature);
+      }
+    }
+    List<FeatureTableRow> standards = table.getRows().subList(0, 20);
+
+    for (NormalizationType normalizationType : NormalizationType.values()) {
+      FeatureNormalizationByCompoundMethod method =
+          new FeatureNormalizationByCompoundMethod(table, normalizationType, standards, 10);
+      ColumnarFeatureTable serialTable = (ColumnarFeatureTable) method.execute();
+      method = new FeatureNormalizationByCompoundMethod(table, normalizationType, standards, 10);
+      method.setParallelism(4);
+      ColumnarFeatureTable parallelTable = (ColumnarFeatureTable) method.execute();
+      Assert.assertEquals(Layout.ROW_MAJOR, parallelTable.getLayout());
+      for (int i = 0; i < table.getNumberOfRows(); i++) {
+        for (int j = 0; j < samples.size(); j++) {
+          Assert.assertEquals(serialTable.getArea(i, j), parallelTable.getArea(i, j), 0f);
+          Assert.assertEquals(serialTable.getHeight(i, j), parallelTable.getHeight(i, j), 0f);
+        }
+      }
+    }
+  }
+
   @Ignore
   @Test
   public void testMzTab_Sample() throws Exception {
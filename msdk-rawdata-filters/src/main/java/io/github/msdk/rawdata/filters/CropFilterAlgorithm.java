@@ -19,6 +19,7 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
 
 /**
@@ -28,14 +29,13 @@ import io.github.msdk.util.MsScanUtil;
  */
 public class CropFilterAlgorithm implements MSDKFilteringAlgorithm {
 
+  // Data structures, reused by the scans filtered in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+
   private final @Nonnull Range<Double> mzRange;
   private final @Nonnull Range<Float> rtRange;
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
-
   /**
    * <p>
    * Constructor for CropFilterAlgorithm.
@@ -60,9 +60,11 @@ public class CropFilterAlgorithm implements MSDKFilteringAlgorithm {
       return null;
 
     // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(scan);
+    final double mzBuffer[] = buffer.getMzValues();
+    final float intensityBuffer[] = buffer.getIntensityValues();
+    final int numOfDataPoints = buffer.getSize();
 
     // Create a new scan
     SimpleMsScan newScan = MsScanUtil.clone(scan, false);
@@ -82,7 +84,7 @@ public class CropFilterAlgorithm implements MSDKFilteringAlgorithm {
 
     while (!mzRange.contains(mzBuffer[lastIndex]))
       lastIndex--;
-    newNumOfDataPoints = lastIndex - firstIndex + 1;
+    final int newNumOfDataPoints = lastIndex - firstIndex + 1;
 
     System.arraycopy(mzBuffer, firstIndex, mzBuffer, 0, newNumOfDataPoints);
     System.arraycopy(intensityBuffer, firstIndex, intensityBuffer, 0, newNumOfDataPoints);
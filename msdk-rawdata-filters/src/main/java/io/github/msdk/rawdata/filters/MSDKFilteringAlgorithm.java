@@ -17,23 +17,49 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.util.ScanPipelineStage;
 
 /**
  * <p>
  * MSDKFilteringAlgorithm interface.
  * </p>
+ *
+ * <p>
+ * Implementations must not keep the state of a scan in instance fields, because
+ * {@link io.github.msdk.rawdata.filters.MSDKFilteringMethod} may filter several scans
+ * concurrently with the same instance. Reusable scratch arrays have to be kept per thread.
+ * </p>
  */
-public interface MSDKFilteringAlgorithm {
+public interface MSDKFilteringAlgorithm extends ScanPipelineStage {
 
   /**
    * <p>
    * performFilter.
    * </p>
    *
+   * <p>
+   * Returns a new scan with the filtered data points, or null if the scan is removed by the filter.
+   * The input scan is not modified. This method may be called from several threads at once.
+   * </p>
+   *
    * @param input a {@link io.github.msdk.datamodel.MsScan} object.
    * @return a {@link io.github.msdk.datamodel.MsScan} object.
    */
   @Nullable
   MsScan performFilter(@Nonnull MsScan input);
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Calls performFilter(), so the algorithm can be used as a stage of a
+   * {@link io.github.msdk.util.ScanPipeline}.
+   * </p>
+   */
+  @Override
+  @Nullable
+  default MsScan processScan(@Nonnull MsScan scan) {
+    return performFilter(scan);
+  }
+
 }
@@ -13,28 +13,33 @@
 
 package io.github.msdk.rawdata.filters;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import javax.annotation.Nonnull;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
 
 /**
  * <p>
  * MeanFilterAlgorithm class.
  * </p>
+ *
+ * <p>
+ * Replaces the intensity of each data point by the mean intensity of the data points within
+ * windowLength of its m/z value. The window is moved along the spectrum with a running sum, so the
+ * filter takes linear time regardless of the window size.
+ * </p>
  */
 public class MeanFilterAlgorithm implements MSDKFilteringAlgorithm {
 
-  private final double windowLength;
+  // Data structures, reused by the scans filtered in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<float[]> newIntensityBuffers =
+      ThreadLocal.withInitial(() -> new float[10000]);
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
+  private final double windowLength;
 
   /**
    * <p>
@@ -51,61 +56,51 @@ public class MeanFilterAlgorithm implements MSDKFilteringAlgorithm {
   @Override
   public MsScan performFilter(@Nonnull MsScan scan) {
 
-    List<Double> massWindow = new ArrayList<>();
-    List<Float> intensityWindow = new ArrayList<>();
-
-    double currentMass;
-    double lowLimit;
-    double hiLimit;
-    double mzVal;
-    float elSum;
-    int addi = 0;
-
     // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(scan);
+    final double mzBuffer[] = buffer.getMzValues();
+    final float intensityBuffer[] = buffer.getIntensityValues();
+    final int numOfDataPoints = buffer.getSize();
+
+    // The original intensities are needed until they leave the window, so the new intensities are
+    // stored separately
+    float newIntensityBuffer[] = newIntensityBuffers.get();
+    if (newIntensityBuffer.length < numOfDataPoints) {
+      newIntensityBuffer = new float[numOfDataPoints];
+      newIntensityBuffers.set(newIntensityBuffer);
+    }
+
+    // The window contains the data points from windowStart to windowEnd - 1
+    int windowStart = 0, windowEnd = 0;
+    double windowSum = 0.0;
 
     // For each data point
     for (int i = 0; i < numOfDataPoints; i++) {
-      currentMass = mzBuffer[i];
-      lowLimit = currentMass - windowLength;
-      hiLimit = currentMass + windowLength;
-
-      // Remove all elements from window whose m/z value is less than the
-      // low limit
-      if (massWindow.size() > 0) {
-        mzVal = massWindow.get(0);
-        while ((massWindow.size() > 0) && (mzVal < lowLimit)) {
-          massWindow.remove(0);
-          intensityWindow.remove(0);
-          if (massWindow.size() > 0)
-            mzVal = massWindow.get(0);
-        }
-      }
-
-      // Add new elements as long as their m/z values are less than the hi
-      // limit
-      while ((addi < numOfDataPoints) && (mzBuffer[addi] <= hiLimit)) {
-        massWindow.add(mzBuffer[addi]);
-        intensityWindow.add(intensityBuffer[addi]);
-        addi++;
+      final double currentMass = mzBuffer[i];
+      final double lowLimit = currentMass - windowLength;
+      final double hiLimit = currentMass + windowLength;
+
+      // Remove all elements from window whose m/z value is less than the low limit
+      while ((windowStart < windowEnd) && (mzBuffer[windowStart] < lowLimit)) {
+        windowSum -= intensityBuffer[windowStart];
+        windowStart++;
       }
+      if (windowStart == windowEnd)
+        windowSum = 0.0;
 
-      elSum = 0;
-      for (Float intensity : intensityWindow) {
-        elSum += intensity;
+      // Add new elements as long as their m/z values are less than the hi limit
+      while ((windowEnd < numOfDataPoints) && (mzBuffer[windowEnd] <= hiLimit)) {
+        windowSum += intensityBuffer[windowEnd];
+        windowEnd++;
       }
 
-      mzBuffer[newNumOfDataPoints] = currentMass;
-      intensityBuffer[newNumOfDataPoints] = elSum / (float) intensityWindow.size();
-      newNumOfDataPoints++;
+      newIntensityBuffer[i] = (float) (windowSum / (windowEnd - windowStart));
     }
 
     // Return a new scan with the new data points
     SimpleMsScan result = MsScanUtil.clone(scan, false);
-    result.setDataPoints(mzBuffer, intensityBuffer, newNumOfDataPoints);
+    result.setDataPoints(mzBuffer, newIntensityBuffer, numOfDataPoints);
 
     return result;
   }
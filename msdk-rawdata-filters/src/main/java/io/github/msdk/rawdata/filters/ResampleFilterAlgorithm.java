@@ -19,21 +19,27 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
+import io.github.msdk.util.MzBinning;
+import io.github.msdk.util.MzGrid;
 
 /**
  * <p>
- * ResampleFilterAlgorithm class.
+ * ResampleFilterAlgorithm class. Resamples a scan onto bins of a fixed m/z width, starting at the
+ * lowest m/z value of the scan. Each bin gets the mean intensity of its data points, or 0 if it has
+ * none, at the m/z value of its center.
  * </p>
  */
 public class ResampleFilterAlgorithm implements MSDKFilteringAlgorithm {
 
-  private double binSize;
+  // Data structures, reused by the scans filtered in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<DataPointBuffer> outputBuffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
 
-  // Data structures
-  private @Nonnull double mzBuffer[];
-  private @Nonnull float intensityBuffer[];
-  private int numOfDataPoints, newNumOfDataPoints;
+  private final double binSize;
 
   /**
    * <p>
@@ -52,12 +58,6 @@ public class ResampleFilterAlgorithm implements MSDKFilteringAlgorithm {
   @Override
   public MsScan performFilter(@Nonnull MsScan scan) {
 
-    // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
-
     Range<Double> mzRange = scan.getMzRange();
 
     if (mzRange == null) {
@@ -65,47 +65,28 @@ public class ResampleFilterAlgorithm implements MSDKFilteringAlgorithm {
       return result;
     }
 
-    if (binSize > mzRange.upperEndpoint()) {
-      this.binSize = (int) Math.round(mzRange.upperEndpoint());
-    }
-
-    int numberOfBins =
-        (int) Math.round((mzRange.upperEndpoint() - mzRange.lowerEndpoint()) / binSize);
-    if (numberOfBins <= 0) {
-      numberOfBins++;
-    }
-
-    // Create the array with the intensity values for each bin
-    Float[] newY = new Float[numberOfBins];
-    int intVal = 0;
-    for (int i = 0; i < numberOfBins; i++) {
-      newY[i] = 0.0f;
-      int pointsInTheBin = 0;
-      for (int j = 0; j < binSize; j++) {
-        if (intVal < numOfDataPoints) {
-          newY[i] += intensityBuffer[intVal++];
-          pointsInTheBin++;
-        }
-      }
-      newY[i] /= pointsInTheBin;
-    }
-
-    // Set the new m/z value in the middle of the bin
-    double newX = mzRange.lowerEndpoint() + binSize / 2.0;
-
-    // Creates new DataPoints
-
-    for (Float newIntensity : newY) {
-      mzBuffer[newNumOfDataPoints] = newX;
-      intensityBuffer[newNumOfDataPoints] = newIntensity;
-      newNumOfDataPoints++;
-
-      newX += binSize;
-    }
+    // Load data points
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(scan);
+
+    // Average the intensities in each bin
+    final MzGrid grid = MzGrid.fixedWidth(mzRange, binSize);
+    final MzBinning binning = new MzBinning(grid, MzBinning.Aggregation.MEAN);
+    final int numberOfBins = grid.getNumberOfBins();
+    final DataPointBuffer output = outputBuffers.get();
+    output.ensureCapacity(numberOfBins);
+    final double mzBuffer[] = output.getMzValues();
+    final float intensityBuffer[] = output.getIntensityValues();
+    binning.binDense(buffer.getMzValues(), buffer.getIntensityValues(), buffer.getSize(),
+        intensityBuffer);
+
+    // Set the new m/z values in the middle of the bins
+    for (int i = 0; i < numberOfBins; i++)
+      mzBuffer[i] = grid.getBinCenter(i);
 
     // Return a new scan with the new data points
     SimpleMsScan result = MsScanUtil.clone(scan, false);
-    result.setDataPoints(mzBuffer, intensityBuffer, newNumOfDataPoints);
+    result.setDataPoints(mzBuffer, intensityBuffer, numberOfBins);
 
     return result;
   }
@@ -19,6 +19,7 @@ import javax.annotation.Nonnull;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
 
 /**
@@ -69,12 +70,15 @@ public class SGFilterAlgorithm implements MSDKFilteringAlgorithm {
 
   }
 
+  // Data structures, reused by the scans filtered in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+
   private final int sgDataPoints;
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
+  // Normalized coefficients of the center and one side of the symmetric window, or null if the
+  // window size is not supported
+  private final float coefficients[];
 
   /**
    * <p>
@@ -85,46 +89,53 @@ public class SGFilterAlgorithm implements MSDKFilteringAlgorithm {
    */
   public SGFilterAlgorithm(int sgDataPoints) {
     this.sgDataPoints = sgDataPoints;
+    if (Avalues.containsKey(sgDataPoints) && Hvalues.containsKey(sgDataPoints)) {
+      final int[] aVals = Avalues.get(sgDataPoints);
+      final float h = Hvalues.get(sgDataPoints);
+      final int marginSize = (sgDataPoints + 1) / 2 - 1;
+      coefficients = new float[marginSize + 1];
+      for (int i = 0; i <= marginSize; i++)
+        coefficients[i] = aVals[i] / h;
+    } else {
+      coefficients = null;
+    }
   }
 
   /** {@inheritDoc} */
   @Override
   public MsScan performFilter(@Nonnull MsScan scan) {
 
-    if (!Avalues.containsKey(sgDataPoints) || !Hvalues.containsKey(sgDataPoints)) {
+    if (coefficients == null) {
       return MsScanUtil.clone(scan, true);
     }
 
-    int[] aVals = Avalues.get(sgDataPoints);
-    int h = Hvalues.get(sgDataPoints);
-
-    int marginSize = (sgDataPoints + 1) / 2 - 1;
+    final int marginSize = coefficients.length - 1;
     float sumOfInts;
 
     // Load data points
-    mzBuffer = scan.getMzValues();
-    intensityBuffer = scan.getIntensityValues();
-    numOfDataPoints = scan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(scan);
+    final double mzBuffer[] = buffer.getMzValues();
+    final float intensityBuffer[] = buffer.getIntensityValues();
+    final int numOfDataPoints = buffer.getSize();
+    int newNumOfDataPoints = 0;
 
     for (int spectrumInd =
         marginSize; spectrumInd < (numOfDataPoints - marginSize); spectrumInd++) {
 
-      // zero intensity data points must be left unchanged
+      // zero intensity data points are removed
       if (intensityBuffer[spectrumInd] == 0) {
-        intensityBuffer[spectrumInd - marginSize] = intensityBuffer[spectrumInd];
         continue;
       }
 
-      sumOfInts = aVals[0] * intensityBuffer[spectrumInd];
+      // The new data points are written behind the window, so the window is not modified
+      sumOfInts = coefficients[0] * intensityBuffer[spectrumInd];
 
       for (int windowInd = 1; windowInd <= marginSize; windowInd++) {
-        sumOfInts += aVals[windowInd]
+        sumOfInts += coefficients[windowInd]
             * (intensityBuffer[spectrumInd + windowInd] + intensityBuffer[spectrumInd - windowInd]);
       }
 
-      sumOfInts = sumOfInts / h;
-
       if (sumOfInts < 0) {
         sumOfInts = 0;
       }
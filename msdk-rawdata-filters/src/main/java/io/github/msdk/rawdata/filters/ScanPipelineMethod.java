@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.rawdata.filters;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.ParallelUtil;
+import io.github.msdk.util.ScanPipeline;
+
+/**
+ * <p>
+ * Runs a {@link io.github.msdk.util.ScanPipeline} on all scans of a raw data file. Each scan is
+ * passed through all stages of the pipeline at once, so only the scans of the last stage are
+ * stored in the new raw data file, instead of one raw data file per stage as when running e.g.
+ * {@link io.github.msdk.rawdata.filters.MSDKFilteringMethod} once per stage.
+ * </p>
+ */
+public class ScanPipelineMethod implements MSDKMethod<RawDataFile> {
+
+  // Number of scans processed by each thread before the results are added to the raw data file
+  private static final int BLOCK_SIZE = 16;
+
+  private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+  private final @Nonnull ScanPipeline pipeline;
+  private final @Nonnull RawDataFile rawDataFile;
+
+  private int processedScans = 0, totalScans = 0;
+  private SimpleRawDataFile result;
+  private boolean canceled = false;
+  private int parallelism = 1;
+
+  /**
+   * <p>
+   * Constructor for ScanPipelineMethod.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param pipeline a {@link io.github.msdk.util.ScanPipeline} object.
+   */
+  public ScanPipelineMethod(@Nonnull RawDataFile rawDataFile, @Nonnull ScanPipeline pipeline) {
+    Preconditions.checkNotNull(rawDataFile);
+    Preconditions.checkNotNull(pipeline);
+    this.rawDataFile = rawDataFile;
+    this.pipeline = pipeline;
+  }
+
+  /**
+   * <p>
+   * Sets the number of threads used to process the scans. The scans are added to the result in their
+   * original order, so the result does not depend on this setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Float getFinishedPercentage() {
+    if (totalScans == 0) {
+      return null;
+    } else {
+      return (float) processedScans / totalScans;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public RawDataFile execute() throws MSDKException {
+    logger.info("Started scan pipeline of " + pipeline.getStages().size()
+        + " stages on raw data file " + rawDataFile.getName());
+
+    // Create a new raw data file
+    result = new SimpleRawDataFile(rawDataFile.getName(), rawDataFile.getOriginalFile(),
+        rawDataFile.getRawDataFileType());
+
+    List<MsScan> scans = rawDataFile.getScans();
+    totalScans = scans.size();
+
+    // Process the scans block by block and add them in their original order
+    if (!ParallelUtil.mapOrdered(scans, parallelism, BLOCK_SIZE, this::processScan,
+        (newScan, i) -> {
+          if (newScan != null)
+            result.addScan(newScan);
+          processedScans = i + 1;
+        }, () -> canceled))
+      return null;
+
+    logger.info("Finished scan pipeline on raw data file " + rawDataFile.getName());
+    return result;
+  }
+
+  private MsScan processScan(MsScan scan) {
+    return scan == null ? null : pipeline.processScan(scan);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public RawDataFile getResult() {
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    this.canceled = true;
+  }
+
+}
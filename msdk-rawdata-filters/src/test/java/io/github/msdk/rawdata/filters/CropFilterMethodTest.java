@@ -107,4 +107,45 @@ public class CropFilterMethodTest {
     }
 
   }
+
+  @Test
+  public void testParallelism() throws Exception {
+
+    // Import the file
+    File inputFile =
+        new File(this.getClass().getClassLoader().getResource("orbitrap_300-600mz.mzML").toURI());
+    Assert.assertTrue("Cannot read test data", inputFile.canRead());
+    MzMLFileImportMethod importer = new MzMLFileImportMethod(inputFile);
+    RawDataFile rawFile = importer.execute();
+    Assert.assertNotNull(rawFile);
+
+    List<MsScan> scans = rawFile.getScans();
+    Range<Float> rtRange = Range.closed(scans.get(50).getRetentionTime(),
+        scans.get(scans.size() - 30).getRetentionTime());
+    Range<Double> mzRange = Range.closed(350.0, 500.0);
+    CropFilterAlgorithm cropFilter = new CropFilterAlgorithm(mzRange, rtRange);
+
+    // Execute the filter in the calling thread and in parallel
+    RawDataFile serialFile = new MSDKFilteringMethod(rawFile, cropFilter).execute();
+    MSDKFilteringMethod filterMethod = new MSDKFilteringMethod(rawFile, cropFilter);
+    filterMethod.setParallelism(3);
+    RawDataFile parallelFile = filterMethod.execute();
+    Assert.assertNotNull(parallelFile);
+    Assert.assertEquals(1.0, filterMethod.getFinishedPercentage(), 0.0001);
+
+    // The results must be identical and in the same order
+    List<MsScan> serialScans = serialFile.getScans();
+    List<MsScan> parallelScans = parallelFile.getScans();
+    Assert.assertEquals(serialScans.size(), parallelScans.size());
+    for (int i = 0; i < serialScans.size(); i++) {
+      MsScan serialScan = serialScans.get(i);
+      MsScan parallelScan = parallelScans.get(i);
+      Assert.assertEquals(serialScan.getScanNumber(), parallelScan.getScanNumber());
+      Assert.assertEquals(serialScan.getNumberOfDataPoints(), parallelScan.getNumberOfDataPoints());
+      Assert.assertArrayEquals(serialScan.getMzValues(), parallelScan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(serialScan.getIntensityValues(),
+          parallelScan.getIntensityValues(), 0.0f);
+    }
+
+  }
 }
@@ -116,7 +116,13 @@ public class MeanFilterMethodTest {
 
       float intensityValues[] = newScan.getIntensityValues();
 
-      float intensityAverage = inputScan.getTIC() / inputScan.getNumberOfDataPoints();
+      // The filter sums the intensities in double precision, so the expected average is computed
+      // the same way instead of from the float TIC
+      float inputIntensityValues[] = inputScan.getIntensityValues();
+      double intensitySum = 0.0;
+      for (int j = 0; j < inputScan.getNumberOfDataPoints(); j++)
+        intensitySum += inputIntensityValues[j];
+      float intensityAverage = (float) (intensitySum / inputScan.getNumberOfDataPoints());
 
       for (float intValue : intensityValues) {
         Assert.assertEquals(intensityAverage, intValue, 0.0001);
@@ -22,6 +22,7 @@ import org.junit.Test;
 import io.github.msdk.MSDKException;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
 
 public class ResampleFilterMethodTest {
@@ -55,6 +56,20 @@ public class ResampleFilterMethodTest {
 
   }
 
+  @Test
+  public void testMoreBinsThanDataPoints() {
+    SimpleMsScan scan = new SimpleMsScan(1);
+    scan.setDataPoints(new double[] {100.0, 100.1, 103.4}, new float[] {2f, 4f, 5f}, 3);
+
+    // The bins are placed by m/z value, and empty bins get 0 intensity
+    MsScan newScan = new ResampleFilterAlgorithm(0.5).performFilter(scan);
+    Assert.assertEquals(7, newScan.getNumberOfDataPoints().intValue());
+    Assert.assertArrayEquals(new double[] {100.25, 100.75, 101.25, 101.75, 102.25, 102.75, 103.25},
+        newScan.getMzValues(), 1E-10);
+    Assert.assertArrayEquals(new float[] {3f, 0f, 0f, 0f, 0f, 0f, 5f},
+        newScan.getIntensityValues(), 0f);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testZeroBinSize() throws MSDKException {
     new ResampleFilterAlgorithm(0.0);
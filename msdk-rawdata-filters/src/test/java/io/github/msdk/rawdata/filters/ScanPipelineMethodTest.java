@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.rawdata.filters;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.ScanPipeline;
+
+public class ScanPipelineMethodTest {
+
+  private static RawDataFile createRawDataFile(Random random, int numOfScans) {
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("test", Optional.empty(), FileType.MZML);
+    for (int i = 0; i < numOfScans; i++) {
+      SimpleMsScan scan = new SimpleMsScan(i + 1);
+      scan.setRetentionTime(i * 0.5f);
+      final int numOfDataPoints = 500 + random.nextInt(1000);
+      double mzValues[] = new double[numOfDataPoints];
+      float intensityValues[] = new float[numOfDataPoints];
+      double mz = 100.0;
+      for (int j = 0; j < numOfDataPoints; j++) {
+        mz += 0.001 + random.nextDouble() * 0.01;
+        mzValues[j] = mz;
+        intensityValues[j] = random.nextFloat() * 1000f;
+      }
+      scan.setDataPoints(mzValues, intensityValues, numOfDataPoints);
+      rawFile.addScan(scan);
+    }
+    return rawFile;
+  }
+
+  @Test
+  public void testPipeline() throws Exception {
+    RawDataFile rawFile = createRawDataFile(new Random(1), 100);
+    Range<Double> mzRange = Range.closed(100.2, 100.4);
+    Range<Float> rtRange = Range.closed(10f, 30f);
+    SGFilterAlgorithm sgFilter = new SGFilterAlgorithm(11);
+    CropFilterAlgorithm cropFilter = new CropFilterAlgorithm(mzRange, rtRange);
+
+    // Run the stages one by one
+    RawDataFile smoothedFile = new MSDKFilteringMethod(rawFile, sgFilter).execute();
+    List<MsScan> expectedScans =
+        new MSDKFilteringMethod(smoothedFile, cropFilter).execute().getScans();
+
+    for (int parallelism : new int[] {1, 3}) {
+      ScanPipelineMethod method =
+          new ScanPipelineMethod(rawFile, new ScanPipeline(sgFilter, cropFilter));
+      method.setParallelism(parallelism);
+      RawDataFile newRawFile = method.execute();
+      Assert.assertNotNull(newRawFile);
+      Assert.assertEquals(1.0, method.getFinishedPercentage(), 0.0001);
+
+      List<MsScan> newScans = newRawFile.getScans();
+      Assert.assertEquals(41, newScans.size());
+      Assert.assertEquals(expectedScans.size(), newScans.size());
+      for (int i = 0; i < newScans.size(); i++) {
+        MsScan expectedScan = expectedScans.get(i);
+        MsScan newScan = newScans.get(i);
+        Assert.assertEquals(expectedScan.getScanNumber(), newScan.getScanNumber());
+        Assert.assertTrue(rtRange.contains(newScan.getRetentionTime()));
+        Assert.assertTrue(mzRange.encloses(newScan.getMzRange()));
+        Assert.assertArrayEquals(expectedScan.getMzValues(), newScan.getMzValues(), 0.0);
+        Assert.assertArrayEquals(expectedScan.getIntensityValues(), newScan.getIntensityValues(),
+            0.0f);
+      }
+    }
+  }
+
+}
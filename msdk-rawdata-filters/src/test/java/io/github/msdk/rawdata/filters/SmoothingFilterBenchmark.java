@@ -0,0 +1,78 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.rawdata.filters;
+
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.msdk.datamodel.SimpleMsScan;
+
+/**
+ * Measures the run time of MeanFilterAlgorithm and SGFilterAlgorithm on synthetic profile scans of
+ * 10,000, 100,000 and 1,000,000 data points. Arguments (all optional): number of runs (default 5),
+ * mean filter window length (default 0.05), number of SG filter data points (default 11).
+ */
+public class SmoothingFilterBenchmark {
+
+  public static void main(String[] args) {
+
+    int numberOfRuns = 5;
+    double windowLength = 0.05;
+    int sgDataPoints = 11;
+    Logger logger = LoggerFactory.getLogger(SmoothingFilterBenchmark.class);
+
+    if (args.length > 0)
+      numberOfRuns = Integer.valueOf(args[0]);
+    if (args.length > 1)
+      windowLength = Double.valueOf(args[1]);
+    if (args.length > 2)
+      sgDataPoints = Integer.valueOf(args[2]);
+
+    MeanFilterAlgorithm meanFilter = new MeanFilterAlgorithm(windowLength);
+    SGFilterAlgorithm sgFilter = new SGFilterAlgorithm(sgDataPoints);
+    Random random = new Random(1);
+
+    for (int numOfDataPoints : new int[] {10000, 100000, 1000000}) {
+      SimpleMsScan scan = new SimpleMsScan(1);
+      double mzValues[] = new double[numOfDataPoints];
+      float intensityValues[] = new float[numOfDataPoints];
+      double mz = 100.0;
+      for (int i = 0; i < numOfDataPoints; i++) {
+        mz += 0.0005 + random.nextDouble() * 0.001;
+        mzValues[i] = mz;
+        intensityValues[i] = (float) (Math.abs(Math.sin(i / 20.0)) * 1E6 * random.nextDouble());
+      }
+      scan.setDataPoints(mzValues, intensityValues, numOfDataPoints);
+
+      // Repeat small scans, so each measurement filters at least 10 million data points
+      final int repeats = Math.max(1, 10000000 / numOfDataPoints);
+      for (int run = 0; run < numberOfRuns; run++) {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < repeats; i++)
+          meanFilter.performFilter(scan);
+        long meanTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int i = 0; i < repeats; i++)
+          sgFilter.performFilter(scan);
+        long sgTime = System.nanoTime() - startTime;
+        logger.info("Run " + (run + 1) + ", " + numOfDataPoints + " data points: mean filter "
+            + (meanTime / repeats / 1000) + " us, SG filter " + (sgTime / repeats / 1000)
+            + " us per scan");
+      }
+    }
+
+  }
+
+}
@@ -15,25 +15,32 @@ package io.github.msdk.spectra.centroiding;
 
 import javax.annotation.Nonnull;
 
+import com.google.common.collect.Range;
+
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
+import io.github.msdk.util.MzBinning;
+import io.github.msdk.util.MzGrid;
 
 /**
  * <p>
- * BinningCentroidingAlgorithm class.
+ * BinningCentroidingAlgorithm class. Sums the intensities of the data points in bins of a fixed m/z
+ * width, starting at the lowest m/z value of the scan. Each non-empty bin becomes a centroid at the
+ * m/z value of its center.
  * </p>
  */
 public class BinningCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
-  private final @Nonnull Double binSize;
-
-  private SimpleMsScan newScan;
+  // Data structures, reused by the scans centroided in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<DataPointBuffer> outputBuffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<int[]> binBuffers = ThreadLocal.withInitial(() -> new int[0]);
 
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
-  private int numOfDataPoints, newNumOfDataPoints;
+  private final @Nonnull Double binSize;
 
   /**
    * <p>
@@ -51,13 +58,14 @@ public class BinningCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   public @Nonnull MsScan centroidScan(@Nonnull MsScan inputScan) {
 
     // Copy all scan properties
-    this.newScan = MsScanUtil.clone(inputScan, false);
+    final SimpleMsScan newScan = MsScanUtil.clone(inputScan, false);
 
     // Load data points
-    mzBuffer = inputScan.getMzValues();
-    intensityBuffer = inputScan.getIntensityValues();
-    numOfDataPoints = inputScan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(inputScan);
+    final double mzBuffer[] = buffer.getMzValues();
+    final float intensityBuffer[] = buffer.getIntensityValues();
+    final int numOfDataPoints = buffer.getSize();
 
     // If there are no data points, just return the scan
     if (numOfDataPoints == 0) {
@@ -65,29 +73,28 @@ public class BinningCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
       return newScan;
     }
 
-    double currentBinMzStart = mzBuffer[0];
-    float currentBinIntensity = 0f;
-
-    // Iterate through all data points
-    for (int i = 0; i < numOfDataPoints; i++) {
-
-      if (mzBuffer[i] < (currentBinMzStart + binSize)) {
-        currentBinIntensity += intensityBuffer[i];
-        continue;
-      }
-
-      // Add the new data point
-      final double currentBinMzValue = currentBinMzStart + (binSize / 2);
-      mzBuffer[newNumOfDataPoints] = currentBinMzValue;
-      intensityBuffer[newNumOfDataPoints] = currentBinIntensity;
-      newNumOfDataPoints++;
-      currentBinMzStart += binSize;
-      currentBinIntensity = 0f;
-
+    // Sum the intensities in each bin
+    final MzGrid grid = MzGrid.fixedWidth(
+        Range.closed(mzBuffer[0], mzBuffer[numOfDataPoints - 1]), binSize);
+    final MzBinning binning = new MzBinning(grid, MzBinning.Aggregation.SUM);
+    final DataPointBuffer output = outputBuffers.get();
+    output.ensureCapacity(numOfDataPoints);
+    int bins[] = binBuffers.get();
+    if (bins.length < numOfDataPoints) {
+      bins = new int[output.getIntensityValues().length];
+      binBuffers.set(bins);
     }
+    final double newMzBuffer[] = output.getMzValues();
+    final float newIntensityBuffer[] = output.getIntensityValues();
+    final int newNumOfDataPoints =
+        binning.binSparse(mzBuffer, intensityBuffer, numOfDataPoints, bins, newIntensityBuffer);
+
+    // Place the new data points in the middle of the bins
+    for (int i = 0; i < newNumOfDataPoints; i++)
+      newMzBuffer[i] = grid.getBinCenter(bins[i]);
 
     // Store the new data points
-    newScan.setDataPoints(mzBuffer, intensityBuffer, newNumOfDataPoints);
+    newScan.setDataPoints(newMzBuffer, newIntensityBuffer, newNumOfDataPoints);
 
     return newScan;
 
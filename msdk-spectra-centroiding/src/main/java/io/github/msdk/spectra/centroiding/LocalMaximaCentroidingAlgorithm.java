@@ -17,6 +17,7 @@ import javax.annotation.Nonnull;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
 
 /**
@@ -26,23 +27,23 @@ import io.github.msdk.util.MsScanUtil;
  */
 public class LocalMaximaCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
-  private SimpleMsScan newScan;
-
-  // Data structures
-  private @Nonnull double mzBuffer[] = new double[10000];
-  private @Nonnull float intensityBuffer[] = new float[10000];
+  // Data structures, reused by the scans centroided in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
 
   /** {@inheritDoc} */
   @Override
   public @Nonnull MsScan centroidScan(@Nonnull MsScan inputScan) {
 
     // Copy all scan properties
-    this.newScan = MsScanUtil.clone(inputScan, false);
+    final SimpleMsScan newScan = MsScanUtil.clone(inputScan, false);
 
     // Load data points
-    mzBuffer = inputScan.getMzValues();
-    intensityBuffer = inputScan.getIntensityValues();
-    final int numOfDataPoints = inputScan.getNumberOfDataPoints();
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(inputScan);
+    final double mzBuffer[] = buffer.getMzValues();
+    final float intensityBuffer[] = buffer.getIntensityValues();
+    final int numOfDataPoints = buffer.getSize();
     int newNumOfDataPoints = 0;
 
     // If there are no data points, just return the scan
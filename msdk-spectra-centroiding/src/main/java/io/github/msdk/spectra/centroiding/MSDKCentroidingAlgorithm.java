@@ -16,23 +16,49 @@ package io.github.msdk.spectra.centroiding;
 import javax.annotation.Nonnull;
 
 import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.util.ScanPipelineStage;
 
 /**
  * <p>
  * MSDKCentroidingAlgorithm interface.
  * </p>
+ *
+ * <p>
+ * Implementations must not keep the state of a scan in instance fields, because
+ * {@link io.github.msdk.spectra.centroiding.MSDKCentroidingMethod} may centroid several scans
+ * concurrently with the same instance. Reusable scratch arrays have to be kept per thread.
+ * </p>
  */
-public interface MSDKCentroidingAlgorithm {
+public interface MSDKCentroidingAlgorithm extends ScanPipelineStage {
 
   /**
    * <p>
    * centroidScan.
    * </p>
    *
+   * <p>
+   * Returns a new scan with the centroided data points. The input scan is not modified. This
+   * method may be called from several threads at once.
+   * </p>
+   *
    * @param input a {@link io.github.msdk.datamodel.MsScan} object.
    * @return a {@link io.github.msdk.datamodel.MsScan} object.
    */
   @Nonnull
   MsScan centroidScan(@Nonnull MsScan input);
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Calls centroidScan(), so the algorithm can be used as a stage of a
+   * {@link io.github.msdk.util.ScanPipeline}.
+   * </p>
+   */
+  @Override
+  @Nonnull
+  default MsScan processScan(@Nonnull MsScan scan) {
+    return centroidScan(scan);
+  }
+
 }
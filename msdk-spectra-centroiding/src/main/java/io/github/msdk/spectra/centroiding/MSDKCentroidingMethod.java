@@ -25,6 +25,7 @@ import io.github.msdk.MSDKMethod;
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
 import io.github.msdk.datamodel.SimpleRawDataFile;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * <p>
@@ -33,6 +34,9 @@ import io.github.msdk.datamodel.SimpleRawDataFile;
  */
 public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
 
+  // Number of scans processed by each thread before the results are added to the raw data file
+  private static final int BLOCK_SIZE = 16;
+
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
   private final @Nonnull MSDKCentroidingAlgorithm centroidingAlgorithm;
@@ -41,6 +45,7 @@ public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
   private int processedScans = 0, totalScans = 0;
   private SimpleRawDataFile result;
   private boolean canceled = false;
+  private int parallelism = 1;
 
   /**
    * <p>
@@ -57,6 +62,18 @@ public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
     this.rawDataFile = rawDataFile;
   }
 
+  /**
+   * <p>
+   * Sets the number of threads used to centroid the scans. The scans are added to the result in
+   * their original order, so the result does not depend on this setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
   /** {@inheritDoc} */
   @Override
   public Float getFinishedPercentage() {
@@ -80,19 +97,14 @@ public class MSDKCentroidingMethod implements MSDKMethod<RawDataFile> {
     List<MsScan> scans = rawDataFile.getScans();
     totalScans = scans.size();
 
-    for (MsScan scan : scans) {
-
-      if (canceled)
-        return null;
-
-      MsScan newScan = centroidingAlgorithm.centroidScan(scan);
-
-      // Add the new scan to the created raw data file
-      if (newScan != null)
-        result.addScan(newScan);
-
-      processedScans++;
-    }
+    // Centroid the scans block by block and add them in their original order
+    if (!ParallelUtil.mapOrdered(scans, parallelism, BLOCK_SIZE,
+        centroidingAlgorithm::centroidScan, (newScan, i) -> {
+          if (newScan != null)
+            result.addScan(newScan);
+          processedScans = i + 1;
+        }, () -> canceled))
+      return null;
     logger.info("Finished centroiding file " + rawDataFile.getName());
     return result;
   }
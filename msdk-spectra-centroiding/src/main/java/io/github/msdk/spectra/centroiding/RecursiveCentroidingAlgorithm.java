@@ -19,6 +19,7 @@ import com.google.common.collect.Range;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
 
 /**
@@ -28,16 +29,13 @@ import io.github.msdk.util.MsScanUtil;
  */
 public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
-  private final @Nonnull Range<Double> mzPeakWidthRange;
-
-  private SimpleMsScan newScan;
+  // Data structures, reused by the scans centroided in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<DataPointBuffer> newBuffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
 
-  // Data structures
-  private @Nonnull double mzBuffer[];
-  private @Nonnull float intensityBuffer[];
-  private @Nonnull double newMzBuffer[];
-  private @Nonnull float newIntensityBuffer[];
-  private int numOfDataPoints, newNumOfDataPoints;
+  private final @Nonnull Range<Double> mzPeakWidthRange;
 
   /**
    * <p>
@@ -55,25 +53,28 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   public @Nonnull MsScan centroidScan(@Nonnull MsScan inputScan) {
 
     // Copy all scan properties
-    this.newScan = MsScanUtil.clone(inputScan, false);
+    final SimpleMsScan newScan = MsScanUtil.clone(inputScan, false);
 
     // Load data points
-    mzBuffer = inputScan.getMzValues();
-    intensityBuffer = inputScan.getIntensityValues();
-    numOfDataPoints = inputScan.getNumberOfDataPoints();
-    newNumOfDataPoints = 0;
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(inputScan);
+    final int numOfDataPoints = buffer.getSize();
+    final DataPointBuffer newBuffer = newBuffers.get();
+    newBuffer.clear();
 
     // If there are no data points, just return the scan
     if (numOfDataPoints == 0) {
-      newScan.setDataPoints(mzBuffer, intensityBuffer, 0);
+      newScan.setDataPoints(buffer.getMzValues(), buffer.getIntensityValues(), 0);
       return newScan;
     }
 
     // Run the recursive search algorithm
-    recursiveThreshold(0, numOfDataPoints - 1, 0);
+    recursiveThreshold(buffer.getMzValues(), buffer.getIntensityValues(), newBuffer, 0,
+        numOfDataPoints - 1, 0);
 
     // Store the new data points
-    newScan.setDataPoints(newMzBuffer, newIntensityBuffer, newNumOfDataPoints);
+    newScan.setDataPoints(newBuffer.getMzValues(), newBuffer.getIntensityValues(),
+        newBuffer.getSize());
 
     return newScan;
 
@@ -82,7 +83,8 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   /**
    * This function searches for maxima from given part of a spectrum
    */
-  private int recursiveThreshold(int startInd, int stopInd, int recuLevel) {
+  private int recursiveThreshold(double mzBuffer[], float intensityBuffer[],
+      DataPointBuffer newBuffer, int startInd, int stopInd, int recuLevel) {
 
     int peakStartInd, peakStopInd, peakMaxInd;
     double peakWidthMZ;
@@ -122,17 +124,7 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
         // Declare a new MzPeak with intensity equal to max intensity
         // data point
-        if (newMzBuffer.length < newNumOfDataPoints + 1) {
-          double t1[] = new double[newNumOfDataPoints * 2];
-          System.arraycopy(newMzBuffer, 0, t1, 0, newNumOfDataPoints);
-          newMzBuffer = t1;
-          float t2[] = new float[newNumOfDataPoints * 2];
-          System.arraycopy(newIntensityBuffer, 0, t2, 0, newNumOfDataPoints);
-          newIntensityBuffer = t2;
-        }
-        newMzBuffer[newNumOfDataPoints] = mzBuffer[peakMaxInd];
-        newIntensityBuffer[newNumOfDataPoints] = intensityBuffer[peakMaxInd];
-        newNumOfDataPoints++;
+        newBuffer.add(mzBuffer[peakMaxInd], intensityBuffer[peakMaxInd]);
 
         if (recuLevel > 0) {
           // return stop index and beginning of the next peak
@@ -144,7 +136,8 @@ public class RecursiveCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
       // peak of the right size
       if (peakWidthMZ > mzPeakWidthRange.upperEndpoint()) {
         if (localMinimum < Double.MAX_VALUE) {
-          ind = recursiveThreshold(peakStartInd, peakStopInd, recuLevel + 1);
+          ind = recursiveThreshold(mzBuffer, intensityBuffer, newBuffer, peakStartInd,
+              peakStopInd, recuLevel + 1);
         }
 
       }
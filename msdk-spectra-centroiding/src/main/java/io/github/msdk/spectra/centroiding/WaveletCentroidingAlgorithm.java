@@ -17,6 +17,7 @@ import javax.annotation.Nonnull;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.util.DataPointBuffer;
 import io.github.msdk.util.MsScanUtil;
 
 /**
@@ -34,9 +35,19 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   private static final int WAVELET_ESL = -5;
   private static final int WAVELET_ESR = 5;
 
+  // Output of the CWT, reused by the scans centroided in the same thread
+  private static final ThreadLocal<float[]> cwtBuffers =
+      ThreadLocal.withInitial(() -> new float[10000]);
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+
   private final @Nonnull Integer scaleLevel;
   private final @Nonnull Double waveletWindow;
 
+  // Wavelet values for the offsets scaleLevel * WAVELET_ESL ... scaleLevel * WAVELET_ESR from the
+  // center of the wavelet, which only depend on the parameters
+  private final @Nonnull double kernel[];
+
   /**
    * <p>
    * Constructor for WaveletCentroidingMethod.
@@ -48,6 +59,7 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   public WaveletCentroidingAlgorithm(@Nonnull Integer scaleLevel, @Nonnull Double waveletWindow) {
     this.scaleLevel = scaleLevel;
     this.waveletWindow = waveletWindow;
+    this.kernel = createKernel(scaleLevel, waveletWindow);
   }
 
   /** {@inheritDoc} */
@@ -58,9 +70,11 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
     SimpleMsScan newScan = MsScanUtil.clone(inputScan, false);
 
     // Load data points
-    double[] mzBuffer = inputScan.getMzValues();
-    float[] intensityBuffer = inputScan.getIntensityValues();
-    int numOfDataPoints = inputScan.getNumberOfDataPoints();
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(inputScan);
+    double[] mzBuffer = buffer.getMzValues();
+    float[] intensityBuffer = buffer.getIntensityValues();
+    int numOfDataPoints = buffer.getSize();
 
     // If there are no data points, just return the scan
     if (numOfDataPoints == 0) {
@@ -68,8 +82,14 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
       return newScan;
     }
 
-    float[] cwtDataPoints = performCWT(intensityBuffer, numOfDataPoints, scaleLevel, waveletWindow);
-    int newNumOfDataPoints = extractMzPeaks(cwtDataPoints, mzBuffer, intensityBuffer);
+    float[] cwtDataPoints = cwtBuffers.get();
+    if (cwtDataPoints.length < numOfDataPoints) {
+      cwtDataPoints = new float[numOfDataPoints];
+      cwtBuffers.set(cwtDataPoints);
+    }
+    performCWT(intensityBuffer, numOfDataPoints, scaleLevel, kernel, cwtDataPoints);
+    int newNumOfDataPoints =
+        extractMzPeaks(cwtDataPoints, numOfDataPoints, mzBuffer, intensityBuffer);
 
     // Store the new data points
     newScan.setDataPoints(mzBuffer, intensityBuffer, newNumOfDataPoints);
@@ -79,30 +99,47 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
   }
 
   /**
-   * Perform the CWT over raw intensities in the selected scale level
+   * Calculates the wavelet values used by the convolution. The wavelet is discretized into NPOINTS
+   * values, of which only those at the offsets of the data points are needed.
    */
-  private static @Nonnull float[] performCWT(@Nonnull float[] intensityBuffer, int numOfDataPoints,
-      int scaleLevel, double waveletWindow) {
+  private static @Nonnull double[] createKernel(int scaleLevel, double waveletWindow) {
 
-    float[] cwtDataPoints = new float[numOfDataPoints * 2];
-
-    double wstep = ((WAVELET_ESR - WAVELET_ESL) / NPOINTS);
-    double[] W = new double[(int) NPOINTS];
+    final double wstep = ((WAVELET_ESR - WAVELET_ESL) / NPOINTS);
+    final int d = (int) NPOINTS / (WAVELET_ESR - WAVELET_ESL);
+    final int a_esl = scaleLevel * WAVELET_ESL;
+    final int a_esr = scaleLevel * WAVELET_ESR;
+    double kernel[] = new double[a_esr - a_esl + 1];
 
+    // The wavelet position of value j is accumulated step by step, as in the discretized wavelet
     double waveletIndex = WAVELET_ESL;
-    for (int j = 0; j < NPOINTS; j++) {
-      // Pre calculate the values of the wavelet
-      W[j] = cwtMEXHATreal(waveletIndex, waveletWindow, 0.0);
-      waveletIndex += wstep;
+    int j = 0;
+    for (int offset = a_esl; offset <= a_esr; offset++) {
+      int ind = (int) (NPOINTS / 2) - ((d * offset / scaleLevel) * (-1));
+      if (ind < 0)
+        ind = 0;
+      if (ind >= NPOINTS)
+        ind = (int) NPOINTS - 1;
+      for (; j < ind; j++)
+        waveletIndex += wstep;
+      kernel[offset - a_esl] = cwtMEXHATreal(waveletIndex, waveletWindow, 0.0);
     }
 
+    return kernel;
+  }
+
+  /**
+   * Perform the CWT over raw intensities in the selected scale level
+   */
+  private static void performCWT(@Nonnull float[] intensityBuffer, int numOfDataPoints,
+      int scaleLevel, @Nonnull double[] kernel, @Nonnull float[] cwtDataPoints) {
+
     /*
      * We only perform Translation of the wavelet in the selected scale
      */
-    int d = (int) NPOINTS / (WAVELET_ESR - WAVELET_ESL);
-    int a_esl = scaleLevel * WAVELET_ESL;
-    int a_esr = scaleLevel * WAVELET_ESR;
-    double sqrtScaleLevel = Math.sqrt(scaleLevel);
+    final int a_esl = scaleLevel * WAVELET_ESL;
+    final int a_esr = scaleLevel * WAVELET_ESR;
+    final double sqrtScaleLevel = Math.sqrt(scaleLevel);
+
     for (int dx = 0; dx < numOfDataPoints; dx++) {
 
       /* Compute wavelet boundaries */
@@ -115,14 +152,9 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
 
       /* Perform convolution */
       float intensity = 0.0f;
-      for (int i = t1; i <= t2; i++) {
-        int ind = (int) (NPOINTS / 2) - (((int) d * (i - dx) / scaleLevel) * (-1));
-        if (ind < 0)
-          ind = 0;
-        if (ind >= NPOINTS)
-          ind = (int) NPOINTS - 1;
-        intensity += intensityBuffer[i] * W[ind];
-      }
+      final int kernelShift = a_esl + dx;
+      for (int i = t1; i <= t2; i++)
+        intensity += intensityBuffer[i] * kernel[i - kernelShift];
       intensity /= sqrtScaleLevel;
       // Eliminate the negative part of the wavelet map
       if (intensity < 0)
@@ -130,7 +162,6 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
       cwtDataPoints[dx] = intensity;
     }
 
-    return cwtDataPoints;
   }
 
   /**
@@ -158,10 +189,11 @@ public class WaveletCentroidingAlgorithm implements MSDKCentroidingAlgorithm {
    * 
    * @return Number of peaks found
    */
-  private static int extractMzPeaks(float[] cwtDataPoints, double[] mzBuffer, float[] intensityBuffer) {
+  private static int extractMzPeaks(float[] cwtDataPoints, int numOfDataPoints, double[] mzBuffer,
+      float[] intensityBuffer) {
 
     int peakMaxInd = 0;
-    int stopInd = cwtDataPoints.length / 2 - 1;
+    int stopInd = numOfDataPoints - 1;
     int newNumOfDataPoints = 0;
 
     for (int ind = 0; ind <= stopInd; ind++) {
@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import io.github.msdk.datamodel.MsScan;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
 import io.github.msdk.io.mzml.MzMLFileImportMethod;
 import io.github.msdk.spectra.centroiding.BinningCentroidingAlgorithm;
 import io.github.msdk.util.MsSpectrumUtil;
@@ -62,4 +63,19 @@ public class BinningCentroidingAlgorithmTest {
 
   }
 
+  @Test
+  public void testBins() {
+    SimpleMsScan scan = new SimpleMsScan(1);
+    scan.setDataPoints(new double[] {100.0, 100.4, 100.6, 101.2, 104.1, 104.2},
+        new float[] {1f, 2f, 3f, 4f, 5f, 6f}, 6);
+
+    // Empty bins are left out, all data points are summed
+    MsScan centroidedScan = new BinningCentroidingAlgorithm(0.5).centroidScan(scan);
+    Assert.assertEquals(4, centroidedScan.getNumberOfDataPoints().intValue());
+    Assert.assertArrayEquals(new double[] {100.25, 100.75, 101.25, 104.25},
+        centroidedScan.getMzValues(), 1E-10);
+    Assert.assertArrayEquals(new float[] {3f, 3f, 4f, 11f}, centroidedScan.getIntensityValues(),
+        0f);
+  }
+
 }
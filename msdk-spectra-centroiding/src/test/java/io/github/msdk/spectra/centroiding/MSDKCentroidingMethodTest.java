@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.centroiding;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.FileType;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsScan;
+import io.github.msdk.datamodel.SimpleRawDataFile;
+
+public class MSDKCentroidingMethodTest {
+
+  @Test
+  public void testParallelism() throws MSDKException {
+
+    RawDataFile rawFile = createProfileFile(new Random(7), 150);
+
+    assertSameResult(rawFile, new LocalMaximaCentroidingAlgorithm());
+    assertSameResult(rawFile, new ExactMassCentroidingAlgorithm());
+    assertSameResult(rawFile, new BinningCentroidingAlgorithm(0.5));
+    assertSameResult(rawFile, new WaveletCentroidingAlgorithm(5, 0.05));
+
+  }
+
+  private void assertSameResult(RawDataFile rawFile, MSDKCentroidingAlgorithm algorithm)
+      throws MSDKException {
+
+    // Execute the centroiding in the calling thread and in parallel
+    RawDataFile serialFile = new MSDKCentroidingMethod(rawFile, algorithm).execute();
+    MSDKCentroidingMethod centroidingMethod = new MSDKCentroidingMethod(rawFile, algorithm);
+    centroidingMethod.setParallelism(3);
+    RawDataFile parallelFile = centroidingMethod.execute();
+    Assert.assertNotNull(parallelFile);
+    Assert.assertEquals(1.0, centroidingMethod.getFinishedPercentage(), 0.0001);
+
+    // The results must be identical and in the same order
+    List<MsScan> serialScans = serialFile.getScans();
+    List<MsScan> parallelScans = parallelFile.getScans();
+    Assert.assertEquals(rawFile.getScans().size(), serialScans.size());
+    Assert.assertEquals(serialScans.size(), parallelScans.size());
+    for (int i = 0; i < serialScans.size(); i++) {
+      MsScan serialScan = serialScans.get(i);
+      MsScan parallelScan = parallelScans.get(i);
+      Assert.assertEquals(serialScan.getScanNumber(), parallelScan.getScanNumber());
+      Assert.assertEquals(serialScan.getNumberOfDataPoints(), parallelScan.getNumberOfDataPoints());
+      Assert.assertArrayEquals(serialScan.getMzValues(), parallelScan.getMzValues(), 0.0);
+      Assert.assertArrayEquals(serialScan.getIntensityValues(),
+          parallelScan.getIntensityValues(), 0.0f);
+    }
+  }
+
+  /**
+   * Creates profile scans of Gaussian peaks. The scans have different numbers of data points, so
+   * the per-thread buffers of the algorithms are reused for scans of different sizes.
+   */
+  private RawDataFile createProfileFile(Random random, int numOfScans) {
+    SimpleRawDataFile rawFile = new SimpleRawDataFile("profile", Optional.empty(), FileType.UNKNOWN);
+    for (int scanNumber = 1; scanNumber <= numOfScans; scanNumber++) {
+      final int numOfPeaks = 1 + random.nextInt(30);
+      final int pointsPerPeak = 11 + 2 * random.nextInt(10);
+      final double mzValues[] = new double[numOfPeaks * pointsPerPeak];
+      final float intensityValues[] = new float[numOfPeaks * pointsPerPeak];
+      double peakMz = 100.0;
+      for (int peak = 0; peak < numOfPeaks; peak++) {
+        peakMz += 1.0 + random.nextDouble() * 20.0;
+        final double height = 1E3 + random.nextDouble() * 1E6;
+        final double step = 0.002;
+        for (int j = 0; j < pointsPerPeak; j++) {
+          final double offset = (j - pointsPerPeak / 2) * step;
+          mzValues[peak * pointsPerPeak + j] = peakMz + offset;
+          intensityValues[peak * pointsPerPeak + j] =
+              (float) (height * Math.exp(-offset * offset / (2 * 0.005 * 0.005)));
+        }
+      }
+      SimpleMsScan scan = new SimpleMsScan(scanNumber);
+      scan.setRetentionTime(scanNumber * 0.5f);
+      scan.setSpectrumType(MsSpectrumType.PROFILE);
+      scan.setDataPoints(mzValues, intensityValues, mzValues.length);
+      rawFile.addScan(scan);
+    }
+    return rawFile;
+  }
+}
@@ -13,10 +13,19 @@
 
 package io.github.msdk.spectra.centroidprofiledetection;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.annotation.Nonnull;
 
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.MSDKException;
 import io.github.msdk.datamodel.MsSpectrum;
 import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.DataPointBuffer;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * Auto-detection of spectrum type from data points. Determines if the spectrum represented by given
@@ -24,9 +33,19 @@ import io.github.msdk.datamodel.MsSpectrumType;
  * easy to detect, because they contain zero-intensity data points. However, distinguishing
  * centroided from thresholded spectra is not trivial. We use multiple checks for that purpose, as
  * described in the code comments.
+ *
+ * <p>
+ * The file parsers should only call this algorithm if the file does not specify the spectrum type,
+ * e.g. by a CV term. Whole files can be classified in parallel by detectSpectrumTypes(), which
+ * keeps the declared types.
+ * </p>
  */
 public class SpectrumTypeDetectionAlgorithm {
 
+  // Data structures, reused by the spectra classified in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+
   /**
    * <p>
    * detectSpectrumType.
@@ -36,10 +55,52 @@ public class SpectrumTypeDetectionAlgorithm {
    * @return a {@link io.github.msdk.datamodel.MsSpectrumType} object.
    */
   public static MsSpectrumType detectSpectrumType(@Nonnull MsSpectrum msSpectrum) {
-    double mzValues[] = msSpectrum.getMzValues();
-    float intensityValues[] = msSpectrum.getIntensityValues();
-    Integer size = msSpectrum.getNumberOfDataPoints();
-    return detectSpectrumType(mzValues, intensityValues, size);
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(msSpectrum);
+    return detectSpectrumType(buffer.getMzValues(), buffer.getIntensityValues(),
+        buffer.getSize());
+  }
+
+  /**
+   * <p>
+   * Returns the types of the given spectra. The type declared by a spectrum, e.g. by the CV terms
+   * of a scan, is returned without loading the data points. Only the spectra which do not declare
+   * their type are classified from their data points.
+   * </p>
+   *
+   * @param spectra a {@link java.util.List} of {@link io.github.msdk.datamodel.MsSpectrum}
+   *        objects.
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   * @return a {@link java.util.List} of the spectrum types, in the order of the spectra.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  public static @Nonnull List<MsSpectrumType> detectSpectrumTypes(
+      @Nonnull List<? extends MsSpectrum> spectra, int parallelism) throws MSDKException {
+    Preconditions.checkNotNull(spectra);
+
+    final MsSpectrumType types[] = new MsSpectrumType[spectra.size()];
+    ParallelUtil.forEachIndex(types.length, parallelism, i -> {
+      final MsSpectrumType declaredType = spectra.get(i).getSpectrumType();
+      types[i] = declaredType != null ? declaredType : detectSpectrumType(spectra.get(i));
+    });
+    return Arrays.asList(types);
+  }
+
+  /**
+   * <p>
+   * Returns the types of all scans of the given raw data file, see
+   * {@link #detectSpectrumTypes(List, int)}.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   * @return a {@link java.util.List} of the spectrum types, in the order of the scans.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  public static @Nonnull List<MsSpectrumType> detectSpectrumTypes(
+      @Nonnull RawDataFile rawDataFile, int parallelism) throws MSDKException {
+    Preconditions.checkNotNull(rawDataFile);
+    return detectSpectrumTypes(rawDataFile.getScans(), parallelism);
   }
 
   /**
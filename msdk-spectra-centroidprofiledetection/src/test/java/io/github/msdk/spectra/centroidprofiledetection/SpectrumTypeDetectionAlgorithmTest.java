@@ -14,14 +14,19 @@
 package io.github.msdk.spectra.centroidprofiledetection;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrum;
 import io.github.msdk.datamodel.MsSpectrumType;
 import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.datamodel.SimpleMsSpectrum;
 import io.github.msdk.spectra.centroidprofiledetection.SpectrumTypeDetectionAlgorithm;
 
 public class SpectrumTypeDetectionAlgorithmTest {
@@ -719,4 +724,87 @@ public class SpectrumTypeDetectionAlgorithmTest {
 
   }
 
+  @Test
+  public void testDetectSpectrumTypes() throws Exception {
+
+    // Alternating profile spectra of Gaussian peaks and centroided spectra, which are classified
+    // from their data points
+    Random random = new Random(1);
+    List<MsSpectrum> spectra = new ArrayList<>();
+    List<MsSpectrumType> expectedTypes = new ArrayList<>();
+    for (int s = 0; s < 40; s++) {
+      final boolean profile = (s % 2 == 0);
+      final int size = profile ? 20000 : 200;
+      double mzValues[] = new double[size];
+      float intensityValues[] = new float[size];
+      for (int i = 0; i < size; i++) {
+        if (profile) {
+          mzValues[i] = 100.0 + i * 0.01;
+          final double distance = ((i % 100) - 50) / 5.0;
+          final int height = 1000 + (s * 200 + i / 100) * 37 % 1000;
+          intensityValues[i] = (float) Math.floor(height * Math.exp(-distance * distance));
+        } else {
+          mzValues[i] = 100.0 + i * 2.0 + random.nextDouble();
+          intensityValues[i] = 1 + random.nextInt(1000);
+        }
+      }
+      spectra.add(new UndeclaredMsSpectrum(mzValues, intensityValues, size));
+      expectedTypes.add(profile ? MsSpectrumType.PROFILE : MsSpectrumType.CENTROIDED);
+    }
+
+    Assert.assertEquals(expectedTypes,
+        SpectrumTypeDetectionAlgorithm.detectSpectrumTypes(spectra, 1));
+    Assert.assertEquals(expectedTypes,
+        SpectrumTypeDetectionAlgorithm.detectSpectrumTypes(spectra, 3));
+
+  }
+
+  @Test
+  public void testDeclaredSpectrumTypes() throws Exception {
+
+    // The declared types are returned, even if the data points look different
+    double mzValues[] = {100.0, 200.0, 300.0};
+    float intensityValues[] = {10f, 20f, 30f};
+    List<MsSpectrum> spectra = new ArrayList<>();
+    for (int s = 0; s < 10; s++) {
+      final MsSpectrumType type =
+          (s % 2 == 0) ? MsSpectrumType.PROFILE : MsSpectrumType.THRESHOLDED;
+      spectra.add(new SimpleMsSpectrum(mzValues, intensityValues, 3, type) {
+        @Override
+        public double[] getMzValues(double array[]) {
+          throw new AssertionError("Data points of a declared spectrum type were loaded");
+        }
+
+        @Override
+        public float[] getIntensityValues(float array[]) {
+          throw new AssertionError("Data points of a declared spectrum type were loaded");
+        }
+      });
+    }
+
+    for (int parallelism : new int[] {1, 3}) {
+      List<MsSpectrumType> types =
+          SpectrumTypeDetectionAlgorithm.detectSpectrumTypes(spectra, parallelism);
+      for (int s = 0; s < spectra.size(); s++)
+        Assert.assertEquals(spectra.get(s).getSpectrumType(), types.get(s));
+    }
+
+  }
+
+  /**
+   * Spectrum which does not declare its type, like a scan without a CV term.
+   */
+  private static class UndeclaredMsSpectrum extends SimpleMsSpectrum {
+
+    UndeclaredMsSpectrum(double mzValues[], float intensityValues[], int size) {
+      super(mzValues, intensityValues, size, MsSpectrumType.CENTROIDED);
+    }
+
+    @Override
+    public MsSpectrumType getSpectrumType() {
+      return null;
+    }
+
+  }
+
 }
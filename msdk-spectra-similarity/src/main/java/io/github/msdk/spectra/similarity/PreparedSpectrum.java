@@ -0,0 +1,223 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import io.github.msdk.datamodel.MsSpectrum;
+
+/**
+ * <p>
+ * MS spectrum prepared for fast comparisons by
+ * {@link io.github.msdk.spectra.similarity.SpectralSimilarityAlgorithm}. The data points are
+ * sorted by m/z value and stored in primitive arrays together with the normalized weights of all
+ * similarity measures, so comparing two prepared spectra only walks over their peaks once and
+ * allocates nothing. Data points with zero or negative intensity are left out.
+ * </p>
+ *
+ * <p>
+ * A spectrum is prepared once and can then be compared to any number of spectra, also
+ * concurrently, as instances are immutable.
+ * </p>
+ */
+public class PreparedSpectrum {
+
+  // Spectra with lower entropy get their intensities weighted, see Li et al., Nat Methods 2021
+  private static final double ENTROPY_WEIGHTING_LIMIT = 3.0;
+
+  private final @Nonnull double mzValues[];
+  private final @Nonnull double cosineWeights[], cosineRemaining[];
+  private final @Nonnull double entropyWeights[], entropyTerms[], entropyRemaining[];
+  private final double precursorMz;
+
+  /**
+   * <p>
+   * Prepares the data points of an MS spectrum.
+   * </p>
+   *
+   * @param spectrum a {@link io.github.msdk.datamodel.MsSpectrum} object.
+   * @param precursorMz m/z value of the precursor ion, or null if unknown. Only the modified
+   *        cosine uses it.
+   */
+  public PreparedSpectrum(@Nonnull MsSpectrum spectrum, @Nullable Double precursorMz) {
+    this(spectrum.getMzValues(), spectrum.getIntensityValues(), spectrum.getNumberOfDataPoints(),
+        precursorMz);
+  }
+
+  /**
+   * <p>
+   * Prepares the given data points, which do not need to be sorted.
+   * </p>
+   *
+   * @param mzValues an array of double.
+   * @param intensityValues an array of float.
+   * @param size the number of data points.
+   * @param precursorMz m/z value of the precursor ion, or null if unknown. Only the modified
+   *        cosine uses it.
+   */
+  public PreparedSpectrum(@Nonnull double mzValues[], @Nonnull float intensityValues[], int size,
+      @Nullable Double precursorMz) {
+    Preconditions.checkNotNull(mzValues);
+    Preconditions.checkNotNull(intensityValues);
+    Preconditions.checkPositionIndex(size, Math.min(mzValues.length, intensityValues.length));
+
+    // Keep the data points with positive intensity
+    double mz[] = new double[size];
+    double intensities[] = new double[size];
+    int numOfPeaks = 0;
+    boolean sorted = true;
+    for (int i = 0; i < size; i++) {
+      if (!(intensityValues[i] > 0f))
+        continue;
+      if ((numOfPeaks > 0) && (mzValues[i] < mz[numOfPeaks - 1]))
+        sorted = false;
+      mz[numOfPeaks] = mzValues[i];
+      intensities[numOfPeaks] = intensityValues[i];
+      numOfPeaks++;
+    }
+
+    // Sort by m/z value, if the data points are not sorted yet
+    if (!sorted) {
+      Integer order[] = new Integer[numOfPeaks];
+      for (int i = 0; i < numOfPeaks; i++)
+        order[i] = i;
+      final double unsortedMz[] = mz;
+      Arrays.sort(order, (a, b) -> Double.compare(unsortedMz[a], unsortedMz[b]));
+      final double unsortedIntensities[] = intensities;
+      mz = new double[numOfPeaks];
+      intensities = new double[numOfPeaks];
+      for (int i = 0; i < numOfPeaks; i++) {
+        mz[i] = unsortedMz[order[i]];
+        intensities[i] = unsortedIntensities[order[i]];
+      }
+    }
+    this.mzValues = Arrays.copyOf(mz, numOfPeaks);
+
+    // Cosine weights have unit length
+    double squaredNorm = 0.0;
+    for (int i = 0; i < numOfPeaks; i++)
+      squaredNorm += intensities[i] * intensities[i];
+    final double norm = Math.sqrt(squaredNorm);
+    cosineWeights = new double[numOfPeaks];
+    for (int i = 0; i < numOfPeaks; i++)
+      cosineWeights[i] = intensities[i] / norm;
+
+    // Entropy weights sum up to one, and are weighted if the entropy is low
+    entropyWeights = normalizeSum(intensities, numOfPeaks);
+    final double entropy = entropy(entropyWeights);
+    if (entropy < ENTROPY_WEIGHTING_LIMIT) {
+      final double exponent = 0.25 + 0.25 * entropy;
+      for (int i = 0; i < numOfPeaks; i++)
+        intensities[i] = Math.pow(entropyWeights[i], exponent);
+      System.arraycopy(normalizeSum(intensities, numOfPeaks), 0, entropyWeights, 0, numOfPeaks);
+    }
+    entropyTerms = new double[numOfPeaks];
+    for (int i = 0; i < numOfPeaks; i++)
+      entropyTerms[i] = entropyWeights[i] * Math.log(entropyWeights[i]);
+
+    // Remaining weights from each peak on bound the score of the unmatched peaks
+    cosineRemaining = new double[numOfPeaks + 1];
+    entropyRemaining = new double[numOfPeaks + 1];
+    for (int i = numOfPeaks - 1; i >= 0; i--) {
+      cosineRemaining[i] = cosineRemaining[i + 1] + cosineWeights[i] * cosineWeights[i];
+      entropyRemaining[i] = entropyRemaining[i + 1] + entropyWeights[i];
+    }
+
+    this.precursorMz = precursorMz != null ? precursorMz : Double.NaN;
+  }
+
+  private static double[] normalizeSum(double values[], int size) {
+    double sum = 0.0;
+    for (int i = 0; i < size; i++)
+      sum += values[i];
+    double normalized[] = new double[size];
+    for (int i = 0; i < size; i++)
+      normalized[i] = values[i] / sum;
+    return normalized;
+  }
+
+  private static double entropy(double probabilities[]) {
+    double entropy = 0.0;
+    for (double p : probabilities)
+      entropy -= p * Math.log(p);
+    return entropy;
+  }
+
+  /**
+   * <p>
+   * Returns the number of peaks, i.e. data points with positive intensity.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getNumberOfPeaks() {
+    return mzValues.length;
+  }
+
+  /**
+   * <p>
+   * Returns the m/z value of the precursor ion.
+   * </p>
+   *
+   * @return a {@link java.lang.Double} object, or null if unknown.
+   */
+  public @Nullable Double getPrecursorMz() {
+    return Double.isNaN(precursorMz) ? null : precursorMz;
+  }
+
+  @Nonnull
+  double[] getMzValues() {
+    return mzValues;
+  }
+
+  /** Intensities divided by their Euclidean norm. */
+  @Nonnull
+  double[] getCosineWeights() {
+    return cosineWeights;
+  }
+
+  /** Sums of the squared cosine weights from each index to the end, with one extra 0. */
+  @Nonnull
+  double[] getCosineRemaining() {
+    return cosineRemaining;
+  }
+
+  /** Weighted intensities divided by their sum. */
+  @Nonnull
+  double[] getEntropyWeights() {
+    return entropyWeights;
+  }
+
+  /** The entropy weights p multiplied by ln(p). */
+  @Nonnull
+  double[] getEntropyTerms() {
+    return entropyTerms;
+  }
+
+  /** Sums of the entropy weights from each index to the end, with one extra 0. */
+  @Nonnull
+  double[] getEntropyRemaining() {
+    return entropyRemaining;
+  }
+
+  /** Precursor m/z value, NaN if unknown. */
+  double getPrecursorMzValue() {
+    return precursorMz;
+  }
+
+}
@@ -0,0 +1,579 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.util.ArrayUtil;
+import io.github.msdk.util.DataPointBuffer;
+
+/**
+ * <p>
+ * Index of a spectral library for fast searches. The fragment m/z values of the library spectra
+ * are binned, and each bin keeps a posting list of the spectra with peaks in it and their
+ * normalized intensities. A search accumulates the binned dot products of the query with only
+ * those library spectra which share a bin with it, and rescores the candidates with the highest
+ * binned dot products with an exact comparison algorithm. Library spectra can be pre-filtered by
+ * a range of precursor m/z values, which are kept in a sorted array.
+ * </p>
+ *
+ * <p>
+ * All values are stored in primitive buffers, so the index can be saved to a file and loaded
+ * again by memory-mapping the file, without parsing it. The index is immutable, so it can be used
+ * by many searches, also concurrently.
+ * </p>
+ */
+public class SpectralLibraryIndex {
+
+  // "MSDKSLI1", followed by the header fields and the buffers in little-endian order
+  private static final long MAGIC = 0x4d53444b534c4931L;
+  private static final int HEADER_SIZE = 40;
+  private static final int WRITE_CHUNK_SIZE = 1 << 16;
+
+  private final double binWidth;
+  private final int firstBin;
+  private final int numOfSpectra;
+
+  // Peaks of the library spectra, the peaks of spectrum i start at index peakStarts[i]
+  private final @Nonnull IntBuffer peakStarts;
+  private final @Nonnull DoubleBuffer peakMzValues;
+  private final @Nonnull FloatBuffer peakIntensities;
+
+  // Precursor m/z values of the spectra (NaN if unknown), and the known ones sorted
+  private final @Nonnull DoubleBuffer precursorMzValues;
+  private final @Nonnull DoubleBuffer sortedPrecursorMzValues;
+  private final @Nonnull IntBuffer precursorOrder;
+
+  // Posting lists, the entries of bin firstBin + b start at index binStarts[b]
+  private final @Nonnull IntBuffer binStarts;
+  private final @Nonnull IntBuffer postingSpectra;
+  private final @Nonnull FloatBuffer postingWeights;
+
+  private final ThreadLocal<SearchBuffers> searchBuffers =
+      ThreadLocal.withInitial(() -> new SearchBuffers(size()));
+
+  /**
+   * <p>
+   * Creates the index of the given library spectra.
+   * </p>
+   *
+   * @param spectra a {@link java.util.List} of {@link io.github.msdk.datamodel.MsSpectrum}
+   *        objects.
+   * @param precursorMzValues the precursor m/z values of the spectra, which may contain null for
+   *        unknown values.
+   * @param binWidth width of the m/z bins, typically the m/z tolerance of the comparisons.
+   */
+  public SpectralLibraryIndex(@Nonnull List<? extends MsSpectrum> spectra,
+      @Nonnull List<Double> precursorMzValues, double binWidth) {
+    Preconditions.checkNotNull(spectra);
+    Preconditions.checkNotNull(precursorMzValues);
+    Preconditions.checkArgument(spectra.size() == precursorMzValues.size(),
+        "There must be one precursor m/z value for each spectrum");
+    Preconditions.checkArgument(binWidth > 0.0, "Bin width must be positive");
+    this.binWidth = binWidth;
+    this.numOfSpectra = spectra.size();
+
+    // Copy the peaks with positive intensity
+    final int starts[] = new int[numOfSpectra + 1];
+    double mzValues[] = new double[1024];
+    float intensities[] = new float[1024];
+    int numOfPeaks = 0;
+    int minBin = Integer.MAX_VALUE, maxBin = Integer.MIN_VALUE;
+    DataPointBuffer buffer = new DataPointBuffer();
+    for (int i = 0; i < numOfSpectra; i++) {
+      buffer.load(spectra.get(i));
+      final double spectrumMz[] = buffer.getMzValues();
+      final float spectrumIntensities[] = buffer.getIntensityValues();
+      for (int j = 0; j < buffer.getSize(); j++) {
+        if (!(spectrumIntensities[j] > 0f))
+          continue;
+        mzValues = ArrayUtil.addToArray(mzValues, spectrumMz[j], numOfPeaks);
+        intensities = ArrayUtil.addToArray(intensities, spectrumIntensities[j], numOfPeaks);
+        numOfPeaks++;
+        final int bin = bin(spectrumMz[j]);
+        minBin = Math.min(minBin, bin);
+        maxBin = Math.max(maxBin, bin);
+      }
+      starts[i + 1] = numOfPeaks;
+    }
+    this.firstBin = numOfPeaks > 0 ? minBin : 0;
+    final int numOfBins = numOfPeaks > 0 ? maxBin - minBin + 1 : 0;
+
+    // Count the posting entries of each bin, one per spectrum
+    final int binCounts[] = new int[numOfBins + 1];
+    for (int i = 0; i < numOfSpectra; i++) {
+      int previousBin = Integer.MIN_VALUE;
+      for (int j = starts[i]; j < starts[i + 1]; j++) {
+        final int bin = bin(mzValues[j]);
+        if (bin != previousBin)
+          binCounts[bin - firstBin + 1]++;
+        previousBin = bin;
+      }
+    }
+    for (int b = 0; b < numOfBins; b++)
+      binCounts[b + 1] += binCounts[b];
+    final int numOfPostings = binCounts[numOfBins];
+
+    // Fill the posting lists with the intensities divided by the norm of each spectrum
+    final int postingSpectraArray[] = new int[numOfPostings];
+    final float postingWeightsArray[] = new float[numOfPostings];
+    final int positions[] = Arrays.copyOf(binCounts, numOfBins);
+    for (int i = 0; i < numOfSpectra; i++) {
+      double squaredNorm = 0.0;
+      for (int j = starts[i]; j < starts[i + 1]; j++)
+        squaredNorm += (double) intensities[j] * intensities[j];
+      final double norm = Math.sqrt(squaredNorm);
+      int previousBin = Integer.MIN_VALUE;
+      for (int j = starts[i]; j < starts[i + 1]; j++) {
+        final int bin = bin(mzValues[j]) - firstBin;
+        if (bin != previousBin) {
+          postingSpectraArray[positions[bin]] = i;
+          positions[bin]++;
+        }
+        postingWeightsArray[positions[bin] - 1] += (float) (intensities[j] / norm);
+        previousBin = bin;
+      }
+    }
+
+    // Sort the known precursor m/z values
+    final double precursors[] = new double[numOfSpectra];
+    List<Integer> known = new ArrayList<>();
+    for (int i = 0; i < numOfSpectra; i++) {
+      final Double precursorMz = precursorMzValues.get(i);
+      precursors[i] = precursorMz != null ? precursorMz : Double.NaN;
+      if (!Double.isNaN(precursors[i]))
+        known.add(i);
+    }
+    known.sort((a, b) -> Double.compare(precursors[a], precursors[b]));
+    final int order[] = new int[known.size()];
+    final double sortedPrecursors[] = new double[known.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = known.get(i);
+      sortedPrecursors[i] = precursors[order[i]];
+    }
+
+    this.peakStarts = IntBuffer.wrap(starts);
+    this.peakMzValues = DoubleBuffer.wrap(Arrays.copyOf(mzValues, numOfPeaks));
+    this.peakIntensities = FloatBuffer.wrap(Arrays.copyOf(intensities, numOfPeaks));
+    this.precursorMzValues = DoubleBuffer.wrap(precursors);
+    this.sortedPrecursorMzValues = DoubleBuffer.wrap(sortedPrecursors);
+    this.precursorOrder = IntBuffer.wrap(order);
+    this.binStarts = IntBuffer.wrap(binCounts);
+    this.postingSpectra = IntBuffer.wrap(postingSpectraArray);
+    this.postingWeights = FloatBuffer.wrap(postingWeightsArray);
+  }
+
+  private SpectralLibraryIndex(double binWidth, int firstBin, int numOfSpectra,
+      IntBuffer peakStarts, DoubleBuffer peakMzValues, FloatBuffer peakIntensities,
+      DoubleBuffer precursorMzValues, DoubleBuffer sortedPrecursorMzValues,
+      IntBuffer precursorOrder, IntBuffer binStarts, IntBuffer postingSpectra,
+      FloatBuffer postingWeights) {
+    this.binWidth = binWidth;
+    this.firstBin = firstBin;
+    this.numOfSpectra = numOfSpectra;
+    this.peakStarts = peakStarts;
+    this.peakMzValues = peakMzValues;
+    this.peakIntensities = peakIntensities;
+    this.precursorMzValues = precursorMzValues;
+    this.sortedPrecursorMzValues = sortedPrecursorMzValues;
+    this.precursorOrder = precursorOrder;
+    this.binStarts = binStarts;
+    this.postingSpectra = postingSpectra;
+    this.postingWeights = postingWeights;
+  }
+
+  private int bin(double mz) {
+    return (int) Math.floor(mz / binWidth);
+  }
+
+  /**
+   * <p>
+   * Returns the number of library spectra.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int size() {
+    return numOfSpectra;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>binWidth</code>.
+   * </p>
+   *
+   * @return a double.
+   */
+  public double getBinWidth() {
+    return binWidth;
+  }
+
+  /**
+   * <p>
+   * Searches the library for spectra similar to the query spectrum. The library spectra whose
+   * precursor m/z value is inside the given range, and which share at least one m/z bin with the
+   * query, are ranked by their binned dot product with the query. The best maxCandidates of them
+   * are compared to the query by the given algorithm. If it is a
+   * {@link io.github.msdk.spectra.similarity.SpectralSimilarityAlgorithm}, the precursor m/z values
+   * are passed on, so the modified cosine can be used. Library spectra which only share peaks
+   * shifted by the precursor m/z difference with the query are not found.
+   * </p>
+   *
+   * @param query a {@link io.github.msdk.datamodel.MsSpectrum} object.
+   * @param precursorMz precursor m/z value of the query, or null if unknown.
+   * @param precursorMzRange range of the precursor m/z values of the library spectra, or null to
+   *        search all library spectra.
+   * @param algorithm the algorithm computing the exact scores.
+   * @param maxCandidates the maximum number of library spectra compared by the algorithm.
+   * @param minScore minimum score of the returned matches.
+   * @return the matches, sorted by decreasing score.
+   */
+  public @Nonnull List<SpectralLibraryMatch> search(@Nonnull MsSpectrum query,
+      @Nullable Double precursorMz, @Nullable Range<Double> precursorMzRange,
+      @Nonnull MSDKSpectraComparisonAlgorithm algorithm, int maxCandidates, double minScore) {
+    Preconditions.checkNotNull(query);
+    Preconditions.checkNotNull(algorithm);
+    Preconditions.checkArgument(maxCandidates >= 0, "Number of candidates must not be negative");
+
+    final SearchBuffers buffers = searchBuffers.get();
+    buffers.query.load(query);
+    final double queryMz[] = buffers.query.getMzValues();
+    final float queryIntensities[] = buffers.query.getIntensityValues();
+    final int querySize = buffers.query.getSize();
+
+    // Allow the library spectra inside the precursor m/z range
+    final int stamp = buffers.nextStamp();
+    final boolean filtered = precursorMzRange != null;
+    if (filtered) {
+      for (int i = lowerBound(precursorMzRange); i < sortedPrecursorMzValues.limit(); i++) {
+        final double libraryPrecursorMz = sortedPrecursorMzValues.get(i);
+        if (precursorMzRange.hasUpperBound()
+            && (libraryPrecursorMz > precursorMzRange.upperEndpoint()))
+          break;
+        if (precursorMzRange.contains(libraryPrecursorMz))
+          buffers.allowed[precursorOrder.get(i)] = stamp;
+      }
+    }
+
+    // Accumulate the binned dot products, merging query peaks in the same bin
+    double squaredNorm = 0.0;
+    for (int i = 0; i < querySize; i++) {
+      if (queryIntensities[i] > 0f)
+        squaredNorm += (double) queryIntensities[i] * queryIntensities[i];
+    }
+    final double norm = Math.sqrt(squaredNorm);
+    final float scores[] = buffers.scores;
+    final int touched[] = buffers.touched;
+    int numOfTouched = 0;
+    for (int i = 0; i < querySize;) {
+      if (!(queryIntensities[i] > 0f)) {
+        i++;
+        continue;
+      }
+      final int bin = bin(queryMz[i]);
+      double weight = 0.0;
+      for (; (i < querySize) && (bin(queryMz[i]) == bin); i++) {
+        if (queryIntensities[i] > 0f)
+          weight += queryIntensities[i] / norm;
+      }
+      final int b = bin - firstBin;
+      if ((b < 0) || (b >= binStarts.limit() - 1))
+        continue;
+      for (int p = binStarts.get(b); p < binStarts.get(b + 1); p++) {
+        final int spectrum = postingSpectra.get(p);
+        if (filtered && (buffers.allowed[spectrum] != stamp))
+          continue;
+        if (buffers.visited[spectrum] != stamp) {
+          buffers.visited[spectrum] = stamp;
+          scores[spectrum] = 0f;
+          touched[numOfTouched++] = spectrum;
+        }
+        scores[spectrum] += (float) (weight * postingWeights.get(p));
+      }
+    }
+
+    // Select the candidates with the highest binned dot products
+    final long keys[] = buffers.keys;
+    for (int i = 0; i < numOfTouched; i++) {
+      final int spectrum = touched[i];
+      keys[i] = ((long) Float.floatToIntBits(scores[spectrum]) << 32)
+          | (Integer.MAX_VALUE - spectrum);
+    }
+    final int numOfCandidates = Math.min(maxCandidates, numOfTouched);
+    ArrayUtil.selectHighest(keys, numOfTouched, numOfCandidates);
+
+    // Rescore the candidates
+    final PreparedSpectrum preparedQuery = algorithm instanceof SpectralSimilarityAlgorithm
+        ? new PreparedSpectrum(queryMz, queryIntensities, querySize, precursorMz)
+        : null;
+    List<SpectralLibraryMatch> matches = new ArrayList<>();
+    for (int i = 0; i < numOfCandidates; i++) {
+      final int spectrum = Integer.MAX_VALUE - (int) keys[i];
+      final int start = peakStarts.get(spectrum);
+      final int size = peakStarts.get(spectrum + 1) - start;
+      final double libraryMz[] = buffers.getLibraryMzValues(size);
+      final float libraryIntensities[] = buffers.getLibraryIntensities(size);
+      for (int j = 0; j < size; j++) {
+        libraryMz[j] = peakMzValues.get(start + j);
+        libraryIntensities[j] = peakIntensities.get(start + j);
+      }
+      final double score;
+      if (preparedQuery != null) {
+        final double libraryPrecursorMz = precursorMzValues.get(spectrum);
+        final PreparedSpectrum preparedLibrarySpectrum = new PreparedSpectrum(libraryMz,
+            libraryIntensities, size, Double.isNaN(libraryPrecursorMz) ? null : libraryPrecursorMz);
+        score = ((SpectralSimilarityAlgorithm) algorithm).compareSpectra(preparedQuery,
+            preparedLibrarySpectrum, minScore);
+      } else {
+        score = algorithm.compareSpectra(queryMz, queryIntensities, querySize, libraryMz,
+            libraryIntensities, size);
+      }
+      if (score >= minScore)
+        matches.add(new SpectralLibraryMatch(spectrum, score));
+    }
+
+    matches.sort((a, b) -> {
+      final int result = Double.compare(b.getScore(), a.getScore());
+      return result != 0 ? result : Integer.compare(a.getLibraryIndex(), b.getLibraryIndex());
+    });
+    return matches;
+  }
+
+  // First index of the sorted precursor m/z values which may be inside the range
+  private int lowerBound(@Nonnull Range<Double> range) {
+    if (!range.hasLowerBound())
+      return 0;
+    final double value = range.lowerEndpoint();
+    int low = 0, high = sortedPrecursorMzValues.limit();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (sortedPrecursorMzValues.get(mid) < value)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * <p>
+   * Saves the index to a file, which can be loaded by {@link #load(File)}. The index is written to
+   * a temporary file in the same directory, which then replaces the given file. So an index can
+   * also be saved to the file it was loaded from.
+   * </p>
+   *
+   * @param file a {@link java.io.File} object.
+   * @throws java.io.IOException if any.
+   */
+  public void save(@Nonnull File file) throws IOException {
+    Preconditions.checkNotNull(file);
+    final Path target = file.toPath().toAbsolutePath();
+    final Path temporary = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC).putDouble(binWidth).putInt(firstBin).putInt(numOfSpectra)
+            .putInt(peakMzValues.limit()).putInt(sortedPrecursorMzValues.limit())
+            .putInt(binStarts.limit() - 1).putInt(postingSpectra.limit());
+        header.flip();
+        writeFully(channel, header);
+
+        // Doubles first, so all values are aligned
+        ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (DoubleBuffer values : new DoubleBuffer[] {peakMzValues, precursorMzValues,
+            sortedPrecursorMzValues}) {
+          for (int i = 0; i < values.limit(); i += WRITE_CHUNK_SIZE / 8) {
+            chunk.clear();
+            for (int j = i; j < Math.min(values.limit(), i + WRITE_CHUNK_SIZE / 8); j++)
+              chunk.putDouble(values.get(j));
+            chunk.flip();
+            writeFully(channel, chunk);
+          }
+        }
+        for (FloatBuffer values : new FloatBuffer[] {peakIntensities, postingWeights}) {
+          for (int i = 0; i < values.limit(); i += WRITE_CHUNK_SIZE / 4) {
+            chunk.clear();
+            for (int j = i; j < Math.min(values.limit(), i + WRITE_CHUNK_SIZE / 4); j++)
+              chunk.putFloat(values.get(j));
+            chunk.flip();
+            writeFully(channel, chunk);
+          }
+        }
+        for (IntBuffer values : new IntBuffer[] {peakStarts, precursorOrder, binStarts,
+            postingSpectra}) {
+          for (int i = 0; i < values.limit(); i += WRITE_CHUNK_SIZE / 4) {
+            chunk.clear();
+            for (int j = i; j < Math.min(values.limit(), i + WRITE_CHUNK_SIZE / 4); j++)
+              chunk.putInt(values.get(j));
+            chunk.flip();
+            writeFully(channel, chunk);
+          }
+        }
+        channel.force(true);
+      }
+
+      // An index loaded from the target keeps the mapping of the replaced file
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  }
+
+  /**
+   * <p>
+   * Loads an index saved by {@link #save(File)}. The file is memory-mapped, so the values are
+   * only read from the file when a search needs them.
+   * </p>
+   *
+   * @param file a {@link java.io.File} object.
+   * @return a {@link io.github.msdk.spectra.similarity.SpectralLibraryIndex} object.
+   * @throws java.io.IOException if the file cannot be read or is not a saved index.
+   */
+  public static @Nonnull SpectralLibraryIndex load(@Nonnull File file) throws IOException {
+    Preconditions.checkNotNull(file);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0)
+          break;
+      }
+      header.flip();
+      if ((header.remaining() < HEADER_SIZE) || (header.getLong() != MAGIC))
+        throw new IOException("Not a spectral library index: " + file);
+      final double binWidth = header.getDouble();
+      final int firstBin = header.getInt();
+      final int numOfSpectra = header.getInt();
+      final int numOfPeaks = header.getInt();
+      final int numOfPrecursors = header.getInt();
+      final int numOfBins = header.getInt();
+      final int numOfPostings = header.getInt();
+
+      final long size = HEADER_SIZE + 8L * (numOfPeaks + numOfSpectra + numOfPrecursors)
+          + 4L * (numOfPeaks + numOfPostings) + 4L * (numOfSpectra + 1 + numOfPrecursors
+              + numOfBins + 1 + numOfPostings);
+      if (channel.size() < size)
+        throw new IOException("Spectral library index is truncated: " + file);
+
+      long offset = HEADER_SIZE;
+      final DoubleBuffer peakMzValues =
+          map(channel, MapMode.READ_ONLY, offset, 8L * numOfPeaks).asDoubleBuffer();
+      offset += 8L * numOfPeaks;
+      final DoubleBuffer precursorMzValues =
+          map(channel, MapMode.READ_ONLY, offset, 8L * numOfSpectra).asDoubleBuffer();
+      offset += 8L * numOfSpectra;
+      final DoubleBuffer sortedPrecursorMzValues =
+          map(channel, MapMode.READ_ONLY, offset, 8L * numOfPrecursors).asDoubleBuffer();
+      offset += 8L * numOfPrecursors;
+      final FloatBuffer peakIntensities =
+          map(channel, MapMode.READ_ONLY, offset, 4L * numOfPeaks).asFloatBuffer();
+      offset += 4L * numOfPeaks;
+      final FloatBuffer postingWeights =
+          map(channel, MapMode.READ_ONLY, offset, 4L * numOfPostings).asFloatBuffer();
+      offset += 4L * numOfPostings;
+      final IntBuffer peakStarts =
+          map(channel, MapMode.READ_ONLY, offset, 4L * (numOfSpectra + 1)).asIntBuffer();
+      offset += 4L * (numOfSpectra + 1);
+      final IntBuffer precursorOrder =
+          map(channel, MapMode.READ_ONLY, offset, 4L * numOfPrecursors).asIntBuffer();
+      offset += 4L * numOfPrecursors;
+      final IntBuffer binStarts =
+          map(channel, MapMode.READ_ONLY, offset, 4L * (numOfBins + 1)).asIntBuffer();
+      offset += 4L * (numOfBins + 1);
+      final IntBuffer postingSpectra =
+          map(channel, MapMode.READ_ONLY, offset, 4L * numOfPostings).asIntBuffer();
+
+      return new SpectralLibraryIndex(binWidth, firstBin, numOfSpectra, peakStarts, peakMzValues,
+          peakIntensities, precursorMzValues, sortedPrecursorMzValues, precursorOrder, binStarts,
+          postingSpectra, postingWeights);
+    }
+  }
+
+  private static ByteBuffer map(FileChannel channel, MapMode mode, long offset, long size)
+      throws IOException {
+    return channel.map(mode, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Per-thread arrays of a search. Stamps mark the spectra visited and allowed by the current
+   * search, so the arrays never need to be cleared.
+   */
+  private static class SearchBuffers {
+
+    private final DataPointBuffer query = new DataPointBuffer();
+    private final float scores[];
+    private final int touched[], visited[], allowed[];
+    private final long keys[];
+    private double libraryMzValues[] = new double[0];
+    private float libraryIntensities[] = new float[0];
+    private int stamp = 0;
+
+    private SearchBuffers(int numOfSpectra) {
+      scores = new float[numOfSpectra];
+      touched = new int[numOfSpectra];
+      visited = new int[numOfSpectra];
+      allowed = new int[numOfSpectra];
+      keys = new long[numOfSpectra];
+    }
+
+    private int nextStamp() {
+      if (stamp == Integer.MAX_VALUE) {
+        Arrays.fill(visited, 0);
+        Arrays.fill(allowed, 0);
+        stamp = 0;
+      }
+      return ++stamp;
+    }
+
+    private double[] getLibraryMzValues(int size) {
+      if (libraryMzValues.length < size)
+        libraryMzValues = new double[size];
+      return libraryMzValues;
+    }
+
+    private float[] getLibraryIntensities(int size) {
+      if (libraryIntensities.length < size)
+        libraryIntensities = new float[size];
+      return libraryIntensities;
+    }
+
+  }
+
+}
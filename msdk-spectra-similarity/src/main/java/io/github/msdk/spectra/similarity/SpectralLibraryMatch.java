@@ -0,0 +1,59 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+/**
+ * Library spectrum found by {@link io.github.msdk.spectra.similarity.SpectralLibraryIndex}, with
+ * its similarity score to the query spectrum.
+ */
+public class SpectralLibraryMatch {
+
+  private final int libraryIndex;
+  private final double score;
+
+  /**
+   * <p>
+   * Constructor for SpectralLibraryMatch.
+   * </p>
+   *
+   * @param libraryIndex index of the spectrum in the library.
+   * @param score the similarity score.
+   */
+  public SpectralLibraryMatch(int libraryIndex, double score) {
+    this.libraryIndex = libraryIndex;
+    this.score = score;
+  }
+
+  /**
+   * <p>
+   * Returns the index of the spectrum in the list the library index was built from.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getLibraryIndex() {
+    return libraryIndex;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>score</code>.
+   * </p>
+   *
+   * @return a double.
+   */
+  public double getScore() {
+    return score;
+  }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Computes cosine, modified cosine or entropy similarity scores between 0 and 1 of MS/MS spectra.
+ * </p>
+ *
+ * <p>
+ * Peaks are matched by walking over the m/z sorted peaks of both spectra at once: each peak is
+ * matched at most once, to the first peak of the other spectrum whose m/z value is within the
+ * tolerance. The modified cosine first matches the peaks directly and then matches the remaining
+ * peaks shifted by the difference of the precursor m/z values. The algorithm is stateless apart
+ * from its parameters, so it can be used by several threads concurrently.
+ * </p>
+ */
+public class SpectralSimilarityAlgorithm implements MSDKSpectraComparisonAlgorithm {
+
+  private static final double LN4 = Math.log(4.0);
+
+  // Scratch arrays marking the peaks matched by the modified cosine
+  private static final ThreadLocal<boolean[][]> matchedPeaks =
+      ThreadLocal.withInitial(() -> new boolean[][] {new boolean[0], new boolean[0]});
+
+  private final @Nonnull SpectralSimilarityMeasure measure;
+  private final double mzTolerance;
+
+  /**
+   * <p>
+   * Constructor for SpectralSimilarityAlgorithm.
+   * </p>
+   *
+   * @param measure a {@link io.github.msdk.spectra.similarity.SpectralSimilarityMeasure} object.
+   * @param mzTolerance maximum m/z difference of matching peaks.
+   */
+  public SpectralSimilarityAlgorithm(@Nonnull SpectralSimilarityMeasure measure,
+      double mzTolerance) {
+    Preconditions.checkNotNull(measure);
+    Preconditions.checkArgument(mzTolerance >= 0.0, "m/z tolerance must not be negative");
+    this.measure = measure;
+    this.mzTolerance = mzTolerance;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>measure</code>.
+   * </p>
+   *
+   * @return a {@link io.github.msdk.spectra.similarity.SpectralSimilarityMeasure} object.
+   */
+  public @Nonnull SpectralSimilarityMeasure getMeasure() {
+    return measure;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>mzTolerance</code>.
+   * </p>
+   *
+   * @return a double.
+   */
+  public double getMzTolerance() {
+    return mzTolerance;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * The precursor m/z values are unknown, so the modified cosine equals the cosine. Prepare the
+   * spectra to compare them more than once.
+   * </p>
+   */
+  @Override
+  public @Nonnull Double compareSpectra(@Nonnull double mzValuesSpectrum1[],
+      @Nonnull float intensityValuesSpectrum1[], @Nonnull Integer sizeSpectrum1,
+      @Nonnull double mzValuesSpectrum2[], @Nonnull float intensityValuesSpectrum2[],
+      @Nonnull Integer sizeSpectrum2) {
+    return compareSpectra(
+        new PreparedSpectrum(mzValuesSpectrum1, intensityValuesSpectrum1, sizeSpectrum1, null),
+        new PreparedSpectrum(mzValuesSpectrum2, intensityValuesSpectrum2, sizeSpectrum2, null));
+  }
+
+  /**
+   * <p>
+   * Compares two prepared spectra.
+   * </p>
+   *
+   * @param spectrum1 a {@link io.github.msdk.spectra.similarity.PreparedSpectrum} object.
+   * @param spectrum2 a {@link io.github.msdk.spectra.similarity.PreparedSpectrum} object.
+   * @return the score, between 0 and 1.
+   */
+  public double compareSpectra(@Nonnull PreparedSpectrum spectrum1,
+      @Nonnull PreparedSpectrum spectrum2) {
+    return compareSpectra(spectrum1, spectrum2, 0.0);
+  }
+
+  /**
+   * <p>
+   * Compares two prepared spectra, stopping as soon as the score cannot reach the given minimum
+   * score any more. Scores of at least the minimum score are exact; lower scores are only
+   * guaranteed to be below the minimum score.
+   * </p>
+   *
+   * @param spectrum1 a {@link io.github.msdk.spectra.similarity.PreparedSpectrum} object.
+   * @param spectrum2 a {@link io.github.msdk.spectra.similarity.PreparedSpectrum} object.
+   * @param minScore the minimum score of interest.
+   * @return the score, between 0 and 1.
+   */
+  public double compareSpectra(@Nonnull PreparedSpectrum spectrum1,
+      @Nonnull PreparedSpectrum spectrum2, double minScore) {
+    switch (measure) {
+      case COSINE:
+        return Math.min(1.0, cosine(spectrum1, spectrum2, minScore));
+      case MODIFIED_COSINE:
+        return Math.min(1.0, modifiedCosine(spectrum1, spectrum2, minScore));
+      case ENTROPY:
+        return Math.min(1.0, entropy(spectrum1, spectrum2, minScore));
+      default:
+        throw new IllegalStateException("Unknown similarity measure " + measure);
+    }
+  }
+
+  private double cosine(PreparedSpectrum spectrum1, PreparedSpectrum spectrum2,
+      double minScore) {
+    final double mz1[] = spectrum1.getMzValues(), mz2[] = spectrum2.getMzValues();
+    final double weights1[] = spectrum1.getCosineWeights();
+    final double weights2[] = spectrum2.getCosineWeights();
+    final double remaining1[] = spectrum1.getCosineRemaining();
+    final double remaining2[] = spectrum2.getCosineRemaining();
+
+    double score = 0.0;
+    int i = 0, j = 0;
+    while ((i < mz1.length) && (j < mz2.length)) {
+      // Cauchy-Schwarz bounds the products of the remaining peaks by the mean of their norms
+      if (score + 0.5 * (remaining1[i] + remaining2[j]) < minScore)
+        break;
+      final double difference = mz1[i] - mz2[j];
+      if (difference < -mzTolerance) {
+        i++;
+      } else if (difference > mzTolerance) {
+        j++;
+      } else {
+        score += weights1[i] * weights2[j];
+        i++;
+        j++;
+      }
+    }
+    return score;
+  }
+
+  private double modifiedCosine(PreparedSpectrum spectrum1, PreparedSpectrum spectrum2,
+      double minScore) {
+    final double shift = spectrum1.getPrecursorMzValue() - spectrum2.getPrecursorMzValue();
+    if (!(Math.abs(shift) > mzTolerance))
+      return cosine(spectrum1, spectrum2, minScore);
+
+    final double mz1[] = spectrum1.getMzValues(), mz2[] = spectrum2.getMzValues();
+    final double weights1[] = spectrum1.getCosineWeights();
+    final double weights2[] = spectrum2.getCosineWeights();
+    final double remaining1[] = spectrum1.getCosineRemaining();
+    final double remaining2[] = spectrum2.getCosineRemaining();
+    final int size1 = mz1.length, size2 = mz2.length;
+
+    boolean scratch[][] = matchedPeaks.get();
+    if ((scratch[0].length < size1) || (scratch[1].length < size2)) {
+      scratch = new boolean[][] {new boolean[Math.max(size1, scratch[0].length)],
+          new boolean[Math.max(size2, scratch[1].length)]};
+      matchedPeaks.set(scratch);
+    }
+    final boolean matched1[] = scratch[0], matched2[] = scratch[1];
+
+    // Match the peaks directly
+    double score = 0.0, matchedNorm1 = 0.0, matchedNorm2 = 0.0;
+    int i = 0, j = 0;
+    while ((i < size1) && (j < size2)) {
+      final double difference = mz1[i] - mz2[j];
+      if (difference < -mzTolerance) {
+        matched1[i++] = false;
+      } else if (difference > mzTolerance) {
+        matched2[j++] = false;
+      } else {
+        score += weights1[i] * weights2[j];
+        matchedNorm1 += weights1[i] * weights1[i];
+        matchedNorm2 += weights2[j] * weights2[j];
+        matched1[i++] = true;
+        matched2[j++] = true;
+      }
+    }
+    while (i < size1)
+      matched1[i++] = false;
+    while (j < size2)
+      matched2[j++] = false;
+
+    // Match the remaining peaks shifted by the precursor m/z difference
+    if (score + 0.5 * ((remaining1[0] - matchedNorm1) + (remaining2[0] - matchedNorm2)) < minScore)
+      return score;
+    i = 0;
+    j = 0;
+    while ((i < size1) && (j < size2)) {
+      if (score + 0.5 * (remaining1[i] + remaining2[j]) < minScore)
+        break;
+      if (matched1[i]) {
+        i++;
+        continue;
+      }
+      if (matched2[j]) {
+        j++;
+        continue;
+      }
+      final double difference = mz1[i] - mz2[j] - shift;
+      if (difference < -mzTolerance) {
+        i++;
+      } else if (difference > mzTolerance) {
+        j++;
+      } else {
+        score += weights1[i] * weights2[j];
+        i++;
+        j++;
+      }
+    }
+    return score;
+  }
+
+  private double entropy(PreparedSpectrum spectrum1, PreparedSpectrum spectrum2,
+      double minScore) {
+    final double mz1[] = spectrum1.getMzValues(), mz2[] = spectrum2.getMzValues();
+    final double weights1[] = spectrum1.getEntropyWeights();
+    final double weights2[] = spectrum2.getEntropyWeights();
+    final double terms1[] = spectrum1.getEntropyTerms(), terms2[] = spectrum2.getEntropyTerms();
+    final double remaining1[] = spectrum1.getEntropyRemaining();
+    final double remaining2[] = spectrum2.getEntropyRemaining();
+
+    // Only matching peaks change the entropy of the merged spectrum. Each match adds
+    // (p+q)ln(p+q) - p ln(p) - q ln(q), which is at most (p+q)ln(2).
+    final double minSum = minScore * LN4;
+    final double ln2 = 0.5 * LN4;
+    double sum = 0.0;
+    int i = 0, j = 0;
+    while ((i < mz1.length) && (j < mz2.length)) {
+      if (sum + ln2 * (remaining1[i] + remaining2[j]) < minSum)
+        break;
+      final double difference = mz1[i] - mz2[j];
+      if (difference < -mzTolerance) {
+        i++;
+      } else if (difference > mzTolerance) {
+        j++;
+      } else {
+        final double merged = weights1[i] + weights2[j];
+        sum += merged * Math.log(merged) - terms1[i] - terms2[j];
+        i++;
+        j++;
+      }
+    }
+    return sum / LN4;
+  }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+/**
+ * Similarity scores computed by
+ * {@link io.github.msdk.spectra.similarity.SpectralSimilarityAlgorithm}.
+ */
+public enum SpectralSimilarityMeasure {
+
+  /**
+   * Cosine of the intensity vectors of the matching peaks.
+   */
+  COSINE,
+
+  /**
+   * Cosine which also matches peaks shifted by the difference of the precursor m/z values, so
+   * fragments which contain the modified part of a molecule are matched as well.
+   */
+  MODIFIED_COSINE,
+
+  /**
+   * Entropy similarity, one minus the normalized increase of the spectral entropy when the two
+   * spectra are merged. Intensities of spectra with low entropy are weighted to raise their
+   * entropy.
+   */
+  ENTROPY;
+
+}
@@ -0,0 +1,178 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.util.ParallelUtil;
+
+/**
+ * <p>
+ * Compares all pairs of a list of prepared spectra, e.g. to build a molecular network, and returns
+ * the pairs whose score is at least a minimum score. The pairs are sorted by the index of the
+ * first spectrum and then by the index of the second spectrum.
+ * </p>
+ *
+ * <p>
+ * The pairs are processed in square tiles of TILE_SIZE x TILE_SIZE spectra, so the spectra of a
+ * tile stay in the CPU cache while they are compared, and the tiles are distributed over the
+ * threads.
+ * </p>
+ */
+public class SpectralSimilarityMethod implements MSDKMethod<List<SpectralSimilarityPair>> {
+
+  private static final int TILE_SIZE = 64;
+
+  private final @Nonnull List<PreparedSpectrum> spectra;
+  private final @Nonnull SpectralSimilarityAlgorithm algorithm;
+  private final double minScore;
+
+  private List<SpectralSimilarityPair> result;
+  private boolean canceled = false;
+  private int parallelism = 1;
+  private final AtomicLong processedPairs = new AtomicLong();
+  private long totalPairs = 0;
+
+  /**
+   * <p>
+   * Constructor for SpectralSimilarityMethod.
+   * </p>
+   *
+   * @param spectra a {@link java.util.List} of
+   *        {@link io.github.msdk.spectra.similarity.PreparedSpectrum} objects.
+   * @param algorithm a {@link io.github.msdk.spectra.similarity.SpectralSimilarityAlgorithm}
+   *        object.
+   * @param minScore minimum score of the returned pairs.
+   */
+  public SpectralSimilarityMethod(@Nonnull List<PreparedSpectrum> spectra,
+      @Nonnull SpectralSimilarityAlgorithm algorithm, double minScore) {
+    Preconditions.checkNotNull(spectra);
+    Preconditions.checkNotNull(algorithm);
+    this.spectra = ImmutableList.copyOf(spectra);
+    this.algorithm = algorithm;
+    this.minScore = minScore;
+  }
+
+  /**
+   * <p>
+   * Sets the number of threads used to compare the spectra. The result does not depend on this
+   * setting.
+   * </p>
+   *
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = ParallelUtil.checkParallelism(parallelism);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<SpectralSimilarityPair> execute() throws MSDKException {
+
+    final PreparedSpectrum prepared[] = spectra.toArray(new PreparedSpectrum[0]);
+    final int numOfSpectra = prepared.length;
+    totalPairs = (long) numOfSpectra * (numOfSpectra - 1) / 2;
+
+    // Tiles of the upper triangle, row by row
+    final int numOfBlocks = (numOfSpectra + TILE_SIZE - 1) / TILE_SIZE;
+    final int numOfTiles = numOfBlocks * (numOfBlocks + 1) / 2;
+    final int tileRows[] = new int[numOfTiles], tileColumns[] = new int[numOfTiles];
+    for (int row = 0, tile = 0; row < numOfBlocks; row++) {
+      for (int column = row; column < numOfBlocks; column++, tile++) {
+        tileRows[tile] = row;
+        tileColumns[tile] = column;
+      }
+    }
+
+    // Compare the tiles, in parallel if requested
+    final List<List<SpectralSimilarityPair>> tilePairs =
+        new ArrayList<>(Collections.nCopies(numOfTiles, null));
+    ParallelUtil.forEachIndex(numOfTiles, parallelism, tile -> {
+      if (!canceled)
+        tilePairs.set(tile, compareTile(prepared, tileRows[tile], tileColumns[tile]));
+    });
+    if (canceled)
+      return null;
+
+    // Merge the tiles of each row of tiles, which are sorted by the first and second index
+    result = new ArrayList<>();
+    for (int tile = 0; tile < numOfTiles; tile++) {
+      if (tileColumns[tile] != tileRows[tile])
+        continue;
+      final int firstTile = tile, lastTile = tile + numOfBlocks - tileRows[tile];
+      final int positions[] = new int[lastTile - firstTile];
+      for (int index1 = tileRows[tile] * TILE_SIZE; index1 < Math.min(numOfSpectra,
+          (tileRows[tile] + 1) * TILE_SIZE); index1++) {
+        for (int t = firstTile; t < lastTile; t++) {
+          final List<SpectralSimilarityPair> pairs = tilePairs.get(t);
+          int position = positions[t - firstTile];
+          while ((position < pairs.size()) && (pairs.get(position).getIndex1() == index1))
+            result.add(pairs.get(position++));
+          positions[t - firstTile] = position;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private @Nonnull List<SpectralSimilarityPair> compareTile(PreparedSpectrum prepared[], int row,
+      int column) {
+    final int start1 = row * TILE_SIZE, end1 = Math.min(prepared.length, start1 + TILE_SIZE);
+    final int start2 = column * TILE_SIZE, end2 = Math.min(prepared.length, start2 + TILE_SIZE);
+    List<SpectralSimilarityPair> pairs = new ArrayList<>();
+    long numOfPairs = 0;
+    for (int index1 = start1; index1 < end1; index1++) {
+      for (int index2 = Math.max(start2, index1 + 1); index2 < end2; index2++) {
+        final double score = algorithm.compareSpectra(prepared[index1], prepared[index2], minScore);
+        if (score >= minScore)
+          pairs.add(new SpectralSimilarityPair(index1, index2, score));
+        numOfPairs++;
+      }
+    }
+    processedPairs.addAndGet(numOfPairs);
+    return pairs;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public Float getFinishedPercentage() {
+    return totalPairs == 0 ? null : (float) processedPairs.get() / totalPairs;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @Nullable
+  public List<SpectralSimilarityPair> getResult() {
+    return result;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void cancel() {
+    canceled = true;
+  }
+
+}
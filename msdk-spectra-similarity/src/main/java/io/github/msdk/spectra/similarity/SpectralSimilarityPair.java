@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+/**
+ * Similarity score of two spectra, identified by their indices in the list of compared spectra.
+ */
+public class SpectralSimilarityPair {
+
+  private final int index1, index2;
+  private final double score;
+
+  /**
+   * <p>
+   * Constructor for SpectralSimilarityPair.
+   * </p>
+   *
+   * @param index1 index of the first spectrum.
+   * @param index2 index of the second spectrum.
+   * @param score the similarity score.
+   */
+  public SpectralSimilarityPair(int index1, int index2, double score) {
+    this.index1 = index1;
+    this.index2 = index2;
+    this.score = score;
+  }
+
+  /**
+   * <p>
+   * Returns the index of the first spectrum, which is lower than the index of the second one.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getIndex1() {
+    return index1;
+  }
+
+  /**
+   * <p>
+   * Returns the index of the second spectrum.
+   * </p>
+   *
+   * @return a int.
+   */
+  public int getIndex2() {
+    return index2;
+  }
+
+  /**
+   * <p>
+   * Getter for the field <code>score</code>.
+   * </p>
+   *
+   * @return a double.
+   */
+  public double getScore() {
+    return score;
+  }
+
+}
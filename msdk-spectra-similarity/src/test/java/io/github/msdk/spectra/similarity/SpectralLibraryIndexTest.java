@@ -0,0 +1,169 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Range;
+
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.SimpleMsSpectrum;
+
+public class SpectralLibraryIndexTest {
+
+  private static final SpectralSimilarityAlgorithm directMatch =
+      new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.COSINE, 0.005);
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static SimpleMsSpectrum createSpectrum(Random random) {
+    // Peaks on a grid of 1 m/z, so all peaks within the tolerance share a bin
+    List<Integer> nominalMz = new ArrayList<>();
+    for (int mz = 50; mz < 300; mz++) {
+      if (random.nextInt(10) == 0)
+        nominalMz.add(mz);
+    }
+    final int size = nominalMz.size();
+    double mzValues[] = new double[size];
+    float intensities[] = new float[size];
+    for (int i = 0; i < size; i++) {
+      mzValues[i] = nominalMz.get(i) + 0.3 + random.nextDouble() * 0.002;
+      intensities[i] = random.nextFloat() * 1000f;
+    }
+    return new SimpleMsSpectrum(mzValues, intensities, size, MsSpectrumType.CENTROIDED);
+  }
+
+  private static List<SpectralLibraryMatch> naiveSearch(List<SimpleMsSpectrum> library,
+      List<Double> precursorMzValues, MsSpectrum query, Double precursorMz,
+      Range<Double> precursorMzRange, SpectralSimilarityAlgorithm algorithm, double minScore) {
+    PreparedSpectrum preparedQuery = new PreparedSpectrum(query, precursorMz);
+    List<SpectralLibraryMatch> matches = new ArrayList<>();
+    for (int i = 0; i < library.size(); i++) {
+      final Double libraryPrecursorMz = precursorMzValues.get(i);
+      if ((precursorMzRange != null)
+          && ((libraryPrecursorMz == null) || !precursorMzRange.contains(libraryPrecursorMz)))
+        continue;
+      final PreparedSpectrum librarySpectrum =
+          new PreparedSpectrum(library.get(i), libraryPrecursorMz);
+      final double score = algorithm.compareSpectra(preparedQuery, librarySpectrum);
+      // The index only finds spectra which share a peak with the query
+      final boolean sharesPeak = directMatch.compareSpectra(preparedQuery, librarySpectrum) > 0.0;
+      if (sharesPeak && (score >= minScore))
+        matches.add(new SpectralLibraryMatch(i, score));
+    }
+    matches.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+    return matches;
+  }
+
+  private static void assertMatches(List<SpectralLibraryMatch> expected,
+      List<SpectralLibraryMatch> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.get(i).getLibraryIndex(), actual.get(i).getLibraryIndex());
+      Assert.assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1E-12);
+    }
+  }
+
+  @Test
+  public void testSearch() throws Exception {
+    Random random = new Random(1);
+    List<SimpleMsSpectrum> library = new ArrayList<>();
+    List<Double> precursorMzValues = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      library.add(createSpectrum(random));
+      precursorMzValues.add(random.nextInt(10) == 0 ? null : 300.0 + random.nextInt(20) * 7.0);
+    }
+    SpectralLibraryIndex index = new SpectralLibraryIndex(library, precursorMzValues, 0.01);
+    Assert.assertEquals(500, index.size());
+
+    File file = folder.newFile("library.index");
+    index.save(file);
+    SpectralLibraryIndex loadedIndex = SpectralLibraryIndex.load(file);
+
+    SpectralSimilarityAlgorithm cosine =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.COSINE, 0.005);
+    SpectralSimilarityAlgorithm modifiedCosine =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.MODIFIED_COSINE, 0.005);
+    for (int i = 0; i < 20; i++) {
+      MsSpectrum query = createSpectrum(random);
+      final double precursorMz = 300.0 + random.nextInt(20) * 7.0;
+      Range<Double> precursorMzRange = Range.closed(precursorMz - 20.0, precursorMz + 20.0);
+
+      List<SpectralLibraryMatch> expected =
+          naiveSearch(library, precursorMzValues, query, precursorMz, null, cosine, 0.2);
+      Assert.assertFalse(expected.isEmpty());
+      assertMatches(expected, index.search(query, precursorMz, null, cosine, 500, 0.2));
+      assertMatches(expected, loadedIndex.search(query, precursorMz, null, cosine, 500, 0.2));
+
+      // Few candidates find the best matches
+      List<SpectralLibraryMatch> best = index.search(query, precursorMz, null, cosine, 20, 0.2);
+      Assert.assertEquals(expected.get(0).getLibraryIndex(), best.get(0).getLibraryIndex());
+
+      // Other algorithms only get the data points
+      MSDKSpectraComparisonAlgorithm algorithm = (mz1, intensities1, size1, mz2, intensities2,
+          size2) -> cosine.compareSpectra(mz1, intensities1, size1, mz2, intensities2, size2);
+      assertMatches(expected, loadedIndex.search(query, null, null, algorithm, 500, 0.2));
+
+      expected = naiveSearch(library, precursorMzValues, query, precursorMz, precursorMzRange,
+          modifiedCosine, 0.2);
+      assertMatches(expected,
+          index.search(query, precursorMz, precursorMzRange, modifiedCosine, 500, 0.2));
+      assertMatches(expected,
+          loadedIndex.search(query, precursorMz, precursorMzRange, modifiedCosine, 500, 0.2));
+    }
+  }
+
+  @Test
+  public void testSaveToLoadedFile() throws Exception {
+    Random random = new Random(2);
+    List<SimpleMsSpectrum> library = new ArrayList<>();
+    List<Double> precursorMzValues = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      library.add(createSpectrum(random));
+      precursorMzValues.add(300.0 + random.nextInt(20) * 7.0);
+    }
+    SpectralLibraryIndex index = new SpectralLibraryIndex(library, precursorMzValues, 0.01);
+
+    // Save the loaded index over the file it is mapped from
+    File file = folder.newFile("library.index");
+    index.save(file);
+    SpectralLibraryIndex loadedIndex = SpectralLibraryIndex.load(file);
+    final long length = file.length();
+    loadedIndex.save(file);
+    Assert.assertEquals(length, file.length());
+    SpectralLibraryIndex reloadedIndex = SpectralLibraryIndex.load(file);
+    Assert.assertEquals(1, folder.getRoot().list().length);
+
+    SpectralSimilarityAlgorithm cosine =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.COSINE, 0.005);
+    for (int i = 0; i < 20; i++) {
+      // Library spectra find themselves with score 1
+      MsSpectrum query = library.get(random.nextInt(library.size()));
+      List<SpectralLibraryMatch> expected = index.search(query, null, null, cosine, 50, 0.2);
+      Assert.assertEquals(1.0, expected.get(0).getScore(), 1E-6);
+      assertMatches(expected, loadedIndex.search(query, null, null, cosine, 50, 0.2));
+      assertMatches(expected, reloadedIndex.search(query, null, null, cosine, 50, 0.2));
+    }
+  }
+
+}
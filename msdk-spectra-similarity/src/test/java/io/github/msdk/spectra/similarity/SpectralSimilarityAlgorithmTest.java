@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpectralSimilarityAlgorithmTest {
+
+  private static final double mz1[] = {50.0, 80.0, 100.0, 150.005, 200.0};
+  private static final float intensities1[] = {10f, 0f, 100f, 50f, 20f};
+  private static final double mz2[] = {60.0, 100.003, 150.0, 214.0};
+  private static final float intensities2[] = {30f, 80f, 40f, 60f};
+
+  @Test
+  public void testCosine() {
+    SpectralSimilarityAlgorithm cosine =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.COSINE, 0.01);
+
+    // Peaks at 100 and 150 match
+    double expected = (100.0 * 80.0 + 50.0 * 40.0)
+        / Math.sqrt(10.0 * 10.0 + 100.0 * 100.0 + 50.0 * 50.0 + 20.0 * 20.0)
+        / Math.sqrt(30.0 * 30.0 + 80.0 * 80.0 + 40.0 * 40.0 + 60.0 * 60.0);
+    Assert.assertEquals(expected,
+        cosine.compareSpectra(mz1, intensities1, 5, mz2, intensities2, 4), 1E-12);
+    Assert.assertEquals(1.0, cosine.compareSpectra(mz1, intensities1, 5, mz1, intensities1, 5),
+        1E-12);
+
+    // Only the peak at 100 matches
+    SpectralSimilarityAlgorithm narrowCosine =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.COSINE, 0.004);
+    Assert.assertTrue(
+        narrowCosine.compareSpectra(mz1, intensities1, 5, mz2, intensities2, 4) < expected);
+
+    // Empty spectra match nothing
+    Assert.assertEquals(0.0, cosine.compareSpectra(mz1, intensities1, 0, mz2, intensities2, 4),
+        0.0);
+  }
+
+  @Test
+  public void testModifiedCosine() {
+    SpectralSimilarityAlgorithm modifiedCosine =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.MODIFIED_COSINE, 0.01);
+    SpectralSimilarityAlgorithm cosine =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.COSINE, 0.01);
+
+    // The peak at 214 of the second spectrum is the peak at 200 shifted by 14
+    PreparedSpectrum spectrum1 = new PreparedSpectrum(mz1, intensities1, 5, 250.0);
+    PreparedSpectrum spectrum2 = new PreparedSpectrum(mz2, intensities2, 4, 264.0);
+    double expected = (100.0 * 80.0 + 50.0 * 40.0 + 20.0 * 60.0)
+        / Math.sqrt(10.0 * 10.0 + 100.0 * 100.0 + 50.0 * 50.0 + 20.0 * 20.0)
+        / Math.sqrt(30.0 * 30.0 + 80.0 * 80.0 + 40.0 * 40.0 + 60.0 * 60.0);
+    Assert.assertEquals(expected, modifiedCosine.compareSpectra(spectrum1, spectrum2), 1E-12);
+    Assert.assertEquals(expected, modifiedCosine.compareSpectra(spectrum2, spectrum1), 1E-12);
+
+    // Without precursor m/z values, the modified cosine is the cosine
+    PreparedSpectrum unknown1 = new PreparedSpectrum(mz1, intensities1, 5, null);
+    PreparedSpectrum unknown2 = new PreparedSpectrum(mz2, intensities2, 4, null);
+    Assert.assertEquals(cosine.compareSpectra(unknown1, unknown2),
+        modifiedCosine.compareSpectra(unknown1, unknown2), 0.0);
+  }
+
+  @Test
+  public void testEntropy() {
+    SpectralSimilarityAlgorithm entropy =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.ENTROPY, 0.01);
+
+    // Merge the weighted spectra and compare the entropies
+    double p[] = weight(new double[] {10.0, 100.0, 50.0, 20.0});
+    double q[] = weight(new double[] {30.0, 80.0, 40.0, 60.0});
+    double merged[] =
+        {p[0] / 2, q[0] / 2, (p[1] + q[1]) / 2, (p[2] + q[2]) / 2, p[3] / 2, q[3] / 2};
+    double expected = 1.0 - (2.0 * entropy(merged) - entropy(p) - entropy(q)) / Math.log(4.0);
+    Assert.assertEquals(expected,
+        entropy.compareSpectra(mz1, intensities1, 5, mz2, intensities2, 4), 1E-12);
+    Assert.assertEquals(1.0, entropy.compareSpectra(mz2, intensities2, 4, mz2, intensities2, 4),
+        1E-12);
+  }
+
+  private static double[] weight(double intensities[]) {
+    double p[] = normalize(intensities);
+    final double entropy = entropy(p);
+    if (entropy < 3.0) {
+      for (int i = 0; i < p.length; i++)
+        p[i] = Math.pow(p[i], 0.25 + 0.25 * entropy);
+      p = normalize(p);
+    }
+    return p;
+  }
+
+  private static double[] normalize(double values[]) {
+    double sum = 0.0;
+    for (double value : values)
+      sum += value;
+    double normalized[] = new double[values.length];
+    for (int i = 0; i < values.length; i++)
+      normalized[i] = values[i] / sum;
+    return normalized;
+  }
+
+  private static double entropy(double p[]) {
+    double entropy = 0.0;
+    for (double value : p)
+      entropy -= value * Math.log(value);
+    return entropy;
+  }
+
+  @Test
+  public void testMinScore() {
+    Random random = new Random(1);
+    for (SpectralSimilarityMeasure measure : SpectralSimilarityMeasure.values()) {
+      SpectralSimilarityAlgorithm algorithm = new SpectralSimilarityAlgorithm(measure, 0.01);
+      for (int i = 0; i < 200; i++) {
+        PreparedSpectrum spectrum1 = createSpectrum(random);
+        PreparedSpectrum spectrum2 = createSpectrum(random);
+        final double score = algorithm.compareSpectra(spectrum1, spectrum2);
+        for (double minScore : new double[] {0.1, 0.3, 0.5, 0.8}) {
+          final double thresholdScore = algorithm.compareSpectra(spectrum1, spectrum2, minScore);
+          if (score >= minScore)
+            Assert.assertEquals(score, thresholdScore, 0.0);
+          else
+            Assert.assertTrue(thresholdScore < minScore);
+        }
+      }
+    }
+  }
+
+  static PreparedSpectrum createSpectrum(Random random) {
+    final int size = 5 + random.nextInt(30);
+    double mz[] = new double[size];
+    float intensities[] = new float[size];
+    for (int i = 0; i < size; i++) {
+      // Few distinct m/z values, so spectra share peaks
+      mz[i] = 50.0 + random.nextInt(100) + random.nextDouble() * 0.005;
+      intensities[i] = random.nextFloat() * 1000f;
+    }
+    return new PreparedSpectrum(mz, intensities, size, 300.0 + random.nextInt(3) * 14.0);
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the pairs per second of SpectralSimilarityMethod with each similarity measure, on
+ * synthetic MS/MS spectra of 20 to 200 peaks. Arguments (all optional): number of runs (default
+ * 3), number of spectra (default 3000), parallelism (default 1), minimum score in percent (default
+ * 70).
+ */
+public class SpectralSimilarityBenchmark {
+
+  public static void main(String[] args) throws Exception {
+
+    int numberOfRuns = 3;
+    int numberOfSpectra = 3000;
+    int parallelism = 1;
+    int minScorePercent = 70;
+    Logger logger = LoggerFactory.getLogger(SpectralSimilarityBenchmark.class);
+
+    if (args.length > 0)
+      numberOfRuns = Integer.valueOf(args[0]);
+    if (args.length > 1)
+      numberOfSpectra = Integer.valueOf(args[1]);
+    if (args.length > 2)
+      parallelism = Integer.valueOf(args[2]);
+    if (args.length > 3)
+      minScorePercent = Integer.valueOf(args[3]);
+
+    // Spectra of a few hundred compounds, with fragments shared by the spectra of a compound
+    Random random = new Random(1);
+    List<PreparedSpectrum> spectra = new ArrayList<>();
+    for (int i = 0; i < numberOfSpectra; i++) {
+      Random compound = new Random(random.nextInt(300));
+      final int size = 20 + compound.nextInt(181);
+      double mzValues[] = new double[size];
+      float intensityValues[] = new float[size];
+      for (int j = 0; j < size; j++) {
+        mzValues[j] = 50.0 + compound.nextDouble() * 950.0 + random.nextGaussian() * 0.002;
+        intensityValues[j] = compound.nextFloat() * 1E5f * (0.5f + random.nextFloat());
+      }
+      spectra.add(new PreparedSpectrum(mzValues, intensityValues, size,
+          1000.0 + random.nextInt(5) * 14.0));
+    }
+    final long numberOfPairs = (long) numberOfSpectra * (numberOfSpectra - 1) / 2;
+
+    for (SpectralSimilarityMeasure measure : SpectralSimilarityMeasure.values()) {
+      SpectralSimilarityAlgorithm algorithm = new SpectralSimilarityAlgorithm(measure, 0.01);
+      for (int run = 0; run < numberOfRuns; run++) {
+        SpectralSimilarityMethod method =
+            new SpectralSimilarityMethod(spectra, algorithm, minScorePercent / 100.0);
+        method.setParallelism(parallelism);
+        long startTime = System.nanoTime();
+        List<SpectralSimilarityPair> pairs = method.execute();
+        long time = System.nanoTime() - startTime;
+        logger.info("Run " + (run + 1) + ", " + measure + ": " + numberOfPairs + " pairs in "
+            + (time / 1000000) + " ms, " + (long) (numberOfPairs * 1E9 / time)
+            + " pairs per second, " + pairs.size() + " pairs above the minimum score");
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * (C) Copyright 2015-2017 by MSDK Development Team
+ *
+ * This software is dual-licensed under either
+ *
+ * (a) the terms of the GNU Lesser General Public License version 2.1 as published by the Free
+ * Software Foundation
+ *
+ * or (per the licensee's choosing)
+ *
+ * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
+ */
+package io.github.msdk.spectra.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpectralSimilarityMethodTest {
+
+  @Test
+  public void testAllPairs() throws Exception {
+    Random random = new Random(1);
+    List<PreparedSpectrum> spectra = new ArrayList<>();
+    for (int i = 0; i < 150; i++)
+      spectra.add(SpectralSimilarityAlgorithmTest.createSpectrum(random));
+    SpectralSimilarityAlgorithm algorithm =
+        new SpectralSimilarityAlgorithm(SpectralSimilarityMeasure.MODIFIED_COSINE, 0.01);
+
+    List<SpectralSimilarityPair> expected = new ArrayList<>();
+    for (int i = 0; i < spectra.size(); i++) {
+      for (int j = i + 1; j < spectra.size(); j++) {
+        final double score = algorithm.compareSpectra(spectra.get(i), spectra.get(j));
+        if (score >= 0.3)
+          expected.add(new SpectralSimilarityPair(i, j, score));
+      }
+    }
+    Assert.assertFalse(expected.isEmpty());
+
+    for (int parallelism : new int[] {1, 3}) {
+      SpectralSimilarityMethod method = new SpectralSimilarityMethod(spectra, algorithm, 0.3);
+      method.setParallelism(parallelism);
+      List<SpectralSimilarityPair> result = method.execute();
+      Assert.assertEquals(1.0f, method.getFinishedPercentage(), 0.0001f);
+      Assert.assertEquals(expected.size(), result.size());
+      for (int i = 0; i < expected.size(); i++) {
+        Assert.assertEquals(expected.get(i).getIndex1(), result.get(i).getIndex1());
+        Assert.assertEquals(expected.get(i).getIndex2(), result.get(i).getIndex2());
+        Assert.assertEquals(expected.get(i).getScore(), result.get(i).getScore(), 0.0);
+      }
+    }
+  }
+
+}
@@ -10,29 +10,62 @@
  *
  * (b) the terms of the Eclipse Public License v1.0 as published by the Eclipse Foundation.
  */
-
 package io.github.msdk.spectra.splash;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
 import com.google.common.base.Preconditions;
 
-import edu.ucdavis.fiehnlab.spectra.hash.core.Spectrum;
-import edu.ucdavis.fiehnlab.spectra.hash.core.Splash;
-import edu.ucdavis.fiehnlab.spectra.hash.core.SplashFactory;
-import edu.ucdavis.fiehnlab.spectra.hash.core.types.Ion;
-import edu.ucdavis.fiehnlab.spectra.hash.core.types.SpectraType;
-import edu.ucdavis.fiehnlab.spectra.hash.core.types.SpectrumImpl;
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKRuntimeException;
 import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.msdk.util.DataPointBuffer;
+import io.github.msdk.util.ParallelUtil;
 
 /**
  * the reference implementation of the Spectral Hash Key
+ *
+ * <p>
+ * The SPLASH (version 1, MS spectra) is calculated directly from the arrays of data points,
+ * following the specification of the Fiehn lab's SPLASH library: a prefix, two intensity
+ * histograms of the m/z values and the beginning of the SHA-256 hash of the data points. Whole files or spectral
+ * libraries can be hashed in parallel by calculateSplashes().
+ * </p>
  */
 public class SplashCalculationAlgorithm {
 
-  private static final Splash splashFactory = SplashFactory.create();
+  private static final String SPLASH_PREFIX = "splash10";
+
+  // Histogram of the 10 highest data points with at least 10 % of the base peak intensity
+  private static final int PREFILTER_BASE = 3;
+  private static final int PREFILTER_LENGTH = 10;
+  private static final int PREFILTER_BIN_SIZE = 5;
+  private static final int PREFILTER_MAX_IONS = 10;
+  private static final double PREFILTER_BASE_PEAK_PERCENTAGE = 0.1;
+
+  // Histogram of all data points
+  private static final int SIMILARITY_BASE = 10;
+  private static final int SIMILARITY_LENGTH = 10;
+  private static final int SIMILARITY_BIN_SIZE = 100;
+
+  private static final double RELATIVE_INTENSITY_SCALE = 100.0;
+  private static final double MZ_PRECISION_FACTOR = 1E6;
+  private static final double EPS_CORRECTION = 1E-7;
+  private static final int HASH_LENGTH = 20;
+  private static final char BASE_36_MAP[] = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+  // Data structures, reused by the spectra hashed in the same thread
+  private static final ThreadLocal<DataPointBuffer> buffers =
+      ThreadLocal.withInitial(DataPointBuffer::new);
+  private static final ThreadLocal<StringBuilder> stringBuilders =
+      ThreadLocal.withInitial(StringBuilder::new);
 
   /**
    * calculates our spectral hash
@@ -41,9 +74,10 @@ public class SplashCalculationAlgorithm {
    * @return a {@link java.lang.String} object.
    */
   public static @Nonnull String calculateSplash(@Nonnull MsSpectrum spectrum) {
-
-    return calculateSplash(spectrum.getMzValues(), spectrum.getIntensityValues(),
-        spectrum.getNumberOfDataPoints());
+    Preconditions.checkNotNull(spectrum);
+    final DataPointBuffer buffer = buffers.get();
+    buffer.load(spectrum);
+    return calculateSplash(buffer.getMzValues(), buffer.getIntensityValues(), buffer.getSize());
   }
 
   /**
@@ -64,19 +98,192 @@ public class SplashCalculationAlgorithm {
     Preconditions.checkNotNull(intValues);
     Preconditions.checkNotNull(size);
 
-    // Convert the spectrum to a list of Ions
-    ArrayList<Ion> ionList = new ArrayList<>();
+    // Convert the intensities to a scale of 0 to 100
+    double maxIntensity = 0.0;
     for (int i = 0; i < size; i++) {
-      Ion ion = new Ion(mzValues[i], intValues[i]);
-      ionList.add(ion);
+      Preconditions.checkArgument(intValues[i] >= 0,
+          "Spectrum must not contain negative intensities");
+      maxIntensity = Math.max(maxIntensity, intValues[i]);
     }
-    Spectrum spectrum = new SpectrumImpl(ionList, SpectraType.MS);
+    final double relIntensities[] = new double[size];
+    for (int i = 0; i < size; i++)
+      relIntensities[i] = intValues[i] / maxIntensity * RELATIVE_INTENSITY_SCALE;
+
+    StringBuilder splash = stringBuilders.get();
+    splash.setLength(0);
+    splash.append(SPLASH_PREFIX);
+    splash.append('-');
+    appendPrefilterBlock(splash, mzValues, relIntensities, size);
+    splash.append('-');
+    appendHistogram(splash, mzValues, relIntensities, null, size, SIMILARITY_BASE,
+        SIMILARITY_LENGTH, SIMILARITY_BIN_SIZE);
+    splash.append('-');
+    final String hash = hashDataPoints(splash, mzValues, relIntensities, size);
+    splash.append(hash);
+
+    return splash.toString();
+  }
+
+  /**
+   * <p>
+   * Calculates the SPLASHes of the given spectra, e.g. of a spectral library.
+   * </p>
+   *
+   * @param spectra a {@link java.util.List} of {@link io.github.msdk.datamodel.MsSpectrum}
+   *        objects.
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   * @return a {@link java.util.List} of the SPLASHes, in the order of the spectra.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  public static @Nonnull List<String> calculateSplashes(
+      @Nonnull List<? extends MsSpectrum> spectra, int parallelism) throws MSDKException {
+    Preconditions.checkNotNull(spectra);
+
+    final String splashes[] = new String[spectra.size()];
+    ParallelUtil.forEachIndex(splashes.length, parallelism,
+        i -> splashes[i] = calculateSplash(spectra.get(i)));
+    return Arrays.asList(splashes);
+  }
+
+  /**
+   * <p>
+   * Calculates the SPLASHes of all scans of the given raw data file.
+   * </p>
+   *
+   * @param rawDataFile a {@link io.github.msdk.datamodel.RawDataFile} object.
+   * @param parallelism number of threads, see {@link io.github.msdk.util.ParallelUtil}
+   * @return a {@link java.util.List} of the SPLASHes, in the order of the scans.
+   * @throws io.github.msdk.MSDKException if any.
+   */
+  public static @Nonnull List<String> calculateSplashes(@Nonnull RawDataFile rawDataFile,
+      int parallelism) throws MSDKException {
+    Preconditions.checkNotNull(rawDataFile);
+    return calculateSplashes(rawDataFile.getScans(), parallelism);
+  }
 
-    // Call the Fiehn lab's SPLASH library
-    String splash = splashFactory.splashIt(spectrum);
-    Preconditions.checkNotNull(splash);
+  /**
+   * Appends the histogram of the highest data points, as a base 36 number of 4 digits.
+   */
+  private static void appendPrefilterBlock(StringBuilder splash, double mzValues[],
+      double relIntensities[], int size) {
 
-    return splash;
+    // Keep the data points with at least the given percentage of the base peak intensity
+    final double minIntensity = PREFILTER_BASE_PEAK_PERCENTAGE * RELATIVE_INTENSITY_SCALE;
+    int selected[] = new int[size];
+    int numOfSelected = 0;
+    for (int i = 0; i < size; i++) {
+      if (relIntensities[i] + EPS_CORRECTION >= minIntensity)
+        selected[numOfSelected++] = i;
+    }
+
+    // Keep the highest data points, ordered by intensity and then by m/z value
+    if (numOfSelected > PREFILTER_MAX_IONS) {
+      int highest[] = new int[PREFILTER_MAX_IONS];
+      int numOfHighest = 0;
+      for (int s = 0; s < numOfSelected; s++) {
+        final int i = selected[s];
+        int pos = numOfHighest;
+        while ((pos > 0) && isHigher(i, highest[pos - 1], mzValues, relIntensities))
+          pos--;
+        if (pos >= PREFILTER_MAX_IONS)
+          continue;
+        final int moved = Math.min(numOfHighest, PREFILTER_MAX_IONS - 1) - pos;
+        System.arraycopy(highest, pos, highest, pos + 1, moved);
+        highest[pos] = i;
+        numOfHighest = Math.min(numOfHighest + 1, PREFILTER_MAX_IONS);
+      }
+      selected = highest;
+      numOfSelected = numOfHighest;
+    }
+
+    StringBuilder histogram = new StringBuilder(PREFILTER_LENGTH);
+    appendHistogram(histogram, mzValues, relIntensities, selected, numOfSelected, PREFILTER_BASE,
+        PREFILTER_LENGTH, PREFILTER_BIN_SIZE);
+
+    // Translate the base 3 histogram to base 36
+    int value = Integer.parseInt(histogram.toString(), PREFILTER_BASE);
+    char digits[] = new char[4];
+    for (int d = digits.length - 1; d >= 0; d--) {
+      digits[d] = BASE_36_MAP[value % 36];
+      value /= 36;
+    }
+    splash.append(digits);
+  }
+
+  private static boolean isHigher(int i, int j, double mzValues[], double relIntensities[]) {
+    if (relIntensities[i] != relIntensities[j])
+      return relIntensities[i] > relIntensities[j];
+    return mzValues[i] < mzValues[j];
+  }
+
+  /**
+   * Appends the histogram of the intensities summed into m/z bins, scaled to the given base. If
+   * indices is not null, only the data points at the given indices are used.
+   */
+  private static void appendHistogram(StringBuilder splash, double mzValues[],
+      double relIntensities[], int indices[], int size, int base, int length, int binSize) {
+
+    final double bins[] = new double[length];
+    double maxBinIntensity = 0.0;
+    for (int s = 0; s < size; s++) {
+      final int i = indices == null ? s : indices[s];
+      final int bin = (int) (mzValues[i] / binSize) % length;
+      bins[bin] += relIntensities[i];
+      maxBinIntensity = Math.max(maxBinIntensity, bins[bin]);
+    }
+
+    for (int bin = 0; bin < length; bin++) {
+      final double value = (base - 1) * bins[bin] / maxBinIntensity;
+      splash.append(BASE_36_MAP[(int) (value + EPS_CORRECTION)]);
+    }
+  }
+
+  /**
+   * Returns the beginning of the SHA-256 hash of the data points, sorted by m/z value and then by
+   * decreasing intensity. Uses the given string builder as a buffer and restores its content.
+   */
+  private static String hashDataPoints(StringBuilder buffer, double mzValues[],
+      double relIntensities[], int size) {
+
+    // Spectra are usually sorted already, otherwise sort the indices
+    Integer order[] = null;
+    for (int i = 1; i < size; i++) {
+      if (mzValues[i] <= mzValues[i - 1]) {
+        order = new Integer[size];
+        for (int j = 0; j < size; j++)
+          order[j] = j;
+        Arrays.sort(order, (a, b) -> {
+          final int result = Double.compare(mzValues[a], mzValues[b]);
+          return result != 0 ? result : Double.compare(relIntensities[b], relIntensities[a]);
+        });
+        break;
+      }
+    }
+
+    final int start = buffer.length();
+    for (int s = 0; s < size; s++) {
+      final int i = order == null ? s : order[s];
+      if (s > 0)
+        buffer.append(' ');
+      buffer.append((long) ((mzValues[i] + EPS_CORRECTION) * MZ_PRECISION_FACTOR));
+      buffer.append(':');
+      buffer.append((long) (relIntensities[i] + EPS_CORRECTION));
+    }
+    final byte encoded[] = buffer.substring(start).getBytes(StandardCharsets.US_ASCII);
+    buffer.setLength(start);
+
+    final byte hash[];
+    try {
+      hash = MessageDigest.getInstance("SHA-256").digest(encoded);
+    } catch (NoSuchAlgorithmException e) {
+      throw new MSDKRuntimeException(e);
+    }
+    char hex[] = new char[HASH_LENGTH];
+    for (int h = 0; h < HASH_LENGTH; h++) {
+      final int value = hash[h / 2] & 0xff;
+      hex[h] = BASE_36_MAP[(h % 2 == 0) ? (value >> 4) : (value & 0x0f)];
+    }
+    return new String(hex);
   }
 
 }
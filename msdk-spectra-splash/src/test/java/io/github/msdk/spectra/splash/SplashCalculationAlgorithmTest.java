@@ -13,10 +13,17 @@
 
 package io.github.msdk.spectra.splash;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.MsSpectrum;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.SimpleMsSpectrum;
 
 public class SplashCalculationAlgorithmTest {
 
@@ -47,4 +54,68 @@ public class SplashCalculationAlgorithmTest {
     Assert.assertEquals(correctSplash, calculatedSplash);
 
   }
+
+  @Test
+  public void testPrefilter() throws MSDKException {
+
+    // 15 data points of equal intensity, of which only the 10 lowest m/z values are used by the
+    // prefilter histogram, and one data point below 10 % of the base peak
+    double mzValues[] = new double[16];
+    float intValues[] = new float[16];
+    for (int i = 0; i < 5; i++) {
+      mzValues[i] = 100.0 + i;
+      mzValues[i + 5] = 110.0 + i;
+      mzValues[i + 10] = 115.0 + i;
+    }
+    mzValues[15] = 200.0;
+    for (int i = 0; i < 15; i++)
+      intValues[i] = 1000f;
+    intValues[15] = 50f;
+
+    final String calculatedSplash =
+        SplashCalculationAlgorithm.calculateSplash(mzValues, intValues, mzValues.length);
+    Assert.assertTrue(calculatedSplash, calculatedSplash.startsWith("splash10-0xr0-0900000000-"));
+
+  }
+
+  @Test
+  public void testUnsortedDataPoints() throws MSDKException {
+
+    double mzValues[] = new double[] {102.0, 100.0, 101.0};
+    float intValues[] = new float[] {3.0f, 1.0f, 2.0f};
+
+    final String correctSplash = "splash10-0udi-0900000000-f5bf6f6a4a1520a35d4f";
+    final String calculatedSplash =
+        SplashCalculationAlgorithm.calculateSplash(mzValues, intValues, mzValues.length);
+
+    Assert.assertEquals(correctSplash, calculatedSplash);
+
+  }
+
+  @Test
+  public void testBatch() throws MSDKException {
+
+    Random random = new Random(1);
+    List<MsSpectrum> spectra = new ArrayList<>();
+    for (int s = 0; s < 200; s++) {
+      final int size = random.nextInt(100);
+      double mzValues[] = new double[size];
+      float intValues[] = new float[size];
+      double mz = 50.0;
+      for (int i = 0; i < size; i++) {
+        mz += random.nextDouble() * 10.0;
+        mzValues[i] = mz;
+        intValues[i] = random.nextFloat() * 1000f;
+      }
+      spectra.add(new SimpleMsSpectrum(mzValues, intValues, size, MsSpectrumType.CENTROIDED));
+    }
+
+    List<String> splashes = SplashCalculationAlgorithm.calculateSplashes(spectra, 3);
+    Assert.assertEquals(spectra.size(), splashes.size());
+    Assert.assertEquals(splashes, SplashCalculationAlgorithm.calculateSplashes(spectra, 1));
+    for (int i = 0; i < spectra.size(); i++)
+      Assert.assertEquals(SplashCalculationAlgorithm.calculateSplash(spectra.get(i)),
+          splashes.get(i));
+
+  }
 }